@@ -0,0 +1,41 @@
+package io.qimo.usdtzero.api;
+
+import io.qimo.usdtzero.api.response.AmountPoolDumpResponse;
+import io.qimo.usdtzero.api.response.AmountPoolStatsResponse;
+import io.qimo.usdtzero.model.ApiResponse;
+import io.qimo.usdtzero.service.AmountPoolMonitorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 金额池管理接口，由 AdminTokenInterceptor 校验请求头 X-Auth-Token
+ */
+@RestController
+@RequestMapping("/api/v1/admin/amount-pool")
+public class AmountPoolAdminController {
+
+    @Autowired
+    private AmountPoolMonitorService amountPoolMonitorService;
+
+    /**
+     * 金额池占用统计
+     */
+    @GetMapping("/stats")
+    public ApiResponse<AmountPoolStatsResponse> stats() {
+        return ApiResponse.success(amountPoolMonitorService.getStats());
+    }
+
+    /**
+     * 分页导出金额池，首页不传 snapshot，翻页时带回首页返回的 snapshot
+     */
+    @GetMapping("/dump")
+    public ApiResponse<AmountPoolDumpResponse> dump(@RequestParam("chain_type") String chainType,
+                                                    @RequestParam(value = "snapshot", required = false) Long snapshot,
+                                                    @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                    @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ApiResponse.success(amountPoolMonitorService.dump(chainType, snapshot, offset, limit));
+    }
+}
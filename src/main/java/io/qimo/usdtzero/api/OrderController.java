@@ -2,23 +2,37 @@ package io.qimo.usdtzero.api;
 
 import io.qimo.usdtzero.api.response.OrderDetailResponse;
 import io.qimo.usdtzero.model.ApiResponse;
+import io.qimo.usdtzero.service.LightweightMetricsService;
 import io.qimo.usdtzero.service.OrderService;
+import io.qimo.usdtzero.service.OrderStatusStreamService;
 import io.qimo.usdtzero.api.request.CreateOrderRequest;
 import io.qimo.usdtzero.api.request.CancelOrderRequest;
+import io.qimo.usdtzero.api.request.BatchCreateOrderRequest;
 import io.qimo.usdtzero.api.response.CreateOrderResponse;
 import io.qimo.usdtzero.api.response.CancelOrderResponse;
+import io.qimo.usdtzero.api.response.BatchCreateOrderResponse;
 import io.qimo.usdtzero.config.SignatureRequired;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/v1/order")
 public class OrderController {
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+    @Autowired
+    private LightweightMetricsService metricsService;
 
     /**
      * 创建订单
@@ -29,6 +43,15 @@ public class OrderController {
         return ApiResponse.success(orderService.createOrder(dto));
     }
 
+    /**
+     * 批量创建订单，返回逐条结果（部分失败不影响其他订单）
+     */
+    @PostMapping("/batch-create")
+    @SignatureRequired
+    public ApiResponse<BatchCreateOrderResponse> batchCreateOrders(@RequestBody @Valid BatchCreateOrderRequest dto) {
+        return ApiResponse.success(orderService.batchCreateOrders(dto));
+    }
+
     /**
      * 取消订单
      */
@@ -39,11 +62,38 @@ public class OrderController {
     }
 
     /**
-     * 查询订单详情
+     * 查询订单详情，支持 If-None-Match 条件请求：订单版本未变时返回304（读订单缓存，不查库）
      */
     @GetMapping("/detail/{tradeNo}")
-    public ApiResponse<OrderDetailResponse> getOrderDetail(@PathVariable String tradeNo) {
-        return ApiResponse.success(orderService.getOrderDetailByTradeNo(tradeNo));
+    public ResponseEntity<ApiResponse<OrderDetailResponse>> getOrderDetail(@PathVariable String tradeNo, WebRequest request) {
+        String etag = orderService.getOrderDetailEtag(tradeNo);
+        if (request.checkNotModified(etag)) {
+            metricsService.recordOrderDetailRequest("not_modified");
+            return null;
+        }
+        metricsService.recordOrderDetailRequest("full");
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(ApiResponse.success(orderService.getOrderDetailByTradeNo(tradeNo)));
+    }
+
+    /**
+     * 长轮询订单详情：订单进入 waitFor 状态（或离开待支付状态）时立即返回，超时返回当前详情
+     */
+    @GetMapping(value = "/detail/{tradeNo}", params = "waitFor")
+    public DeferredResult<ApiResponse<OrderDetailResponse>> awaitOrderDetail(@PathVariable String tradeNo,
+                                                                             @RequestParam String waitFor,
+                                                                             @RequestParam(required = false) Long timeoutMs) {
+        return orderStatusStreamService.await(tradeNo, waitFor, timeoutMs);
+    }
+
+    /**
+     * 订阅订单状态（SSE）：先推送当前详情，状态变更时推送 status 事件后关闭
+     */
+    @GetMapping(value = "/stream/{tradeNo}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus(@PathVariable String tradeNo) {
+        return orderStatusStreamService.subscribe(tradeNo);
     }
 
 } 
\ No newline at end of file
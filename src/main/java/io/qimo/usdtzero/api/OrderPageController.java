@@ -24,7 +24,7 @@ public class OrderPageController {
         model.addAttribute("status", detail.getStatus());
         model.addAttribute("chain_type", detail.getChainType());
         model.addAttribute("address", detail.getAddress());
-        model.addAttribute("timeout", detail.getTimeout());
+        model.addAttribute("expire_time", detail.getExpireTime());
         return "pay";
     }
 } 
\ No newline at end of file
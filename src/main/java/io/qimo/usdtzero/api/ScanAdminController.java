@@ -0,0 +1,40 @@
+package io.qimo.usdtzero.api;
+
+import io.qimo.usdtzero.api.response.ScanStatusResponse;
+import io.qimo.usdtzero.model.ApiResponse;
+import io.qimo.usdtzero.service.ScanCheckpointService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 扫块管理接口，由 AdminTokenInterceptor 校验请求头 X-Auth-Token
+ */
+@RestController
+@RequestMapping("/api/v1/admin/scan")
+public class ScanAdminController {
+
+    @Autowired
+    private ScanCheckpointService scanCheckpointService;
+
+    /**
+     * 各链的检查点、重试队列与死信
+     */
+    @GetMapping("/status")
+    public ApiResponse<ScanStatusResponse> status(@RequestParam(value = "chain_type", required = false) String chainType) {
+        return ApiResponse.success(scanCheckpointService.getStatus(chainType));
+    }
+
+    /**
+     * 重放死信：加入所属链的重试队列，重试成功后死信自动删除
+     * @return 是否已加入（已在重试队列中时为false）
+     */
+    @PostMapping("/dead-letters/{id}/replay")
+    public ApiResponse<Boolean> replay(@PathVariable long id) {
+        return ApiResponse.success(scanCheckpointService.replayDeadLetter(id));
+    }
+}
@@ -0,0 +1,19 @@
+package io.qimo.usdtzero.api.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量创建订单请求
+ * 整批共用一个签名，orders 按请求中的紧凑JSON参与签名；单条订单无需再带 signature，校验失败只影响该条。
+ */
+@Data
+public class BatchCreateOrderRequest {
+    @NotEmpty(message = "订单列表不能为空")
+    private List<CreateOrderRequest> orders;
+    @NotBlank(message = "签名不能为空")
+    private String signature;
+}
@@ -0,0 +1,40 @@
+package io.qimo.usdtzero.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class AmountPoolDumpResponse {
+    @JsonProperty("chain_type")
+    private String chainType;
+    // 快照版本号，翻页时原样带回
+    @JsonProperty("snapshot")
+    private Long snapshot;
+    @JsonProperty("total")
+    private Integer total;
+    @JsonProperty("offset")
+    private Integer offset;
+    @JsonProperty("limit")
+    private Integer limit;
+    @JsonProperty("items")
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @JsonProperty("address")
+        private String address;
+        @JsonProperty("amount")
+        private BigDecimal amount;
+        @JsonProperty("trade_no")
+        private String tradeNo;
+        @JsonProperty("expire_time")
+        private LocalDateTime expireTime;
+        // 快照之后条目已被释放
+        @JsonProperty("released")
+        private Boolean released;
+    }
+}
@@ -0,0 +1,36 @@
+package io.qimo.usdtzero.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class AmountPoolStatsResponse {
+    @JsonProperty("total_locked")
+    private Integer totalLocked;
+    @JsonProperty("pending_expiry")
+    private Integer pendingExpiry;
+    // 最早条目的存活时长（秒），金额池为空时为null
+    @JsonProperty("oldest_entry_age")
+    private Long oldestEntryAge;
+    @JsonProperty("chains")
+    private List<ChainStats> chains;
+    // 分配失败计数，key为 链:价格区间
+    @JsonProperty("allocate_failures")
+    private Map<String, Long> allocateFailures;
+
+    @Data
+    public static class ChainStats {
+        @JsonProperty("chain_type")
+        private String chainType;
+        @JsonProperty("locked")
+        private Integer locked;
+        @JsonProperty("match_index_version")
+        private Long matchIndexVersion;
+        // 收款地址 -> 锁定条目数
+        @JsonProperty("addresses")
+        private Map<String, Integer> addresses;
+    }
+}
@@ -0,0 +1,32 @@
+package io.qimo.usdtzero.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchCreateOrderResponse {
+    @JsonProperty("total")
+    private Integer total;
+    @JsonProperty("success_count")
+    private Integer successCount;
+    // 与请求中的订单顺序一一对应
+    @JsonProperty("items")
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @JsonProperty("index")
+        private Integer index;
+        @JsonProperty("order_no")
+        private String orderNo;
+        @JsonProperty("code")
+        private Integer code;
+        @JsonProperty("message")
+        private String message;
+        // 创建成功时返回订单信息，失败为null
+        @JsonProperty("order")
+        private CreateOrderResponse order;
+    }
+}
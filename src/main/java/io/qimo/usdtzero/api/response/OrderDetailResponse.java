@@ -16,8 +16,8 @@ public class OrderDetailResponse {
     private BigDecimal actualAmount;
     @JsonProperty("address")
     private String address;
-    @JsonProperty("timeout")
-    private Integer timeout;
+    @JsonProperty("expire_time")
+    private Long expireTime; // 过期时间（毫秒时间戳），不随时间变化，便于条件请求；剩余秒数由客户端按 expire_time 计算
     @JsonProperty("chainType")
     private String chainType;
     @JsonProperty("status")
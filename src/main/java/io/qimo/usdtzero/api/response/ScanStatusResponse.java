@@ -0,0 +1,71 @@
+package io.qimo.usdtzero.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class ScanStatusResponse {
+    @JsonProperty("chains")
+    private List<ChainScanStatus> chains;
+    @JsonProperty("dead_letters")
+    private List<DeadLetter> deadLetters;
+
+    @Data
+    public static class ChainScanStatus {
+        @JsonProperty("chain_type")
+        private String chainType;
+        // 其下区块都已处理完的最后一个区块（持久化的检查点）
+        @JsonProperty("checkpoint")
+        private Long checkpoint;
+        // 已扫描（成功或已进入重试队列）的最后一个区块
+        @JsonProperty("frontier")
+        private Long frontier;
+        @JsonProperty("lag")
+        private Long lag;
+        // 超过追块上限推迟补扫、尚未扫描的区块数
+        @JsonProperty("backfill_blocks")
+        private Long backfillBlocks;
+        @JsonProperty("retry_queue")
+        private List<PendingRange> retryQueue;
+    }
+
+    @Data
+    public static class PendingRange {
+        @JsonProperty("from_block")
+        private Long fromBlock;
+        @JsonProperty("to_block")
+        private Long toBlock;
+        @JsonProperty("attempts")
+        private Integer attempts;
+        @JsonProperty("next_retry_time")
+        private LocalDateTime nextRetryTime;
+        @JsonProperty("last_error")
+        private String lastError;
+        // 重放的死信id
+        @JsonProperty("dead_letter_id")
+        private Long deadLetterId;
+    }
+
+    @Data
+    public static class DeadLetter {
+        @JsonProperty("id")
+        private Long id;
+        @JsonProperty("chain_type")
+        private String chainType;
+        @JsonProperty("from_block")
+        private Long fromBlock;
+        @JsonProperty("to_block")
+        private Long toBlock;
+        @JsonProperty("attempts")
+        private Integer attempts;
+        @JsonProperty("last_error")
+        private String lastError;
+        @JsonProperty("create_time")
+        private LocalDateTime createTime;
+        @JsonProperty("update_time")
+        private LocalDateTime updateTime;
+    }
+}
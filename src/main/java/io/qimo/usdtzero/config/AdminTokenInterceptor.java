@@ -0,0 +1,36 @@
+package io.qimo.usdtzero.config;
+
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 管理接口鉴权：请求头 X-Auth-Token 需与 app.auth-token 一致
+ */
+@Component
+public class AdminTokenInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER = "X-Auth-Token";
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String token = request.getHeader(HEADER);
+        String expected = appProperties.getAuthToken();
+        // 常量时间比较，避免按响应时间逐字节猜测
+        if (token == null || expected == null
+                || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new BizException(ErrorCode.ADMIN_TOKEN_INVALID);
+        }
+        return true;
+    }
+}
@@ -12,6 +12,7 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Data
 @Slf4j
@@ -23,6 +24,46 @@ public class AppProperties {
 
     private String staticPath = "static";
     private String sqlitePath;
+    /**
+     * 是否启用金额池日志（重启时由日志秒级恢复金额池）
+     */
+    private Boolean poolJournalEnabled;
+    /**
+     * 金额池日志文件，默认与SQLite数据库同目录
+     */
+    private String poolJournalPath;
+    /**
+     * 是否启用订单写入组提交（并发写入攒批后一次提交）
+     */
+    private Boolean writeBatchEnabled;
+    /**
+     * 组提交最长攒批时长（毫秒）
+     */
+    private Integer writeBatchMaxDelay;
+    /**
+     * 组提交单批最多写操作数
+     */
+    private Integer writeBatchMaxSize;
+    /**
+     * 节点号（0-1023），参与生成订单号，多实例部署时必须各不相同
+     */
+    private Integer nodeId;
+    /**
+     * 订单缓存最多保留的订单数
+     */
+    private Integer orderCacheSize;
+    /**
+     * 订单缓存条目写入后的存活时长（秒）
+     */
+    private Integer orderCacheTtl;
+    /**
+     * 收银台订单状态推送（SSE）最大连接数
+     */
+    private Integer sseMaxConnections;
+    /**
+     * 订单详情长轮询最大挂起请求数
+     */
+    private Integer longPollMaxWaiters;
     @Value("${server.port:8080}")
     private int serverPort;
 
@@ -33,11 +74,74 @@ public class AppProperties {
             uri = getLocalIpAddress() + ":" + serverPort;
         }
         
+        if (poolJournalEnabled == null) {
+            poolJournalEnabled = true;
+        }
+        if (!StringUtils.hasText(poolJournalPath)) {
+            poolJournalPath = (StringUtils.hasText(sqlitePath) ? sqlitePath : "usdtzero.db") + ".pool-journal";
+        }
+        if (writeBatchEnabled == null) {
+            writeBatchEnabled = true;
+        }
+        if (writeBatchMaxDelay == null) {
+            writeBatchMaxDelay = 2;
+        }
+        if (writeBatchMaxDelay < 0) {
+            throw new IllegalArgumentException("write-batch-max-delay 不能小于0");
+        }
+        if (writeBatchMaxSize == null) {
+            writeBatchMaxSize = 64;
+        }
+        if (writeBatchMaxSize <= 0) {
+            throw new IllegalArgumentException("write-batch-max-size 必须大于0");
+        }
+        if (nodeId == null) {
+            nodeId = ThreadLocalRandom.current().nextInt(1024);
+            log.warn("[AppProperties] 未配置 app.node-id，随机使用 {}，多实例部署请为每个实例指定不同的节点号", nodeId);
+        }
+        if (nodeId < 0 || nodeId > 1023) {
+            throw new IllegalArgumentException("node-id 必须在0-1023之间");
+        }
+        if (orderCacheSize == null) {
+            orderCacheSize = 10000;
+        }
+        if (orderCacheSize <= 0) {
+            throw new IllegalArgumentException("order-cache-size 必须大于0");
+        }
+        if (orderCacheTtl == null) {
+            orderCacheTtl = 600;
+        }
+        if (orderCacheTtl <= 0) {
+            throw new IllegalArgumentException("order-cache-ttl 必须大于0");
+        }
+        if (sseMaxConnections == null) {
+            sseMaxConnections = 5000;
+        }
+        if (sseMaxConnections < 0) {
+            throw new IllegalArgumentException("sse-max-connections 不能小于0");
+        }
+        if (longPollMaxWaiters == null) {
+            longPollMaxWaiters = 5000;
+        }
+        if (longPollMaxWaiters < 0) {
+            throw new IllegalArgumentException("long-poll-max-waiters 不能小于0");
+        }
+
         log.info("[AppProperties] uri={}", uri);
         log.info("[AppProperties] authToken={}", authToken);
         log.info("[AppProperties] staticPath={}", staticPath);
         log.info("[AppProperties] sqlitePath={}", sqlitePath);
         log.info("[AppProperties] serverPort={}", serverPort);
+        log.info("[AppProperties] poolJournalEnabled={}", poolJournalEnabled);
+        log.info("[AppProperties] poolJournalPath={}", poolJournalPath);
+        log.info("[AppProperties] writeBatchEnabled={}", writeBatchEnabled);
+        log.info("[AppProperties] writeBatchMaxDelay={}", writeBatchMaxDelay);
+        log.info("[AppProperties] writeBatchMaxSize={}", writeBatchMaxSize);
+        log.info("[AppProperties] nodeId={}", nodeId);
+        log.info("[AppProperties] orderCacheSize={}", orderCacheSize);
+        log.info("[AppProperties] orderCacheTtl={}", orderCacheTtl);
+        log.info("[AppProperties] sseMaxConnections={}", sseMaxConnections);
+        log.info("[AppProperties] longPollMaxWaiters={}", longPollMaxWaiters);
         
         // 校验认证Token不能为空
         if (!StringUtils.hasText(authToken)) {
@@ -1,5 +1,7 @@
 package io.qimo.usdtzero.config;
 
+import io.qimo.usdtzero.service.TimeOrderedTradeNoGenerator;
+import io.qimo.usdtzero.service.TradeNoGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -11,4 +13,9 @@ public class ApplicationConfig {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    @Bean
+    public TradeNoGenerator tradeNoGenerator(AppProperties appProperties) {
+        return new TimeOrderedTradeNoGenerator(appProperties.getNodeId());
+    }
 } 
\ No newline at end of file
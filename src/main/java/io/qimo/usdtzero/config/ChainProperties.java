@@ -7,27 +7,86 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import io.qimo.usdtzero.constant.ChainType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 @Data
 @Slf4j
 @Component
 @ConfigurationProperties(prefix = "chain")
 public class ChainProperties {
+    /**
+     * 收款地址选择策略：金额阶梯占用最少的地址优先
+     */
+    public static final String STRATEGY_LEAST_OCCUPIED = "least-occupied";
+    /**
+     * 收款地址选择策略：轮询
+     */
+    public static final String STRATEGY_ROUND_ROBIN = "round-robin";
+    /**
+     * 收款地址选择策略：按商户订单号哈希，同一订单号固定落到同一地址
+     */
+    public static final String STRATEGY_HASH = "hash";
+    /**
+     * BEP20扫块方式：eth_getLogs 按合约、Transfer事件与收款地址过滤
+     */
+    public static final String SCAN_MODE_LOGS = "logs";
+    /**
+     * BEP20扫块方式：eth_getBlockByNumber 下载完整区块并解析交易input
+     */
+    public static final String SCAN_MODE_BLOCK = "block";
+
     // TRC20链配置
     private Boolean trc20Enable;
     private String trc20Rpc;
     private String trc20Address;
+    // 多个收款地址轮换使用，与 trc20Address 合并去重
+    private List<String> trc20Addresses;
+    // HD模式下派生收款地址的扩展公钥（账户层，如 m/44'/195'/0'）
+    private String trc20Xpub;
     private String trc20SmartContract;
+    // 付款金额匹配容差（USDT），0为精确匹配
+    private String trc20MatchTolerance;
     // spl-token链配置
     private Boolean splEnable;
     private String splRpc;
     private String splAddress;
+    private List<String> splAddresses;
     private String splSmartContract;
+    private String splMatchTolerance;
 
     // BEP20链配置
     private Boolean bep20Enable;
     private String bep20Rpc;
     private String bep20Address;
+    private List<String> bep20Addresses;
+    // HD模式下派生收款地址的扩展公钥（账户层，如 m/44'/60'/0'）
+    private String bep20Xpub;
     private String bep20SmartContract;
+    private String bep20MatchTolerance;
+    // 扫块方式：logs（默认）或 block
+    private String bep20ScanMode;
+    // 单次JSON-RPC批量请求的最大请求数，1为不打包
+    private Integer bep20RpcBatchSize;
+
+    // 多收款地址时的选择策略
+    private String addressStrategy;
+
+    // 扫块续扫：每段区块数、并行段数、重启或中断后优先补扫的最近区块数（更早的区块推迟补扫）
+    private Integer scanRangeSize;
+    private Integer scanParallelism;
+    private Integer scanMaxCatchUp;
+    // 扫描失败区块的重试：最多尝试次数（超过后进入死信）、首次重试间隔（秒，之后逐次翻倍）、重试队列最多区块数
+    private Integer scanRetryMaxAttempts;
+    private Integer scanRetryBaseDelay;
+    private Integer scanRetryQueueLimit;
+    // 每条链同时在途的扫块RPC数上限
+    private Integer scanMaxInFlight;
 
     @PostConstruct
     public void validate() {
@@ -61,6 +120,71 @@ public class ChainProperties {
         if (StringUtils.isBlank(bep20SmartContract)) {
             bep20SmartContract = "0x55d398326f99059fF775485246999027B3197955"; // USDT主网合约
         }
+        // 单地址与地址列表合并，单地址字段保持为第一个地址
+        trc20Addresses = mergeAddresses(trc20Address, trc20Addresses);
+        splAddresses = mergeAddresses(splAddress, splAddresses);
+        bep20Addresses = mergeAddresses(bep20Address, bep20Addresses);
+        if (StringUtils.isBlank(trc20Address) && !trc20Addresses.isEmpty()) {
+            trc20Address = trc20Addresses.get(0);
+        }
+        if (StringUtils.isBlank(splAddress) && !splAddresses.isEmpty()) {
+            splAddress = splAddresses.get(0);
+        }
+        if (StringUtils.isBlank(bep20Address) && !bep20Addresses.isEmpty()) {
+            bep20Address = bep20Addresses.get(0);
+        }
+        trc20MatchTolerance = validateTolerance("trc20-match-tolerance", trc20MatchTolerance);
+        splMatchTolerance = validateTolerance("spl-match-tolerance", splMatchTolerance);
+        bep20MatchTolerance = validateTolerance("bep20-match-tolerance", bep20MatchTolerance);
+        if (StringUtils.isBlank(bep20ScanMode)) {
+            bep20ScanMode = SCAN_MODE_LOGS;
+        }
+        if (!SCAN_MODE_LOGS.equals(bep20ScanMode) && !SCAN_MODE_BLOCK.equals(bep20ScanMode)) {
+            throw new IllegalArgumentException("chain.bep20-scan-mode 只允许为 logs 或 block");
+        }
+        if (bep20RpcBatchSize == null) {
+            bep20RpcBatchSize = 20;
+        }
+        if (bep20RpcBatchSize < 1) {
+            throw new IllegalArgumentException("chain.bep20-rpc-batch-size 必须大于0");
+        }
+        if (scanRangeSize == null) {
+            scanRangeSize = 20;
+        }
+        if (scanParallelism == null) {
+            scanParallelism = 4;
+        }
+        if (scanMaxCatchUp == null) {
+            scanMaxCatchUp = 20000;
+        }
+        if (scanRangeSize < 1 || scanParallelism < 1 || scanMaxCatchUp < 1) {
+            throw new IllegalArgumentException("chain.scan-range-size、scan-parallelism、scan-max-catch-up 必须大于0");
+        }
+        if (scanRetryMaxAttempts == null) {
+            scanRetryMaxAttempts = 5;
+        }
+        if (scanRetryBaseDelay == null) {
+            scanRetryBaseDelay = 5;
+        }
+        if (scanRetryQueueLimit == null) {
+            scanRetryQueueLimit = 1000;
+        }
+        if (scanRetryMaxAttempts < 1 || scanRetryBaseDelay < 1 || scanRetryQueueLimit < 1) {
+            throw new IllegalArgumentException("chain.scan-retry-max-attempts、scan-retry-base-delay、scan-retry-queue-limit 必须大于0");
+        }
+        if (scanMaxInFlight == null) {
+            scanMaxInFlight = 8;
+        }
+        if (scanMaxInFlight < 1) {
+            throw new IllegalArgumentException("chain.scan-max-in-flight 必须大于0");
+        }
+        if (StringUtils.isBlank(addressStrategy)) {
+            addressStrategy = STRATEGY_LEAST_OCCUPIED;
+        }
+        if (!STRATEGY_LEAST_OCCUPIED.equals(addressStrategy) && !STRATEGY_ROUND_ROBIN.equals(addressStrategy)
+                && !STRATEGY_HASH.equals(addressStrategy)) {
+            throw new IllegalArgumentException("chain.address-strategy 只允许为 least-occupied、round-robin 或 hash");
+        }
         if (Boolean.TRUE.equals(trc20Enable)) {
             if (StringUtils.isBlank(trc20Address)) {
                 throw new IllegalArgumentException("chain.trc20-address 不能为空");
@@ -78,16 +202,90 @@ public class ChainProperties {
         }
         log.info("[ChainProperties] trc20Enable={}", trc20Enable);
         log.info("[ChainProperties] trc20Rpc={}", trc20Rpc);
-        log.info("[ChainProperties] trc20Address={}", trc20Address);
+        log.info("[ChainProperties] trc20Addresses={}", trc20Addresses);
         log.info("[ChainProperties] trc20SmartContract={}", trc20SmartContract);
+        log.info("[ChainProperties] trc20Xpub={}", StringUtils.isBlank(trc20Xpub) ? "" : "已配置");
+        log.info("[ChainProperties] trc20MatchTolerance={}", trc20MatchTolerance);
         log.info("[ChainProperties] splEnable={}", splEnable);
         log.info("[ChainProperties] splRpc={}", splRpc);
-        log.info("[ChainProperties] splAddress={}", splAddress);
+        log.info("[ChainProperties] splAddresses={}", splAddresses);
         log.info("[ChainProperties] splSmartContract={}", splSmartContract);
+        log.info("[ChainProperties] splMatchTolerance={}", splMatchTolerance);
         log.info("[ChainProperties] bep20Enable={}", bep20Enable);
         log.info("[ChainProperties] bep20Rpc={}", bep20Rpc);
-        log.info("[ChainProperties] bep20Address={}", bep20Address);
+        log.info("[ChainProperties] bep20Addresses={}", bep20Addresses);
         log.info("[ChainProperties] bep20SmartContract={}", bep20SmartContract);
+        log.info("[ChainProperties] bep20Xpub={}", StringUtils.isBlank(bep20Xpub) ? "" : "已配置");
+        log.info("[ChainProperties] bep20MatchTolerance={}", bep20MatchTolerance);
+        log.info("[ChainProperties] bep20ScanMode={}", bep20ScanMode);
+        log.info("[ChainProperties] bep20RpcBatchSize={}", bep20RpcBatchSize);
+        log.info("[ChainProperties] scanRangeSize={}", scanRangeSize);
+        log.info("[ChainProperties] scanParallelism={}", scanParallelism);
+        log.info("[ChainProperties] scanMaxCatchUp={}", scanMaxCatchUp);
+        log.info("[ChainProperties] scanRetryMaxAttempts={}", scanRetryMaxAttempts);
+        log.info("[ChainProperties] scanRetryBaseDelay={}", scanRetryBaseDelay);
+        log.info("[ChainProperties] scanRetryQueueLimit={}", scanRetryQueueLimit);
+        log.info("[ChainProperties] scanMaxInFlight={}", scanMaxInFlight);
+        log.info("[ChainProperties] addressStrategy={}", addressStrategy);
+    }
+
+    /**
+     * 获取链的付款金额匹配容差（USDT最小单位）
+     * @param chainType 链类型
+     * @return 容差，未配置为0
+     */
+    public long getMatchToleranceMinUnit(String chainType) {
+        String tolerance;
+        if (ChainType.TRC20.equals(chainType)) {
+            tolerance = trc20MatchTolerance;
+        } else if (ChainType.SPL.equals(chainType)) {
+            tolerance = splMatchTolerance;
+        } else if (ChainType.BEP20.equals(chainType)) {
+            tolerance = bep20MatchTolerance;
+        } else {
+            return 0L;
+        }
+        if (StringUtils.isBlank(tolerance)) {
+            return 0L;
+        }
+        return new BigDecimal(tolerance).multiply(BigDecimal.valueOf(ChainType.getUsdtUnit(chainType))).longValue();
+    }
+
+    /**
+     * 校验匹配容差，为空时默认0
+     */
+    private static String validateTolerance(String name, String tolerance) {
+        if (StringUtils.isBlank(tolerance)) {
+            return "0";
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(tolerance.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("chain." + name + " 格式不正确");
+        }
+        if (value.signum() < 0 || value.compareTo(BigDecimal.ONE) >= 0) {
+            throw new IllegalArgumentException("chain." + name + " 必须大于等于0且小于1");
+        }
+        return value.toPlainString();
+    }
+
+    /**
+     * 合并单地址与地址列表，去空白、去重并保持配置顺序
+     */
+    private static List<String> mergeAddresses(String address, List<String> addresses) {
+        Set<String> merged = new LinkedHashSet<>();
+        if (StringUtils.isNotBlank(address)) {
+            merged.add(address.trim());
+        }
+        if (addresses != null) {
+            for (String item : addresses) {
+                if (StringUtils.isNotBlank(item)) {
+                    merged.add(item.trim());
+                }
+            }
+        }
+        return new ArrayList<>(merged);
     }
 
 
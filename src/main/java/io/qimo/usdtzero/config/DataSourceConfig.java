@@ -0,0 +1,52 @@
+package io.qimo.usdtzero.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * SQLite 单写多读数据源
+ * 写连接池固定一个连接（spring.datasource.hikari），只读连接池多个连接（spring.datasource.read.hikari），
+ * WAL 模式下读不阻塞写。@Transactional(readOnly = true) 的方法走只读连接池，其余全部走写连接。
+ * 对外只暴露延迟获取连接的代理：事务开始时还不知道只读标记，执行第一条语句时才决定用哪个连接池。
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("usdtzero-write");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.read.hikari")
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("usdtzero-read");
+        // 只读连接禁止写入，误路由的写操作直接报错而不是绕过单写连接
+        dataSource.setConnectionInitSql("PRAGMA query_only = 1");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") HikariDataSource writeDataSource,
+                                 @Qualifier("readDataSource") HikariDataSource readDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writeDataSource);
+        proxy.setReadOnlyDataSource(readDataSource);
+        log.info("数据源初始化完成，写连接池: {}，只读连接池最大连接数: {}", writeDataSource.getMaximumPoolSize(), readDataSource.getMaximumPoolSize());
+        return proxy;
+    }
+}
@@ -13,10 +13,38 @@ import java.util.regex.Pattern;
 @Component
 @ConfigurationProperties(prefix = "pay")
 public class PayProperties {
+    /**
+     * 收款地址模式：固定收款地址 + 金额池区分订单
+     */
+    public static final String ADDRESS_MODE_AMOUNT_POOL = "amount-pool";
+    /**
+     * 收款地址模式：每笔订单由xpub派生独立收款地址，金额不需要唯一
+     */
+    public static final String ADDRESS_MODE_HD = "hd";
+    /**
+     * 迟到付款处理方式：标记为异常订单，人工处理
+     */
+    public static final String LATE_PAYMENT_FLAG = "flag";
+    /**
+     * 迟到付款处理方式：直接按已支付入账
+     */
+    public static final String LATE_PAYMENT_CREDIT = "credit";
+
     private String atom;
     private String rate;
     private Integer timeout;
     private Boolean tradeIsConfirmed;
+    private String addressMode;
+    // 订单超时后仍可匹配迟到付款的宽限期（秒），0为关闭
+    private Integer latePaymentGrace;
+    // 迟到付款索引最多保留的超时订单数
+    private Integer latePaymentMaxSize;
+    // 迟到付款处理方式：flag 或 credit
+    private String latePaymentAction;
+    // 批量创建订单单次最多条数
+    private Integer batchMaxSize;
+    // 创建订单幂等缓存最多保留的待支付订单数
+    private Integer idempotencyCacheSize;
 
     // 汇率格式校验正则表达式
     private static final Pattern RATE_PATTERN = Pattern.compile("^(~[0-9]+(\\.[0-9]+)?|[+-][0-9]+(\\.[0-9]+)?)$");
@@ -35,6 +63,42 @@ public class PayProperties {
         if (tradeIsConfirmed == null) {
             tradeIsConfirmed = true;
         }
+        if (StringUtils.isBlank(addressMode)) {
+            addressMode = ADDRESS_MODE_AMOUNT_POOL;
+        }
+        if (!ADDRESS_MODE_AMOUNT_POOL.equals(addressMode) && !ADDRESS_MODE_HD.equals(addressMode)) {
+            throw new IllegalArgumentException("address-mode 只允许为 amount-pool 或 hd");
+        }
+        if (latePaymentGrace == null) {
+            latePaymentGrace = 600;
+        }
+        if (latePaymentGrace < 0) {
+            throw new IllegalArgumentException("late-payment-grace 不能小于0");
+        }
+        if (latePaymentMaxSize == null) {
+            latePaymentMaxSize = 10000;
+        }
+        if (latePaymentMaxSize <= 0) {
+            throw new IllegalArgumentException("late-payment-max-size 必须大于0");
+        }
+        if (StringUtils.isBlank(latePaymentAction)) {
+            latePaymentAction = LATE_PAYMENT_FLAG;
+        }
+        if (!LATE_PAYMENT_FLAG.equals(latePaymentAction) && !LATE_PAYMENT_CREDIT.equals(latePaymentAction)) {
+            throw new IllegalArgumentException("late-payment-action 只允许为 flag 或 credit");
+        }
+        if (batchMaxSize == null) {
+            batchMaxSize = 100;
+        }
+        if (batchMaxSize <= 0) {
+            throw new IllegalArgumentException("batch-max-size 必须大于0");
+        }
+        if (idempotencyCacheSize == null) {
+            idempotencyCacheSize = 10000;
+        }
+        if (idempotencyCacheSize <= 0) {
+            throw new IllegalArgumentException("idempotency-cache-size 必须大于0");
+        }
         // 校验atom只能为0.1、0.01、0.001
         if (!"0.1".equals(atom) && !"0.01".equals(atom) && !"0.001".equals(atom)) {
             throw new IllegalArgumentException("atom 只允许为 0.1、0.01 或 0.001");
@@ -45,6 +109,12 @@ public class PayProperties {
         log.info("[PayProperties] rate={}", rate);
         log.info("[PayProperties] timeout={}", timeout);
         log.info("[PayProperties] tradeIsConfirmed={}", tradeIsConfirmed);
+        log.info("[PayProperties] addressMode={}", addressMode);
+        log.info("[PayProperties] latePaymentGrace={}", latePaymentGrace);
+        log.info("[PayProperties] latePaymentMaxSize={}", latePaymentMaxSize);
+        log.info("[PayProperties] latePaymentAction={}", latePaymentAction);
+        log.info("[PayProperties] batchMaxSize={}", batchMaxSize);
+        log.info("[PayProperties] idempotencyCacheSize={}", idempotencyCacheSize);
     }
 
     /**
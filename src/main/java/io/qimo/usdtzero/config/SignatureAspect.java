@@ -1,5 +1,6 @@
 package io.qimo.usdtzero.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.qimo.usdtzero.model.BizException;
 import io.qimo.usdtzero.model.ErrorCode;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -135,12 +137,20 @@ public class SignatureAspect {
 
     /**
      * 将Map转换为String类型的Map（用于签名计算）
+     * 对象和数组（如批量创建的 orders）按紧凑JSON参与签名，字段顺序与请求一致
      */
     private Map<String, String> convertToStringMap(Map<String, Object> map) {
         Map<String, String> result = new HashMap<>();
         for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (entry.getValue() != null) {
-                result.put(entry.getKey(), entry.getValue().toString());
+            Object value = entry.getValue();
+            if (value instanceof Map || value instanceof Collection) {
+                try {
+                    result.put(entry.getKey(), objectMapper.writeValueAsString(value));
+                } catch (JsonProcessingException e) {
+                    throw new BizException(ErrorCode.PARAM_ERROR, "请求体格式错误");
+                }
+            } else if (value != null) {
+                result.put(entry.getKey(), value.toString());
             }
         }
         return result;
@@ -1,9 +1,19 @@
 package io.qimo.usdtzero.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
-    // 简化配置，只保留必要的配置
-} 
\ No newline at end of file
+
+    @Autowired
+    private AdminTokenInterceptor adminTokenInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 管理接口统一校验 X-Auth-Token
+        registry.addInterceptor(adminTokenInterceptor).addPathPatterns("/api/v1/admin/**");
+    }
+}
@@ -67,4 +67,22 @@ public class ChainType {
         // 其他链类型可在此扩展
         throw new IllegalArgumentException("不支持的链类型: " + chainType);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 按地址格式推断链类型：0x开头40位十六进制为BEP20，T开头34位Base58为TRC20，其余视为SPL
+     * @param address 收款地址
+     * @return 链类型，地址为空返回null
+     */
+    public static String resolveByAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+        if (address.length() == 42 && (address.startsWith("0x") || address.startsWith("0X"))) {
+            return BEP20;
+        }
+        if (address.length() == 34 && address.charAt(0) == 'T') {
+            return TRC20;
+        }
+        return SPL;
+    }
+}
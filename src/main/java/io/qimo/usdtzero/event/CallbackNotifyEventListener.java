@@ -26,7 +26,7 @@ public class CallbackNotifyEventListener {
     private RestTemplate restTemplate;
 
     @Async
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void onCallbackNotify(CallbackNotifyEvent event) {
         String tradeNo = event.getMessage().getTradeNo();
         Order order = orderService.getByTradeNo(tradeNo);
@@ -60,6 +60,6 @@ public class CallbackNotifyEventListener {
             log.error("回调通知异常，tradeNo={}, url={}, error={}", order.getTradeNo(), order.getNotifyUrl(), e.getMessage());
         }
         // 更新订单通知状态
-        orderService.updateOrderNotifyInfo(order.getId(), notifyCount, notifyStatus, now);
+        orderService.updateOrderNotifyInfo(order, notifyCount, notifyStatus, now);
     }
 } 
\ No newline at end of file
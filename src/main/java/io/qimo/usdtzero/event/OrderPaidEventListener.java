@@ -17,7 +17,7 @@ public class OrderPaidEventListener {
     private TelegramBotNotifier telegramBotNotifier;
 
     @Async
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void onOrderPaid(OrderPaidEvent event) {
         OrderMessage msg = event.getOrderMessage();
         log.info("监听到订单支付事件: tradeNo={}, to={}, amount={}, txHash={}",
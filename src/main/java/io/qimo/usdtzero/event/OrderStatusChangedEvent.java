@@ -0,0 +1,19 @@
+package io.qimo.usdtzero.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 订单离开待支付状态（超时、取消、异常）；支付成功另见 OrderPaidEvent
+ */
+@Getter
+public class OrderStatusChangedEvent extends ApplicationEvent {
+    private final String tradeNo;
+    private final String status;
+
+    public OrderStatusChangedEvent(Object source, String tradeNo, String status) {
+        super(source);
+        this.tradeNo = tradeNo;
+        this.status = status;
+    }
+}
@@ -0,0 +1,27 @@
+package io.qimo.usdtzero.event;
+
+import io.qimo.usdtzero.constant.OrderStatus;
+import io.qimo.usdtzero.service.OrderStatusStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 订单状态变更推送给收银台的SSE订阅者与挂起的长轮询请求（事务提交后）
+ */
+@Component
+public class OrderStatusStreamListener {
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderPaid(OrderPaidEvent event) {
+        orderStatusStreamService.publish(event.getOrderMessage().getTradeNo(), OrderStatus.PAID);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        orderStatusStreamService.publish(event.getTradeNo(), event.getStatus());
+    }
+}
@@ -0,0 +1,21 @@
+package io.qimo.usdtzero.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("deposit_address")
+public class DepositAddress {
+    @TableId(type = IdType.NONE)
+    private Long id;
+    private String chainType;
+    private Integer derivationIndex;  // 派生序号
+    private String address;
+    private String tradeNo;           // 绑定的订单号
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+}
@@ -18,6 +18,7 @@ public enum ErrorCode {
     SIGNATURE_INVALID(1102, "签名验证失败"),
     SIGNATURE_EXPIRED(1103, "签名已过期"),
     REQUEST_BODY_EMPTY(1104, "请求体不能为空"),
+    ADMIN_TOKEN_INVALID(1105, "管理令牌无效"),
     
     // 订单相关错误 (2001-2099)
     ORDER_NOT_FOUND(2001, "订单不存在"),
@@ -31,6 +32,7 @@ public enum ErrorCode {
     AMOUNT_POOL_ALLOCATE_FAILED(2102, "金额池分配失败"),
     AMOUNT_POOL_RELEASE_FAILED(2103, "金额池释放失败"),
     AMOUNT_POOL_INSUFFICIENT(2104, "金额池余额不足"),
+    AMOUNT_POOL_SNAPSHOT_EXPIRED(2105, "金额池快照已失效"),
     
     // 链配置相关错误 (2201-2299)
     CHAIN_NOT_ENABLED(2201, "链未启用"),
@@ -55,6 +57,7 @@ public enum ErrorCode {
     BLOCKCHAIN_CONNECTION_ERROR(4002, "区块链连接异常"),
     BLOCKCHAIN_TRANSACTION_ERROR(4003, "区块链交易异常"),
     BLOCKCHAIN_CONTRACT_ERROR(4004, "智能合约异常"),
+    SCAN_DEAD_LETTER_NOT_FOUND(4005, "扫块死信不存在"),
 
     
     // 通知相关错误 (5001-5099)
@@ -35,6 +35,7 @@ public class Order {
     private String notifyStatus;
     private LocalDateTime lastNotifyTime; // 最后通知时间
     private LocalDateTime updateTime;
+    private Integer version;        // 版本号，状态或通知信息变更时递增
 
 
 } 
\ No newline at end of file
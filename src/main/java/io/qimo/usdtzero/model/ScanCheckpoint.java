@@ -0,0 +1,17 @@
+package io.qimo.usdtzero.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("scan_checkpoint")
+public class ScanCheckpoint {
+    @TableId(type = IdType.INPUT)
+    private String chainType;
+    private Long blockNumber;         // 已完整处理的最后一个区块号（Solana 为 slot）
+    private LocalDateTime updateTime;
+}
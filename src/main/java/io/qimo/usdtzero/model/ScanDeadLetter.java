@@ -0,0 +1,22 @@
+package io.qimo.usdtzero.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName("scan_dead_letter")
+public class ScanDeadLetter {
+    @TableId(type = IdType.NONE)
+    private Long id;
+    private String chainType;
+    private Long fromBlock;           // 起始区块（含，Solana 为 slot）
+    private Long toBlock;             // 结束区块（含）
+    private Integer attempts;         // 已尝试次数
+    private String lastError;         // 最后一次失败原因
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,54 @@
+package io.qimo.usdtzero.pool;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 收款地址驻留表，把地址字符串映射为从0开始的小整数ID。
+ * 查询只做一次ConcurrentHashMap读取（String自带hash缓存），不产生新对象。
+ */
+public final class AddressInterner {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] addresses = new String[16];
+
+    /**
+     * 查询地址ID
+     * @return 地址ID，未驻留返回-1
+     */
+    public int idOf(String address) {
+        Integer id = ids.get(address);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 驻留地址，已存在时直接返回原ID
+     */
+    public synchronized int intern(String address) {
+        Integer existing = ids.get(address);
+        if (existing != null) {
+            return existing;
+        }
+        int id = ids.size();
+        String[] current = addresses;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, current.length << 1);
+        }
+        current[id] = address;
+        addresses = current;
+        ids.put(address, id);
+        return id;
+    }
+
+    /**
+     * 根据ID反查地址
+     */
+    public String addressOf(int id) {
+        String[] current = addresses;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
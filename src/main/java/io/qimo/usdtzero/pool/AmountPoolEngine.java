@@ -0,0 +1,436 @@
+package io.qimo.usdtzero.pool;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 金额池引擎
+ * 收款地址驻留为小整数ID，每个地址一张以金额最小单位为键的开放寻址表，
+ * 匹配查询不拼接字符串、不装箱。锁粒度为单个地址。
+ */
+public final class AmountPoolEngine<V> {
+
+    /**
+     * allocateNearest 无空闲金额时的返回值
+     */
+    public static final long NO_AMOUNT = Long.MIN_VALUE;
+
+    /**
+     * 条目遍历回调
+     */
+    @FunctionalInterface
+    public interface EntryVisitor<V> {
+        void visit(String address, long amount, V value);
+    }
+
+    /**
+     * 地址金额集合变更回调，在地址锁内调用，回调顺序与变更顺序一致
+     */
+    @FunctionalInterface
+    public interface AmountsListener {
+        /**
+         * @param sortedAmounts 变更后的升序金额（新数组，之后不会被修改）
+         */
+        void onAmountsChanged(String address, long[] sortedAmounts);
+    }
+
+    /**
+     * 条目变更类型
+     */
+    public enum EntryChange {
+        ALLOCATE, PUT, REMOVE
+    }
+
+    /**
+     * 条目变更回调，在地址锁内调用，同一地址的回调顺序与变更顺序一致
+     */
+    @FunctionalInterface
+    public interface EntryListener<V> {
+        /**
+         * @param value 新值，REMOVE 时为被释放的值
+         */
+        void onEntryChanged(EntryChange change, String address, long amount, V value);
+    }
+
+    /**
+     * 单个收款地址的金额表，附带按步进建立的占用位图，所有修改都经由本类以保持两者一致
+     */
+    static final class AddressTable<V> {
+        final int id;
+        final String address;
+        final LongObjectTable<V> entries = new LongObjectTable<>();
+        // 已登记的步进及对应位图，通常只有 pay.atom 对应的一个
+        private long[] steps = new long[0];
+        private AmountSlotBitmap[] bitmaps = new AmountSlotBitmap[0];
+        // 升序金额，写时复制，发布给匹配索引
+        long[] sortedAmounts = new long[0];
+        // 本次加锁期间金额集合是否变化
+        boolean changed;
+
+        AddressTable(int id, String address) {
+            this.id = id;
+            this.address = address;
+        }
+
+        V putIfAbsent(long amount, V value) {
+            V existing = entries.putIfAbsent(amount, value);
+            if (existing == null) {
+                mark(amount, true);
+            }
+            return existing;
+        }
+
+        V put(long amount, V value) {
+            V old = entries.put(amount, value);
+            if (old == null) {
+                mark(amount, true);
+            }
+            return old;
+        }
+
+        V remove(long amount) {
+            V old = entries.remove(amount);
+            if (old != null) {
+                mark(amount, false);
+            }
+            return old;
+        }
+
+        private void mark(long amount, boolean occupied) {
+            int index = Arrays.binarySearch(sortedAmounts, amount);
+            if (occupied && index < 0) {
+                int insertAt = -index - 1;
+                long[] next = new long[sortedAmounts.length + 1];
+                System.arraycopy(sortedAmounts, 0, next, 0, insertAt);
+                next[insertAt] = amount;
+                System.arraycopy(sortedAmounts, insertAt, next, insertAt + 1, sortedAmounts.length - insertAt);
+                sortedAmounts = next;
+            } else if (!occupied && index >= 0) {
+                long[] next = new long[sortedAmounts.length - 1];
+                System.arraycopy(sortedAmounts, 0, next, 0, index);
+                System.arraycopy(sortedAmounts, index + 1, next, index, next.length - index);
+                sortedAmounts = next;
+            }
+            changed = true;
+            for (int i = 0; i < steps.length; i++) {
+                if (Math.floorMod(amount, steps[i]) == 0) {
+                    long slot = Math.floorDiv(amount, steps[i]);
+                    if (occupied) {
+                        bitmaps[i].set(slot);
+                    } else {
+                        bitmaps[i].clear(slot);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 获取步进位图，首次使用时由现有条目构建
+         */
+        AmountSlotBitmap bitmap(long step) {
+            for (int i = 0; i < steps.length; i++) {
+                if (steps[i] == step) {
+                    return bitmaps[i];
+                }
+            }
+            AmountSlotBitmap bitmap = new AmountSlotBitmap();
+            entries.forEach((amount, value) -> {
+                if (Math.floorMod(amount, step) == 0) {
+                    bitmap.set(Math.floorDiv(amount, step));
+                }
+            });
+            steps = Arrays.copyOf(steps, steps.length + 1);
+            bitmaps = Arrays.copyOf(bitmaps, bitmaps.length + 1);
+            steps[steps.length - 1] = step;
+            bitmaps[bitmaps.length - 1] = bitmap;
+            return bitmap;
+        }
+    }
+
+    private final AddressInterner interner = new AddressInterner();
+    @SuppressWarnings("unchecked")
+    private volatile AddressTable<V>[] tables = new AddressTable[16];
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile AmountsListener amountsListener;
+    private volatile EntryListener<? super V> entryListener;
+
+    /**
+     * 设置地址金额集合变更回调
+     */
+    public void setAmountsListener(AmountsListener amountsListener) {
+        this.amountsListener = amountsListener;
+    }
+
+    /**
+     * 设置条目变更回调
+     */
+    public void setEntryListener(EntryListener<? super V> entryListener) {
+        this.entryListener = entryListener;
+    }
+
+    /**
+     * 分配金额，已被占用时返回false
+     */
+    public boolean allocate(String address, long amount, V value) {
+        AddressTable<V> table = tableFor(address);
+        synchronized (table) {
+            if (table.putIfAbsent(amount, value) != null) {
+                return false;
+            }
+            notifyEntry(EntryChange.ALLOCATE, table, amount, value);
+            publish(table);
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 在金额阶梯 base, base + step, ..., base + (maxSteps - 1) * step 中分配离base最近的空闲金额，
+     * 查找与占用在同一把地址锁内完成
+     * @return 分配到的金额，阶梯已满返回 NO_AMOUNT
+     */
+    public long allocateNearest(String address, long base, long step, int maxSteps, V value) {
+        checkStep(step);
+        AddressTable<V> table = tableFor(address);
+        long amount = NO_AMOUNT;
+        synchronized (table) {
+            if (Math.floorMod(base, step) == 0) {
+                long slot = table.bitmap(step).nextClear(Math.floorDiv(base, step), maxSteps);
+                if (slot != NO_AMOUNT) {
+                    amount = slot * step;
+                    table.putIfAbsent(amount, value);
+                }
+            } else {
+                // 基础金额不在步进网格上时退化为逐级探测
+                for (int i = 0; i < maxSteps; i++) {
+                    long candidate = base + i * step;
+                    if (table.putIfAbsent(candidate, value) == null) {
+                        amount = candidate;
+                        break;
+                    }
+                }
+            }
+            if (amount != NO_AMOUNT) {
+                notifyEntry(EntryChange.ALLOCATE, table, amount, value);
+            }
+            publish(table);
+        }
+        if (amount != NO_AMOUNT) {
+            size.incrementAndGet();
+        }
+        return amount;
+    }
+
+    /**
+     * 统计金额阶梯中已被占用的级数
+     */
+    public int occupancy(String address, long base, long step, int maxSteps) {
+        checkStep(step);
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return 0;
+        }
+        synchronized (table) {
+            if (Math.floorMod(base, step) == 0) {
+                return table.bitmap(step).count(Math.floorDiv(base, step), maxSteps);
+            }
+            int count = 0;
+            for (int i = 0; i < maxSteps; i++) {
+                if (table.entries.containsKey(base + i * step)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 插入或覆盖
+     * @return 旧值，不存在返回null
+     */
+    public V put(String address, long amount, V value) {
+        AddressTable<V> table = tableFor(address);
+        V old;
+        synchronized (table) {
+            old = table.put(amount, value);
+            notifyEntry(EntryChange.PUT, table, amount, value);
+            publish(table);
+        }
+        if (old == null) {
+            size.incrementAndGet();
+        }
+        return old;
+    }
+
+    /**
+     * 释放金额
+     * @return 被释放的值，不存在返回null
+     */
+    public V remove(String address, long amount) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return null;
+        }
+        V old;
+        synchronized (table) {
+            old = table.remove(amount);
+            if (old != null) {
+                notifyEntry(EntryChange.REMOVE, table, amount, old);
+            }
+            publish(table);
+        }
+        if (old != null) {
+            size.decrementAndGet();
+        }
+        return old;
+    }
+
+    /**
+     * 仅当当前值与期望值为同一对象时释放
+     */
+    public boolean remove(String address, long amount, V expected) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return false;
+        }
+        synchronized (table) {
+            if (table.entries.get(amount) != expected) {
+                return false;
+            }
+            table.remove(amount);
+            notifyEntry(EntryChange.REMOVE, table, amount, expected);
+            publish(table);
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    public V get(String address, long amount) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return null;
+        }
+        synchronized (table) {
+            return table.entries.get(amount);
+        }
+    }
+
+    public boolean contains(String address, long amount) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return false;
+        }
+        synchronized (table) {
+            return table.entries.containsKey(amount);
+        }
+    }
+
+    /**
+     * 条目总数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 指定地址下的条目数
+     */
+    public int size(String address) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return 0;
+        }
+        synchronized (table) {
+            return table.entries.size();
+        }
+    }
+
+    /**
+     * 逐地址遍历全部条目，遍历期间只锁当前地址，不复制整个池
+     */
+    public void forEach(EntryVisitor<? super V> visitor) {
+        AddressTable<V>[] current = tables;
+        for (AddressTable<V> table : current) {
+            if (table == null) {
+                continue;
+            }
+            synchronized (table) {
+                table.entries.forEach((amount, value) -> visitor.visit(table.address, amount, value));
+            }
+        }
+    }
+
+    /**
+     * 通知条目变更，须在地址锁内调用
+     */
+    private void notifyEntry(EntryChange change, AddressTable<V> table, long amount, V value) {
+        EntryListener<? super V> listener = entryListener;
+        if (listener != null) {
+            listener.onEntryChanged(change, table.address, amount, value);
+        }
+    }
+
+    /**
+     * 地址金额集合有变化时通知回调，须在地址锁内调用
+     */
+    private void publish(AddressTable<V> table) {
+        if (!table.changed) {
+            return;
+        }
+        table.changed = false;
+        AmountsListener listener = amountsListener;
+        if (listener != null) {
+            listener.onAmountsChanged(table.address, table.sortedAmounts);
+        }
+    }
+
+    /**
+     * 地址当前的升序金额（副本）
+     */
+    public long[] sortedAmounts(String address) {
+        AddressTable<V> table = lookup(address);
+        if (table == null) {
+            return new long[0];
+        }
+        synchronized (table) {
+            return table.sortedAmounts.clone();
+        }
+    }
+
+    private static void checkStep(long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step 必须大于0");
+        }
+    }
+
+    AddressTable<V> lookup(String address) {
+        int id = interner.idOf(address);
+        if (id < 0) {
+            return null;
+        }
+        AddressTable<V>[] current = tables;
+        return id < current.length ? current[id] : null;
+    }
+
+    private AddressTable<V> tableFor(String address) {
+        AddressTable<V> table = lookup(address);
+        if (table != null) {
+            return table;
+        }
+        synchronized (this) {
+            table = lookup(address);
+            if (table != null) {
+                return table;
+            }
+            int id = interner.intern(address);
+            AddressTable<V>[] current = tables;
+            if (id >= current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length << 1, id + 1));
+            }
+            table = new AddressTable<>(id, address);
+            current[id] = table;
+            tables = current;
+            return table;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package io.qimo.usdtzero.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 金额池日志（内存映射文件）
+ * 文件头为 magic + version，之后是顺序追加的记录：
+ * [int 正文长度][int CRC32][byte 类型][地址][long 金额][订单号][long 过期毫秒]。
+ * 正文先写、长度最后写，崩溃时未写完的记录长度为0，回放在第一条长度为0或校验失败的记录处停止。
+ * 写入只进页缓存，进程崩溃不丢数据；compact 与 close 时 force 落盘。
+ */
+public final class AmountPoolJournal implements Closeable {
+
+    public static final byte ALLOCATE = 1;
+    public static final byte RELEASE = 2;
+    public static final byte BIND = 3;
+
+    /**
+     * 过期时间为空时的占位值
+     */
+    public static final long NO_EXPIRE = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x55534A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    /**
+     * 记录回调
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(byte type, String address, long amount, String tradeNo, long expireMillis);
+    }
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int records;
+    private boolean fresh;
+    private final CRC32 crc = new CRC32();
+
+    private AmountPoolJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 打开日志文件，不存在或文件头无效时新建
+     * @param initialCapacity 初始映射大小（字节）
+     */
+    public static AmountPoolJournal open(Path path, int initialCapacity) throws IOException {
+        AmountPoolJournal journal = new AmountPoolJournal(path);
+        journal.map(initialCapacity);
+        return journal;
+    }
+
+    /**
+     * 追加一条记录
+     */
+    public synchronized void append(byte type, String address, long amount, String tradeNo, long expireMillis) {
+        ensureOpen();
+        byte[] addressBytes = address.getBytes(StandardCharsets.UTF_8);
+        byte[] tradeNoBytes = tradeNo == null ? null : tradeNo.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + 2 + addressBytes.length + 8 + 2 + (tradeNoBytes == null ? 0 : tradeNoBytes.length) + 8;
+        int recordLength = RECORD_HEADER_SIZE + bodyLength;
+        // 预留下一条记录的长度字段，保证末尾始终可以读到终止标记
+        if (position + recordLength + 4 > buffer.capacity()) {
+            grow(position + recordLength + 4);
+        }
+        int bodyStart = position + RECORD_HEADER_SIZE;
+        buffer.position(bodyStart);
+        buffer.put(type);
+        putBytes(addressBytes);
+        buffer.putLong(amount);
+        putBytes(tradeNoBytes);
+        buffer.putLong(expireMillis);
+        buffer.putInt(position + recordLength, 0);
+        buffer.putInt(position + 4, checksum(bodyStart, bodyLength));
+        buffer.putInt(position, bodyLength);
+        position += recordLength;
+        records++;
+    }
+
+    /**
+     * 按写入顺序回放全部有效记录
+     * @return 回放的记录数
+     */
+    public synchronized int replay(RecordHandler handler) {
+        ensureOpen();
+        int offset = HEADER_SIZE;
+        int count = 0;
+        while (offset < position) {
+            int bodyLength = buffer.getInt(offset);
+            int bodyStart = offset + RECORD_HEADER_SIZE;
+            buffer.position(bodyStart);
+            byte type = buffer.get();
+            String address = getString();
+            long amount = buffer.getLong();
+            String tradeNo = getString();
+            long expireMillis = buffer.getLong();
+            handler.accept(type, address, amount, tradeNo, expireMillis);
+            offset = bodyStart + bodyLength;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 压缩：用当前状态快照重写日志，写入临时文件后原子替换
+     * @param snapshot 由调用方把当前存活条目写入给定的 RecordHandler
+     */
+    public synchronized void compact(Consumer<RecordHandler> snapshot) throws IOException {
+        ensureOpen();
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        Files.deleteIfExists(temp);
+        try (AmountPoolJournal compacted = open(temp, MIN_CAPACITY)) {
+            snapshot.accept(compacted::append);
+            compacted.force();
+        }
+        closeChannel();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(MIN_CAPACITY);
+    }
+
+    /**
+     * 已写入字节数（含文件头）
+     */
+    public synchronized int position() {
+        return position;
+    }
+
+    /**
+     * 当前日志中的记录数
+     */
+    public synchronized int records() {
+        return records;
+    }
+
+    /**
+     * 打开时是否为新建（无历史记录可回放）
+     */
+    public synchronized boolean isFresh() {
+        return fresh;
+    }
+
+    public synchronized void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        closeChannel();
+    }
+
+    private void map(int initialCapacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("日志文件过大: " + path);
+        }
+        int capacity = Math.max(Math.max(initialCapacity, MIN_CAPACITY), (int) fileSize);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        records = 0;
+        if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER_SIZE, 0);
+            position = HEADER_SIZE;
+            fresh = true;
+            return;
+        }
+        position = scan();
+        fresh = false;
+        // 截断尾部未写完或校验失败的记录
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    /**
+     * 校验记录直到遇到终止标记，返回有效数据末尾
+     */
+    private int scan() {
+        int offset = HEADER_SIZE;
+        int limit = buffer.capacity();
+        while (offset + RECORD_HEADER_SIZE <= limit) {
+            int bodyLength = buffer.getInt(offset);
+            int bodyStart = offset + RECORD_HEADER_SIZE;
+            if (bodyLength <= 0 || bodyLength > limit - bodyStart) {
+                break;
+            }
+            if (buffer.getInt(offset + 4) != checksum(bodyStart, bodyLength)) {
+                break;
+            }
+            offset = bodyStart + bodyLength;
+            records++;
+        }
+        return offset;
+    }
+
+    private void grow(int required) {
+        int capacity = buffer.capacity();
+        while (capacity < required) {
+            if (capacity > Integer.MAX_VALUE / 2) {
+                throw new UncheckedIOException(new IOException("日志文件超过映射上限: " + path));
+            }
+            capacity <<= 1;
+        }
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int checksum(int offset, int length) {
+        crc.reset();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private String getString() {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("日志已关闭: " + path);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.qimo.usdtzero.pool;
+
+/**
+ * 金额步进位图（稀疏）
+ * 槽位号 = 金额 / 步进，每4096个槽位一个long[64]块，按需创建、清空后回收。
+ * 查找最近空闲槽位只扫描窗口覆盖的少数几个long，与窗口内占用数量无关。
+ * 非线程安全，由所属地址表加锁。
+ */
+final class AmountSlotBitmap {
+
+    private static final int BLOCK_SHIFT = 12;
+    private static final int WORDS_PER_BLOCK = 1 << (BLOCK_SHIFT - 6);
+
+    private final LongObjectTable<long[]> blocks = new LongObjectTable<>();
+
+    void set(long slot) {
+        long blockKey = slot >> BLOCK_SHIFT;
+        long[] block = blocks.get(blockKey);
+        if (block == null) {
+            block = new long[WORDS_PER_BLOCK];
+            blocks.put(blockKey, block);
+        }
+        block[wordIndex(slot)] |= 1L << slot;
+    }
+
+    void clear(long slot) {
+        long blockKey = slot >> BLOCK_SHIFT;
+        long[] block = blocks.get(blockKey);
+        if (block == null) {
+            return;
+        }
+        int word = wordIndex(slot);
+        block[word] &= ~(1L << slot);
+        if (block[word] == 0L && isEmpty(block)) {
+            blocks.remove(blockKey);
+        }
+    }
+
+    /**
+     * 查找 [from, from + maxSlots) 内第一个空闲槽位
+     * @return 槽位号，无空闲返回 Long.MIN_VALUE
+     */
+    long nextClear(long from, int maxSlots) {
+        long limit = from + maxSlots;
+        long slot = from;
+        while (slot < limit) {
+            long freeBits = ~word(slot) >>> (slot & 63);
+            if (freeBits != 0L) {
+                long candidate = slot + Long.numberOfTrailingZeros(freeBits);
+                return candidate < limit ? candidate : Long.MIN_VALUE;
+            }
+            slot = (slot | 63) + 1;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * 统计 [from, from + maxSlots) 内已占用槽位数
+     */
+    int count(long from, int maxSlots) {
+        long limit = from + maxSlots;
+        long slot = from;
+        int count = 0;
+        while (slot < limit) {
+            long wordEnd = (slot | 63) + 1;
+            long bits = word(slot) >>> (slot & 63);
+            long span = Math.min(wordEnd, limit) - slot;
+            if (span < 64) {
+                bits &= (1L << span) - 1;
+            }
+            count += Long.bitCount(bits);
+            slot = wordEnd;
+        }
+        return count;
+    }
+
+    private long word(long slot) {
+        long[] block = blocks.get(slot >> BLOCK_SHIFT);
+        return block == null ? 0L : block[wordIndex(slot)];
+    }
+
+    private static int wordIndex(long slot) {
+        return (int) (slot >> 6) & (WORDS_PER_BLOCK - 1);
+    }
+
+    private static boolean isEmpty(long[] block) {
+        for (long word : block) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package io.qimo.usdtzero.pool;
+
+/**
+ * 哈希时间轮，用于金额池条目的到期释放
+ * 条目按到期时间落入对应刻度的桶，推进时间轮只访问经过的桶；
+ * 只要超时时长小于一圈（默认4096秒），每个条目只会在到期时被访问一次。
+ * 释放/覆盖后的条目不主动取消，到期时由回调按对象身份判断是否仍然有效。
+ */
+public final class ExpiryWheel<V> {
+
+    /**
+     * 到期回调
+     */
+    @FunctionalInterface
+    public interface ExpiryHandler<V> {
+        void expire(String address, long amount, V value);
+    }
+
+    private static final class Timeout<V> {
+        final String address;
+        final long amount;
+        final V value;
+        final long deadline;
+        Timeout<V> next;
+
+        Timeout(String address, long amount, V value, long deadline) {
+            this.address = address;
+            this.amount = amount;
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final Timeout<V>[] buckets;
+    private long currentTick;
+    private int pending;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis 必须大于0，wheelSize 必须为2的幂");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new Timeout[wheelSize];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * 登记到期时间，已过期的条目在下一次推进时释放
+     */
+    public synchronized void schedule(String address, long amount, V value, long deadlineMillis) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        int index = (int) (tick & mask);
+        Timeout<V> timeout = new Timeout<>(address, amount, value, deadlineMillis);
+        timeout.next = buckets[index];
+        buckets[index] = timeout;
+        pending++;
+    }
+
+    /**
+     * 推进时间轮到 nowMillis，对所有已到期条目调用回调（回调在锁外执行）
+     * @return 到期条目数
+     */
+    public int advance(long nowMillis, ExpiryHandler<? super V> handler) {
+        Timeout<V> expired = collectExpired(nowMillis);
+        int count = 0;
+        while (expired != null) {
+            Timeout<V> next = expired.next;
+            expired.next = null;
+            handler.expire(expired.address, expired.amount, expired.value);
+            expired = next;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 尚未到期（含已失效未清理）的登记数
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+
+    private synchronized Timeout<V> collectExpired(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        if (nowTick <= currentTick) {
+            return null;
+        }
+        // 间隔超过一圈时每个桶只需扫描一次
+        long ticks = Math.min(nowTick - currentTick, (long) buckets.length);
+        Timeout<V> expired = null;
+        for (long t = nowTick - ticks + 1; t <= nowTick; t++) {
+            int index = (int) (t & mask);
+            Timeout<V> kept = null;
+            Timeout<V> node = buckets[index];
+            while (node != null) {
+                Timeout<V> next = node.next;
+                if (node.deadline <= nowMillis) {
+                    node.next = expired;
+                    expired = node;
+                    pending--;
+                } else {
+                    node.next = kept;
+                    kept = node;
+                }
+                node = next;
+            }
+            buckets[index] = kept;
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+}
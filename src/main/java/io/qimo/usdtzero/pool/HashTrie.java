@@ -0,0 +1,254 @@
+package io.qimo.usdtzero.pool;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变哈希字典树（HAMT），键为地址字符串
+ * put/remove 只复制从根到目标槽位路径上的节点（每层至多32个槽），O(log32 n)，新旧版本共享其余节点。
+ * 哈希完全相同的键在最深层放入冲突节点线性查找。
+ */
+final class HashTrie<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final HashTrie EMPTY = new HashTrie<>(Node.EMPTY, 0);
+
+    /**
+     * 节点：slots 为 [键, 值] 对，键为 null 时值为子节点；
+     * 冲突节点不使用位图，slots 全部为 [键, 值]
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0], false);
+
+        final int bitmap;
+        final Object[] slots;
+        final boolean collision;
+
+        Node(int bitmap, Object[] slots, boolean collision) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.collision = collision;
+        }
+
+        /**
+         * 仅含一个键值对（可上提到父节点）
+         */
+        boolean isSinglePair() {
+            return slots.length == 2 && slots[0] != null;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private HashTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> HashTrie<V> empty() {
+        return (HashTrie<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(String key) {
+        int hash = hash(key);
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            if (node.collision) {
+                for (int i = 0; i < node.slots.length; i += 2) {
+                    if (key.equals(node.slots[i])) {
+                        return (V) node.slots[i + 1];
+                    }
+                }
+                return null;
+            }
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            int index = index(node.bitmap, bit);
+            Object slotKey = node.slots[index];
+            if (slotKey == null) {
+                node = (Node) node.slots[index + 1];
+                shift += BITS;
+                continue;
+            }
+            return key.equals(slotKey) ? (V) node.slots[index + 1] : null;
+        }
+    }
+
+    boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 插入或覆盖，返回新版本，原版本不变
+     * @param value 不能为 null
+     */
+    HashTrie<V> put(String key, V value) {
+        int hash = hash(key);
+        int nextSize = containsKey(key) ? size : size + 1;
+        return new HashTrie<>(put(root, hash, key, value, 0), nextSize);
+    }
+
+    /**
+     * 删除键，返回新版本；键不存在时返回自身
+     */
+    HashTrie<V> remove(String key) {
+        Node next = remove(root, hash(key), key, 0);
+        return next == root ? this : new HashTrie<>(next, size - 1);
+    }
+
+    /**
+     * 遍历全部键值对，顺序不确定
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<String, ? super V> action) {
+        forEach(root, (BiConsumer<String, Object>) action);
+    }
+
+    private static void forEach(Node node, BiConsumer<String, Object> action) {
+        for (int i = 0; i < node.slots.length; i += 2) {
+            if (node.slots[i] == null) {
+                forEach((Node) node.slots[i + 1], action);
+            } else {
+                action.accept((String) node.slots[i], node.slots[i + 1]);
+            }
+        }
+    }
+
+    private static Node put(Node node, int hash, String key, Object value, int shift) {
+        if (node.collision) {
+            for (int i = 0; i < node.slots.length; i += 2) {
+                if (key.equals(node.slots[i])) {
+                    return new Node(0, replace(node.slots, i + 1, value), true);
+                }
+            }
+            Object[] slots = Arrays.copyOf(node.slots, node.slots.length + 2);
+            slots[slots.length - 2] = key;
+            slots[slots.length - 1] = value;
+            return new Node(0, slots, true);
+        }
+        int bit = bit(hash, shift);
+        int index = index(node.bitmap, bit);
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 2];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = key;
+            slots[index + 1] = value;
+            System.arraycopy(node.slots, index, slots, index + 2, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots, false);
+        }
+        Object slotKey = node.slots[index];
+        Object slotValue = node.slots[index + 1];
+        if (slotKey == null) {
+            Node child = put((Node) slotValue, hash, key, value, shift + BITS);
+            return new Node(node.bitmap, replace(node.slots, index + 1, child), false);
+        }
+        if (key.equals(slotKey)) {
+            return new Node(node.bitmap, replace(node.slots, index + 1, value), false);
+        }
+        // 槽位已被其他键占用，下沉为子节点
+        Node child = pair((String) slotKey, slotValue, hash((String) slotKey), key, value, hash, shift + BITS);
+        Object[] slots = node.slots.clone();
+        slots[index] = null;
+        slots[index + 1] = child;
+        return new Node(node.bitmap, slots, false);
+    }
+
+    private static Node pair(String key1, Object value1, int hash1, String key2, Object value2, int hash2, int shift) {
+        if (shift >= Integer.SIZE) {
+            return new Node(0, new Object[]{key1, value1, key2, value2}, true);
+        }
+        int position1 = (hash1 >>> shift) & MASK;
+        int position2 = (hash2 >>> shift) & MASK;
+        if (position1 == position2) {
+            return new Node(1 << position1, new Object[]{null, pair(key1, value1, hash1, key2, value2, hash2, shift + BITS)}, false);
+        }
+        Object[] slots = position1 < position2
+                ? new Object[]{key1, value1, key2, value2}
+                : new Object[]{key2, value2, key1, value1};
+        return new Node((1 << position1) | (1 << position2), slots, false);
+    }
+
+    /**
+     * @return 删除后的节点；键不存在时返回原节点
+     */
+    private static Node remove(Node node, int hash, String key, int shift) {
+        if (node.collision) {
+            for (int i = 0; i < node.slots.length; i += 2) {
+                if (key.equals(node.slots[i])) {
+                    return new Node(0, removePair(node.slots, i), true);
+                }
+            }
+            return node;
+        }
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = index(node.bitmap, bit);
+        Object slotKey = node.slots[index];
+        if (slotKey == null) {
+            Node child = (Node) node.slots[index + 1];
+            Node next = remove(child, hash, key, shift + BITS);
+            if (next == child) {
+                return node;
+            }
+            if (next.slots.length == 0) {
+                return new Node(node.bitmap & ~bit, removePair(node.slots, index), false);
+            }
+            if (next.isSinglePair()) {
+                // 子节点只剩一个键值对时上提，保持树高最小
+                Object[] slots = node.slots.clone();
+                slots[index] = next.slots[0];
+                slots[index + 1] = next.slots[1];
+                return new Node(node.bitmap, slots, false);
+            }
+            return new Node(node.bitmap, replace(node.slots, index + 1, next), false);
+        }
+        if (!key.equals(slotKey)) {
+            return node;
+        }
+        return new Node(node.bitmap & ~bit, removePair(node.slots, index), false);
+    }
+
+    private static Object[] replace(Object[] slots, int index, Object value) {
+        Object[] next = slots.clone();
+        next[index] = value;
+        return next;
+    }
+
+    private static Object[] removePair(Object[] slots, int index) {
+        Object[] next = new Object[slots.length - 2];
+        System.arraycopy(slots, 0, next, 0, index);
+        System.arraycopy(slots, index + 2, next, index, slots.length - index - 2);
+        return next;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * 位在节点 slots 中的起始下标
+     */
+    private static int index(int bitmap, int bit) {
+        return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+}
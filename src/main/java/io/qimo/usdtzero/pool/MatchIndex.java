@@ -0,0 +1,219 @@
+package io.qimo.usdtzero.pool;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 扫块匹配索引（不可变快照）
+ * 收款地址 -> 升序排列的已锁定金额。金额池变更时按地址生成新快照并递增版本号，
+ * 地址表为不可变哈希字典树，新快照只复制变更路径上的节点，HD模式地址很多时单次变更仍为 O(log n)。
+ * 扫块线程每个区块取一次快照，整块内看到的金额集合保持一致，读取无锁。
+ */
+public final class MatchIndex {
+
+    public static final MatchIndex EMPTY = new MatchIndex(0L, HashTrie.empty(), 0);
+
+    /**
+     * match 无候选金额时的返回值
+     */
+    public static final long NO_MATCH = Long.MIN_VALUE;
+    /**
+     * match 容差范围内有多个候选金额时的返回值
+     */
+    public static final long AMBIGUOUS = Long.MIN_VALUE + 1;
+
+    private static final long[] NO_AMOUNTS = new long[0];
+
+    /**
+     * 分页遍历回调
+     */
+    @FunctionalInterface
+    public interface AmountVisitor {
+        void visit(String address, long amount);
+    }
+
+    private final long version;
+    private final HashTrie<long[]> amountsByAddress;
+    private final int entryCount;
+    // 按地址排序的遍历顺序，首次分页或遍历地址时生成；并发生成结果相同，无需加锁
+    private volatile String[] sortedAddresses;
+
+    private MatchIndex(long version, HashTrie<long[]> amountsByAddress, int entryCount) {
+        this.version = version;
+        this.amountsByAddress = amountsByAddress;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * 替换单个地址的金额数组，生成下一版本快照
+     * @param address 地址
+     * @param sortedAmounts 升序金额，调用方保证之后不再修改；为空时移除该地址
+     */
+    public MatchIndex with(String address, long[] sortedAmounts) {
+        long[] old = amountsByAddress.get(address);
+        HashTrie<long[]> next = sortedAmounts == null || sortedAmounts.length == 0
+                ? amountsByAddress.remove(address)
+                : amountsByAddress.put(address, sortedAmounts);
+        int count = entryCount - (old == null ? 0 : old.length) + (sortedAmounts == null ? 0 : sortedAmounts.length);
+        return new MatchIndex(version + 1, next, count);
+    }
+
+    /**
+     * 快照版本号，每次变更加一，用于排查扫块与下单之间的时序问题
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 地址预过滤：地址下没有任何锁定金额时直接跳过，不做金额解析
+     */
+    public boolean isWatched(String address) {
+        return address != null && amountsByAddress.containsKey(address);
+    }
+
+    /**
+     * 金额是否已锁定（二分查找）
+     */
+    public boolean contains(String address, long amount) {
+        long[] amounts = address == null ? null : amountsByAddress.get(address);
+        return amounts != null && Arrays.binarySearch(amounts, amount) >= 0;
+    }
+
+    /**
+     * 按容差匹配待支付金额：精确命中优先；否则 [amount - tolerance, amount + tolerance] 内唯一的候选金额；
+     * 多个候选时返回 AMBIGUOUS 交由人工复核。二分查找，O(log n)。
+     * @param tolerance 容差（最小单位），0 表示只做精确匹配
+     * @return 命中的金额，或 NO_MATCH / AMBIGUOUS
+     */
+    public long match(String address, long amount, long tolerance) {
+        long[] amounts = address == null ? null : amountsByAddress.get(address);
+        if (amounts == null) {
+            return NO_MATCH;
+        }
+        int exact = Arrays.binarySearch(amounts, amount);
+        if (exact >= 0) {
+            return amount;
+        }
+        if (tolerance <= 0) {
+            return NO_MATCH;
+        }
+        int from = lowerBound(amounts, amount - tolerance);
+        int to = lowerBound(amounts, amount + tolerance + 1);
+        if (from == to) {
+            return NO_MATCH;
+        }
+        return to - from == 1 ? amounts[from] : AMBIGUOUS;
+    }
+
+    /**
+     * 容差范围内的全部候选金额（升序）
+     */
+    public long[] candidates(String address, long amount, long tolerance) {
+        long[] amounts = address == null ? null : amountsByAddress.get(address);
+        if (amounts == null || tolerance < 0) {
+            return NO_AMOUNTS;
+        }
+        return Arrays.copyOfRange(amounts, lowerBound(amounts, amount - tolerance), lowerBound(amounts, amount + tolerance + 1));
+    }
+
+    /**
+     * 第一个不小于 key 的下标
+     */
+    private static int lowerBound(long[] amounts, long key) {
+        int index = Arrays.binarySearch(amounts, key);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // 金额不重复，命中即为下界
+        return index;
+    }
+
+    /**
+     * 地址下的升序金额（副本）
+     */
+    public long[] amounts(String address) {
+        long[] amounts = address == null ? null : amountsByAddress.get(address);
+        return amounts == null ? NO_AMOUNTS : amounts.clone();
+    }
+
+    /**
+     * 监听的地址集合（只读视图，按地址升序遍历）
+     */
+    public Set<String> addresses() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Arrays.asList(sortedAddresses()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return amountsByAddress.size();
+            }
+
+            @Override
+            public boolean contains(Object address) {
+                return address instanceof String key && amountsByAddress.containsKey(key);
+            }
+        };
+    }
+
+    /**
+     * 监听的地址数
+     */
+    public int addressCount() {
+        return amountsByAddress.size();
+    }
+
+    /**
+     * 地址下的锁定金额数
+     */
+    public int size(String address) {
+        long[] amounts = address == null ? null : amountsByAddress.get(address);
+        return amounts == null ? 0 : amounts.length;
+    }
+
+    /**
+     * 锁定金额总数
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * 按（地址, 金额）升序分页遍历，整段地址直接按数组长度跳过
+     * @param offset 起始序号
+     * @param limit 最多遍历条数
+     */
+    public void forEach(int offset, int limit, AmountVisitor visitor) {
+        String[] addresses = sortedAddresses();
+        int skip = Math.max(offset, 0);
+        int remaining = limit;
+        for (int i = 0; i < addresses.length && remaining > 0; i++) {
+            long[] amounts = amountsByAddress.get(addresses[i]);
+            if (skip >= amounts.length) {
+                skip -= amounts.length;
+                continue;
+            }
+            for (int j = skip; j < amounts.length && remaining > 0; j++, remaining--) {
+                visitor.visit(addresses[i], amounts[j]);
+            }
+            skip = 0;
+        }
+    }
+
+    private String[] sortedAddresses() {
+        String[] addresses = sortedAddresses;
+        if (addresses == null) {
+            String[] keys = new String[amountsByAddress.size()];
+            int[] next = new int[1];
+            amountsByAddress.forEach((address, amounts) -> keys[next[0]++] = address);
+            Arrays.sort(keys);
+            sortedAddresses = addresses = keys;
+        }
+        return addresses;
+    }
+}
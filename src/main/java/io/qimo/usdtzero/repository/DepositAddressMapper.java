@@ -0,0 +1,47 @@
+package io.qimo.usdtzero.repository;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import io.qimo.usdtzero.model.DepositAddress;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface DepositAddressMapper extends BaseMapper<DepositAddress> {
+
+    /**
+     * 查询链上已分配的最大派生序号
+     * @return 最大序号，未分配过返回null
+     */
+    @Select("SELECT MAX(derivation_index) FROM deposit_address WHERE chain_type = #{chainType}")
+    Integer selectMaxIndex(@Param("chainType") String chainType);
+
+    /**
+     * 查询有待支付订单的派生地址
+     */
+    @Select("SELECT d.* FROM deposit_address d WHERE EXISTS (SELECT 1 FROM trade_order o" +
+            " WHERE o.address = d.address AND o.status = 'PENDING')")
+    List<DepositAddress> selectPendingAddresses();
+
+    /**
+     * 查询订单在 since 之后超时或取消、且没有待支付订单的派生地址
+     */
+    @Select("SELECT d.* FROM deposit_address d WHERE EXISTS (SELECT 1 FROM trade_order o" +
+            " WHERE o.address = d.address AND o.status IN ('EXPIRED', 'CANCELLED') AND o.update_time > #{since})" +
+            " AND NOT EXISTS (SELECT 1 FROM trade_order o WHERE o.address = d.address AND o.status = 'PENDING')")
+    List<DepositAddress> selectRecentlyClosedAddresses(@Param("since") LocalDateTime since);
+
+    /**
+     * 绑定订单号
+     */
+    default int bindTradeNo(String address, String tradeNo) {
+        return this.update(new LambdaUpdateWrapper<DepositAddress>()
+                .eq(DepositAddress::getAddress, address)
+                .set(DepositAddress::getTradeNo, tradeNo)
+                .set(DepositAddress::getUpdateTime, LocalDateTime.now()));
+    }
+}
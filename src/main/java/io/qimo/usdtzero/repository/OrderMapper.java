@@ -5,32 +5,33 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import io.qimo.usdtzero.constant.NotifyStatus;
 import io.qimo.usdtzero.model.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
     
     /**
-     * 更新订单状态（只有当订单处于指定状态时才能更新成功）
+     * 更新订单状态（只有当订单处于指定状态时才能更新成功），同时递增版本号
      * @param id 订单ID
      * @param oldStatus 当前状态（只有匹配此状态才能更新）
      * @param newStatus 新状态
      * @return 更新的记录数
      */
     default int updateStatusIfMatch(Long id, String oldStatus, String newStatus) {
-        LambdaQueryWrapper<Order> updateWrapper = new LambdaQueryWrapper<>();
+        LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.eq(Order::getId, id)
-                    .eq(Order::getStatus, oldStatus);
+                    .eq(Order::getStatus, oldStatus)
+                    .set(Order::getStatus, newStatus)
+                    .set(Order::getUpdateTime, LocalDateTime.now())
+                    .setSql("version = version + 1");
         
-        Order updateOrder = new Order();
-        updateOrder.setStatus(newStatus);
-        updateOrder.setUpdateTime(LocalDateTime.now());
-        
-        return update(updateOrder, updateWrapper);
+        return update(updateWrapper);
     }
 
     /**
@@ -49,4 +50,20 @@ public interface OrderMapper extends BaseMapper<Order> {
                 .set(Order::getTxHash, txHash));
     }
 
-} 
\ No newline at end of file
+    /**
+     * 多行插入订单（单条INSERT语句），调用方控制每批行数不超过SQLite的参数上限
+     * @param orders 订单列表，不能为空
+     * @return 插入的记录数
+     */
+    @Insert({"<script>",
+            "INSERT INTO trade_order (trade_no, order_no, amount, actual_amount, address, chain_type, status, signature, rate, scale,",
+            " trade_is_confirmed, notify_url, timeout, payment_url, notify_count, notify_status, create_time, expire_time, update_time, version) VALUES",
+            "<foreach collection='orders' item='o' separator=','>",
+            "(#{o.tradeNo}, #{o.orderNo}, #{o.amount}, #{o.actualAmount}, #{o.address}, #{o.chainType}, #{o.status}, #{o.signature},",
+            " #{o.rate}, #{o.scale}, #{o.tradeIsConfirmed}, #{o.notifyUrl}, #{o.timeout}, #{o.paymentUrl}, #{o.notifyCount},",
+            " #{o.notifyStatus}, #{o.createTime}, #{o.expireTime}, #{o.updateTime}, #{o.version})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("orders") List<Order> orders);
+
+}
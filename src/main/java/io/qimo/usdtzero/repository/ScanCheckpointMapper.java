@@ -0,0 +1,21 @@
+package io.qimo.usdtzero.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import io.qimo.usdtzero.model.ScanCheckpoint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface ScanCheckpointMapper extends BaseMapper<ScanCheckpoint> {
+
+    /**
+     * 写入或更新链的检查点
+     * @return 影响的记录数
+     */
+    @Insert("INSERT INTO scan_checkpoint (chain_type, block_number, update_time) VALUES (#{chainType}, #{blockNumber}, #{updateTime})"
+            + " ON CONFLICT(chain_type) DO UPDATE SET block_number = excluded.block_number, update_time = excluded.update_time")
+    int upsert(@Param("chainType") String chainType, @Param("blockNumber") long blockNumber, @Param("updateTime") LocalDateTime updateTime);
+}
@@ -0,0 +1,9 @@
+package io.qimo.usdtzero.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import io.qimo.usdtzero.model.ScanDeadLetter;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface ScanDeadLetterMapper extends BaseMapper<ScanDeadLetter> {
+}
@@ -0,0 +1,130 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.pool.AmountPoolJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+
+/**
+ * 金额池日志服务
+ * 启动时（早于扫块任务）由日志恢复金额池并挂载日志，运行中定期压缩，关闭时压缩并落盘。
+ * 日志打开或回放失败时不挂载，由 OrderInitializationService 走数据库恢复。
+ */
+@Slf4j
+@Service
+public class AmountPoolJournalService {
+
+    /**
+     * 日志初始映射大小
+     */
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+
+    /**
+     * 日志小于该大小时不压缩
+     */
+    private static final int MIN_COMPACT_BYTES = 1024 * 1024;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private AmountPoolService amountPoolService;
+
+    private volatile boolean restored;
+    private int lastCompactedSize;
+
+    @PostConstruct
+    public void init() {
+        if (!Boolean.TRUE.equals(appProperties.getPoolJournalEnabled())) {
+            log.info("金额池日志未启用，启动时由数据库恢复金额池");
+            return;
+        }
+        Path path = Paths.get(appProperties.getPoolJournalPath());
+        long start = System.currentTimeMillis();
+        AmountPoolJournal journal = null;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            journal = AmountPoolJournal.open(path, INITIAL_CAPACITY);
+            boolean fresh = journal.isFresh();
+            int records = journal.records();
+            int count = amountPoolService.restoreFromJournal(journal, LocalDateTime.now());
+            lastCompactedSize = journal.position();
+            restored = !fresh;
+            log.info("金额池日志加载完成 - 文件: {}, 记录数: {}, 恢复条目: {}, 耗时: {}ms",
+                    path, records, count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            amountPoolService.detachJournal();
+            closeQuietly(journal);
+            log.error("金额池日志加载失败，回退到数据库恢复 - 文件: {}", path, e);
+        }
+    }
+
+    /**
+     * 金额池是否已由日志恢复（为true时订单初始化改为后台对账）
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * 日志增长到上次压缩后大小的4倍（且不小于1MB）时压缩
+     */
+    public synchronized void compactIfNeeded() {
+        AmountPoolJournal journal = amountPoolService.getJournal();
+        if (journal == null) {
+            return;
+        }
+        int size = journal.position();
+        if (size < Math.max(MIN_COMPACT_BYTES, lastCompactedSize * 4L)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            amountPoolService.compactJournal();
+            lastCompactedSize = journal.position();
+            log.info("金额池日志压缩完成 - 压缩前: {} 字节, 压缩后: {} 字节, 耗时: {}ms",
+                    size, lastCompactedSize, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            amountPoolService.detachJournal();
+            closeQuietly(journal);
+            log.error("金额池日志压缩失败，已停用日志", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        AmountPoolJournal journal = amountPoolService.getJournal();
+        if (journal == null) {
+            return;
+        }
+        try {
+            amountPoolService.compactJournal();
+        } catch (IOException e) {
+            log.warn("关闭前压缩金额池日志失败: {}", e.getMessage());
+        }
+        amountPoolService.detachJournal();
+        closeQuietly(journal);
+    }
+
+    private void closeQuietly(AmountPoolJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("关闭金额池日志失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.qimo.usdtzero.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.qimo.usdtzero.api.response.AmountPoolDumpResponse;
+import io.qimo.usdtzero.api.response.AmountPoolStatsResponse;
+import io.qimo.usdtzero.config.PayProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import io.qimo.usdtzero.pool.MatchIndex;
+import io.qimo.usdtzero.util.AmountConvertUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 金额池监控服务：各链占用指标、最早条目存活时长，以及按快照分页导出金额池。
+ * 导出以匹配索引的不可变快照为准，翻页期间快照按版本号保留，不复制整个金额池。
+ */
+@Slf4j
+@Service
+public class AmountPoolMonitorService {
+
+    /**
+     * 单页最多条数
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String[] CHAIN_TYPES = {ChainType.TRC20, ChainType.SPL, ChainType.BEP20};
+
+    @Autowired
+    private AmountPoolService amountPoolService;
+
+    @Autowired
+    private PayProperties payProperties;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    // 翻页中的快照（链类型:版本号 -> 匹配索引）
+    private final Cache<String, MatchIndex> dumpSnapshots = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(2))
+            .maximumSize(16)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        for (String chainType : CHAIN_TYPES) {
+            metricsService.registerAmountPoolLockedGauge(chainType,
+                    () -> amountPoolService.getMatchIndex(chainType).entryCount());
+        }
+        metricsService.registerAmountPoolOldestEntryAgeGauge(() -> {
+            Long age = getOldestEntryAgeSeconds(LocalDateTime.now());
+            return age == null ? 0 : age;
+        });
+    }
+
+    /**
+     * 金额池占用统计
+     */
+    public AmountPoolStatsResponse getStats() {
+        AmountPoolStatsResponse response = new AmountPoolStatsResponse();
+        List<AmountPoolStatsResponse.ChainStats> chains = new ArrayList<>();
+        int total = 0;
+        for (String chainType : CHAIN_TYPES) {
+            MatchIndex index = amountPoolService.getMatchIndex(chainType);
+            AmountPoolStatsResponse.ChainStats stats = new AmountPoolStatsResponse.ChainStats();
+            stats.setChainType(chainType);
+            stats.setLocked(index.entryCount());
+            stats.setMatchIndexVersion(index.version());
+            Map<String, Integer> addresses = new TreeMap<>();
+            for (String address : index.addresses()) {
+                addresses.put(address, index.size(address));
+            }
+            stats.setAddresses(addresses);
+            chains.add(stats);
+            total += index.entryCount();
+        }
+        response.setTotalLocked(total);
+        response.setPendingExpiry(amountPoolService.getPendingExpiryCount());
+        response.setOldestEntryAge(getOldestEntryAgeSeconds(LocalDateTime.now()));
+        response.setChains(chains);
+        response.setAllocateFailures(metricsService.getAmountAllocateFailures());
+        return response;
+    }
+
+    /**
+     * 最早条目的存活时长（秒），按最早过期时间减去订单超时时长推算；没有带过期时间的条目时返回null
+     */
+    public Long getOldestEntryAgeSeconds(LocalDateTime now) {
+        LocalDateTime[] earliest = new LocalDateTime[1];
+        amountPoolService.forEachEntry((address, amount, entry) -> {
+            LocalDateTime expireTime = entry.getExpireTime();
+            if (expireTime != null && (earliest[0] == null || expireTime.isBefore(earliest[0]))) {
+                earliest[0] = expireTime;
+            }
+        });
+        if (earliest[0] == null) {
+            return null;
+        }
+        LocalDateTime createTime = earliest[0].minusSeconds(payProperties.getTimeout());
+        return Math.max(0L, Duration.between(createTime, now).getSeconds());
+    }
+
+    /**
+     * 分页导出金额池
+     * @param chainType 链类型
+     * @param snapshot 快照版本号，首页传null，翻页时传首页返回的版本号
+     * @param offset 起始序号
+     * @param limit 每页条数
+     */
+    public AmountPoolDumpResponse dump(String chainType, Long snapshot, int offset, int limit) {
+        if (!ChainType.isValid(chainType)) {
+            throw new BizException(ErrorCode.CHAIN_TYPE_INVALID, "无效的链类型: " + chainType);
+        }
+        if (offset < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BizException(ErrorCode.PARAM_VALUE_ERROR, "offset 不能小于0，limit 取值 1-" + MAX_PAGE_SIZE);
+        }
+        MatchIndex index;
+        if (snapshot == null) {
+            index = amountPoolService.getMatchIndex(chainType);
+            dumpSnapshots.put(chainType + ":" + index.version(), index);
+        } else {
+            index = dumpSnapshots.getIfPresent(chainType + ":" + snapshot);
+            if (index == null) {
+                throw new BizException(ErrorCode.AMOUNT_POOL_SNAPSHOT_EXPIRED, "快照已失效，请从第一页重新导出");
+            }
+        }
+        long usdtUnit = ChainType.getUsdtUnit(chainType);
+        int scale = payProperties.getScale();
+        List<AmountPoolDumpResponse.Item> items = new ArrayList<>(Math.min(limit, index.entryCount()));
+        index.forEach(offset, limit, (address, amount) -> {
+            AmountPoolDumpResponse.Item item = new AmountPoolDumpResponse.Item();
+            item.setAddress(address);
+            item.setAmount(AmountConvertUtils.calculateUsdtFromMinUnit(amount, usdtUnit, scale));
+            // 条目明细取当前值，快照之后已释放的标记出来
+            AmountPoolService.AmountPoolEntry entry = amountPoolService.getEntryByAddressAndAmount(address, amount);
+            item.setReleased(entry == null);
+            if (entry != null) {
+                item.setTradeNo(entry.getOrderTradeNo());
+                item.setExpireTime(entry.getExpireTime());
+            }
+            items.add(item);
+        });
+        AmountPoolDumpResponse response = new AmountPoolDumpResponse();
+        response.setChainType(chainType);
+        response.setSnapshot(index.version());
+        response.setTotal(index.entryCount());
+        response.setOffset(offset);
+        response.setLimit(limit);
+        response.setItems(items);
+        return response;
+    }
+}
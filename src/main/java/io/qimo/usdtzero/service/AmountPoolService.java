@@ -1,21 +1,46 @@
 package io.qimo.usdtzero.service;
 
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.pool.AmountPoolEngine;
+import io.qimo.usdtzero.pool.AmountPoolJournal;
+import io.qimo.usdtzero.pool.ExpiryWheel;
+import io.qimo.usdtzero.pool.MatchIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * 金额池服务，基于ConcurrentHashMap实现，支持高并发金额分配与释放。
- * 使用Map存储address_amount到AmountPoolEntry的映射，确保同一地址同一金额只能被分配一次。
+ * 金额池服务，底层为AmountPoolEngine（地址驻留 + 按地址的long键开放寻址表），支持高并发金额分配与释放。
+ * 确保同一地址同一金额只能被分配一次；对外仍保留address_amount形式的key以兼容原有接口。
+ * 挂载日志后，分配/释放/绑定订单都会在地址锁内追加到金额池日志（日志顺序与内存变更顺序一致），重启时由日志恢复；
+ * 压缩日志时暂停所有变更，快照与替换期间不会漏记。
+ * 每条链维护一份不可变的匹配索引，金额池变更时在地址锁内按地址增量发布（O(log n)），供扫块线程无锁读取。
  */
+@Slf4j
 @Service
 public class AmountPoolService {
+    /**
+     * 金额阶梯已满时 allocateNearestAmount 的返回值
+     */
+    public static final long NO_AMOUNT = AmountPoolEngine.NO_AMOUNT;
+
     // 金额池条目对象
     @Data
     @NoArgsConstructor
@@ -25,18 +50,58 @@ public class AmountPoolService {
         private LocalDateTime expireTime;
 }
 
-    // 使用线程安全的Map存储address_amount到AmountPoolEntry的映射
-    private final Map<String, AmountPoolEntry> amountPool = new ConcurrentHashMap<>();
+    // 时间轮刻度（毫秒）与槽数，一圈约68分钟，覆盖常规订单超时时长
+    private static final long EXPIRY_TICK_MILLIS = 1000L;
+    private static final int EXPIRY_WHEEL_SIZE = 4096;
+
+    // 按地址分表的金额池引擎
+    private final AmountPoolEngine<AmountPoolEntry> engine = new AmountPoolEngine<>();
+
+    // 过期索引，由带过期时间的分配/更新登记
+    private final ExpiryWheel<AmountPoolEntry> expiryWheel =
+            new ExpiryWheel<>(EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE, System.currentTimeMillis());
+
+    // 金额池日志，未挂载时为null
+    private volatile AmountPoolJournal journal;
+
+    // 变更持读锁、压缩日志持写锁：追加日志在地址锁内，压缩时若不暂停变更，地址锁与日志锁会反序等待
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Lock mutationLock = journalLock.readLock();
+    private final Lock compactionLock = journalLock.writeLock();
+
+    // 由日志恢复的条目，供启动对账识别残留条目，取走后清空
+    private volatile List<RestoredSlot> restoredSlots = List.of();
+
+    // 链类型 -> 匹配索引快照
+    private final Map<String, AtomicReference<MatchIndex>> matchIndexes = new ConcurrentHashMap<>();
+
+    // 地址 -> 链类型，下单时显式登记，只增不减（与引擎驻留的地址一一对应）
+    private final Map<String, String> chainByAddress = new ConcurrentHashMap<>();
+
+    /**
+     * 由日志恢复的金额池条目（按对象身份识别，之后被释放或重新分配的不再匹配）
+     */
+    public record RestoredSlot(String address, long amount, AmountPoolEntry entry) {
+    }
+
+    public AmountPoolService() {
+        engine.setAmountsListener(this::publishMatchIndex);
+        engine.setEntryListener(this::journalChange);
+    }
 
     /**
-     * 分配金额（原有方法）
+     * 分配金额（原有方法），链类型按地址格式推断
      * @param address 地址
      * @param amount 金额
      * @return 是否分配成功
      */
     public boolean allocateAmount(String address, long amount) {
-        String key = buildKey(address, amount);
-        return amountPool.putIfAbsent(key, new AmountPoolEntry()) == null;
+        mutationLock.lock();
+        try {
+            return engine.allocate(address, amount, new AmountPoolEntry());
+        } finally {
+            mutationLock.unlock();
+        }
     }
 
     /**
@@ -48,8 +113,86 @@ public class AmountPoolService {
      * @return 是否分配成功
      */
     public boolean allocateAmount(String address, long amount, String orderTradeNo, LocalDateTime expireTime) {
-        String key = buildKey(address, amount);
-        return amountPool.putIfAbsent(key, new AmountPoolEntry(orderTradeNo, expireTime)) == null;
+        AmountPoolEntry entry = new AmountPoolEntry(orderTradeNo, expireTime);
+        mutationLock.lock();
+        try {
+            if (!engine.allocate(address, amount, entry)) {
+                return false;
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+        scheduleExpiry(address, amount, entry);
+        return true;
+    }
+
+    /**
+     * 在金额阶梯 baseAmount + i * step（0 <= i < maxSteps）中分配离基础金额最近的空闲金额
+     * @param address 地址
+     * @param baseAmount 基础金额
+     * @param step 步进
+     * @param maxSteps 最大级数
+     * @return 分配到的金额，阶梯已满返回 NO_AMOUNT
+     */
+    public long allocateNearestAmount(String address, long baseAmount, long step, int maxSteps) {
+        mutationLock.lock();
+        try {
+            return engine.allocateNearest(address, baseAmount, step, maxSteps, new AmountPoolEntry());
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * 分配金额，并把地址登记到指定链的匹配索引
+     * @param chainType 链类型
+     * @param address 地址
+     * @param amount 金额
+     * @return 是否分配成功
+     */
+    public boolean allocateAmount(String chainType, String address, long amount) {
+        bindChain(chainType, address);
+        return allocateAmount(address, amount);
+    }
+
+    /**
+     * 分配金额（带订单号和过期时间），并把地址登记到指定链的匹配索引
+     * @param chainType 链类型
+     * @param address 地址
+     * @param amount 金额
+     * @param orderTradeNo 订单号
+     * @param expireTime 过期时间
+     * @return 是否分配成功
+     */
+    public boolean allocateAmount(String chainType, String address, long amount, String orderTradeNo, LocalDateTime expireTime) {
+        bindChain(chainType, address);
+        return allocateAmount(address, amount, orderTradeNo, expireTime);
+    }
+
+    /**
+     * 在金额阶梯中分配离基础金额最近的空闲金额，并把地址登记到指定链的匹配索引
+     * @param chainType 链类型
+     * @param address 地址
+     * @param baseAmount 基础金额
+     * @param step 步进
+     * @param maxSteps 最大级数
+     * @return 分配到的金额，阶梯已满返回 NO_AMOUNT
+     */
+    public long allocateNearestAmount(String chainType, String address, long baseAmount, long step, int maxSteps) {
+        bindChain(chainType, address);
+        return allocateNearestAmount(address, baseAmount, step, maxSteps);
+    }
+
+    /**
+     * 查询金额阶梯占用情况
+     * @param address 地址
+     * @param baseAmount 基础金额
+     * @param step 步进
+     * @param maxSteps 最大级数
+     * @return 阶梯中已被占用的级数
+     */
+    public int getLadderOccupancy(String address, long baseAmount, long step, int maxSteps) {
+        return engine.occupancy(address, baseAmount, step, maxSteps);
     }
 
     /**
@@ -58,8 +201,28 @@ public class AmountPoolService {
      * @param amount 金额
      */
     public void releaseAmount(String address, long amount) {
-        String key = buildKey(address, amount);
-        amountPool.remove(key);
+        mutationLock.lock();
+        try {
+            engine.remove(address, amount);
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * 仅当金额仍由指定条目占用时释放（按对象身份比较）
+     * @param address 地址
+     * @param amount 金额
+     * @param expected 期望的条目
+     * @return 是否释放
+     */
+    public boolean releaseAmount(String address, long amount, AmountPoolEntry expected) {
+        mutationLock.lock();
+        try {
+            return engine.remove(address, amount, expected);
+        } finally {
+            mutationLock.unlock();
+        }
     }
 
     /**
@@ -67,7 +230,18 @@ public class AmountPoolService {
      * @param key 唯一key
      */
     public void releaseAmountByKey(String key) {
-        amountPool.remove(key);
+        int separator = key == null ? -1 : key.lastIndexOf('_');
+        if (separator < 0) {
+            return;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(key.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            // 非法key，忽略
+            return;
+        }
+        releaseAmount(key.substring(0, separator), amount);
     }
 
     /**
@@ -77,24 +251,62 @@ public class AmountPoolService {
      * @return 是否可用
      */
     public boolean isAmountAvailable(String address, long amount) {
-        String key = buildKey(address, amount);
-        return !amountPool.containsKey(key);
+        return !engine.contains(address, amount);
+    }
+
+    /**
+     * 查询金额是否已被锁定（扫块匹配使用，不构建key、不产生新对象）
+     * @param address 地址
+     * @param amount 金额
+     * @return 是否已锁定
+     */
+    public boolean isAmountLocked(String address, long amount) {
+        return engine.contains(address, amount);
+    }
+
+    /**
+     * 获取指定链的匹配索引快照，扫块时每个区块取一次
+     * @param chainType 链类型
+     * @return 匹配索引，无锁定金额时为空索引
+     */
+    public MatchIndex getMatchIndex(String chainType) {
+        AtomicReference<MatchIndex> reference = matchIndexes.get(chainType);
+        return reference == null ? MatchIndex.EMPTY : reference.get();
+    }
+
+    /**
+     * 金额池条目总数
+     */
+    public int size() {
+        return engine.size();
+    }
+
+    /**
+     * 指定地址下的条目数
+     * @param address 地址
+     */
+    public int sizeOf(String address) {
+        return engine.size(address);
     }
 
     /**
-     * 获取所有锁定的金额
+     * 获取所有锁定的金额（快照）
      * @return 锁定的金额集合
      */
     public Set<String> getAllLockedAmounts() {
-        return amountPool.keySet();
+        Set<String> keys = new HashSet<>();
+        engine.forEach((address, amount, entry) -> keys.add(buildKey(address, amount)));
+        return keys;
     }
 
     /**
-     * 获取资金池与订单号和过期时间的关联关系
+     * 获取资金池与订单号和过期时间的关联关系（快照）
      * @return 关联关系Map
      */
     public Map<String, AmountPoolEntry> getAmountToOrderMap() {
-        return new ConcurrentHashMap<>(amountPool);
+        Map<String, AmountPoolEntry> snapshot = new HashMap<>();
+        engine.forEach((address, amount, entry) -> snapshot.put(buildKey(address, amount), entry));
+        return snapshot;
     }
 
     /**
@@ -106,13 +318,197 @@ public class AmountPoolService {
      * @return 是否更新成功
      */
     public boolean updateOrderTradeNoAndExpireTime(String address, long amount, String orderTradeNo, LocalDateTime expireTime) {
-        String key = buildKey(address, amount);
-        // put时value为null，更新时需要新建对象
+        // 条目对象可能已被扫块线程读取，更新时新建对象而不是原地修改
         AmountPoolEntry entry = new AmountPoolEntry(orderTradeNo, expireTime);
-        amountPool.put(key, entry);
+        mutationLock.lock();
+        try {
+            engine.put(address, amount, entry);
+        } finally {
+            mutationLock.unlock();
+        }
+        scheduleExpiry(address, amount, entry);
         return true;
     }
 
+    /**
+     * 释放已过期的金额，只处理到期的时间轮槽位，不遍历整个金额池。
+     * 条目已被释放或被新条目覆盖时跳过（按对象身份比较）。
+     * @param now 当前时间
+     * @return 本次释放的条目数
+     */
+    public int releaseExpiredAmounts(LocalDateTime now) {
+        int[] released = new int[1];
+        expiryWheel.advance(toEpochMillis(now), (address, amount, entry) -> {
+            if (releaseAmount(address, amount, entry)) {
+                released[0]++;
+            }
+        });
+        return released[0];
+    }
+
+    /**
+     * 时间轮中待到期的登记数（含已释放但尚未到期的失效登记）
+     */
+    public int getPendingExpiryCount() {
+        return expiryWheel.pending();
+    }
+
+    /**
+     * 逐地址遍历金额池条目，不复制整个池
+     * @param visitor 回调
+     */
+    public void forEachEntry(AmountPoolEngine.EntryVisitor<? super AmountPoolEntry> visitor) {
+        engine.forEach(visitor);
+    }
+
+    /**
+     * 由日志恢复金额池，恢复完成后挂载日志。
+     * 已过期或未绑定订单号的条目（创建订单中途退出）不恢复。
+     * @param journal 金额池日志
+     * @param now 当前时间
+     * @return 恢复的条目数
+     */
+    public int restoreFromJournal(AmountPoolJournal journal, LocalDateTime now) {
+        AmountPoolEngine<AmountPoolEntry> replayed = new AmountPoolEngine<>();
+        journal.replay((type, address, amount, tradeNo, expireMillis) -> {
+            switch (type) {
+                case AmountPoolJournal.ALLOCATE -> replayed.allocate(address, amount, toEntry(tradeNo, expireMillis));
+                case AmountPoolJournal.BIND -> replayed.put(address, amount, toEntry(tradeNo, expireMillis));
+                case AmountPoolJournal.RELEASE -> replayed.remove(address, amount);
+                default -> log.warn("金额池日志未知记录类型: {}", type);
+            }
+        });
+        long nowMillis = toEpochMillis(now);
+        List<RestoredSlot> restored = new ArrayList<>();
+        replayed.forEach((address, amount, entry) -> {
+            if (entry.getOrderTradeNo() == null || entry.getExpireTime() == null
+                    || toEpochMillis(entry.getExpireTime()) <= nowMillis) {
+                return;
+            }
+            if (engine.allocate(address, amount, entry)) {
+                scheduleExpiry(address, amount, entry);
+                restored.add(new RestoredSlot(address, amount, entry));
+            }
+        });
+        this.restoredSlots = restored;
+        this.journal = journal;
+        return restored.size();
+    }
+
+    /**
+     * 取走由日志恢复的条目，只返回一次，之后为空
+     * @return 恢复时的条目列表
+     */
+    public List<RestoredSlot> takeRestoredSlots() {
+        List<RestoredSlot> slots = restoredSlots;
+        restoredSlots = List.of();
+        return slots;
+    }
+
+    /**
+     * 用当前金额池快照压缩日志，期间暂停金额池变更
+     */
+    public void compactJournal() throws IOException {
+        compactionLock.lock();
+        try {
+            AmountPoolJournal current = journal;
+            if (current == null) {
+                return;
+            }
+            current.compact(sink -> engine.forEach((address, amount, entry) -> sink.accept(
+                    AmountPoolJournal.BIND, address, amount, entry.getOrderTradeNo(),
+                    entry.getExpireTime() == null ? AmountPoolJournal.NO_EXPIRE : toEpochMillis(entry.getExpireTime()))));
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 当前挂载的日志，未挂载返回null
+     */
+    public AmountPoolJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * 卸载日志，之后的变更不再记录
+     */
+    public AmountPoolJournal detachJournal() {
+        AmountPoolJournal current = journal;
+        journal = null;
+        return current;
+    }
+
+    /**
+     * 由引擎在地址锁内回调，同一地址的日志顺序与变更顺序一致
+     */
+    private void journalChange(AmountPoolEngine.EntryChange change, String address, long amount, AmountPoolEntry entry) {
+        switch (change) {
+            case ALLOCATE -> journal(AmountPoolJournal.ALLOCATE, address, amount, entry);
+            case PUT -> journal(AmountPoolJournal.BIND, address, amount, entry);
+            case REMOVE -> journal(AmountPoolJournal.RELEASE, address, amount, null);
+        }
+    }
+
+    private void journal(byte type, String address, long amount, AmountPoolEntry entry) {
+        AmountPoolJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        try {
+            if (entry == null) {
+                current.append(type, address, amount, null, AmountPoolJournal.NO_EXPIRE);
+            } else {
+                current.append(type, address, amount, entry.getOrderTradeNo(),
+                        entry.getExpireTime() == null ? AmountPoolJournal.NO_EXPIRE : toEpochMillis(entry.getExpireTime()));
+            }
+        } catch (RuntimeException e) {
+            // 日志写入失败不影响业务，卸载日志，下次启动回退到数据库恢复
+            journal = null;
+            log.error("金额池日志写入失败，已停用日志 - 地址: {}, 金额: {}", address, amount, e);
+        }
+    }
+
+    /**
+     * 登记地址所属的链，首次登记生效
+     */
+    private void bindChain(String chainType, String address) {
+        if (chainType == null) {
+            return;
+        }
+        String bound = chainByAddress.putIfAbsent(address, chainType);
+        if (bound != null && !bound.equals(chainType)) {
+            log.warn("地址已登记到其他链，匹配索引沿用已登记的链 - 地址: {}, 已登记: {}, 本次: {}", address, bound, chainType);
+        }
+    }
+
+    /**
+     * 由引擎在地址锁内回调，同一地址的发布顺序与变更顺序一致。
+     * 未显式登记链的地址（日志恢复、旧调用方）按地址格式推断一次后登记。
+     */
+    private void publishMatchIndex(String address, long[] sortedAmounts) {
+        String chainType = chainByAddress.computeIfAbsent(address, ChainType::resolveByAddress);
+        AtomicReference<MatchIndex> reference = matchIndexes.computeIfAbsent(
+                chainType, chain -> new AtomicReference<>(MatchIndex.EMPTY));
+        reference.updateAndGet(index -> index.with(address, sortedAmounts));
+    }
+
+    private static AmountPoolEntry toEntry(String tradeNo, long expireMillis) {
+        LocalDateTime expireTime = expireMillis == AmountPoolJournal.NO_EXPIRE ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(expireMillis), ZoneId.systemDefault());
+        return new AmountPoolEntry(tradeNo, expireTime);
+    }
+
+    private void scheduleExpiry(String address, long amount, AmountPoolEntry entry) {
+        if (entry.getExpireTime() != null) {
+            expiryWheel.schedule(address, amount, entry, toEpochMillis(entry.getExpireTime()));
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
     /**
      * 构建唯一key
      * @param address 地址
@@ -130,7 +526,6 @@ public class AmountPoolService {
      * @return 对应的金额池条目，若不存在则返回 null
      */
     public AmountPoolEntry getEntryByAddressAndAmount(String address, long amount) {
-        String key = buildKey(address, amount);
-        return amountPool.get(key);
+        return engine.get(address, amount);
     }
 } 
\ No newline at end of file
@@ -6,33 +6,33 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class DatabaseMonitorService {
 
+    // 写连接池与只读连接池
     @Autowired
-    private DataSource dataSource;
+    private List<HikariDataSource> dataSources;
 
     /**
      * 每30秒监控一次数据库连接池状态
      */
     @Scheduled(fixedRate = 30000)
     public void monitorDatabasePool() {
-        if (dataSource instanceof HikariDataSource) {
-            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
-            
+        for (HikariDataSource hikariDataSource : dataSources) {
             // 检查连接池是否已经初始化
             if (hikariDataSource.getHikariPoolMXBean() == null) {
-                log.info("=== 数据库连接池监控 ===");
+                log.info("=== 数据库连接池监控 [{}] ===", hikariDataSource.getPoolName());
                 log.info("连接池正在初始化中...");
                 log.info("最大连接数: {}", hikariDataSource.getMaximumPoolSize());
                 log.info("=========================");
-                return;
+                continue;
             }
             
-            log.info("=== 数据库连接池监控 ===");
+            log.info("=== 数据库连接池监控 [{}] ===", hikariDataSource.getPoolName());
             log.info("活跃连接数: {}", hikariDataSource.getHikariPoolMXBean().getActiveConnections());
             log.info("空闲连接数: {}", hikariDataSource.getHikariPoolMXBean().getIdleConnections());
             log.info("总连接数: {}", hikariDataSource.getHikariPoolMXBean().getTotalConnections());
@@ -46,22 +46,25 @@ public class DatabaseMonitorService {
      * 获取连接池状态信息
      */
     public String getPoolStatus() {
-        if (dataSource instanceof HikariDataSource) {
-            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
-            
-            // 检查连接池是否已经初始化
-            if (hikariDataSource.getHikariPoolMXBean() == null) {
-                return "连接池正在初始化中...";
-            }
-            
-            return String.format(
-                "活跃:%d, 空闲:%d, 总数:%d, 等待:%d",
-                hikariDataSource.getHikariPoolMXBean().getActiveConnections(),
-                hikariDataSource.getHikariPoolMXBean().getIdleConnections(),
-                hikariDataSource.getHikariPoolMXBean().getTotalConnections(),
-                hikariDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection()
-            );
+        if (dataSources.isEmpty()) {
+            return "数据源类型不支持";
         }
-        return "数据源类型不支持";
+        return dataSources.stream().map(this::getPoolStatus).collect(Collectors.joining("; "));
+    }
+
+    private String getPoolStatus(HikariDataSource hikariDataSource) {
+        // 检查连接池是否已经初始化
+        if (hikariDataSource.getHikariPoolMXBean() == null) {
+            return hikariDataSource.getPoolName() + " 连接池正在初始化中...";
+        }
+
+        return String.format(
+            "%s 活跃:%d, 空闲:%d, 总数:%d, 等待:%d",
+            hikariDataSource.getPoolName(),
+            hikariDataSource.getHikariPoolMXBean().getActiveConnections(),
+            hikariDataSource.getHikariPoolMXBean().getIdleConnections(),
+            hikariDataSource.getHikariPoolMXBean().getTotalConnections(),
+            hikariDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection()
+        );
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,225 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.config.PayProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.DepositAddress;
+import io.qimo.usdtzero.model.ErrorCode;
+import io.qimo.usdtzero.repository.DepositAddressMapper;
+import io.qimo.usdtzero.util.HdKeyUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HD派生收款地址服务（pay.address-mode=hd）
+ * 每笔订单由扩展公钥派生路径 0/index 的新地址，派生序号持久化在 deposit_address 表中单调递增、不复用。
+ * 有待支付订单的派生地址常驻内存，扫块任务据此判断转账是否打到了派生地址；订单支付后立即停止监听，
+ * 超时或取消后再监听一个迟到付款宽限期（pay.late-payment-grace），数据库中的派生记录保留。
+ * 仅支持 secp256k1 链（TRC20 / BEP20），SPL 仍使用金额池模式。
+ */
+@Slf4j
+@Service
+public class DepositAddressService {
+
+    @Autowired
+    private PayProperties payProperties;
+
+    @Autowired
+    private ChainProperties chainProperties;
+
+    @Autowired
+    private DepositAddressMapper depositAddressMapper;
+
+    @Autowired
+    private OrderWriteQueue orderWriteQueue;
+
+    // 派生地址 -> 链类型
+    private final Map<String, String> watchedAddresses = new ConcurrentHashMap<>();
+    // 订单已超时或取消的派生地址 -> 停止监听的时间（毫秒时间戳）
+    private final Map<String, Long> retiringAddresses = new ConcurrentHashMap<>();
+    // 链类型 -> 下一个派生序号
+    private final Map<String, Integer> nextIndexes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!PayProperties.ADDRESS_MODE_HD.equals(payProperties.getAddressMode())) {
+            return;
+        }
+        for (DepositAddress depositAddress : depositAddressMapper.selectPendingAddresses()) {
+            watchedAddresses.put(depositAddress.getAddress(), depositAddress.getChainType());
+        }
+        // 宽限期内超时或取消的订单，重启后继续监听到宽限期结束
+        long graceMillis = payProperties.getLatePaymentGrace() * 1000L;
+        if (graceMillis > 0) {
+            LocalDateTime since = LocalDateTime.now().minusSeconds(payProperties.getLatePaymentGrace());
+            for (DepositAddress depositAddress : depositAddressMapper.selectRecentlyClosedAddresses(since)) {
+                watchedAddresses.put(depositAddress.getAddress(), depositAddress.getChainType());
+                retiringAddresses.put(depositAddress.getAddress(), System.currentTimeMillis() + graceMillis);
+            }
+        }
+        for (String chainType : new String[]{ChainType.TRC20, ChainType.BEP20}) {
+            if (isHdEnabled(chainType)) {
+                // 启动时校验xpub，配置错误直接失败
+                deriveAddress(chainType, 0);
+                Integer maxIndex = depositAddressMapper.selectMaxIndex(chainType);
+                nextIndexes.put(chainType, maxIndex == null ? 0 : maxIndex + 1);
+                log.info("[{}] HD收款地址模式，下一个派生序号: {}", chainType, nextIndexes.get(chainType));
+            }
+        }
+        if (Boolean.TRUE.equals(chainProperties.getSplEnable())) {
+            log.warn("[SPL] ed25519 不支持由公钥派生子地址，SPL 继续使用金额池模式");
+        }
+        log.info("HD派生收款地址加载完成，监听地址数: {}", watchedAddresses.size());
+    }
+
+    /**
+     * 该链是否使用HD派生地址
+     */
+    public boolean isHdEnabled(String chainType) {
+        if (!PayProperties.ADDRESS_MODE_HD.equals(payProperties.getAddressMode())) {
+            return false;
+        }
+        return StringUtils.isNotBlank(getXpub(chainType));
+    }
+
+    /**
+     * 是否为派生过的收款地址
+     */
+    public boolean isWatched(String address) {
+        return address != null && watchedAddresses.containsKey(address);
+    }
+
+    /**
+     * 分配新的派生地址并持久化派生序号
+     * 只在占用序号时加锁，派生记录经写入队列插入，不在锁内等待提交；插入失败的序号跳过不复用。
+     * @param chainType 链类型
+     * @return 派生地址
+     */
+    public String allocateAddress(String chainType) {
+        DepositAddress depositAddress = reserveAddress(chainType);
+        orderWriteQueue.execute(() -> depositAddressMapper.insert(depositAddress));
+        watchedAddresses.put(depositAddress.getAddress(), chainType);
+        return depositAddress.getAddress();
+    }
+
+    /**
+     * 占用下一个有效的派生序号并派生地址
+     */
+    private synchronized DepositAddress reserveAddress(String chainType) {
+        Integer index = nextIndexes.get(chainType);
+        if (index == null || !isHdEnabled(chainType)) {
+            throw new BizException(ErrorCode.CHAIN_ADDRESS_NOT_CONFIGURED, "该链未启用HD收款地址");
+        }
+        String address;
+        while (true) {
+            try {
+                address = deriveAddress(chainType, index);
+                break;
+            } catch (IllegalArgumentException e) {
+                // BIP32：派生结果无效（概率约2^-127）时跳过该序号
+                log.warn("[{}] 派生序号 {} 无效，跳过", chainType, index);
+                index++;
+            }
+        }
+        DepositAddress depositAddress = new DepositAddress();
+        depositAddress.setChainType(chainType);
+        depositAddress.setDerivationIndex(index);
+        depositAddress.setAddress(address);
+        depositAddress.setCreateTime(LocalDateTime.now());
+        depositAddress.setUpdateTime(LocalDateTime.now());
+        nextIndexes.put(chainType, index + 1);
+        return depositAddress;
+    }
+
+    /**
+     * 绑定派生地址与订单号
+     */
+    public void bindTradeNo(String address, String tradeNo) {
+        orderWriteQueue.execute(() -> depositAddressMapper.bindTradeNo(address, tradeNo));
+    }
+
+    /**
+     * 订单已支付（或订单未能创建），停止监听派生地址
+     */
+    public void unwatch(String address) {
+        if (address != null && watchedAddresses.remove(address) != null) {
+            retiringAddresses.remove(address);
+            log.debug("派生地址 {} 停止监听", address);
+        }
+    }
+
+    /**
+     * 订单已超时或取消，宽限期后停止监听派生地址，期间仍可匹配迟到的转账
+     */
+    public void retire(String address) {
+        if (address == null || !watchedAddresses.containsKey(address)) {
+            return;
+        }
+        if (payProperties.getLatePaymentGrace() <= 0) {
+            unwatch(address);
+            return;
+        }
+        retiringAddresses.put(address, System.currentTimeMillis() + payProperties.getLatePaymentGrace() * 1000L);
+    }
+
+    /**
+     * 每分钟移除宽限期已过的派生地址
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void pruneRetiredAddresses() {
+        pruneRetiredAddresses(System.currentTimeMillis());
+    }
+
+    void pruneRetiredAddresses(long now) {
+        int removed = 0;
+        for (Map.Entry<String, Long> entry : retiringAddresses.entrySet()) {
+            if (entry.getValue() <= now && retiringAddresses.remove(entry.getKey(), entry.getValue())) {
+                watchedAddresses.remove(entry.getKey());
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("派生地址宽限期结束，停止监听 {} 个，监听地址数: {}", removed, watchedAddresses.size());
+        }
+    }
+
+    /**
+     * 监听中的派生地址数
+     */
+    public int getWatchedCount() {
+        return watchedAddresses.size();
+    }
+
+    /**
+     * 当前监听的派生地址（只读视图）
+     */
+    public Set<String> getWatchedAddresses() {
+        return Collections.unmodifiableSet(watchedAddresses.keySet());
+    }
+
+    String deriveAddress(String chainType, int index) {
+        byte[] publicKey = HdKeyUtils.derivePublicKey(getXpub(chainType), 0, index);
+        return ChainType.TRC20.equals(chainType) ? HdKeyUtils.toTronAddress(publicKey) : HdKeyUtils.toEvmAddress(publicKey);
+    }
+
+    private String getXpub(String chainType) {
+        if (ChainType.TRC20.equals(chainType)) {
+            return Boolean.TRUE.equals(chainProperties.getTrc20Enable()) ? chainProperties.getTrc20Xpub() : null;
+        }
+        if (ChainType.BEP20.equals(chainType)) {
+            return Boolean.TRUE.equals(chainProperties.getBep20Enable()) ? chainProperties.getBep20Xpub() : null;
+        }
+        return null;
+    }
+}
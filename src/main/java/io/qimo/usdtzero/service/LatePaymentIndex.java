@@ -0,0 +1,110 @@
+package io.qimo.usdtzero.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.qimo.usdtzero.config.PayProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 近期超时订单索引（地址+金额 -> 订单号）
+ * 订单超时释放金额池后登记，在宽限期内保留，数量有上限。扫块主匹配未命中时查询，
+ * 迟到的转账据此找到原订单，不需要查数据库。
+ */
+@Slf4j
+@Service
+public class LatePaymentIndex {
+
+    private record Key(String address, long amount) {
+    }
+
+    @Autowired
+    private PayProperties payProperties;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    private Cache<Key, String> expiredOrders;
+
+    // 地址 -> 索引中的条目数，用于扫块的地址预过滤
+    private final Map<String, AtomicInteger> addressCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        expiredOrders = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(payProperties.getLatePaymentGrace()))
+                .maximumSize(payProperties.getLatePaymentMaxSize())
+                .executor(Runnable::run)
+                .removalListener((Key key, String tradeNo, RemovalCause cause) -> {
+                    if (key != null && cause != RemovalCause.REPLACED) {
+                        addressCounts.computeIfPresent(key.address(),
+                                (address, count) -> count.decrementAndGet() <= 0 ? null : count);
+                    }
+                })
+                .build();
+        metricsService.registerLatePaymentIndexGauge(expiredOrders::estimatedSize);
+        log.info("迟到付款索引初始化完成，宽限期: {}秒，上限: {}", payProperties.getLatePaymentGrace(), payProperties.getLatePaymentMaxSize());
+    }
+
+    /**
+     * 登记刚超时的订单
+     * @param address 收款地址
+     * @param amount 订单应付金额（最小单位）
+     * @param tradeNo 订单号
+     */
+    public void record(String address, long amount, String tradeNo) {
+        if (payProperties.getLatePaymentGrace() <= 0 || address == null || tradeNo == null) {
+            return;
+        }
+        if (expiredOrders.asMap().put(new Key(address, amount), tradeNo) == null) {
+            addressCounts.computeIfAbsent(address, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    /**
+     * 地址预过滤：地址下是否有近期超时的订单
+     */
+    public boolean isWatched(String address) {
+        return address != null && addressCounts.containsKey(address);
+    }
+
+    /**
+     * 有近期超时订单的地址（只读视图）
+     */
+    public Set<String> addresses() {
+        return Collections.unmodifiableSet(addressCounts.keySet());
+    }
+
+    /**
+     * 查询近期超时订单
+     * @return 订单号，不存在返回null
+     */
+    public String lookup(String address, long amount) {
+        return expiredOrders.getIfPresent(new Key(address, amount));
+    }
+
+    /**
+     * 取出并移除近期超时订单，同一笔订单只处理一次
+     * @return 订单号，不存在返回null
+     */
+    public String take(String address, long amount) {
+        return expiredOrders.asMap().remove(new Key(address, amount));
+    }
+
+    /**
+     * 索引中的条目数
+     */
+    public long size() {
+        return expiredOrders.estimatedSize();
+    }
+}
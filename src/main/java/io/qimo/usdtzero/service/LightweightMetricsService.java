@@ -1,8 +1,12 @@
 package io.qimo.usdtzero.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
 import io.qimo.usdtzero.constant.ChainType;
 import io.qimo.usdtzero.util.AmountConvertUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +18,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 import io.qimo.usdtzero.model.DailyStatistics;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -54,6 +60,9 @@ public class LightweightMetricsService {
     private final Map<String, AtomicLong> blockScanFailMap = new ConcurrentHashMap<>();
 
     private final Map<String, AtomicLong> amountMap = new ConcurrentHashMap<>();
+
+    // 金额池分配失败计数（链:价格区间）
+    private final Map<String, AtomicLong> amountAllocateFailMap = new ConcurrentHashMap<>();
     @Autowired
     public LightweightMetricsService(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
@@ -265,6 +274,130 @@ public class LightweightMetricsService {
     public void incBlockScanSuccess(String chainType) {
         blockScanSuccessMap.computeIfAbsent(chainType, k -> new AtomicLong()).incrementAndGet();
     }
+    /**
+     * 记录链RPC调用次数（区分链与方法），用于对比不同扫块方式的调用量
+     */
+    public void recordChainRpcCall(String chainType, String method, int calls) {
+        Counter.builder("usdtzero.chain.rpc.calls")
+                .description("链RPC调用次数")
+                .tag("chain", chainType)
+                .tag("method", method)
+                .register(meterRegistry)
+                .increment(calls);
+    }
+
+    /**
+     * 记录一次JSON-RPC HTTP请求（批量或单个）的耗时与打包的请求数
+     */
+    public void recordChainRpcBatch(String chainType, int size, long elapsedNanos) {
+        Timer.builder("usdtzero.chain.rpc.batch")
+                .description("链JSON-RPC HTTP请求耗时（批量请求按整批计）")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("usdtzero.chain.rpc.batch.size")
+                .description("单次HTTP请求打包的JSON-RPC请求数")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * 记录扫块下载的条目数（block方式为交易数，logs方式为日志数），近似反映RPC响应流量
+     */
+    public void recordChainScanItems(String chainType, String mode, int items) {
+        Counter.builder("usdtzero.chain.scan.items")
+                .description("扫块下载的交易或日志条目数")
+                .tag("chain", chainType)
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment(items);
+    }
+
+    /**
+     * 注册扫块落后区块数指标（最新区块 - 检查点）
+     */
+    public void registerScanLagGauge(String chainType, Supplier<Number> lag) {
+        Gauge.builder("usdtzero.chain.scan.lag", lag)
+                .description("扫块检查点落后最新区块的区块数")
+                .tag("chain", chainType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次追块完成：补扫的区块数与结束时仍落后的区块数
+     */
+    public void recordScanCatchUp(String chainType, long blocks, long tailLag) {
+        Counter.builder("usdtzero.chain.scan.catchup.blocks")
+                .description("追块补扫的区块数")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .increment(blocks);
+        DistributionSummary.builder("usdtzero.chain.scan.catchup.tail_lag")
+                .description("追块结束时落后最新区块的区块数")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .record(tailLag);
+    }
+
+    /**
+     * 注册扫块重试队列中的区块数指标
+     */
+    public void registerScanRetryQueueGauge(String chainType, Supplier<Number> blocks) {
+        Gauge.builder("usdtzero.chain.scan.retry_queue", blocks)
+                .description("扫块重试队列中的区块数")
+                .tag("chain", chainType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录扫块重试：queued 进入重试队列、recovered 重试成功、dead_letter 重试达到上限记入死信
+     */
+    public void recordScanRetry(String chainType, String result) {
+        Counter.builder("usdtzero.chain.scan.retry")
+                .description("扫块失败区块段的重试结果")
+                .tag("chain", chainType)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 注册扫块执行器指标：在途RPC数与等待许可的RPC数
+     */
+    public void registerScanRpcGauges(String chainType, Supplier<Number> inFlight, Supplier<Number> waiting) {
+        Gauge.builder("usdtzero.chain.scan.rpc.in_flight", inFlight)
+                .description("扫块在途的RPC数")
+                .tag("chain", chainType)
+                .register(meterRegistry);
+        Gauge.builder("usdtzero.chain.scan.rpc.waiting", waiting)
+                .description("扫块等待许可的RPC数")
+                .tag("chain", chainType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录扫块RPC等待许可的时间
+     */
+    public void recordScanRpcWait(String chainType, long nanos) {
+        Timer.builder("usdtzero.chain.scan.rpc.wait")
+                .description("扫块RPC等待许可的时间")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录超过追块上限而推迟补扫的区块数
+     */
+    public void recordScanSkipped(String chainType, long blocks) {
+        Counter.builder("usdtzero.chain.scan.skipped")
+                .description("超过追块上限推迟补扫的区块数")
+                .tag("chain", chainType)
+                .register(meterRegistry)
+                .increment(blocks);
+    }
+
     /**
      * 记录扫块失败（区分链）
      */
@@ -272,6 +405,183 @@ public class LightweightMetricsService {
         blockScanFailMap.computeIfAbsent(chainType, k -> new AtomicLong()).incrementAndGet();
     }
 
+    /**
+     * 注册收款地址占用数指标（金额池中该地址的锁定条目数）
+     */
+    public void registerAddressOccupancyGauge(String chainType, String address, Supplier<Number> occupancy) {
+        Gauge.builder("usdtzero.amount_pool.address.occupancy", occupancy)
+                .description("收款地址金额池占用数")
+                .tags("chain", chainType, "address", address)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册各链金额池锁定条目数指标
+     */
+    public void registerAmountPoolLockedGauge(String chainType, Supplier<Number> locked) {
+        Gauge.builder("usdtzero.amount_pool.locked", locked)
+                .description("金额池锁定条目数")
+                .tags("chain", chainType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册金额池最早条目的存活时长指标（秒）
+     */
+    public void registerAmountPoolOldestEntryAgeGauge(Supplier<Number> ageSeconds) {
+        Gauge.builder("usdtzero.amount_pool.oldest_entry_age", ageSeconds)
+                .description("金额池最早条目存活时长（秒）")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录创建订单时金额阶梯的探测深度（分配到第几级，基础金额为1）
+     */
+    public void recordAmountProbeDepth(String chainType, int depth) {
+        DistributionSummary.builder("usdtzero.amount_pool.probe_depth")
+                .description("金额阶梯探测深度")
+                .tags("chain", chainType)
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                .register(meterRegistry)
+                .record(depth);
+    }
+
+    /**
+     * 记录金额池分配失败（按价格区间）
+     */
+    public void recordAmountAllocateFailure(String chainType, String priceBucket) {
+        amountAllocateFailMap.computeIfAbsent(chainType + ":" + priceBucket, k -> new AtomicLong()).incrementAndGet();
+        Counter.builder("usdtzero.amount_pool.allocate.failed")
+                .description("金额池分配失败数")
+                .tags("chain", chainType, "bucket", priceBucket)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录订单写入组提交的批大小
+     * @param fallback 整批提交失败、改为逐条提交
+     */
+    public void recordOrderWriteBatch(int size, boolean fallback) {
+        DistributionSummary.builder("usdtzero.order.write.batch_size")
+                .description("订单写入组提交批大小")
+                .tags("fallback", String.valueOf(fallback))
+                .serviceLevelObjectives(1, 2, 4, 8, 16, 32, 64)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * 金额池分配失败计数快照，key为 链:价格区间
+     */
+    public Map<String, Long> getAmountAllocateFailures() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        amountAllocateFailMap.forEach((key, count) -> snapshot.put(key, count.get()));
+        return snapshot;
+    }
+
+    /**
+     * 记录付款金额匹配结果
+     * @param decision exact（精确）、tolerance（容差内唯一候选）、ambiguous（多个候选，转人工复核）
+     */
+    public void recordPaymentMatch(String chainType, String decision) {
+        Counter.builder("usdtzero.payment.match")
+                .description("付款金额匹配结果")
+                .tags("chain", chainType, "decision", decision)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录迟到付款命中
+     * @param action flag（标记异常）、credit（入账）、skipped（订单状态已变更）
+     */
+    public void recordLatePayment(String chainType, String action) {
+        Counter.builder("usdtzero.payment.late")
+                .description("迟到付款命中数")
+                .tags("chain", chainType, "action", action)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 重复的创建订单请求（按商户订单号去重）
+     * @param source 命中来源：cache（幂等缓存）、database（唯一索引冲突）、batch（同批次重复）
+     */
+    public void recordOrderDeduplicated(String source) {
+        Counter.builder("usdtzero.order.create.deduplicated")
+                .description("去重的创建订单请求数")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 订单详情条件请求结果
+     * @param result not_modified（返回304）、full（返回完整详情）
+     */
+    public void recordOrderDetailRequest(String result) {
+        Counter.builder("usdtzero.order.detail.requests")
+                .description("订单详情请求数（按是否命中ETag）")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 注册创建订单幂等缓存大小指标
+     */
+    public void registerOrderIdempotencyCacheGauge(Supplier<Number> size) {
+        Gauge.builder("usdtzero.order.create.idempotency.size", size)
+                .description("创建订单幂等缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册Caffeine缓存的命中率、大小、淘汰等指标（cache.gets、cache.size ...，tag cache=name）
+     */
+    public void monitorCache(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    /**
+     * 注册收银台订单状态推送（SSE）连接数指标
+     */
+    public void registerOrderStreamGauge(Supplier<Number> connections) {
+        Gauge.builder("usdtzero.order.stream.connections", connections)
+                .description("订单状态推送订阅连接数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册订单详情长轮询挂起请求数指标
+     */
+    public void registerOrderLongPollGauge(Supplier<Number> waiters) {
+        Gauge.builder("usdtzero.order.longpoll.waiters", waiters)
+                .description("订单详情长轮询挂起请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册迟到付款索引大小指标
+     */
+    public void registerLatePaymentIndexGauge(Supplier<Number> size) {
+        Gauge.builder("usdtzero.payment.late.index.size", size)
+                .description("迟到付款索引条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册扫块匹配索引版本号指标
+     */
+    public void registerMatchIndexVersionGauge(String chainType, Supplier<Number> version) {
+        Gauge.builder("usdtzero.amount_pool.match_index.version", version)
+                .description("扫块匹配索引版本号")
+                .tags("chain", chainType)
+                .register(meterRegistry);
+    }
+
     /**
      * 生成当日统计对象
      */
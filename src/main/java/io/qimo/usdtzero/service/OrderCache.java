@@ -0,0 +1,109 @@
+package io.qimo.usdtzero.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.model.Order;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 订单缓存（tradeNo -> 订单，txHash -> tradeNo）
+ * 详情接口、收银台轮询、回调通知与机器人查询优先读内存。新建订单写入缓存，状态与通知信息变更后失效，
+ * 在事务内变更时提交后再失效一次，避免并发读取把提交前的旧数据放回缓存。缓存中的订单对象为共享实例，调用方不得修改。
+ */
+@Slf4j
+@Service
+public class OrderCache {
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    private Cache<String, Order> ordersByTradeNo;
+    private Cache<String, String> tradeNosByTxHash;
+
+    @PostConstruct
+    public void init() {
+        Duration ttl = Duration.ofSeconds(appProperties.getOrderCacheTtl());
+        ordersByTradeNo = Caffeine.newBuilder()
+                .maximumSize(appProperties.getOrderCacheSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        tradeNosByTxHash = Caffeine.newBuilder()
+                .maximumSize(appProperties.getOrderCacheSize())
+                .expireAfterWrite(ttl)
+                .build();
+        metricsService.monitorCache(ordersByTradeNo, "order");
+        log.info("订单缓存初始化完成，上限: {}，存活: {}秒", appProperties.getOrderCacheSize(), appProperties.getOrderCacheTtl());
+    }
+
+    /**
+     * 按订单号读取，未命中时由 loader 加载（同一订单号并发未命中只加载一次），不存在的订单不缓存
+     */
+    public Order get(String tradeNo, Function<String, Order> loader) {
+        if (tradeNo == null) {
+            return null;
+        }
+        Order order = ordersByTradeNo.get(tradeNo, loader);
+        if (order != null && order.getTxHash() != null) {
+            tradeNosByTxHash.put(order.getTxHash(), tradeNo);
+        }
+        return order;
+    }
+
+    /**
+     * 按交易哈希查订单号，未知返回null
+     */
+    public String getTradeNoByTxHash(String txHash) {
+        return txHash == null ? null : tradeNosByTxHash.getIfPresent(txHash);
+    }
+
+    /**
+     * 写入新建或刚从数据库读取的订单
+     */
+    public void put(Order order) {
+        if (order == null || order.getTradeNo() == null) {
+            return;
+        }
+        ordersByTradeNo.put(order.getTradeNo(), order);
+        if (order.getTxHash() != null) {
+            tradeNosByTxHash.put(order.getTxHash(), order.getTradeNo());
+        }
+    }
+
+    /**
+     * 订单变更后失效；在事务内调用时提交后再失效一次
+     */
+    public void invalidate(String tradeNo) {
+        if (tradeNo == null) {
+            return;
+        }
+        ordersByTradeNo.invalidate(tradeNo);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ordersByTradeNo.invalidate(tradeNo);
+                }
+            });
+        }
+    }
+
+    /**
+     * 缓存中的订单数
+     */
+    public long size() {
+        return ordersByTradeNo.estimatedSize();
+    }
+}
@@ -0,0 +1,100 @@
+package io.qimo.usdtzero.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.qimo.usdtzero.api.response.CreateOrderResponse;
+import io.qimo.usdtzero.config.PayProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建订单幂等缓存（链类型+商户订单号 -> 创建结果）
+ * 商户超时重试时直接返回已创建的订单，不再占用金额池、不再写库。条目随订单超时过期，
+ * 订单支付、取消、超时后立即失效，之后同一订单号可以重新下单。数量有上限，
+ * 缓存未命中（如重启后）由 (order_no, chain_type) 待支付唯一索引兜底。
+ */
+@Slf4j
+@Service
+public class OrderIdempotencyCache {
+
+    private record Key(String chainType, String orderNo) {
+    }
+
+    @Autowired
+    private PayProperties payProperties;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    private Cache<Key, CreateOrderResponse> responses;
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(payProperties.getIdempotencyCacheSize())
+                .expireAfter(new Expiry<Key, CreateOrderResponse>() {
+                    @Override
+                    public long expireAfterCreate(Key key, CreateOrderResponse response, long currentTime) {
+                        int timeout = response.getTimeout() != null ? response.getTimeout() : payProperties.getTimeout();
+                        return TimeUnit.SECONDS.toNanos(timeout);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, CreateOrderResponse response, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, CreateOrderResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        metricsService.registerOrderIdempotencyCacheGauge(responses::estimatedSize);
+        log.info("创建订单幂等缓存初始化完成，上限: {}", payProperties.getIdempotencyCacheSize());
+    }
+
+    /**
+     * 查询已创建的待支付订单
+     * @return 创建结果，不存在或未带商户订单号返回null
+     */
+    public CreateOrderResponse get(String chainType, String orderNo) {
+        if (StringUtils.isBlank(orderNo)) {
+            return null;
+        }
+        return responses.getIfPresent(new Key(chainType, orderNo));
+    }
+
+    /**
+     * 登记新创建的订单
+     */
+    public void put(String chainType, CreateOrderResponse response) {
+        if (StringUtils.isBlank(response.getOrderNo())) {
+            return;
+        }
+        responses.put(new Key(chainType, response.getOrderNo()), response);
+    }
+
+    /**
+     * 订单离开待支付状态后失效
+     */
+    public void invalidate(String chainType, String orderNo) {
+        if (StringUtils.isBlank(orderNo)) {
+            return;
+        }
+        responses.invalidate(new Key(chainType, orderNo));
+    }
+
+    /**
+     * 缓存中的条目数
+     */
+    public long size() {
+        return responses.estimatedSize();
+    }
+}
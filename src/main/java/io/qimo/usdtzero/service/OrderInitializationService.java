@@ -11,11 +11,15 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 订单初始化服务
- * 在项目启动时处理待支付订单，更新订单状态并重新锁定资金池
+ * 在项目启动时处理待支付订单，更新订单状态并重新锁定资金池。
+ * 金额池已由日志恢复时不阻塞启动，改为后台与数据库对账；否则按原方式由数据库同步恢复。
  */
 @Slf4j
 @Service
@@ -27,8 +31,30 @@ public class OrderInitializationService implements ApplicationRunner {
     @Autowired
     private AmountPoolService amountPoolService;
 
+    @Autowired
+    private AmountPoolJournalService amountPoolJournalService;
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        if (amountPoolJournalService.isRestored()) {
+            log.info("金额池已由日志恢复，后台与数据库对账...");
+            // 独立命名线程执行，不占用 commonPool；异常记录日志，不影响启动
+            CompletableFuture.runAsync(this::reconcilePendingOrders,
+                    task -> Thread.ofPlatform().name("order-reconcile").daemon(true).start(task))
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.error("金额池后台对账失败", e);
+                    }
+                });
+            return;
+        }
+        initializePendingOrders();
+    }
+
+    /**
+     * 由数据库恢复金额池（日志不可用时的回退路径）
+     */
+    private void initializePendingOrders() {
         log.info("开始初始化待支付订单...");
         
         try {
@@ -66,6 +92,58 @@ public class OrderInitializationService implements ApplicationRunner {
         }
     }
 
+    /**
+     * 金额池与数据库对账：
+     * 待支付订单的金额缺失时补锁，被其他订单占用时标记异常；
+     * 日志中残留的、已不属于任何待支付订单的条目释放。
+     * 只释放由日志恢复的条目：启动后分配的条目可能尚未绑定订单号或订单仍在写队列中，查不到待支付订单也不能释放。
+     */
+    void reconcilePendingOrders() {
+        try {
+            List<AmountPoolService.RestoredSlot> restoredSlots = amountPoolService.takeRestoredSlots();
+
+            List<Order> pendingOrders = getPendingOrders();
+            Set<String> liveTradeNos = new HashSet<>();
+            int expiredCount = 0;
+            int matchedCount = 0;
+            int poolLockedCount = 0;
+            int abnormalCount = 0;
+
+            for (Order order : pendingOrders) {
+                if (processPendingOrder(order)) {
+                    expiredCount++;
+                    continue;
+                }
+                AmountPoolService.AmountPoolEntry entry = order.getAddress() == null || order.getActualAmount() == null ? null
+                        : amountPoolService.getEntryByAddressAndAmount(order.getAddress(), order.getActualAmount());
+                if (entry != null && order.getTradeNo().equals(entry.getOrderTradeNo())) {
+                    liveTradeNos.add(order.getTradeNo());
+                    matchedCount++;
+                } else if (entry == null && lockAmountPool(order)) {
+                    liveTradeNos.add(order.getTradeNo());
+                    poolLockedCount++;
+                } else {
+                    orderMapper.updateStatusIfMatch(order.getId(), OrderStatus.PENDING, OrderStatus.ABNORMAL);
+                    abnormalCount++;
+                    log.warn("订单 {} 金额池对账失败，状态更新为 ABNORMAL", order.getTradeNo());
+                }
+            }
+
+            int releasedCount = 0;
+            for (AmountPoolService.RestoredSlot slot : restoredSlots) {
+                if (!liveTradeNos.contains(slot.entry().getOrderTradeNo())
+                        && amountPoolService.releaseAmount(slot.address(), slot.amount(), slot.entry())) {
+                    releasedCount++;
+                }
+            }
+
+            log.info("金额池对账完成 - 待支付订单: {}, 过期: {}, 一致: {}, 补锁: {}, 异常: {}, 释放残留条目: {}",
+                    pendingOrders.size(), expiredCount, matchedCount, poolLockedCount, abnormalCount, releasedCount);
+        } catch (Exception e) {
+            log.error("金额池对账时发生错误", e);
+        }
+    }
+
     /**
      * 获取所有待支付订单
      */
@@ -108,7 +186,7 @@ public class OrderInitializationService implements ApplicationRunner {
         try {
             if (order.getAddress() != null && order.getActualAmount() != null && order.getTradeNo() != null && order.getExpireTime() != null) {
                 // 直接分配资金池并初始化订单号和过期时间
-                boolean locked = amountPoolService.allocateAmount(order.getAddress(), order.getActualAmount(), order.getTradeNo(), order.getExpireTime());
+                boolean locked = amountPoolService.allocateAmount(order.getChainType(), order.getAddress(), order.getActualAmount(), order.getTradeNo(), order.getExpireTime());
                 if (locked) {
                     log.info("订单 {} 资金池锁定成功: 地址={}, 金额={}",
                             order.getTradeNo(), order.getAddress(), order.getActualAmount());
@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import io.qimo.usdtzero.api.request.CreateOrderRequest;
 import io.qimo.usdtzero.api.request.CancelOrderRequest;
+import io.qimo.usdtzero.api.request.BatchCreateOrderRequest;
+import io.qimo.usdtzero.api.response.BatchCreateOrderResponse;
 import io.qimo.usdtzero.api.response.CreateOrderResponse;
 import io.qimo.usdtzero.api.response.CancelOrderResponse;
 import io.qimo.usdtzero.config.AppProperties;
@@ -16,11 +18,14 @@ import io.qimo.usdtzero.constant.NotifyStatus;
 import io.qimo.usdtzero.model.BizException;
 import io.qimo.usdtzero.model.ErrorCode;
 import io.qimo.usdtzero.model.Order;
+import io.qimo.usdtzero.pool.MatchIndex;
 import io.qimo.usdtzero.repository.OrderMapper;
 import io.qimo.usdtzero.util.RateUtils;
 import io.qimo.usdtzero.util.AmountConvertUtils;
+import io.qimo.usdtzero.util.Money;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,17 +34,33 @@ import io.qimo.usdtzero.event.OrderMessage;
 import org.springframework.context.ApplicationEventPublisher;
 import io.qimo.usdtzero.event.CallbackNotifyEvent;
 import io.qimo.usdtzero.event.CallbackNotifyMessage;
+import io.qimo.usdtzero.event.OrderStatusChangedEvent;
 import io.qimo.usdtzero.api.response.OrderDetailResponse;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class OrderService {
+    /**
+     * 同一基础金额最多向上尝试的步进级数
+     */
+    public static final int MAX_AMOUNT_STEPS = 100;
+    /**
+     * 批量创建时每条INSERT语句的行数，20列 x 40行共800个参数，不超过SQLite默认的999个
+     */
+    static final int BATCH_INSERT_ROWS = 40;
+
     @Autowired
     private AppProperties appProperties;
     @Autowired
@@ -49,195 +70,534 @@ public class OrderService {
     @Autowired
     private AmountPoolService amountPoolService;
     @Autowired
+    private ReceivingAddressSelector receivingAddressSelector;
+    @Autowired
+    private DepositAddressService depositAddressService;
+
+    @Autowired
+    private LatePaymentIndex latePaymentIndex;
+    @Autowired
+    private OrderIdempotencyCache orderIdempotencyCache;
+    @Autowired
+    private OrderCache orderCache;
+    @Autowired
     private LightweightMetricsService metricsService;
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
+    private OrderWriteQueue orderWriteQueue;
+    @Autowired
+    private TradeNoGenerator tradeNoGenerator;
+    @Autowired
     private UsdtRateService usdtRateService;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
+    // 最近一次按汇率策略计算的汇率，缓存的最新汇率未刷新时复用
+    private volatile DefaultRate lastDefaultRate;
+
 
     /**
-     * 根据链类型获取收款地址，判断链是否启用
+     * 根据链类型获取收款地址列表，判断链是否启用
      */
-    private String getAddressByChainType(String chainType) {
-        if (StringUtils.isBlank(chainType)) return "";
+    private List<String> getAddressesByChainType(String chainType) {
+        if (StringUtils.isBlank(chainType)) return Collections.emptyList();
         switch (chainType) {
             case ChainType.TRC20:
                 if (Boolean.FALSE.equals(chainProperties.getTrc20Enable())) {
                     throw new BizException(ErrorCode.CHAIN_NOT_ENABLED, "TRC20链未启用");
                 }
-                if (StringUtils.isNotBlank(chainProperties.getTrc20Address())) {
-                    return chainProperties.getTrc20Address();
-                }
-                break;
+                return resolveAddresses(chainProperties.getTrc20Addresses(), chainProperties.getTrc20Address());
             case ChainType.SPL:
                 if (Boolean.FALSE.equals(chainProperties.getSplEnable())) {
                     throw new BizException(ErrorCode.CHAIN_NOT_ENABLED, "Solana SPL链未启用");
                 }
-                if (StringUtils.isNotBlank(chainProperties.getSplAddress())) {
-                    return chainProperties.getSplAddress();
-                }
-                break;
+                return resolveAddresses(chainProperties.getSplAddresses(), chainProperties.getSplAddress());
             case ChainType.BEP20:
                 if (Boolean.FALSE.equals(chainProperties.getBep20Enable())) {
                     throw new BizException(ErrorCode.CHAIN_NOT_ENABLED, "BEP20链未启用");
                 }
-                if (StringUtils.isNotBlank(chainProperties.getBep20Address())) {
-                    return chainProperties.getBep20Address();
-                }
-                break;
+                return resolveAddresses(chainProperties.getBep20Addresses(), chainProperties.getBep20Address());
             default:
                 break;
         }
-        return null;
+        return Collections.emptyList();
+    }
+
+    /**
+     * 优先使用地址列表，未配置列表时退回单地址
+     */
+    private List<String> resolveAddresses(List<String> addresses, String address) {
+        if (addresses != null && !addresses.isEmpty()) {
+            return addresses;
+        }
+        return StringUtils.isNotBlank(address) ? List.of(address) : Collections.emptyList();
+    }
+
+    /**
+     * 已占用的收款地址与金额
+     */
+    private record AmountSlot(String address, long amount, long baseMinUnit, ExchangeRate rate, boolean hdAddress) {
+    }
+
+    /**
+     * 汇率及其 1e-8 定点值（无法精确表示时为 Money.NOT_EXACT）
+     */
+    private record ExchangeRate(BigDecimal value, long scaled) {
+        static ExchangeRate of(BigDecimal value) {
+            return new ExchangeRate(value, Money.toScaledRate(value));
+        }
+    }
+
+    private record DefaultRate(BigDecimal latestRate, String strategy, ExchangeRate rate) {
     }
 
     /**
      * 创建订单业务
+     * 不开启事务：订单插入交给写入队列与其他请求组提交，失败时释放金额池。
+     * 同一商户订单号在同一条链上已有待支付订单时直接返回该订单，不再占用金额池
      */
-    @Transactional(rollbackFor = Exception.class)
     public CreateOrderResponse createOrder(CreateOrderRequest request) {
         // 1. 校验链类型
         ChainType.validate(request.getChainType());
-        // 3. 自动填充收款地址
-        String address = request.getAddress();
-        if (address == null || address.trim().isEmpty()) {
-            address = getAddressByChainType(request.getChainType());
-            if (address == null || address.trim().isEmpty()) {
-                throw new BizException(ErrorCode.CHAIN_ADDRESS_NOT_CONFIGURED, "未配置该链类型的收款地址");
+        // 商户重试：命中幂等缓存直接返回
+        CreateOrderResponse existing = findCachedResponse(request);
+        if (existing != null) {
+            metricsService.recordOrderDeduplicated("cache");
+            log.info("重复的创建订单请求，返回已有订单 - orderNo: {}, tradeNo: {}", request.getOrderNo(), existing.getTradeNo());
+            return existing;
+        }
+        // 2. 占用收款地址与金额
+        AmountSlot slot = allocateSlot(request, this::calcDefaultRate);
+        // 3. 生成tradeNo
+        String tradeNo = tradeNoGenerator.next();
+        // 金额池分配成功，开始异常处理保护
+        boolean saved = false;
+        try {
+            // 4. 组装订单并关联资金池
+            Order order = prepareOrder(request, slot, tradeNo, request.getSignature());
+
+            // 5. 保存订单
+            int insertResult = orderWriteQueue.execute(() -> orderMapper.insert(order));
+            if (insertResult <= 0) {
+                throw new BizException(ErrorCode.SYSTEM_ERROR, "订单保存失败");
+            }
+            saved = true;
+            // 收银台随后就会查询，新订单直接写入缓存
+            orderCache.put(order);
+
+            // 6. 记录成功指标
+            metricsService.recordOrderCreated(order.getTradeNo());
+
+            // 7. 返回VO并登记幂等缓存
+            CreateOrderResponse response = toCreateOrderResponse(order);
+            orderIdempotencyCache.put(order.getChainType(), response);
+            return response;
+
+        } catch (Exception e) {
+            // 并发重试或缓存未命中时由待支付唯一索引拦截，返回已有订单（finally中释放本次占用的金额）
+            if (isDuplicateOrderNo(e)) {
+                CreateOrderResponse duplicated = findPendingResponse(request);
+                if (duplicated != null) {
+                    metricsService.recordOrderDeduplicated("database");
+                    log.info("商户订单号已有待支付订单，返回已有订单 - orderNo: {}, tradeNo: {}", request.getOrderNo(), duplicated.getTradeNo());
+                    return duplicated;
+                }
+            }
+            // 记录异常
+            log.error("订单创建异常，释放金额池 - 地址: {}, 金额: {}", slot.address(), slot.amount(), e);
+            metricsService.recordOrderCreatedFailed(tradeNo);
+            throw e;
+        } finally {
+            // 如果订单创建失败，释放金额池
+            if (!saved) {
+                releaseSlot(slot);
             }
         }
-        // 3. 计算USDT金额（确保精度一致性）
-        int usdtScale = payProperties.getScale();
-        BigDecimal actualRate;
-        if (StringUtils.isNotBlank(request.getRate())){
-            actualRate = new BigDecimal(request.getRate());
-        }else{
-            BigDecimal latestRate = usdtRateService.getCachedRate(); // 获取最新USDT汇率
-            actualRate = RateUtils.calcActualRate(payProperties.getRate(), latestRate);
+    }
+
+    /**
+     * 批量创建订单：逐条查重并占用金额池（不开启事务，不占用写连接），
+     * 成功占用的订单作为一次写操作交给写入队列，在同一事务内多行插入；
+     * 商户订单号已有待支付订单（幂等缓存或数据库）的条目直接返回已有订单；
+     * 单条校验或分配失败只记录在该条结果中，插入失败时整批回滚并释放已占用的金额。
+     * 订单缓存与幂等缓存在写入提交后才登记。
+     */
+    public BatchCreateOrderResponse batchCreateOrders(BatchCreateOrderRequest request) {
+        List<CreateOrderRequest> requests = request.getOrders();
+        if (requests == null || requests.isEmpty()) {
+            throw new BizException(ErrorCode.PARAM_ERROR, "订单列表不能为空");
+        }
+        if (requests.size() > payProperties.getBatchMaxSize()) {
+            throw new BizException(ErrorCode.PARAM_VALUE_ERROR, "单次最多创建" + payProperties.getBatchMaxSize() + "笔订单");
         }
+        // 整批只取一次汇率
+        ExchangeRate[] defaultRate = new ExchangeRate[1];
+        Supplier<ExchangeRate> rateSupplier = () -> {
+            if (defaultRate[0] == null) {
+                defaultRate[0] = calcDefaultRate();
+            }
+            return defaultRate[0];
+        };
+        List<BatchCreateOrderResponse.Item> items = new ArrayList<>(requests.size());
+        List<BatchCreateOrderResponse.Item> created = new ArrayList<>(requests.size());
+        List<Order> orders = new ArrayList<>(requests.size());
+        List<AmountSlot> slots = new ArrayList<>(requests.size());
+        // 本批次内已出现的 链类型:商户订单号
+        Set<String> batchOrderNos = new HashSet<>();
+        boolean saved = false;
+        try {
+            // 1. 逐条占用金额池并组装订单
+            for (int i = 0; i < requests.size(); i++) {
+                CreateOrderRequest item = requests.get(i);
+                BatchCreateOrderResponse.Item result = new BatchCreateOrderResponse.Item();
+                result.setIndex(i);
+                items.add(result);
+                if (item == null) {
+                    setItemError(result, ErrorCode.PARAM_ERROR, "订单不能为空");
+                    continue;
+                }
+                result.setOrderNo(item.getOrderNo());
+                AmountSlot slot = null;
+                try {
+                    validateBatchItem(item);
+                    CreateOrderResponse existing = findCachedResponse(item);
+                    String dedupSource = "cache";
+                    if (existing == null) {
+                        // 重启或缓存淘汰后幂等缓存未命中，查库中的待支付订单，避免插入时触发唯一索引导致整批回滚
+                        existing = findPendingResponse(item);
+                        dedupSource = "database";
+                    }
+                    if (existing != null) {
+                        metricsService.recordOrderDeduplicated(dedupSource);
+                        result.setCode(ErrorCode.SUCCESS.getCode());
+                        result.setMessage(ErrorCode.SUCCESS.getMessage());
+                        result.setOrder(existing);
+                        continue;
+                    }
+                    if (StringUtils.isNotBlank(item.getOrderNo())
+                            && !batchOrderNos.add(item.getChainType() + ":" + item.getOrderNo())) {
+                        metricsService.recordOrderDeduplicated("batch");
+                        throw new BizException(ErrorCode.ORDER_ALREADY_EXISTS, "同一批次内商户订单号重复");
+                    }
+                    slot = allocateSlot(item, rateSupplier);
+                    String tradeNo = tradeNoGenerator.next();
+                    orders.add(prepareOrder(item, slot, tradeNo, request.getSignature()));
+                    slots.add(slot);
+                    created.add(result);
+                } catch (RuntimeException e) {
+                    if (slot != null) {
+                        releaseSlot(slot);
+                    }
+                    if (e instanceof BizException bizException) {
+                        setItemError(result, bizException.getErrorCode(), e.getMessage());
+                    } else if (e instanceof IllegalArgumentException) {
+                        setItemError(result, ErrorCode.PARAM_VALUE_ERROR, e.getMessage());
+                    } else {
+                        throw e;
+                    }
+                }
+            }
+            // 2. 交给写入队列，同一事务内多行插入，提交后返回
+            if (!orders.isEmpty()) {
+                orderWriteQueue.execute(() -> insertOrders(orders));
+            }
+            saved = true;
+        } finally {
+            // 整批失败时释放已占用的金额
+            if (!saved) {
+                log.error("批量创建订单失败，释放金额池 - 已占用: {}", slots.size());
+                orders.forEach(order -> metricsService.recordOrderCreatedFailed(order.getTradeNo()));
+                slots.forEach(this::releaseSlot);
+            }
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            metricsService.recordOrderCreated(order.getTradeNo());
+            orderCache.put(order);
+            BatchCreateOrderResponse.Item result = created.get(i);
+            result.setCode(ErrorCode.SUCCESS.getCode());
+            result.setMessage(ErrorCode.SUCCESS.getMessage());
+            result.setOrder(toCreateOrderResponse(order));
+            orderIdempotencyCache.put(order.getChainType(), result.getOrder());
+        }
+        int successCount = (int) items.stream().filter(item -> item.getOrder() != null).count();
+        log.info("批量创建订单完成 - 总数: {}, 成功: {}, 新建: {}", requests.size(), successCount, orders.size());
+        BatchCreateOrderResponse response = new BatchCreateOrderResponse();
+        response.setTotal(requests.size());
+        response.setSuccessCount(successCount);
+        response.setItems(items);
+        return response;
+    }
 
-        
-        // 计算基础USDT金额（从CNY转换为USDT）
-        BigDecimal baseAmount = request.getAmount().divide(actualRate, usdtScale, RoundingMode.HALF_UP);
+    /**
+     * 按 BATCH_INSERT_ROWS 分段多行插入，由写入队列在同一事务内执行，任一段失败整批回滚
+     * @return 插入的行数
+     */
+    private int insertOrders(List<Order> orders) {
+        for (int from = 0; from < orders.size(); from += BATCH_INSERT_ROWS) {
+            List<Order> chunk = orders.subList(from, Math.min(from + BATCH_INSERT_ROWS, orders.size()));
+            if (orderMapper.insertBatch(chunk) != chunk.size()) {
+                throw new BizException(ErrorCode.SYSTEM_ERROR, "订单保存失败");
+            }
+        }
+        return orders.size();
+    }
+
+    /**
+     * 批量请求中的单条订单不经过注解校验，在此补齐必填项
+     */
+    private void validateBatchItem(CreateOrderRequest item) {
+        if (StringUtils.isBlank(item.getChainType())) {
+            throw new BizException(ErrorCode.PARAM_ERROR, "链类型不能为空");
+        }
+        ChainType.validate(item.getChainType());
+        if (item.getAmount() == null) {
+            throw new BizException(ErrorCode.PARAM_ERROR, "金额不能为空");
+        }
+        if (item.getAmount().compareTo(new BigDecimal("0.01")) < 0) {
+            throw new BizException(ErrorCode.PARAM_VALUE_ERROR, "金额必须大于等于0.01");
+        }
+    }
+
+    private void setItemError(BatchCreateOrderResponse.Item result, ErrorCode errorCode, String message) {
+        result.setCode(errorCode.getCode());
+        result.setMessage(message != null ? message : errorCode.getMessage());
+    }
+
+    /**
+     * 幂等缓存中同一商户订单号的待支付订单；金额不一致视为商户订单号冲突
+     */
+    private CreateOrderResponse findCachedResponse(CreateOrderRequest request) {
+        CreateOrderResponse existing = orderIdempotencyCache.get(request.getChainType(), request.getOrderNo());
+        if (existing != null) {
+            checkSameAmount(request, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * 数据库中同一商户订单号的待支付订单
+     */
+    private CreateOrderResponse findPendingResponse(CreateOrderRequest request) {
+        if (StringUtils.isBlank(request.getOrderNo())) {
+            return null;
+        }
+        Order order = orderMapper.selectOne(new LambdaQueryWrapper<Order>()
+                .eq(Order::getOrderNo, request.getOrderNo())
+                .eq(Order::getChainType, request.getChainType())
+                .eq(Order::getStatus, OrderStatus.PENDING)
+                .last("LIMIT 1"));
+        if (order == null) {
+            return null;
+        }
+        CreateOrderResponse existing = toCreateOrderResponse(order);
+        checkSameAmount(request, existing);
+        orderIdempotencyCache.put(order.getChainType(), existing);
+        return existing;
+    }
+
+    private void checkSameAmount(CreateOrderRequest request, CreateOrderResponse existing) {
+        if (request.getAmount() != null && existing.getAmount().compareTo(request.getAmount()) != 0) {
+            throw new BizException(ErrorCode.ORDER_ALREADY_EXISTS, "商户订单号已存在金额不同的待支付订单");
+        }
+    }
+
+    /**
+     * 是否为商户订单号待支付唯一索引冲突
+     */
+    private static boolean isDuplicateOrderNo(Throwable e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("UNIQUE constraint failed: trade_order.order_no")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按配置的汇率策略计算当前汇率
+     */
+    private ExchangeRate calcDefaultRate() {
+        BigDecimal latestRate = usdtRateService.getCachedRate(); // 获取最新USDT汇率
+        String strategy = payProperties.getRate();
+        DefaultRate last = lastDefaultRate;
+        if (last != null && last.latestRate() == latestRate && Objects.equals(last.strategy(), strategy)) {
+            return last.rate();
+        }
+        ExchangeRate rate = ExchangeRate.of(RateUtils.calcActualRate(strategy, latestRate));
+        lastDefaultRate = new DefaultRate(latestRate, strategy, rate);
+        return rate;
+    }
+
+    /**
+     * 请求指定汇率时优先使用，否则使用当前汇率
+     */
+    private ExchangeRate resolveRate(CreateOrderRequest request, Supplier<ExchangeRate> defaultRate) {
+        if (StringUtils.isNotBlank(request.getRate())) {
+            return ExchangeRate.of(new BigDecimal(request.getRate()));
+        }
+        return defaultRate.get();
+    }
+
+    /**
+     * 选择收款地址并占用金额：HD模式每笔订单派生新地址；否则按选择器给出的顺序在各地址上找离基础金额最近的空闲步进
+     */
+    private AmountSlot allocateSlot(CreateOrderRequest request, Supplier<ExchangeRate> defaultRate) {
+        // 自动填充收款地址（多地址时由选择器决定尝试顺序；HD模式每笔订单派生新地址）
+        boolean hdAddress = (request.getAddress() == null || request.getAddress().trim().isEmpty())
+                && depositAddressService.isHdEnabled(request.getChainType());
+        List<String> addresses;
+        if (hdAddress) {
+            addresses = Collections.emptyList();
+        } else if (request.getAddress() == null || request.getAddress().trim().isEmpty()) {
+            addresses = getAddressesByChainType(request.getChainType());
+            if (addresses.isEmpty()) {
+                throw new BizException(ErrorCode.CHAIN_ADDRESS_NOT_CONFIGURED, "未配置该链类型的收款地址");
+            }
+        } else {
+            addresses = List.of(request.getAddress());
+        }
+        // 计算USDT金额（确保精度一致性）
+        int usdtScale = payProperties.getScale();
+        ExchangeRate actualRate = resolveRate(request, defaultRate);
         long usdtUnit = ChainType.getUsdtUnit(request.getChainType());
         
         // 计算步进单位（确保是整数）
         BigDecimal usdtAtom = new BigDecimal(payProperties.getAtom());
         long atomStep = usdtAtom.multiply(BigDecimal.valueOf(usdtUnit)).longValue();
         
-        // 计算基础最小单位（确保精度）
-        long baseMinUnit = baseAmount.multiply(BigDecimal.valueOf(usdtUnit)).longValue();
-        long actualAmountMinUnit = 0L;
-        boolean allocated = false;
-        for (int i = 0; i < 100; i++) {
-            long tryMinUnit = baseMinUnit + i * atomStep;
-            if (amountPoolService.isAmountAvailable(address, tryMinUnit)) {
-                if (amountPoolService.allocateAmount(address, tryMinUnit)) {
-                    actualAmountMinUnit = tryMinUnit;
-                    allocated = true;
+        // 计算基础USDT最小单位（从CNY转换为USDT，long定点运算）
+        long baseMinUnit = Money.cnyToUsdtMinUnit(Money.toCents(request.getAmount()), actualRate.scaled(), usdtUnit, usdtScale);
+        if (baseMinUnit == Money.NOT_EXACT) {
+            // 超过2位小数的金额、超过8位小数的汇率或非正数回退到BigDecimal，舍入与异常保持不变
+            baseMinUnit = request.getAmount().divide(actualRate.value(), usdtScale, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(usdtUnit)).longValue();
+        }
+        String address = null;
+        long actualAmountMinUnit = AmountPoolService.NO_AMOUNT;
+        if (hdAddress) {
+            // HD模式：新地址上金额不会冲突，直接使用基础金额，不走金额阶梯
+            address = depositAddressService.allocateAddress(request.getChainType());
+            if (amountPoolService.allocateAmount(request.getChainType(), address, baseMinUnit)) {
+                actualAmountMinUnit = baseMinUnit;
+            } else {
+                depositAddressService.unwatch(address);
+            }
+        } else {
+            // 按选择器给出的顺序，在各地址上用位图查找离基础金额最近的空闲步进并原子占用
+            for (String candidate : receivingAddressSelector.order(request.getChainType(), addresses,
+                    baseMinUnit, atomStep, MAX_AMOUNT_STEPS, request.getOrderNo())) {
+                actualAmountMinUnit = amountPoolService.allocateNearestAmount(request.getChainType(), candidate, baseMinUnit, atomStep, MAX_AMOUNT_STEPS);
+                if (actualAmountMinUnit != AmountPoolService.NO_AMOUNT) {
+                    address = candidate;
                     break;
                 }
             }
         }
-        if (!allocated) {
+        if (actualAmountMinUnit == AmountPoolService.NO_AMOUNT) {
+            metricsService.recordAmountAllocateFailure(request.getChainType(), priceBucket(Money.toUsdt(baseMinUnit, usdtUnit, usdtScale)));
             throw new BizException(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, "该地址附近USDT金额已被占用，请稍后重试");
         }
+        long probeDepth = (actualAmountMinUnit - baseMinUnit) / atomStep;
+        metricsService.recordAmountProbeDepth(request.getChainType(), (int) probeDepth + 1);
+        if (probeDepth >= MAX_AMOUNT_STEPS * 8 / 10) {
+            log.warn("金额阶梯接近耗尽 - 地址: {}, 基础金额: {}, 占用: {}/{}", address, baseMinUnit,
+                    amountPoolService.getLadderOccupancy(address, baseMinUnit, atomStep, MAX_AMOUNT_STEPS), MAX_AMOUNT_STEPS);
+        }
+        return new AmountSlot(address, actualAmountMinUnit, baseMinUnit, actualRate, hdAddress);
+    }
 
-        // 5. 生成tradeNo
-        String tradeNo = UUID.randomUUID().toString().replaceAll("-", "");
-        // 金额池分配成功，开始异常处理保护
-        try {
+    /**
+     * 关联资金池中的订单号与过期时间，组装待保存的订单
+     * @param signature 签名，批量创建时取批次请求的签名，不回写到单条请求
+     */
+    private Order prepareOrder(CreateOrderRequest request, AmountSlot slot, String tradeNo, String signature) {
+        int usdtScale = payProperties.getScale();
+        long usdtUnit = ChainType.getUsdtUnit(request.getChainType());
+        LocalDateTime expireTime = LocalDateTime.now().plusSeconds(request.getTimeout() != null ? request.getTimeout() : payProperties.getTimeout());
 
-            LocalDateTime expireTime = LocalDateTime.now().plusSeconds(request.getTimeout() != null ? request.getTimeout() : payProperties.getTimeout());
-            
-            // 6. 更新资金池中的订单号和过期时间
-            boolean updated = amountPoolService.updateOrderTradeNoAndExpireTime(address, actualAmountMinUnit, tradeNo, expireTime);
-            if (!updated) {
-                throw new BizException(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, "资金池订单号关联更新失败");
-            }
-            
-            // 7. 组装订单
-            Order order = new Order();
-            order.setTradeNo(tradeNo);
-            order.setOrderNo(request.getOrderNo());
-            order.setAmount(AmountConvertUtils.calculateCnyToMinUnit(request.getAmount())); // CNY分，使用原始CNY金额
-            order.setActualAmount(actualAmountMinUnit); // 实际分配的USDT最小单位
-            
-            // 验证金额精度一致性
-            validateAmountPrecision(actualAmountMinUnit, usdtUnit, usdtScale);
-            
-            // 记录金额计算详情（用于调试）
-            log.info("订单金额计算 - 原始CNY: {}, 汇率: {}, 转换USDT: {}, 链最小单位: {}, 实际分配USDT最小单位: {}", 
-                    request.getAmount().toPlainString(), actualRate.toPlainString(), 
-                    baseAmount.toPlainString(), usdtUnit, actualAmountMinUnit);
-            order.setAddress(address);
-            order.setChainType(request.getChainType());
-            order.setStatus(OrderStatus.PENDING);
-            order.setSignature(request.getSignature());
-            order.setRate(String.valueOf(actualRate));
-            order.setNotifyUrl(request.getNotifyUrl());
-            order.setTimeout(request.getTimeout() != null ? request.getTimeout() : payProperties.getTimeout());
-            order.setPaymentUrl(appProperties.getUri() + "/api/v1/order/pay/" + tradeNo);
-            order.setNotifyCount(0);
-            order.setCreateTime(LocalDateTime.now());
-            order.setExpireTime(expireTime);
-            order.setNotifyStatus(NotifyStatus.PENDING);
-            order.setUpdateTime(LocalDateTime.now());
-            order.setTradeIsConfirmed(payProperties.getTradeIsConfirmed());
-            order.setScale(payProperties.getScale());
-
-            // 8. 保存订单
-            int insertResult = orderMapper.insert(order);
-            if (insertResult <= 0) {
-                throw new BizException(ErrorCode.SYSTEM_ERROR, "订单保存失败");
-            }
-            
-            // 9. 记录成功指标
-            metricsService.recordOrderCreated(order.getTradeNo());
-            
-            // 10. 返回VO
-            CreateOrderResponse vo = new CreateOrderResponse();
-            vo.setTradeNo(order.getTradeNo());
-            vo.setOrderNo(order.getOrderNo());
-
-            // CNY金额分转元，确保与创建时的计算一致
-            BigDecimal amountYuan = AmountConvertUtils.calculateCnyFromMinUnit(order.getAmount());
-            vo.setAmount(amountYuan);
-
-            // USDT金额最小单位转USDT，确保与分配时的计算一致
-            BigDecimal usdt = AmountConvertUtils.calculateUsdtFromMinUnit(order.getActualAmount(), usdtUnit, usdtScale);
-            vo.setActualAmount(usdt);
-            vo.setAddress(order.getAddress());
-            vo.setTimeout(order.getTimeout());
-            vo.setPaymentUrl(order.getPaymentUrl());
-            return vo;
+        // 更新资金池中的订单号和过期时间
+        boolean updated = amountPoolService.updateOrderTradeNoAndExpireTime(slot.address(), slot.amount(), tradeNo, expireTime);
+        if (!updated) {
+            throw new BizException(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, "资金池订单号关联更新失败");
+        }
+        if (slot.hdAddress()) {
+            depositAddressService.bindTradeNo(slot.address(), tradeNo);
+        }
 
-        } catch (Exception e) {
-            allocated = false; // 标记需要释放金额池
-            // 记录异常
-            log.error("订单创建异常，释放金额池 - 地址: {}, 金额: {}", address, actualAmountMinUnit, e);
-            metricsService.recordOrderCreatedFailed(tradeNo);
-            throw e;
-        } finally {
-            // 如果订单创建失败，释放金额池
-            if (!allocated) {
-                try {
-                    amountPoolService.releaseAmount(address, actualAmountMinUnit);
-                    log.info("异常释放金额池 - 地址: {}, 金额: {}", address, actualAmountMinUnit);
-                } catch (Exception releaseException) {
-                    log.error("异常释放金额池失败 - 地址: {}, 金额: {}", address, actualAmountMinUnit, releaseException);
-                }
+        Order order = new Order();
+        order.setTradeNo(tradeNo);
+        order.setOrderNo(request.getOrderNo());
+        order.setAmount(AmountConvertUtils.calculateCnyToMinUnit(request.getAmount())); // CNY分，使用原始CNY金额
+        order.setActualAmount(slot.amount()); // 实际分配的USDT最小单位
+
+        // 验证金额精度一致性
+        validateAmountPrecision(slot.amount(), usdtUnit, usdtScale);
+
+        // 记录金额计算详情（用于调试）
+        log.info("订单金额计算 - 原始CNY: {}, 汇率: {}, 基础USDT最小单位: {}, 链最小单位: {}, 实际分配USDT最小单位: {}", 
+                request.getAmount(), slot.rate().value(), 
+                slot.baseMinUnit(), usdtUnit, slot.amount());
+        order.setAddress(slot.address());
+        order.setChainType(request.getChainType());
+        order.setStatus(OrderStatus.PENDING);
+        order.setSignature(signature);
+        order.setRate(String.valueOf(slot.rate().value()));
+        order.setNotifyUrl(request.getNotifyUrl());
+        order.setTimeout(request.getTimeout() != null ? request.getTimeout() : payProperties.getTimeout());
+        order.setPaymentUrl(appProperties.getUri() + "/api/v1/order/pay/" + tradeNo);
+        order.setNotifyCount(0);
+        order.setCreateTime(LocalDateTime.now());
+        order.setExpireTime(expireTime);
+        order.setNotifyStatus(NotifyStatus.PENDING);
+        order.setUpdateTime(LocalDateTime.now());
+        order.setTradeIsConfirmed(payProperties.getTradeIsConfirmed());
+        order.setScale(payProperties.getScale());
+        order.setVersion(0);
+        return order;
+    }
+
+    private CreateOrderResponse toCreateOrderResponse(Order order) {
+        CreateOrderResponse vo = new CreateOrderResponse();
+        vo.setTradeNo(order.getTradeNo());
+        vo.setOrderNo(order.getOrderNo());
+
+        // CNY金额分转元，确保与创建时的计算一致
+        BigDecimal amountYuan = AmountConvertUtils.calculateCnyFromMinUnit(order.getAmount());
+        vo.setAmount(amountYuan);
+
+        // USDT金额最小单位转USDT，确保与分配时的计算一致
+        BigDecimal usdt = AmountConvertUtils.calculateUsdtFromMinUnit(order.getActualAmount(),
+                ChainType.getUsdtUnit(order.getChainType()), order.getScale());
+        vo.setActualAmount(usdt);
+        vo.setAddress(order.getAddress());
+        vo.setTimeout(order.getTimeout());
+        vo.setPaymentUrl(order.getPaymentUrl());
+        return vo;
+    }
+
+    /**
+     * 订单未能保存时释放占用的金额；HD派生地址没有对应订单，同时停止监听
+     */
+    private void releaseSlot(AmountSlot slot) {
+        try {
+            amountPoolService.releaseAmount(slot.address(), slot.amount());
+            if (slot.hdAddress()) {
+                depositAddressService.unwatch(slot.address());
             }
+            log.info("异常释放金额池 - 地址: {}, 金额: {}", slot.address(), slot.amount());
+        } catch (Exception releaseException) {
+            log.error("异常释放金额池失败 - 地址: {}, 金额: {}", slot.address(), slot.amount(), releaseException);
         }
     }
 
     /**
      * 取消订单业务
      */
-    @Transactional(rollbackFor = Exception.class)
     public CancelOrderResponse cancelOrder(CancelOrderRequest request) {
         // 1. 查找订单
         Order order = orderMapper.selectOne(
@@ -249,20 +609,24 @@ public class OrderService {
         }
         
         // 2. 使用状态条件更新，只有当订单状态为PENDING时才能取消
-        int updateResult = orderMapper.updateStatusIfMatch(
+        int updateResult = orderWriteQueue.execute(() -> orderMapper.updateStatusIfMatch(
             order.getId(), 
             OrderStatus.PENDING, 
             OrderStatus.CANCELLED
-        );
+        ));
         
         if (updateResult == 0) {
             throw new BizException(ErrorCode.ORDER_CANNOT_CANCEL, "订单状态已变更，无法取消");
         }
 
-        // 3. 释放金额池
+        orderCache.invalidate(order.getTradeNo());
+        // 3. 释放金额池，同一商户订单号可重新下单
         amountPoolService.releaseAmount(order.getAddress(), order.getActualAmount());
+        orderIdempotencyCache.invalidate(order.getChainType(), order.getOrderNo());
+        depositAddressService.retire(order.getAddress());
         // 埋点统计 - 订单取消
         metricsService.recordOrderCancelled(order.getTradeNo());
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(this, order.getTradeNo(), OrderStatus.CANCELLED));
         // 4. 返回VO
         CancelOrderResponse vo = new CancelOrderResponse();
         vo.setTradeNo(order.getTradeNo());
@@ -270,6 +634,28 @@ public class OrderService {
         return vo;
     }
 
+    /**
+     * 金额池分配失败统计用的USDT价格区间
+     */
+    static String priceBucket(BigDecimal usdtAmount) {
+        if (usdtAmount.compareTo(BigDecimal.TEN) < 0) {
+            return "0-10";
+        }
+        if (usdtAmount.compareTo(BigDecimal.valueOf(50)) < 0) {
+            return "10-50";
+        }
+        if (usdtAmount.compareTo(BigDecimal.valueOf(100)) < 0) {
+            return "50-100";
+        }
+        if (usdtAmount.compareTo(BigDecimal.valueOf(500)) < 0) {
+            return "100-500";
+        }
+        if (usdtAmount.compareTo(BigDecimal.valueOf(1000)) < 0) {
+            return "500-1000";
+        }
+        return "1000+";
+    }
+
     /**
      * 匹配到链上支付后，标记订单为已支付
      * @param address 收款地址
@@ -290,12 +676,130 @@ public class OrderService {
             log.warn("未找到订单，tradeNo={}, address={}, amount={}", entry.getOrderTradeNo(), address, actualAmount);
             return;
         }
-        int updateResult = orderMapper.updateStatusIfMatch(order.getId(), OrderStatus.PENDING, OrderStatus.PAID);
+        settlePaidOrder(order, address, actualAmount, txHash);
+    }
+
+    /**
+     * 按匹配索引的结果结算转账：精确或容差内唯一候选时按候选金额标记支付，多个候选时只记录、转人工复核
+     * @param chainType 链类型
+     * @param address 收款地址
+     * @param paidAmount 实际到账最小单位
+     * @param matchedAmount MatchIndex.match 的返回值
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void markMatchedTransfer(String chainType, String address, long paidAmount, long matchedAmount, String txHash) {
+        if (matchedAmount == MatchIndex.NO_MATCH) {
+            return;
+        }
+        if (matchedAmount == MatchIndex.AMBIGUOUS) {
+            metricsService.recordPaymentMatch(chainType, "ambiguous");
+            log.warn("到账金额在容差内匹配到多个待支付金额，需人工复核，chainType={}, address={}, paidAmount={}, txHash={}",
+                chainType, address, paidAmount, txHash);
+            return;
+        }
+        if (matchedAmount == paidAmount) {
+            metricsService.recordPaymentMatch(chainType, "exact");
+        } else {
+            metricsService.recordPaymentMatch(chainType, "tolerance");
+            log.info("容差匹配到账，chainType={}, address={}, paidAmount={}, matchedAmount={}, txHash={}",
+                chainType, address, paidAmount, matchedAmount, txHash);
+        }
+        markOrderAsPaid(address, matchedAmount, txHash);
+    }
+
+    /**
+     * 主匹配未命中时处理迟到付款：按配置将近期超时的订单标记为异常（flag）或直接入账（credit）
+     * @param chainType 链类型
+     * @param address 收款地址
+     * @param paidAmount 实际到账最小单位
+     * @return 是否命中近期超时订单
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean markLatePayment(String chainType, String address, long paidAmount, String txHash) {
+        String tradeNo = latePaymentIndex.take(address, paidAmount);
+        if (tradeNo == null) {
+            return false;
+        }
+        Order order = orderMapper.selectOne(
+            new LambdaQueryWrapper<Order>()
+                .eq(Order::getTradeNo, tradeNo)
+        );
+        if (order == null || !OrderStatus.EXPIRED.equals(order.getStatus())) {
+            metricsService.recordLatePayment(chainType, "skipped");
+            log.warn("迟到付款对应订单状态已变更，tradeNo={}, address={}, amount={}, txHash={}", tradeNo, address, paidAmount, txHash);
+            return true;
+        }
+        if (PayProperties.LATE_PAYMENT_CREDIT.equals(payProperties.getLatePaymentAction())) {
+            metricsService.recordLatePayment(chainType, PayProperties.LATE_PAYMENT_CREDIT);
+            log.info("迟到付款入账，tradeNo={}, address={}, amount={}, txHash={}", tradeNo, address, paidAmount, txHash);
+            settlePaidOrder(order, address, paidAmount, txHash, OrderStatus.EXPIRED);
+            return true;
+        }
+        metricsService.recordLatePayment(chainType, PayProperties.LATE_PAYMENT_FLAG);
+        if (orderMapper.updateStatusIfMatch(order.getId(), OrderStatus.EXPIRED, OrderStatus.ABNORMAL) == 1) {
+            orderMapper.update(new LambdaUpdateWrapper<Order>()
+                .eq(Order::getId, order.getId())
+                .set(Order::getTxHash, txHash));
+            orderCache.invalidate(tradeNo);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(this, tradeNo, OrderStatus.ABNORMAL));
+        }
+        log.warn("迟到付款，订单已标记为异常待人工处理，tradeNo={}, address={}, amount={}, txHash={}", tradeNo, address, paidAmount, txHash);
+        return true;
+    }
+
+    /**
+     * HD派生地址收到转账后，标记该地址上的待支付订单为已支付（到账金额不低于订单金额即可）
+     * @param address 派生收款地址
+     * @param paidAmount 实际到账最小单位
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void markDepositAddressPaid(String address, long paidAmount, String txHash) {
+        Order order = orderMapper.selectOne(
+            new LambdaQueryWrapper<Order>()
+                .eq(Order::getAddress, address)
+                .eq(Order::getStatus, OrderStatus.PENDING)
+                .last("LIMIT 1")
+        );
+        if (order == null) {
+            log.warn("派生地址无待支付订单，address={}, amount={}, txHash={}", address, paidAmount, txHash);
+            return;
+        }
+        if (order.getActualAmount() == null || paidAmount < order.getActualAmount()) {
+            log.warn("派生地址到账金额不足，tradeNo={}, address={}, 应付={}, 实付={}, txHash={}",
+                order.getTradeNo(), address, order.getActualAmount(), paidAmount, txHash);
+            return;
+        }
+        settlePaidOrder(order, address, order.getActualAmount(), txHash);
+    }
+
+    /**
+     * 订单状态 PENDING -> PAID，释放金额池并发布支付/回调事件
+     */
+    private void settlePaidOrder(Order order, String address, long actualAmount, String txHash) {
+        settlePaidOrder(order, address, actualAmount, txHash, OrderStatus.PENDING);
+    }
+
+    /**
+     * 订单状态 fromStatus -> PAID；只有待支付订单持有金额池条目，其他状态不释放金额池（条目可能已分配给新订单）。
+     * 重试或重扫区块时同一笔交易会再次到达，此时该地址的金额可能已分配给新订单，已结算过的交易直接跳过
+     */
+    private void settlePaidOrder(Order order, String address, long actualAmount, String txHash, String fromStatus) {
+        if (isSettledTransfer(txHash, address)) {
+            log.info("交易已结算过，跳过，tradeNo={}, address={}, actualAmount={}, txHash={}",
+                order.getTradeNo(), address, actualAmount, txHash);
+            return;
+        }
+        int updateResult = orderMapper.updateStatusIfMatch(order.getId(), fromStatus, OrderStatus.PAID);
         if (updateResult == 1) {
             // 更新交易哈希
             LocalDateTime payTime = LocalDateTime.now();
             orderMapper.updatePayTimeAndTxHashById(order.getId(), payTime, txHash);
-            amountPoolService.releaseAmount(address, actualAmount);
+            orderCache.invalidate(order.getTradeNo());
+            if (OrderStatus.PENDING.equals(fromStatus)) {
+                amountPoolService.releaseAmount(address, actualAmount);
+                orderIdempotencyCache.invalidate(order.getChainType(), order.getOrderNo());
+            }
+            depositAddressService.unwatch(order.getAddress());
             metricsService.recordPaymentReceived(order.getChainType(),order.getAmount(), actualAmount, order.getTradeNo());
             log.info("订单支付成功，tradeNo={}, address={}, actualAmount={}, txHash={}",
                 order.getTradeNo(), address, actualAmount, txHash);
@@ -320,21 +824,36 @@ public class OrderService {
         }
     }
 
+    /**
+     * 该地址是否已有订单以此交易结算（同一笔交易可向不同地址转账，按交易哈希+收款地址判断）
+     */
+    private boolean isSettledTransfer(String txHash, String address) {
+        if (txHash == null) {
+            return false;
+        }
+        Long count = orderMapper.selectCount(new LambdaQueryWrapper<Order>()
+                .eq(Order::getTxHash, txHash)
+                .eq(Order::getAddress, address));
+        return count != null && count > 0;
+    }
+
     /**
      * 更新订单的通知信息（notifyCount、notifyStatus、lastNotifyTime）
-     * @param orderId 订单ID
+     * @param order 订单
      * @param notifyCount 通知次数
      * @param notifyStatus 通知状态（NotifyStatus 常量）
      * @param lastNotifyTime 最后通知时间
      */
-    public void updateOrderNotifyInfo(Long orderId, Integer notifyCount, String notifyStatus, LocalDateTime lastNotifyTime) {
+    public void updateOrderNotifyInfo(Order order, Integer notifyCount, String notifyStatus, LocalDateTime lastNotifyTime) {
         LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(Order::getId, orderId)
+        updateWrapper.eq(Order::getId, order.getId())
                 .set(Order::getNotifyCount, notifyCount)
                 .set(Order::getNotifyStatus, notifyStatus)
                 .set(Order::getLastNotifyTime, lastNotifyTime)
-                .set(Order::getUpdateTime, LocalDateTime.now());
+                .set(Order::getUpdateTime, LocalDateTime.now())
+                .setSql("version = version + 1");
         orderMapper.update(updateWrapper);
+        orderCache.invalidate(order.getTradeNo());
     }
 
     /**
@@ -346,8 +865,11 @@ public class OrderService {
             throw new BizException(ErrorCode.AMOUNT_TOO_SMALL, "usdt金额必须大于0");
         }
         // 验证转换回USDT时的精度必须完全一致
-        BigDecimal usdtAmount = AmountConvertUtils.calculateUsdtFromMinUnit(actualAmountMinUnit, usdtUnit, usdtScale);
-        long reconstructedMinUnit = usdtAmount.multiply(BigDecimal.valueOf(usdtUnit)).longValue();
+        long reconstructedMinUnit = Money.roundTrip(actualAmountMinUnit, usdtUnit, usdtScale);
+        if (reconstructedMinUnit == Money.NOT_EXACT) {
+            BigDecimal usdtAmount = AmountConvertUtils.calculateUsdtFromMinUnit(actualAmountMinUnit, usdtUnit, usdtScale);
+            reconstructedMinUnit = usdtAmount.multiply(BigDecimal.valueOf(usdtUnit)).longValue();
+        }
         if (reconstructedMinUnit != actualAmountMinUnit) {
             throw new BizException(ErrorCode.AMOUNT_PRECISION_ERROR, 
                     String.format("金额精度验证失败：原始=%d, 重构=%d", actualAmountMinUnit, reconstructedMinUnit));
@@ -357,52 +879,80 @@ public class OrderService {
     /**
      * 处理单个超时订单
      */
-    @Transactional(rollbackFor = Exception.class)
     public void processTimeoutOrder(Order order) {
         try {
             log.info("处理超时订单: {}", order.getTradeNo());
-            // 1. 只有当订单状态仍为PENDING时才更新为EXPIRED
-            int updateResult = orderMapper.updateStatusIfMatch(
-                order.getId(),
-                OrderStatus.PENDING,
-                OrderStatus.EXPIRED
-            );
+            // 1. 只有当订单状态仍为PENDING时才更新为EXPIRED，并重置通知信息（同一批次提交）
+            int updateResult = orderWriteQueue.execute(() -> {
+                int updated = orderMapper.updateStatusIfMatch(
+                    order.getId(),
+                    OrderStatus.PENDING,
+                    OrderStatus.EXPIRED
+                );
+                if (updated == 1) {
+                    this.updateOrderNotifyInfo(order, 0, NotifyStatus.PENDING, null);
+                }
+                return updated;
+            });
             if (updateResult == 0) {
                 log.warn("订单 {} 状态已变更，跳过超时处理", order.getTradeNo());
                 return;
             }
+            orderIdempotencyCache.invalidate(order.getChainType(), order.getOrderNo());
 
-            this.updateOrderNotifyInfo(order.getId(),  0,NotifyStatus.PENDING,null);
-
-            // 2. 释放资金池
+            // 2. 释放资金池，并在宽限期内保留迟到付款的匹配
             if (order.getAddress() != null && order.getActualAmount() != null) {
                 amountPoolService.releaseAmount(order.getAddress(), order.getActualAmount());
+                latePaymentIndex.record(order.getAddress(), order.getActualAmount(), order.getTradeNo());
+                depositAddressService.retire(order.getAddress());
                 log.info("超时订单 {} 资金池释放成功", order.getTradeNo());
             }
             // 发送回调通知事件
             CallbackNotifyMessage notifyMessage = new CallbackNotifyMessage(order.getTradeNo(), OrderStatus.EXPIRED);
             eventPublisher.publishEvent(new CallbackNotifyEvent(this, notifyMessage));
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(this, order.getTradeNo(), OrderStatus.EXPIRED));
         } catch (Exception e) {
             log.error("处理超时订单 {} 时发生错误: {}", order.getTradeNo(), e.getMessage());
         }
     }
 
     /**
-     * 根据 tradeNo 获取订单
+     * 根据 tradeNo 获取订单，优先读订单缓存（返回的订单为共享实例，不得修改）
      */
+    @Transactional(readOnly = true)
     public Order getByTradeNo(String tradeNo) {
-        return orderMapper.selectOne(new LambdaQueryWrapper<Order>()
-                .eq(Order::getTradeNo, tradeNo));
+        return orderCache.get(tradeNo, key -> orderMapper.selectOne(new LambdaQueryWrapper<Order>()
+                .eq(Order::getTradeNo, key)));
     }
 
+    @Transactional(readOnly = true)
     public Order getByTxHash(String txHash){
-        return orderMapper.selectOne(new LambdaQueryWrapper<Order>()
+        String tradeNo = orderCache.getTradeNoByTxHash(txHash);
+        if (tradeNo != null) {
+            return getByTradeNo(tradeNo);
+        }
+        Order order = orderMapper.selectOne(new LambdaQueryWrapper<Order>()
                 .eq(Order::getTxHash, txHash));
+        orderCache.put(order);
+        return order;
+    }
+
+    /**
+     * 订单详情 ETag（弱校验，订单号+版本号），优先读订单缓存，不存在时抛出 ORDER_NOT_FOUND
+     */
+    @Transactional(readOnly = true)
+    public String getOrderDetailEtag(String tradeNo) {
+        Order order = getByTradeNo(tradeNo);
+        if (order == null) {
+            throw new BizException(ErrorCode.ORDER_NOT_FOUND, "订单不存在");
+        }
+        return "W/\"" + order.getTradeNo() + "-" + (order.getVersion() == null ? 0 : order.getVersion()) + "\"";
     }
 
     /**
      * 根据tradeNo查询订单详情，返回OrderDetailResponse
      */
+    @Transactional(readOnly = true)
     public OrderDetailResponse getOrderDetailByTradeNo(String tradeNo) {
         Order order = getByTradeNo(tradeNo);
         if (order == null) {
@@ -415,10 +965,7 @@ public class OrderService {
         resp.setActualAmount(AmountConvertUtils.calculateUsdtFromMinUnit(order.getActualAmount(), ChainType.getUsdtUnit(order.getChainType()), order.getScale()));
         resp.setAddress(order.getAddress());
         if (order.getExpireTime() != null) {
-            long seconds = Duration.between(LocalDateTime.now(), order.getExpireTime()).getSeconds();
-            resp.setTimeout((int)Math.max(0, seconds));
-        } else {
-            resp.setTimeout(0);
+            resp.setExpireTime(order.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
         }
         resp.setChainType(order.getChainType());
         resp.setStatus(order.getStatus());
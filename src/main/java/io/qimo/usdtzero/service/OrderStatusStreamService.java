@@ -0,0 +1,269 @@
+package io.qimo.usdtzero.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.qimo.usdtzero.api.response.OrderDetailResponse;
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.constant.OrderStatus;
+import io.qimo.usdtzero.event.CallbackNotifyMessage;
+import io.qimo.usdtzero.model.ApiResponse;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单状态推送：收银台SSE订阅与商户订单详情长轮询
+ * 订阅者与挂起的长轮询请求按订单号登记在内存中，订单状态变更时推送一次并关闭；二者均为异步请求，等待期间不占用请求线程。
+ * SSE 定时发送心跳注释防止代理断开，订单超时后连接随 SseEmitter 超时自动清理；长轮询超时返回当前状态。
+ */
+@Slf4j
+@Service
+public class OrderStatusStreamService {
+
+    /**
+     * 心跳间隔（毫秒）
+     */
+    static final long HEARTBEAT_INTERVAL = 15_000L;
+    /**
+     * 订单超时后连接再保留的时长（毫秒），等待超时状态推送
+     */
+    private static final long EXPIRE_GRACE = 30_000L;
+    /**
+     * 状态推送事件名
+     */
+    static final String EVENT_STATUS = "status";
+    /**
+     * 长轮询默认/最大等待时长（毫秒）
+     */
+    static final long LONG_POLL_DEFAULT_TIMEOUT = 30_000L;
+    static final long LONG_POLL_MAX_TIMEOUT = 60_000L;
+    private static final Set<String> WAITABLE_STATUSES = Set.of(
+            OrderStatus.PENDING, OrderStatus.PAID, OrderStatus.EXPIRED, OrderStatus.CANCELLED, OrderStatus.ABNORMAL);
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    // 订单号 -> 订阅连接
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    // 订单号 -> 挂起的长轮询请求
+    private final Map<String, Set<DeferredResult<ApiResponse<OrderDetailResponse>>>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+    // 最近离开待支付状态的订单，覆盖“查询状态之后、登记订阅之前”状态已变更的情况
+    private final Cache<String, String> recentStatuses = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(10_000)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        metricsService.registerOrderStreamGauge(connectionCount::get);
+        metricsService.registerOrderLongPollGauge(waiterCount::get);
+    }
+
+    /**
+     * 订阅订单状态：先推送当前详情；已离开待支付状态的订单推送后立即关闭
+     * @param tradeNo 订单号
+     */
+    public SseEmitter subscribe(String tradeNo) {
+        OrderDetailResponse detail = orderService.getOrderDetailByTradeNo(tradeNo);
+        if (!OrderStatus.PENDING.equals(detail.getStatus())) {
+            SseEmitter emitter = new SseEmitter(0L);
+            send(emitter, detail);
+            emitter.complete();
+            return emitter;
+        }
+        if (connectionCount.get() >= appProperties.getSseMaxConnections()) {
+            throw new BizException(ErrorCode.SYSTEM_RESOURCE_EXHAUSTED, "订阅连接数已达上限，请使用轮询");
+        }
+        long remaining = detail.getExpireTime() == null ? 0 : Math.max(0, detail.getExpireTime() - System.currentTimeMillis());
+        long timeout = remaining + EXPIRE_GRACE;
+        SseEmitter emitter = new SseEmitter(timeout);
+        subscribers.compute(tradeNo, (key, emitters) -> {
+            Set<SseEmitter> set = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            set.add(emitter);
+            return set;
+        });
+        connectionCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(tradeNo, emitter));
+        emitter.onError(e -> unsubscribe(tradeNo, emitter));
+        emitter.onTimeout(() -> {
+            unsubscribe(tradeNo, emitter);
+            emitter.complete();
+        });
+        if (!send(emitter, detail)) {
+            unsubscribe(tradeNo, emitter);
+            return emitter;
+        }
+        String status = recentStatuses.getIfPresent(tradeNo);
+        if (status != null) {
+            publish(tradeNo, status);
+        }
+        return emitter;
+    }
+
+    /**
+     * 长轮询订单详情：订单已处于 waitFor 状态或已离开待支付状态时立即返回，否则挂起至状态变更或超时（超时返回当前详情）。
+     * 挂起请求数达到上限时直接返回当前详情，商户按普通轮询处理。
+     * @param tradeNo 订单号
+     * @param waitFor 等待的订单状态
+     * @param timeoutMs 最长等待时长（毫秒），为空时取默认值
+     */
+    public DeferredResult<ApiResponse<OrderDetailResponse>> await(String tradeNo, String waitFor, Long timeoutMs) {
+        if (!WAITABLE_STATUSES.contains(waitFor)) {
+            throw new BizException(ErrorCode.PARAM_VALUE_ERROR, "waitFor 不是有效的订单状态: " + waitFor);
+        }
+        long timeout = timeoutMs == null ? LONG_POLL_DEFAULT_TIMEOUT : Math.min(Math.max(timeoutMs, 0L), LONG_POLL_MAX_TIMEOUT);
+        OrderDetailResponse detail = orderService.getOrderDetailByTradeNo(tradeNo);
+        DeferredResult<ApiResponse<OrderDetailResponse>> result = new DeferredResult<>(timeout);
+        if (waitFor.equals(detail.getStatus()) || !OrderStatus.PENDING.equals(detail.getStatus())
+                || timeout == 0 || waiterCount.get() >= appProperties.getLongPollMaxWaiters()) {
+            result.setResult(ApiResponse.success(detail));
+            return result;
+        }
+        waiters.compute(tradeNo, (key, set) -> {
+            Set<DeferredResult<ApiResponse<OrderDetailResponse>>> results = set != null ? set : ConcurrentHashMap.newKeySet();
+            results.add(result);
+            return results;
+        });
+        waiterCount.incrementAndGet();
+        result.onCompletion(() -> removeWaiter(tradeNo, result));
+        result.onTimeout(() -> {
+            removeWaiter(tradeNo, result);
+            result.setResult(ApiResponse.success(orderService.getOrderDetailByTradeNo(tradeNo)));
+        });
+        String status = recentStatuses.getIfPresent(tradeNo);
+        if (status != null) {
+            publish(tradeNo, status);
+        }
+        return result;
+    }
+
+    /**
+     * 推送订单新状态，关闭该订单的全部订阅并返回挂起的长轮询请求
+     */
+    public void publish(String tradeNo, String status) {
+        if (tradeNo == null) {
+            return;
+        }
+        recentStatuses.put(tradeNo, status);
+        completeWaiters(tradeNo, status);
+        Set<SseEmitter> emitters = subscribers.remove(tradeNo);
+        if (emitters == null) {
+            return;
+        }
+        CallbackNotifyMessage message = new CallbackNotifyMessage(tradeNo, status);
+        int delivered = 0;
+        for (SseEmitter emitter : emitters) {
+            if (emitters.remove(emitter)) {
+                connectionCount.decrementAndGet();
+            }
+            if (send(emitter, message)) {
+                emitter.complete();
+                delivered++;
+            }
+        }
+        log.info("订单状态已推送，tradeNo={}, status={}, 订阅数={}", tradeNo, status, delivered);
+    }
+
+    /**
+     * 心跳：SSE注释行，客户端忽略；写失败的连接直接清理
+     */
+    @Scheduled(fixedDelay = HEARTBEAT_INTERVAL)
+    public void heartbeat() {
+        subscribers.forEach((tradeNo, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(tradeNo, emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 当前订阅连接数
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 当前挂起的长轮询请求数
+     */
+    public int getWaiterCount() {
+        return waiterCount.get();
+    }
+
+    private void completeWaiters(String tradeNo, String status) {
+        Set<DeferredResult<ApiResponse<OrderDetailResponse>>> results = waiters.remove(tradeNo);
+        if (results == null) {
+            return;
+        }
+        OrderDetailResponse detail;
+        try {
+            detail = orderService.getOrderDetailByTradeNo(tradeNo);
+        } catch (BizException e) {
+            log.warn("长轮询读取订单详情失败，tradeNo={}: {}", tradeNo, e.getMessage());
+            detail = new OrderDetailResponse();
+            detail.setTradeNo(tradeNo);
+        }
+        // 事务提交后、缓存二次失效前可能读到旧状态，以事件状态为准
+        detail.setStatus(status);
+        ApiResponse<OrderDetailResponse> response = ApiResponse.success(detail);
+        for (DeferredResult<ApiResponse<OrderDetailResponse>> result : results) {
+            if (results.remove(result)) {
+                waiterCount.decrementAndGet();
+            }
+            result.setResult(response);
+        }
+    }
+
+    private void removeWaiter(String tradeNo, DeferredResult<ApiResponse<OrderDetailResponse>> result) {
+        Set<DeferredResult<ApiResponse<OrderDetailResponse>>> results = waiters.get(tradeNo);
+        if (results != null && results.remove(result)) {
+            waiterCount.decrementAndGet();
+            waiters.computeIfPresent(tradeNo, (key, set) -> set.isEmpty() ? null : set);
+        }
+    }
+
+    private boolean send(SseEmitter emitter, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_STATUS).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("订单状态推送失败，连接已关闭: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String tradeNo, SseEmitter emitter) {
+        Set<SseEmitter> emitters = subscribers.get(tradeNo);
+        if (emitters != null && emitters.remove(emitter)) {
+            connectionCount.decrementAndGet();
+            subscribers.computeIfPresent(tradeNo, (key, set) -> set.isEmpty() ? null : set);
+        }
+    }
+}
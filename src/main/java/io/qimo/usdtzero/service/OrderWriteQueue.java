@@ -0,0 +1,201 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 订单写入组提交队列
+ * SQLite 只有一个连接，每个写事务单独提交（一次fsync）。并发请求的写操作先入队，由单个写线程在
+ * 最多 app.write-batch-max-delay 毫秒内攒批，同一事务内执行后一次提交，提交完成后才唤醒调用方，持久性不变。
+ * 批内某条失败导致整批回滚时，逐条单独重试，失败只影响该条。
+ * 调用方已在事务中时直接执行：该事务持有唯一的连接，入队会互相等待。
+ * 未启用组提交时每个写操作单独一个事务，包含多条语句的写操作（如批量插入）仍然原子。
+ */
+@Slf4j
+@Service
+public class OrderWriteQueue {
+
+    private static final class WriteTask<T> {
+        private final Supplier<T> write;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private WriteTask(Supplier<T> write) {
+            this.write = write;
+        }
+
+        private void run() {
+            result = write.get();
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+    }
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    private final BlockingQueue<WriteTask<?>> queue = new LinkedBlockingQueue<>();
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!Boolean.TRUE.equals(appProperties.getWriteBatchEnabled())) {
+            log.info("订单写入组提交未启用");
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("订单写入组提交已启用，攒批时长: {}ms，单批上限: {}", appProperties.getWriteBatchMaxDelay(), appProperties.getWriteBatchMaxSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 写线程退出后剩余的写操作逐条执行，不丢弃
+        List<WriteTask<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::commitSingle);
+    }
+
+    /**
+     * 执行写操作，所在批次提交后返回
+     * @param write 数据库写操作，可能在整批回滚后重试，不能包含数据库以外的副作用
+     * @return 写操作的返回值
+     */
+    public <T> T execute(Supplier<T> write) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || Thread.currentThread() == writer) {
+            return write.get();
+        }
+        if (!running) {
+            return transactionTemplate.execute(status -> write.get());
+        }
+        WriteTask<T> task = new WriteTask<>(write);
+        queue.add(task);
+        if (!running && queue.remove(task)) {
+            // 入队时恰好关闭，写线程不会再处理
+            return transactionTemplate.execute(status -> write.get());
+        }
+        try {
+            return task.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException(ErrorCode.SYSTEM_ERROR, "等待订单写入被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BizException(ErrorCode.SYSTEM_ERROR, "订单写入失败");
+        }
+    }
+
+    /**
+     * 待提交的写操作数
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<WriteTask<?>> batch = new ArrayList<>();
+        while (running) {
+            try {
+                WriteTask<?> first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(appProperties.getWriteBatchMaxDelay());
+                int maxSize = appProperties.getWriteBatchMaxSize();
+                while (batch.size() < maxSize) {
+                    queue.drainTo(batch, maxSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxSize || remaining <= 0) {
+                        break;
+                    }
+                    WriteTask<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            if (!batch.isEmpty()) {
+                commitBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            commitBatch(batch);
+        }
+    }
+
+    private void commitBatch(List<WriteTask<?>> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(WriteTask::run));
+            batch.forEach(WriteTask::complete);
+            metricsService.recordOrderWriteBatch(batch.size(), false);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.warn("订单写入批次提交失败，逐条重试 - 条数: {}, 原因: {}", batch.size(), e.getMessage());
+            metricsService.recordOrderWriteBatch(batch.size(), true);
+            batch.forEach(this::commitSingle);
+        } catch (Error e) {
+            // 写线程即将退出，之后的写操作改为调用方直接执行
+            running = false;
+            batch.forEach(task -> task.future.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    private void commitSingle(WriteTask<?> task) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> task.run());
+            task.complete();
+        } catch (RuntimeException e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+}
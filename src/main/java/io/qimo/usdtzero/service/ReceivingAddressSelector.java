@@ -0,0 +1,118 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 收款地址选择器
+ * 同一链配置多个收款地址时，按策略给出地址的尝试顺序，把订单分散到不同地址的金额阶梯上，
+ * 减少同一基础金额附近的碰撞。扫块按金额池匹配，新地址上的订单自动被监听。
+ */
+@Slf4j
+@Service
+public class ReceivingAddressSelector {
+
+    @Autowired
+    private ChainProperties chainProperties;
+
+    @Autowired
+    private AmountPoolService amountPoolService;
+
+    @Autowired
+    private LightweightMetricsService metricsService;
+
+    // 每条链的轮询游标
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        registerGauges(ChainType.TRC20, chainProperties.getTrc20Enable(), chainProperties.getTrc20Addresses());
+        registerGauges(ChainType.SPL, chainProperties.getSplEnable(), chainProperties.getSplAddresses());
+        registerGauges(ChainType.BEP20, chainProperties.getBep20Enable(), chainProperties.getBep20Addresses());
+    }
+
+    /**
+     * 给出收款地址的尝试顺序
+     * @param chainType 链类型
+     * @param addresses 该链的收款地址
+     * @param baseAmount 基础金额（最小单位）
+     * @param step 步进
+     * @param maxSteps 最大级数
+     * @param orderNo 商户订单号（hash策略使用）
+     * @return 按优先级排列的地址
+     */
+    public List<String> order(String chainType, List<String> addresses, long baseAmount, long step, int maxSteps, String orderNo) {
+        int size = addresses.size();
+        if (size <= 1) {
+            return addresses;
+        }
+        String strategy = chainProperties.getAddressStrategy();
+        if (ChainProperties.STRATEGY_HASH.equals(strategy) && orderNo != null) {
+            return rotate(addresses, Math.floorMod(orderNo.hashCode(), size));
+        }
+        int start = Math.floorMod(cursors.computeIfAbsent(chainType, k -> new AtomicInteger()).getAndIncrement(), size);
+        List<String> rotated = rotate(addresses, start);
+        if (ChainProperties.STRATEGY_ROUND_ROBIN.equals(strategy)) {
+            return rotated;
+        }
+        // least-occupied：基础金额附近阶梯占用最少的地址优先，占用相同时按轮询顺序
+        int[] occupancy = new int[size];
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            occupancy[i] = amountPoolService.getLadderOccupancy(rotated.get(i), baseAmount, step, maxSteps);
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingInt(i -> occupancy[i]));
+        List<String> ordered = new ArrayList<>(size);
+        for (Integer index : indexes) {
+            ordered.add(rotated.get(index));
+        }
+        return ordered;
+    }
+
+    /**
+     * 各收款地址当前的金额池占用数
+     * @param addresses 收款地址
+     * @return 地址 -> 占用数
+     */
+    public Map<String, Integer> getOccupancy(List<String> addresses) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String address : addresses) {
+            result.put(address, amountPoolService.sizeOf(address));
+        }
+        return result;
+    }
+
+    private static List<String> rotate(List<String> addresses, int start) {
+        if (start == 0) {
+            return addresses;
+        }
+        List<String> rotated = new ArrayList<>(addresses);
+        Collections.rotate(rotated, -start);
+        return rotated;
+    }
+
+    private void registerGauges(String chainType, Boolean enabled, List<String> addresses) {
+        if (!Boolean.TRUE.equals(enabled) || addresses == null) {
+            return;
+        }
+        for (String address : addresses) {
+            metricsService.registerAddressOccupancyGauge(chainType, address, () -> amountPoolService.sizeOf(address));
+        }
+        log.info("[{}] 收款地址 {} 个，选择策略: {}", chainType, addresses.size(), chainProperties.getAddressStrategy());
+    }
+}
@@ -0,0 +1,205 @@
+package io.qimo.usdtzero.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.qimo.usdtzero.api.response.ScanStatusResponse;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import io.qimo.usdtzero.model.ScanCheckpoint;
+import io.qimo.usdtzero.model.ScanDeadLetter;
+import io.qimo.usdtzero.repository.ScanCheckpointMapper;
+import io.qimo.usdtzero.repository.ScanDeadLetterMapper;
+import io.qimo.usdtzero.task.CheckpointScanner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 扫块检查点持久化：每条链记录已完整处理的最后一个区块，重启后据此续扫；
+ * 同时保存多次重试仍失败的区块段（死信），供管理接口查看与重放
+ */
+@Slf4j
+@Service
+public class ScanCheckpointService {
+
+    /**
+     * 没有检查点
+     */
+    public static final long NONE = -1L;
+
+    @Autowired
+    private ScanCheckpointMapper scanCheckpointMapper;
+
+    @Autowired
+    private ScanDeadLetterMapper scanDeadLetterMapper;
+
+    // 已启用链的扫块进度，由监听任务初始化时注册
+    private final Map<String, CheckpointScanner> scanners = new ConcurrentHashMap<>();
+
+    /**
+     * 读取链的检查点
+     * @return 已完整处理的最后一个区块号，没有记录时返回 NONE
+     */
+    public long load(String chainType) {
+        ScanCheckpoint checkpoint = scanCheckpointMapper.selectById(chainType);
+        return checkpoint == null || checkpoint.getBlockNumber() == null ? NONE : checkpoint.getBlockNumber();
+    }
+
+    /**
+     * 保存链的检查点；写入失败只记录日志，内存中的进度不回退，下次推进时再写入
+     */
+    public void save(String chainType, long blockNumber) {
+        try {
+            scanCheckpointMapper.upsert(chainType, blockNumber, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("[{}] 扫块检查点保存失败，block={}: {}", chainType, blockNumber, e.getMessage());
+        }
+    }
+
+    /**
+     * 注册链的扫块进度
+     */
+    public void register(CheckpointScanner scanner) {
+        scanners.put(scanner.getChainType(), scanner);
+    }
+
+    /**
+     * 已注册的扫块进度
+     */
+    public List<CheckpointScanner> getScanners() {
+        return new ArrayList<>(scanners.values());
+    }
+
+    /**
+     * 记录死信；写入失败时区块段只保留在错误日志中
+     */
+    public void saveDeadLetter(String chainType, long fromBlock, long toBlock, int attempts, String lastError) {
+        ScanDeadLetter deadLetter = new ScanDeadLetter();
+        deadLetter.setChainType(chainType);
+        deadLetter.setFromBlock(fromBlock);
+        deadLetter.setToBlock(toBlock);
+        deadLetter.setAttempts(attempts);
+        deadLetter.setLastError(lastError);
+        deadLetter.setCreateTime(LocalDateTime.now());
+        deadLetter.setUpdateTime(deadLetter.getCreateTime());
+        try {
+            scanDeadLetterMapper.insert(deadLetter);
+        } catch (Exception e) {
+            log.error("[{}] 扫块死信保存失败，区块{}-{}: {}", chainType, fromBlock, toBlock, e.getMessage());
+        }
+    }
+
+    /**
+     * 重放仍失败时更新死信的尝试次数与失败原因
+     */
+    public void updateDeadLetter(long id, int attempts, String lastError) {
+        ScanDeadLetter deadLetter = new ScanDeadLetter();
+        deadLetter.setId(id);
+        deadLetter.setAttempts(attempts);
+        deadLetter.setLastError(lastError);
+        deadLetter.setUpdateTime(LocalDateTime.now());
+        try {
+            scanDeadLetterMapper.updateById(deadLetter);
+        } catch (Exception e) {
+            log.warn("扫块死信#{}更新失败: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * 重放成功后删除死信
+     */
+    public void deleteDeadLetter(long id) {
+        try {
+            scanDeadLetterMapper.deleteById(id);
+        } catch (Exception e) {
+            log.warn("扫块死信#{}删除失败: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询死信，按链与起始区块排序
+     * @param chainType 链类型，为空时查询全部
+     */
+    public List<ScanDeadLetter> listDeadLetters(String chainType) {
+        LambdaQueryWrapper<ScanDeadLetter> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(chainType != null, ScanDeadLetter::getChainType, chainType)
+                .orderByAsc(ScanDeadLetter::getChainType)
+                .orderByAsc(ScanDeadLetter::getFromBlock);
+        return scanDeadLetterMapper.selectList(wrapper);
+    }
+
+    /**
+     * 重放死信：加入所属链的重试队列，成功后自动删除
+     * @return 是否已加入（已在重试队列中时返回false）
+     */
+    public boolean replayDeadLetter(long id) {
+        ScanDeadLetter deadLetter = scanDeadLetterMapper.selectById(id);
+        if (deadLetter == null) {
+            throw new BizException(ErrorCode.SCAN_DEAD_LETTER_NOT_FOUND, "扫块死信不存在");
+        }
+        CheckpointScanner scanner = scanners.get(deadLetter.getChainType());
+        if (scanner == null) {
+            throw new BizException(ErrorCode.CHAIN_NOT_ENABLED, deadLetter.getChainType() + " 链未启用");
+        }
+        return scanner.replay(deadLetter);
+    }
+
+    /**
+     * 各链的扫块进度、重试队列与死信
+     * @param chainType 链类型，为空时查询全部
+     */
+    public ScanStatusResponse getStatus(String chainType) {
+        List<ScanStatusResponse.ChainScanStatus> chains = new ArrayList<>();
+        for (CheckpointScanner scanner : getScanners()) {
+            if (chainType != null && !chainType.equals(scanner.getChainType())) {
+                continue;
+            }
+            ScanStatusResponse.ChainScanStatus status = new ScanStatusResponse.ChainScanStatus();
+            status.setChainType(scanner.getChainType());
+            status.setCheckpoint(scanner.getCursor());
+            status.setFrontier(scanner.getFrontier());
+            status.setLag(scanner.getLag());
+            status.setBackfillBlocks(scanner.getBackfillBlocks());
+            List<ScanStatusResponse.PendingRange> retryQueue = new ArrayList<>();
+            for (CheckpointScanner.PendingRange range : scanner.getRetryQueue()) {
+                ScanStatusResponse.PendingRange item = new ScanStatusResponse.PendingRange();
+                item.setFromBlock(range.fromBlock());
+                item.setToBlock(range.toBlock());
+                item.setAttempts(range.attempts());
+                item.setNextRetryTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(range.nextRetryTime()), ZoneId.systemDefault()));
+                item.setLastError(range.lastError());
+                item.setDeadLetterId(range.deadLetterId());
+                retryQueue.add(item);
+            }
+            status.setRetryQueue(retryQueue);
+            chains.add(status);
+        }
+        chains.sort(Comparator.comparing(ScanStatusResponse.ChainScanStatus::getChainType));
+
+        List<ScanStatusResponse.DeadLetter> deadLetters = new ArrayList<>();
+        for (ScanDeadLetter deadLetter : listDeadLetters(chainType)) {
+            ScanStatusResponse.DeadLetter item = new ScanStatusResponse.DeadLetter();
+            item.setId(deadLetter.getId());
+            item.setChainType(deadLetter.getChainType());
+            item.setFromBlock(deadLetter.getFromBlock());
+            item.setToBlock(deadLetter.getToBlock());
+            item.setAttempts(deadLetter.getAttempts());
+            item.setLastError(deadLetter.getLastError());
+            item.setCreateTime(deadLetter.getCreateTime());
+            item.setUpdateTime(deadLetter.getUpdateTime());
+            deadLetters.add(item);
+        }
+        ScanStatusResponse response = new ScanStatusResponse();
+        response.setChains(chains);
+        response.setDeadLetters(deadLetters);
+        return response;
+    }
+}
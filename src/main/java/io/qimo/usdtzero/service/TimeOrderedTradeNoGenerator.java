@@ -0,0 +1,63 @@
+package io.qimo.usdtzero.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间递增的紧凑订单号：41位毫秒时间戳 + 10位节点号 + 12位序号，编码为13位小写 Crockford Base32。
+ * 定长编码，字典序即生成顺序，新订单号总是追加在 trade_no 唯一索引的末尾。
+ * 多实例部署时各实例配置不同的 app.node-id 即不会冲突；同一毫秒内序号用尽或时钟回拨时
+ * 借用下一毫秒，保证单实例内严格递增。
+ */
+public class TimeOrderedTradeNoGenerator implements TradeNoGenerator {
+
+    /**
+     * 时间戳起点 2025-01-01T00:00:00Z，41位毫秒约可用69年
+     */
+    static final long EPOCH = 1735689600000L;
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int LENGTH = 13;
+
+    private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+
+    private final long nodeBits;
+    // 高位为时间戳，低12位为序号
+    private final AtomicLong state = new AtomicLong();
+
+    public TimeOrderedTradeNoGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在0-" + MAX_NODE_ID + "之间");
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    @Override
+    public String next() {
+        long next;
+        while (true) {
+            long previous = state.get();
+            long now = currentTimeMillis() - EPOCH;
+            next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                break;
+            }
+        }
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return encode((timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence);
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,13 @@
+package io.qimo.usdtzero.service;
+
+/**
+ * 订单号（tradeNo）生成策略
+ * 默认实现为 TimeOrderedTradeNoGenerator，需要自定义格式时注册一个 @Primary 的实现即可替换。
+ */
+public interface TradeNoGenerator {
+
+    /**
+     * 生成新的订单号，全局唯一
+     */
+    String next();
+}
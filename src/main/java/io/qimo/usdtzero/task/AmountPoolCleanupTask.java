@@ -1,5 +1,6 @@
 package io.qimo.usdtzero.task;
 
+import io.qimo.usdtzero.service.AmountPoolJournalService;
 import io.qimo.usdtzero.service.AmountPoolService;
 import io.qimo.usdtzero.service.LightweightMetricsService;
 import lombok.extern.slf4j.Slf4j;
@@ -8,11 +9,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.Map;
 
 /**
- * 资金池过期条目兜底清理任务，防止内存泄漏
+ * 资金池过期条目清理任务，推进金额池的过期时间轮，到期后约1秒内释放金额
  */
 @Slf4j
 @Component
@@ -21,26 +20,21 @@ public class AmountPoolCleanupTask {
     @Autowired
     private AmountPoolService amountPoolService;
 
+    @Autowired
+    private AmountPoolJournalService amountPoolJournalService;
+
     @Autowired
     private LightweightMetricsService metricsService;
 
     /**
-     * 每分钟清理一次过期的资金池条目
+     * 每秒推进一次时间轮，释放已过期的资金池条目
      */
-    @Scheduled(fixedRate = 60000)
+    @Scheduled(fixedRate = 1000)
     public void cleanupExpiredAmountPool() {
         io.micrometer.core.instrument.Timer.Sample timer = metricsService.startScheduledTaskTimer();
         int removed = 0;
-        LocalDateTime now = LocalDateTime.now();
         try {
-            Map<String, AmountPoolService.AmountPoolEntry> pool = amountPoolService.getAmountToOrderMap();
-            for (Map.Entry<String, AmountPoolService.AmountPoolEntry> entry : pool.entrySet()) {
-                AmountPoolService.AmountPoolEntry value = entry.getValue();
-                if (value != null && value.getExpireTime() != null && value.getExpireTime().isBefore(now)) {
-                    amountPoolService.releaseAmountByKey(entry.getKey());
-                    removed++;
-                }
-            }
+            removed = amountPoolService.releaseExpiredAmounts(LocalDateTime.now());
             if (removed > 0) {
                 log.info("AmountPoolCleanupTask: 清理过期资金池条目 {} 个", removed);
             }
@@ -51,4 +45,17 @@ public class AmountPoolCleanupTask {
             metricsService.stopScheduledTaskTimer(timer, "amount_pool_cleanup");
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 每分钟检查一次金额池日志大小，超过阈值时压缩
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void compactAmountPoolJournal() {
+        try {
+            amountPoolJournalService.compactIfNeeded();
+        } catch (Exception e) {
+            metricsService.recordScheduledTaskError("amount_pool_journal_compact", e.getMessage());
+            log.error("AmountPoolCleanupTask: 压缩金额池日志异常, 错误: {}", e.getMessage(), e);
+        }
+    }
+}
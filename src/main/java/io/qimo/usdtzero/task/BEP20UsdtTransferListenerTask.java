@@ -3,9 +3,14 @@ package io.qimo.usdtzero.task;
 import io.qimo.usdtzero.config.ChainProperties;
 import io.qimo.usdtzero.config.PayProperties;
 import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.pool.MatchIndex;
 import io.qimo.usdtzero.service.AmountPoolService;
+import io.qimo.usdtzero.service.DepositAddressService;
+import io.qimo.usdtzero.service.LatePaymentIndex;
 import io.qimo.usdtzero.service.LightweightMetricsService;
 import io.qimo.usdtzero.service.OrderService;
+import io.qimo.usdtzero.service.ScanCheckpointService;
+import io.qimo.usdtzero.util.Money;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -16,6 +21,7 @@ import org.web3j.crypto.Keys;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.methods.response.*;
 import org.web3j.protocol.http.HttpService;
 import org.web3j.abi.FunctionReturnDecoder;
@@ -26,7 +32,6 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -38,6 +43,19 @@ import org.apache.commons.lang3.StringUtils;
 @Component
 @ConditionalOnProperty(value = "chain.bep20-enable", havingValue = "true")
 public class BEP20UsdtTransferListenerTask {
+    /**
+     * BSC USDT合约18位精度，转换为6位最小单位的除数
+     */
+    private static final long BEP20_TO_USDT_UNIT = 1_000_000_000_000L;
+    /**
+     * ERC20 Transfer(address,address,uint256) 事件签名
+     */
+    static final String TRANSFER_TOPIC = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+    /**
+     * eth_getLogs 收款地址 topic 的最大个数，超出后不按地址过滤，改为本地预过滤
+     */
+    static final int MAX_TOPIC_ADDRESSES = 200;
+
     @Autowired
     private ChainProperties chainProperties;
     @Autowired
@@ -45,12 +63,20 @@ public class BEP20UsdtTransferListenerTask {
     @Autowired
     private AmountPoolService amountPoolService;
     @Autowired
+    private DepositAddressService depositAddressService;
+    @Autowired
+    private LatePaymentIndex latePaymentIndex;
+    @Autowired
     private OrderService orderService;
     @Autowired
     private LightweightMetricsService metricsService;
+    @Autowired
+    private ScanCheckpointService scanCheckpointService;
 
     private Web3j web3j;
-    private long lastScannedBlock = -1L;
+    private Web3jBatchClient batchClient;
+    private ChainScanExecutor scanExecutor;
+    private CheckpointScanner scanner;
 
     private Thread watcherThread;
     private final long checkInterval = 3000L; // 3秒检查一次
@@ -61,6 +87,11 @@ public class BEP20UsdtTransferListenerTask {
     public void init() {
         String bscRpc = chainProperties.getBep20Rpc();
         web3j = Web3j.build(new HttpService(bscRpc));
+        batchClient = new Web3jBatchClient(web3j, ChainType.BEP20, chainProperties.getBep20RpcBatchSize(), metricsService);
+        scanExecutor = new ChainScanExecutor(ChainType.BEP20, chainProperties.getScanMaxInFlight(), metricsService);
+        scanner = new CheckpointScanner(ChainType.BEP20, 5, chainProperties, scanExecutor, scanCheckpointService, metricsService);
+        metricsService.registerMatchIndexVersionGauge(ChainType.BEP20,
+            () -> amountPoolService.getMatchIndex(ChainType.BEP20).version());
         log.info("BEP20 监听任务启动，BSC RPC: {}", bscRpc);
     }
 
@@ -79,7 +110,10 @@ public class BEP20UsdtTransferListenerTask {
             if (nextCheck <= System.currentTimeMillis()) {
                 try {
                     nextCheck = System.currentTimeMillis() + checkInterval;
-                    pollBscBlocks();
+                    if (pollBscBlocks()) {
+                        // 追块中，立即扫描下一轮
+                        nextCheck = 0;
+                    }
                 } catch (Exception ex) {
                     log.error("BEP20 监听任务异常", ex);
                 }
@@ -105,12 +139,16 @@ public class BEP20UsdtTransferListenerTask {
                 Thread.currentThread().interrupt();
             }
         }
+        if (scanExecutor != null) {
+            scanExecutor.shutdown();
+        }
     }
 
     /**
-     * 每3秒轮询一次BSC区块，解析USDT转账
+     * 每3秒轮询一次BSC区块，从检查点续扫到最新区块，解析USDT转账
+     * @return 是否仍在追块
      */
-    public void pollBscBlocks() {
+    public boolean pollBscBlocks() {
         Timer.Sample timer = metricsService.startScheduledTaskTimer();
         try {
             // 根据配置选择 finalized 或 latest 区块
@@ -118,111 +156,268 @@ public class BEP20UsdtTransferListenerTask {
                     ? DefaultBlockParameterName.FINALIZED
                     : DefaultBlockParameterName.LATEST;
             EthBlock latestBlock = web3j.ethGetBlockByNumber(blockParam, false).send();
+            metricsService.recordChainRpcCall(ChainType.BEP20, "eth_getBlockByNumber", 1);
             BigInteger latestBlockNumber = latestBlock.getBlock().getNumber();
-            int maxBacklog = 5;
-            long startBlock = Math.max(lastScannedBlock + 1, latestBlockNumber.longValue() - maxBacklog + 1);
-            if (startBlock > latestBlockNumber.longValue()) {
-                return;
-            }
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            for (long blockNum = startBlock; blockNum <= latestBlockNumber.longValue(); blockNum++) {
-                if (blockNum > lastScannedBlock) {
-                    lastScannedBlock = blockNum;
-                }
-                futures.add(parseBlock(blockNum));
-            }
-            if (!futures.isEmpty()) {
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            }
+            CheckpointScanner.RangeScanner rangeScanner = ChainProperties.SCAN_MODE_LOGS.equals(chainProperties.getBep20ScanMode())
+                ? this::scanLogs
+                : this::scanBlocks;
+            return scanner.scan(latestBlockNumber.longValue(), rangeScanner);
         } catch (Exception e) {
             log.error("BEP20 监听任务异常", e);
             metricsService.recordScheduledTaskError("bep20_block_scan", e.getMessage());
+            return false;
         } finally {
             metricsService.stopScheduledTaskTimer(timer, "bep20_block_scan");
         }
     }
 
     /**
-     * 解析指定区块内的BEP20 USDT转账（通过 eth_getBlockByNumber 获取区块，解析交易input）
+     * 按区块范围拉取USDT合约的Transfer事件日志（一次 eth_getLogs），按合约、事件签名与收款地址过滤。
+     * 日志只在交易成功时产生，无需再查回执；transferFrom 与批量转账合约发出的转账同样可以识别。
+     * @param fromBlock 起始区块（含）
+     * @param toBlock 结束区块（含）
+     * @return 是否扫描成功
+     */
+    public boolean scanLogs(long fromBlock, long toBlock) {
+        // 整个范围使用同一份匹配索引快照
+        MatchIndex matchIndex = amountPoolService.getMatchIndex(ChainType.BEP20);
+        Set<String> watchedAddresses = collectWatchedAddresses(matchIndex);
+        if (watchedAddresses.isEmpty()) {
+            // 没有待支付订单、派生地址与迟到付款时无需查询
+            return true;
+        }
+        EthFilter filter = new EthFilter(
+            DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+            DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+            chainProperties.getBep20SmartContract());
+        filter.addSingleTopic(TRANSFER_TOPIC);
+        // from 不限
+        filter.addNullTopic();
+        if (watchedAddresses.size() <= MAX_TOPIC_ADDRESSES) {
+            filter.addOptionalTopics(watchedAddresses.stream().map(BEP20UsdtTransferListenerTask::toAddressTopic).toArray(String[]::new));
+        }
+        try {
+            EthLog ethLog = scanExecutor.call(() -> web3j.ethGetLogs(filter).send());
+            metricsService.recordChainRpcCall(ChainType.BEP20, "eth_getLogs", 1);
+            if (ethLog.hasError()) {
+                metricsService.incBlockScanFail(ChainType.BEP20);
+                log.error("[BEP20] 区块{}-{} eth_getLogs失败，code={}, message={}",
+                    fromBlock, toBlock, ethLog.getError().getCode(), ethLog.getError().getMessage());
+                return false;
+            }
+            List<EthLog.LogResult> logs = ethLog.getLogs() == null ? Collections.emptyList() : ethLog.getLogs();
+            metricsService.recordChainScanItems(ChainType.BEP20, ChainProperties.SCAN_MODE_LOGS, logs.size());
+            for (long blockNum = fromBlock; blockNum <= toBlock; blockNum++) {
+                metricsService.incBlockScanSuccess(ChainType.BEP20);
+            }
+            log.info("[BEP20] 区块{}-{}共{}条Transfer日志，监听地址数: {}，匹配索引版本: {}",
+                fromBlock, toBlock, logs.size(), watchedAddresses.size(), matchIndex.version());
+            long tolerance = chainProperties.getMatchToleranceMinUnit(ChainType.BEP20);
+            for (EthLog.LogResult logResult : logs) {
+                if (logResult.get() instanceof Log transferLog) {
+                    parseTransferLog(transferLog, matchIndex, tolerance);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            metricsService.incBlockScanFail(ChainType.BEP20);
+            log.error("[BEP20] 区块{}-{}日志扫描异常: {}", fromBlock, toBlock, e.getMessage());
+            metricsService.recordScheduledTaskError("bep20_log_scan", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 解析一条Transfer日志并结算；只有日志格式异常时跳过，结算失败（如写库异常）向上抛出，整段交给重试
+     */
+    private void parseTransferLog(Log transferLog, MatchIndex matchIndex, long tolerance) {
+        List<String> topics = transferLog.getTopics();
+        String data = transferLog.getData();
+        // 链重组撤销的日志与非标准 Transfer（to 未索引）跳过
+        if (transferLog.isRemoved() || topics == null || topics.size() < 3 || data == null || data.length() < 66) {
+            return;
+        }
+        String toAddressHex;
+        long usdtAmount;
+        try {
+            toAddressHex = "0x" + topics.get(2).substring(26).toLowerCase();
+            usdtAmount = Money.hexDivide(data, 2, 66, BEP20_TO_USDT_UNIT);
+        } catch (Exception e) {
+            log.warn("[BEP20] 解析交易{}的Transfer日志失败: {}", transferLog.getTransactionHash(), e.getMessage());
+            return;
+        }
+        boolean depositAddress = depositAddressService.isWatched(toAddressHex);
+        if (!matchIndex.isWatched(toAddressHex) && !depositAddress && !latePaymentIndex.isWatched(toAddressHex)) {
+            return;
+        }
+        long matched = matchIndex.match(toAddressHex, usdtAmount, tolerance);
+        boolean latePayment = matched == MatchIndex.NO_MATCH && latePaymentIndex.lookup(toAddressHex, usdtAmount) != null;
+        if (matched != MatchIndex.NO_MATCH || latePayment || depositAddress) {
+            settleTransfer(transferLog.getBlockNumber().longValue(), toAddressHex, usdtAmount, matched, latePayment, transferLog.getTransactionHash());
+        }
+    }
+
+    /**
+     * 监听的收款地址：待支付订单的金额池地址、HD派生地址与有近期超时订单的地址
+     */
+    private Set<String> collectWatchedAddresses(MatchIndex matchIndex) {
+        Set<String> addresses = new TreeSet<>();
+        for (Set<String> source : List.of(matchIndex.addresses(), depositAddressService.getWatchedAddresses(), latePaymentIndex.addresses())) {
+            for (String address : source) {
+                // 派生地址集合中包含其他链的地址
+                if (address != null && address.length() == 42 && address.startsWith("0x")) {
+                    addresses.add(address.toLowerCase());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    static String toAddressTopic(String address) {
+        return "0x000000000000000000000000" + address.substring(2).toLowerCase();
+    }
+
+    private void settleTransfer(long blockNum, String toAddressHex, long usdtAmount, long matched, boolean latePayment, String txHash) {
+        log.info("[BEP20] USDT转账: block={}, to={}, amount={}, txHash={}",
+            blockNum, toAddressHex, usdtAmount, txHash);
+        if (matched != MatchIndex.NO_MATCH) {
+            orderService.markMatchedTransfer(ChainType.BEP20, toAddressHex, usdtAmount, matched, txHash);
+        } else if (latePayment) {
+            orderService.markLatePayment(ChainType.BEP20, toAddressHex, usdtAmount, txHash);
+        } else {
+            orderService.markDepositAddressPaid(toAddressHex, usdtAmount, txHash);
+        }
+    }
+
+    /**
+     * 解析指定区块内的BEP20 USDT转账（异步执行 scanBlocks）
      */
     public CompletableFuture<Void> parseBlock(long blockNum) {
-        Set<String> listenAmount = amountPoolService.getAllLockedAmounts();
+        return scanExecutor.runAsync(() -> scanBlocks(blockNum, blockNum));
+    }
+
+    /**
+     * 解析区块范围内的BEP20 USDT转账：完整区块与命中转账的回执分别打包为批量请求获取，再解析交易input
+     * @param fromBlock 起始区块（含）
+     * @param toBlock 结束区块（含）
+     * @return 是否全部区块与回执都获取成功
+     */
+    public boolean scanBlocks(long fromBlock, long toBlock) {
+        List<Request<?, EthBlock>> blockRequests = new ArrayList<>();
+        for (long blockNum = fromBlock; blockNum <= toBlock; blockNum++) {
+            blockRequests.add(web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNum)), true));
+        }
+        List<EthBlock> blocks;
+        try {
+            blocks = scanExecutor.call(() -> batchClient.sendAll(blockRequests));
+            metricsService.recordChainRpcCall(ChainType.BEP20, "eth_getBlockByNumber", blockRequests.size());
+        } catch (Exception e) {
+            for (long blockNum = fromBlock; blockNum <= toBlock; blockNum++) {
+                metricsService.incBlockScanFail(ChainType.BEP20);
+            }
+            log.error("[BEP20] 区块{}-{}获取失败: {}", fromBlock, toBlock, e.getMessage());
+            metricsService.recordScheduledTaskError("bep20_block_parse", e.getMessage());
+            return false;
+        }
+
+        // 整个范围使用同一份匹配索引快照
+        MatchIndex matchIndex = amountPoolService.getMatchIndex(ChainType.BEP20);
+        long tolerance = chainProperties.getMatchToleranceMinUnit(ChainType.BEP20);
+        List<PendingTransfer> transfers = new ArrayList<>();
+        boolean complete = true;
+        for (int i = 0; i < blocks.size(); i++) {
+            long blockNum = fromBlock + i;
+            EthBlock block = blocks.get(i);
+            if (block.hasError()) {
+                metricsService.incBlockScanFail(ChainType.BEP20);
+                log.error("[BEP20] 区块{} eth_getBlockByNumber失败，code={}, message={}",
+                    blockNum, block.getError().getCode(), block.getError().getMessage());
+                complete = false;
+                continue;
+            }
+            metricsService.incBlockScanSuccess(ChainType.BEP20);
+            EthBlock.Block blockData = block.getBlock();
+            if (blockData == null || blockData.getTransactions() == null) {
+                log.warn("[BEP20] 区块{}无交易数据", blockNum);
+                continue;
+            }
+            log.info("[BEP20] 区块{}共{}个交易，匹配索引版本: {}", blockNum, blockData.getTransactions().size(), matchIndex.version());
+            metricsService.recordChainScanItems(ChainType.BEP20, ChainProperties.SCAN_MODE_BLOCK, blockData.getTransactions().size());
+            collectTransfers(blockNum, blockData, matchIndex, tolerance, transfers);
+        }
+        if (transfers.isEmpty()) {
+            return complete;
+        }
+
+        // 查回执，判断交易是否成功
+        List<Request<?, EthGetTransactionReceipt>> receiptRequests = new ArrayList<>(transfers.size());
+        for (PendingTransfer transfer : transfers) {
+            receiptRequests.add(web3j.ethGetTransactionReceipt(transfer.txHash()));
+        }
+        List<EthGetTransactionReceipt> receipts;
+        try {
+            receipts = scanExecutor.call(() -> batchClient.sendAll(receiptRequests));
+            metricsService.recordChainRpcCall(ChainType.BEP20, "eth_getTransactionReceipt", receiptRequests.size());
+        } catch (Exception e) {
+            log.warn("[BEP20] 区块{}-{}查询{}笔交易回执异常: {}", fromBlock, toBlock, transfers.size(), e.getMessage());
+            return false;
+        }
+        for (int i = 0; i < transfers.size(); i++) {
+            PendingTransfer transfer = transfers.get(i);
+            Optional<TransactionReceipt> receiptOpt = receipts.get(i).getTransactionReceipt();
+            if (receiptOpt.isPresent() && receiptOpt.get().isStatusOK()) {
+                settleTransfer(transfer.blockNum(), transfer.toAddress(), transfer.amount(), transfer.matched(), transfer.latePayment(), transfer.txHash());
+            } else {
+                log.info("[BEP20] 交易{}回执status!=1，跳过", transfer.txHash());
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * 收集区块内调用USDT合约 transfer 且收款方命中监听地址的交易，待批量查回执
+     */
+    private void collectTransfers(long blockNum, EthBlock.Block blockData, MatchIndex matchIndex, long tolerance, List<PendingTransfer> transfers) {
+        for (EthBlock.TransactionResult txResult : blockData.getTransactions()) {
+            EthBlock.TransactionObject tx = (EthBlock.TransactionObject) txResult.get();
 
-        return CompletableFuture.runAsync(() -> {
+            // 检查是否是USDT合约交易
+            if (tx.getTo() == null || !tx.getTo().equalsIgnoreCase(chainProperties.getBep20SmartContract())) {
+                continue;
+            }
+            String input = tx.getInput();
+            // 检查是否是Transfer方法调用 (0xa9059cbb)
+            if (input == null || !input.startsWith("0xa9059cbb") || input.length() < 138) {
+                continue;
+            }
             try {
-                // 使用 eth_getBlockByNumber 获取完整区块数据
-                EthBlock block = web3j.ethGetBlockByNumber(
-                    DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNum)), 
-                    true
-                ).send();
-                
-                if (block.hasError()) {
-                    metricsService.incBlockScanFail(ChainType.BEP20);
-                    log.error("[BEP20] 区块{} eth_getBlockByNumber失败，code={}, message={}", 
-                        blockNum, block.getError().getCode(), block.getError().getMessage());
-                    return;
-                }
-                
-                metricsService.incBlockScanSuccess(ChainType.BEP20);
-                
-                EthBlock.Block blockData = block.getBlock();
-                if (blockData == null || blockData.getTransactions() == null) {
-                    log.warn("[BEP20] 区块{}无交易数据", blockNum);
-                    return;
+                // 解析Transfer方法的参数
+                // 0xa9059cbb + 32字节to地址 + 32字节amount
+                String toAddressHex = "0x" + input.substring(34, 74); // 去掉前导0
+                boolean depositAddress = depositAddressService.isWatched(toAddressHex);
+                // 地址预过滤：收款方不是监听地址时不解析金额
+                if (!matchIndex.isWatched(toAddressHex) && !depositAddress && !latePaymentIndex.isWatched(toAddressHex)) {
+                    continue;
                 }
-                
-                log.info("[BEP20] 区块{}共{}个交易", blockNum, blockData.getTransactions().size());
-                
-                // 遍历所有交易
-                for (EthBlock.TransactionResult txResult : blockData.getTransactions()) {
-                    EthBlock.TransactionObject tx = (EthBlock.TransactionObject) txResult.get();
-                    
-                    // 检查是否是USDT合约交易
-                    if (tx.getTo() != null && tx.getTo().equalsIgnoreCase(chainProperties.getBep20SmartContract())) {
-                        String input = tx.getInput();
-                        
-                        // 检查是否是Transfer方法调用 (0xa9059cbb)
-                        if (input != null && input.startsWith("0xa9059cbb") && input.length() >= 74) {
-                            try {
-                                // 解析Transfer方法的参数
-                                // 0xa9059cbb + 32字节to地址 + 32字节amount
-                                String toAddressHex = "0x" + input.substring(34, 74); // 去掉前导0
-                                String amountHex = input.substring(74, 138);
-
-                                BigInteger amount = new BigInteger(amountHex, 16);
-                                // 转换为6位小数精度
-                                long usdtAmount = new BigDecimal(amount).divide(new BigDecimal("1000000000000"), 6, java.math.RoundingMode.DOWN).longValue();
-                                
-                                // 检查是否匹配监听地址和金额
-                                if (listenAmount.contains(amountPoolService.buildKey(toAddressHex, usdtAmount))) {
-                                    try {
-                                        // 查回执，判断交易是否成功
-                                        EthGetTransactionReceipt receiptResp = web3j.ethGetTransactionReceipt(tx.getHash()).send();
-                                        Optional<TransactionReceipt> receiptOpt = receiptResp.getTransactionReceipt();
-                                        if (receiptOpt.isPresent() && receiptOpt.get().isStatusOK()) {
-                                            log.info("[BEP20] USDT转账: block={}, to={}, amount={}, txHash={}", 
-                                                blockNum, toAddressHex, usdtAmount, tx.getHash());
-                                            orderService.markOrderAsPaid(toAddressHex, usdtAmount, tx.getHash());
-                                        } else {
-                                            log.info("[BEP20] 交易{}回执status!=1，跳过", tx.getHash());
-                                        }
-                                    } catch (Exception e) {
-                                        log.warn("[BEP20] 查询交易{}回执异常: {}", tx.getHash(), e.getMessage());
-                                    }
-                                }
-                            } catch (Exception e) {
-                                log.warn("[BEP20] 解析区块{}交易{}的input数据失败: {}", 
-                                    blockNum, tx.getHash(), e.getMessage());
-                            }
-                        }
-                    }
+                // 18位精度转换为6位小数精度（向下取整），直接对十六进制长除
+                long usdtAmount = Money.hexDivide(input, 74, 138, BEP20_TO_USDT_UNIT);
+
+                // 检查是否匹配监听地址和金额（HD派生地址只匹配地址）
+                long matched = matchIndex.match(toAddressHex, usdtAmount, tolerance);
+                boolean latePayment = matched == MatchIndex.NO_MATCH && latePaymentIndex.lookup(toAddressHex, usdtAmount) != null;
+                if (matched != MatchIndex.NO_MATCH || latePayment || depositAddress) {
+                    transfers.add(new PendingTransfer(blockNum, toAddressHex, usdtAmount, matched, latePayment, tx.getHash()));
                 }
-                
             } catch (Exception e) {
-                metricsService.incBlockScanFail(ChainType.BEP20);
-                log.error("[BEP20] 区块{}解析异常: {}", blockNum, e.getMessage());
-                metricsService.recordScheduledTaskError("bep20_block_parse", e.getMessage());
+                log.warn("[BEP20] 解析区块{}交易{}的input数据失败: {}",
+                    blockNum, tx.getHash(), e.getMessage());
             }
-        });
+        }
+    }
+
+    /**
+     * 待确认回执的转账
+     */
+    private record PendingTransfer(long blockNum, String toAddress, long amount, long matched, boolean latePayment, String txHash) {
     }
-} 
\ No newline at end of file
+}
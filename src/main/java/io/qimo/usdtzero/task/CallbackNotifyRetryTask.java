@@ -71,7 +71,7 @@ public class CallbackNotifyRetryTask {
                     log.error("回调通知异常，orderId={}, url={}, error={}", order.getId(), order.getNotifyUrl(), e.getMessage());
                     notifyStatus = (retryCount + 1) >= maxRetryCount ? NotifyStatus.MAX_RETRY : NotifyStatus.RETRY;
                 }
-                orderService.updateOrderNotifyInfo(order.getId(), retryCount + 1, notifyStatus, now);
+                orderService.updateOrderNotifyInfo(order, retryCount + 1, notifyStatus, now);
             }
         } finally {
             metricsService.stopScheduledTaskTimer(timer, "callback_notify_retry");
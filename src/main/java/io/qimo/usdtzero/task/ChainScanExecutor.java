@@ -0,0 +1,136 @@
+package io.qimo.usdtzero.task;
+
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 单条链的扫块执行器：每个任务一个虚拟线程，阻塞的 gRPC/HTTP 调用不占用 ForkJoinPool.commonPool()；
+ * 同时在途的RPC数由信号量限制（maxInFlight），超出的调用在虚拟线程上排队等待许可
+ */
+@Slf4j
+public class ChainScanExecutor implements Executor {
+
+    /**
+     * 关闭时等待在途任务完成的时间
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    /**
+     * 一次阻塞的RPC调用
+     */
+    @FunctionalInterface
+    public interface RpcCall<T> {
+        T call() throws Exception;
+    }
+
+    private final String chainType;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LightweightMetricsService metricsService;
+
+    public ChainScanExecutor(String chainType, int maxInFlight, LightweightMetricsService metricsService) {
+        this.chainType = chainType;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name(chainType.toLowerCase() + "-scan-", 0).factory());
+        // 公平信号量，先等待的调用先获得许可
+        this.permits = new Semaphore(this.maxInFlight, true);
+        this.metricsService = metricsService;
+        metricsService.registerScanRpcGauges(chainType, this::getInFlight, this::getWaiting);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * 在虚拟线程上执行任务，任务内的RPC需通过 call 获取许可
+     */
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    /**
+     * 在虚拟线程上执行任务，任务内的RPC需通过 call 获取许可
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * 在虚拟线程上获取许可后执行一次RPC
+     */
+    public <T> CompletableFuture<T> supplyRpcAsync(RpcCall<T> rpc) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call(rpc));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 在当前线程获取许可后执行一次RPC，许可不足时阻塞等待
+     */
+    public <T> T call(RpcCall<T> rpc) throws Exception {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            permits.acquire();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        metricsService.recordScanRpcWait(chainType, System.nanoTime() - start);
+        try {
+            return rpc.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 在途的RPC数
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * 等待许可的RPC数
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * 不再接受新任务，等待在途任务完成，超时后中断
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("[{}] 扫块执行器{}秒内未结束，中断在途任务（在途RPC: {}，等待: {}）",
+                    chainType, SHUTDOWN_TIMEOUT_SECONDS, getInFlight(), getWaiting());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
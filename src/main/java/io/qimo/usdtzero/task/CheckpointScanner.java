@@ -0,0 +1,403 @@
+package io.qimo.usdtzero.task;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.model.ScanDeadLetter;
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import io.qimo.usdtzero.service.ScanCheckpointService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 基于检查点的扫块进度：从检查点之后按段（rangeSize 个区块）扫描到最新区块，落后较多时最多 parallelism 段并行补扫。
+ * 扫描失败的段进入重试队列按指数退避重试，不阻塞后续区块；检查点（水位）只推进到其下所有区块都已处理完的位置并持久化，
+ * 重启后从水位续扫，重试队列中的区块随之重新扫描。重试达到上限的段记入死信后水位越过它，死信可通过管理接口重放。
+ * 落后超过 maxCatchUp 时优先扫描最近 maxCatchUp 个区块，更早的区块推迟补扫：每轮在新区块之后补扫一个窗口，
+ * 补扫完之前水位停在推迟的区块之前，不会漏掉其中的付款。
+ */
+@Slf4j
+public class CheckpointScanner {
+
+    /**
+     * 重试间隔上限
+     */
+    static final long MAX_RETRY_DELAY_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * 扫描一段区块
+     */
+    @FunctionalInterface
+    public interface RangeScanner {
+        /**
+         * @param fromBlock 起始区块（含）
+         * @param toBlock 结束区块（含）
+         * @return 该段是否已完整处理
+         * @throws Exception 扫描异常，与返回false同样视为失败
+         */
+        boolean scan(long fromBlock, long toBlock) throws Exception;
+    }
+
+    /**
+     * 重试队列中的一段区块
+     * @param attempts 已尝试次数，重放的死信从0开始
+     * @param nextRetryTime 下次重试时间（毫秒时间戳）
+     * @param deadLetterId 重放的死信id，正常失败的段为null；重放的段不阻挡水位
+     */
+    public record PendingRange(long fromBlock, long toBlock, int attempts, long nextRetryTime, String lastError, Long deadLetterId) {
+        long blocks() {
+            return toBlock - fromBlock + 1;
+        }
+    }
+
+    private final String chainType;
+    private final int rangeSize;
+    private final int parallelism;
+    private final long maxCatchUp;
+    private final long initialBacklog;
+    private final int maxAttempts;
+    private final long retryBaseDelayMillis;
+    private final int retryQueueLimit;
+    private final Executor executor;
+    private final ScanCheckpointService checkpointService;
+    private final LightweightMetricsService metricsService;
+
+    // 已扫描（成功或已进入重试队列）的最后一个区块，首次扫描时从检查点加载
+    private volatile long frontier = ScanCheckpointService.NONE;
+    // 其下区块都已处理完的最后一个区块，即持久化的检查点
+    private volatile long watermark = ScanCheckpointService.NONE;
+    private boolean loaded;
+    private volatile long lag;
+    // 按起始区块排序；管理接口重放死信时并发写入
+    private final ConcurrentSkipListMap<Long, PendingRange> retryQueue = new ConcurrentSkipListMap<>();
+    private boolean paused;
+    // 超过追块上限时推迟补扫的区块段（起始区块 -> 结束区块），按起始区块排序
+    private final ConcurrentSkipListMap<Long, Long> backfill = new ConcurrentSkipListMap<>();
+    // 追块状态
+    private boolean catchingUp;
+    private long catchUpFrom;
+    private long catchUpStartTime;
+
+    /**
+     * @param initialBacklog 没有检查点时（首次启动）从最新区块往前扫描的区块数
+     * @param executor 并行扫描各段的执行器
+     */
+    public CheckpointScanner(String chainType, long initialBacklog, ChainProperties chainProperties, Executor executor,
+                             ScanCheckpointService checkpointService, LightweightMetricsService metricsService) {
+        this.chainType = chainType;
+        this.rangeSize = Math.max(1, chainProperties.getScanRangeSize());
+        this.parallelism = Math.max(1, chainProperties.getScanParallelism());
+        this.maxCatchUp = Math.max(1, chainProperties.getScanMaxCatchUp());
+        this.initialBacklog = Math.max(1, initialBacklog);
+        this.maxAttempts = Math.max(1, chainProperties.getScanRetryMaxAttempts());
+        this.retryBaseDelayMillis = Math.max(1, chainProperties.getScanRetryBaseDelay()) * 1000L;
+        this.retryQueueLimit = Math.max(1, chainProperties.getScanRetryQueueLimit());
+        this.executor = executor;
+        this.checkpointService = checkpointService;
+        this.metricsService = metricsService;
+        metricsService.registerScanLagGauge(chainType, () -> lag);
+        metricsService.registerScanRetryQueueGauge(chainType, this::getRetryQueueBlocks);
+        checkpointService.register(this);
+    }
+
+    /**
+     * 重试到期的失败段，再扫描检查点之后到 latest 的新区块
+     * @param latest 最新区块
+     * @param scanner 单段扫描
+     * @return 本轮之后是否仍在追块（调用方应立即再次扫描，不等待轮询间隔）
+     */
+    public synchronized boolean scan(long latest, RangeScanner scanner) {
+        if (!loaded) {
+            long checkpoint = checkpointService.load(chainType);
+            frontier = checkpoint == ScanCheckpointService.NONE ? latest - initialBacklog : checkpoint;
+            watermark = frontier;
+            loaded = true;
+            log.info("[{}] 扫块检查点: {}，最新区块: {}，从区块{}开始扫描", chainType,
+                checkpoint == ScanCheckpointService.NONE ? "无" : checkpoint, latest, frontier + 1);
+        }
+        retryDue(scanner);
+
+        boolean failed = false;
+        long gap = latest - frontier;
+        if (gap > maxCatchUp) {
+            long skipTo = latest - maxCatchUp;
+            log.warn("[{}] 落后{}个区块，超过追块上限{}，优先扫描最近的区块，区块{}-{}推迟补扫", chainType, gap, maxCatchUp, frontier + 1, skipTo);
+            metricsService.recordScanSkipped(chainType, skipTo - frontier);
+            backfill.put(frontier + 1, skipTo);
+            frontier = skipTo;
+            gap = maxCatchUp;
+        }
+        boolean pending = gap > 0 || !backfill.isEmpty();
+        if (pending && getRetryQueueBlocks() >= retryQueueLimit) {
+            // 失败的区块过多（通常是节点异常），暂停扫描新区块，只重试队列
+            if (!paused) {
+                paused = true;
+                log.warn("[{}] 重试队列已有{}个区块，达到上限{}，暂停扫描新区块", chainType, getRetryQueueBlocks(), retryQueueLimit);
+            }
+        } else if (pending) {
+            if (paused) {
+                paused = false;
+                log.info("[{}] 重试队列低于上限，恢复扫描新区块", chainType);
+            }
+            long window = (long) rangeSize * parallelism;
+            if (gap > 0) {
+                trackCatchUp(gap, window);
+                long to = Math.min(latest, frontier + window);
+                failed = scanNewRanges(frontier + 1, to, scanner);
+                frontier = to;
+            }
+            if (!backfill.isEmpty()) {
+                failed |= backfillNext(window, scanner);
+            }
+        }
+
+        advanceWatermark();
+        lag = Math.max(0, latest - watermark);
+        // 本轮有失败时按正常轮询间隔继续，避免节点异常时持续加压
+        return (catchingUp || !backfill.isEmpty()) && !paused && !failed;
+    }
+
+    /**
+     * 重放死信：加入重试队列，下一轮扫描时重试，成功后删除死信，再次达到重试上限时更新死信
+     * @return 是否已加入（同一起始区块已在重试队列时返回false）
+     */
+    public boolean replay(ScanDeadLetter deadLetter) {
+        PendingRange range = new PendingRange(deadLetter.getFromBlock(), deadLetter.getToBlock(), 0, 0,
+            deadLetter.getLastError(), deadLetter.getId());
+        boolean added = retryQueue.putIfAbsent(range.fromBlock(), range) == null;
+        log.info("[{}] 重放死信#{}，区块{}-{}，{}", chainType, deadLetter.getId(), range.fromBlock(), range.toBlock(),
+            added ? "已加入重试队列" : "已在重试队列中");
+        return added;
+    }
+
+    public String getChainType() {
+        return chainType;
+    }
+
+    /**
+     * 其下区块都已处理完的最后一个区块（持久化的检查点）
+     */
+    public long getCursor() {
+        return watermark;
+    }
+
+    /**
+     * 已扫描（成功或已进入重试队列）的最后一个区块
+     */
+    public long getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * 检查点落后最新区块的区块数
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    /**
+     * 推迟补扫的区块数
+     */
+    public long getBackfillBlocks() {
+        long blocks = 0;
+        for (Map.Entry<Long, Long> span : backfill.entrySet()) {
+            blocks += span.getValue() - span.getKey() + 1;
+        }
+        return blocks;
+    }
+
+    /**
+     * 重试队列快照，按起始区块排序
+     */
+    public List<PendingRange> getRetryQueue() {
+        return new ArrayList<>(retryQueue.values());
+    }
+
+    /**
+     * 重试队列中的区块数
+     */
+    public long getRetryQueueBlocks() {
+        long blocks = 0;
+        for (PendingRange range : retryQueue.values()) {
+            blocks += range.blocks();
+        }
+        return blocks;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 第 attempts 次失败后的重试间隔：基础间隔逐次翻倍，不超过 MAX_RETRY_DELAY_MILLIS
+     */
+    long retryDelay(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(retryBaseDelayMillis << shift, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * 按段扫描 from-to 之间未扫描过的区块，失败的段加入重试队列
+     * @return 是否有段失败
+     */
+    private boolean scanNewRanges(long from, long to, RangeScanner scanner) {
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = from; start <= to; start += rangeSize) {
+            ranges.add(new long[]{start, Math.min(start + rangeSize - 1, to)});
+        }
+        List<String> errors = scanRanges(ranges, scanner);
+        long now = currentTimeMillis();
+        boolean failed = false;
+        for (int i = 0; i < ranges.size(); i++) {
+            String error = errors.get(i);
+            if (error != null) {
+                long[] range = ranges.get(i);
+                retryQueue.put(range[0], new PendingRange(range[0], range[1], 1, now + retryDelay(1), error, null));
+                metricsService.recordScanRetry(chainType, "queued");
+                log.warn("[{}] 区块{}-{}扫描失败，{}ms后重试: {}", chainType, range[0], range[1], retryDelay(1), error);
+                failed = true;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 从最早推迟的区块段补扫一个窗口
+     * @return 是否有段失败
+     */
+    private boolean backfillNext(long window, RangeScanner scanner) {
+        Map.Entry<Long, Long> span = backfill.pollFirstEntry();
+        long to = Math.min(span.getValue(), span.getKey() + window - 1);
+        boolean failed = scanNewRanges(span.getKey(), to, scanner);
+        if (to < span.getValue()) {
+            backfill.put(to + 1, span.getValue());
+        } else {
+            log.info("[{}] 推迟的区块已补扫到{}", chainType, to);
+        }
+        return failed;
+    }
+
+    /**
+     * 重试到期的段，每轮最多 parallelism 段，按区块顺序优先
+     */
+    private void retryDue(RangeScanner scanner) {
+        long now = currentTimeMillis();
+        List<PendingRange> due = new ArrayList<>();
+        for (PendingRange range : retryQueue.values()) {
+            if (range.nextRetryTime() <= now) {
+                due.add(range);
+                if (due.size() >= parallelism) {
+                    break;
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        List<long[]> ranges = new ArrayList<>(due.size());
+        for (PendingRange range : due) {
+            ranges.add(new long[]{range.fromBlock(), range.toBlock()});
+        }
+        List<String> errors = scanRanges(ranges, scanner);
+        now = currentTimeMillis();
+        for (int i = 0; i < due.size(); i++) {
+            PendingRange range = due.get(i);
+            String error = errors.get(i);
+            int attempts = range.attempts() + 1;
+            if (error == null) {
+                retryQueue.remove(range.fromBlock());
+                if (range.deadLetterId() != null) {
+                    checkpointService.deleteDeadLetter(range.deadLetterId());
+                }
+                metricsService.recordScanRetry(chainType, "recovered");
+                log.info("[{}] 区块{}-{}第{}次尝试扫描成功", chainType, range.fromBlock(), range.toBlock(), attempts);
+            } else if (attempts >= maxAttempts) {
+                retryQueue.remove(range.fromBlock());
+                if (range.deadLetterId() == null) {
+                    checkpointService.saveDeadLetter(chainType, range.fromBlock(), range.toBlock(), attempts, error);
+                } else {
+                    checkpointService.updateDeadLetter(range.deadLetterId(), attempts, error);
+                }
+                metricsService.recordScanRetry(chainType, "dead_letter");
+                log.error("[{}] 区块{}-{}尝试{}次仍失败，记入死信，其中的付款需人工处理或重放: {}",
+                    chainType, range.fromBlock(), range.toBlock(), attempts, error);
+            } else {
+                retryQueue.put(range.fromBlock(), new PendingRange(range.fromBlock(), range.toBlock(), attempts,
+                    now + retryDelay(attempts), error, range.deadLetterId()));
+                log.warn("[{}] 区块{}-{}第{}次尝试失败，{}ms后重试: {}", chainType, range.fromBlock(), range.toBlock(),
+                    attempts, retryDelay(attempts), error);
+            }
+        }
+    }
+
+    /**
+     * 水位推进到最早的未完成段或推迟补扫的区块之前；重放的死信已在水位之下，不参与计算
+     */
+    private void advanceWatermark() {
+        long next = frontier;
+        for (PendingRange range : retryQueue.values()) {
+            if (range.deadLetterId() == null) {
+                next = Math.min(next, range.fromBlock() - 1);
+                break;
+            }
+        }
+        Map.Entry<Long, Long> span = backfill.firstEntry();
+        if (span != null) {
+            next = Math.min(next, span.getKey() - 1);
+        }
+        if (next > watermark) {
+            watermark = next;
+            checkpointService.save(chainType, watermark);
+        }
+    }
+
+    /**
+     * 扫描各段，返回与各段一一对应的失败原因，成功为null
+     */
+    private List<String> scanRanges(List<long[]> ranges, RangeScanner scanner) {
+        if (ranges.size() == 1) {
+            return Collections.singletonList(scanSafely(ranges.get(0), scanner));
+        }
+        List<CompletableFuture<String>> futures = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            futures.add(CompletableFuture.supplyAsync(() -> scanSafely(range, scanner), executor));
+        }
+        List<String> errors = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            errors.add(future.join());
+        }
+        return errors;
+    }
+
+    private String scanSafely(long[] range, RangeScanner scanner) {
+        try {
+            return scanner.scan(range[0], range[1]) ? null : "扫描未完成";
+        } catch (Exception e) {
+            log.error("[{}] 区块{}-{}扫描异常: {}", chainType, range[0], range[1], e.getMessage());
+            return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        }
+    }
+
+    /**
+     * 落后超过一轮的扫描窗口时进入追块；落后回到一个窗口以内时结束追块，此时的落后区块数即追块结束时的尾部延迟
+     */
+    private void trackCatchUp(long gap, long window) {
+        if (!catchingUp && gap > window) {
+            catchingUp = true;
+            catchUpFrom = frontier + 1;
+            catchUpStartTime = System.currentTimeMillis();
+            log.info("[{}] 落后{}个区块，开始追块，从区块{}起每轮并行扫描{}段", chainType, gap, catchUpFrom, parallelism);
+        } else if (catchingUp && gap <= window) {
+            catchingUp = false;
+            long blocks = frontier + 1 - catchUpFrom;
+            metricsService.recordScanCatchUp(chainType, blocks, gap);
+            log.info("[{}] 追块完成，补扫{}个区块，耗时{}ms，结束时落后{}个区块", chainType, blocks,
+                System.currentTimeMillis() - catchUpStartTime, gap);
+        }
+    }
+}
@@ -3,8 +3,11 @@ package io.qimo.usdtzero.task;
 import io.qimo.usdtzero.config.ChainProperties;
 import io.qimo.usdtzero.config.PayProperties;
 import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.pool.MatchIndex;
 import io.qimo.usdtzero.service.AmountPoolService;
+import io.qimo.usdtzero.service.LatePaymentIndex;
 import io.qimo.usdtzero.service.OrderService;
+import io.qimo.usdtzero.service.ScanCheckpointService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -47,12 +50,17 @@ public class SolanaUsdtTransferListenerTask {
     @Autowired
     private AmountPoolService amountPoolService;
     @Autowired
+    private LatePaymentIndex latePaymentIndex;
+    @Autowired
     private OrderService orderService;
     @Autowired
     private LightweightMetricsService metricsService;
+    @Autowired
+    private ScanCheckpointService scanCheckpointService;
 
     private SolanaRpcClient rpcClient;
-    private long lastScannedSlot = -1;
+    private ChainScanExecutor scanExecutor;
+    private CheckpointScanner scanner;
     private Commitment commitment;
 
     private Thread watcherThread;
@@ -63,10 +71,14 @@ public class SolanaUsdtTransferListenerTask {
     @PostConstruct
     public void init() {
         rpcClient = SolanaRpcClient.createClient(URI.create(chainProperties.getSplRpc()), HttpClient.newHttpClient());
+        metricsService.registerMatchIndexVersionGauge(ChainType.SPL,
+            () -> amountPoolService.getMatchIndex(ChainType.SPL).version());
+        scanExecutor = new ChainScanExecutor(ChainType.SPL, chainProperties.getScanMaxInFlight(), metricsService);
+        scanner = new CheckpointScanner(ChainType.SPL, 10, chainProperties, scanExecutor, scanCheckpointService, metricsService);
         this.commitment = payProperties.getTradeIsConfirmed()
             ? Commitment.FINALIZED
             : Commitment.CONFIRMED;
-        log.info("[SPL] Solana 监听任务启动，当前监听地址数：{}", amountPoolService.getAllLockedAmounts().size());
+        log.info("[SPL] Solana 监听任务启动，当前监听地址数：{}", amountPoolService.size());
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -84,7 +96,10 @@ public class SolanaUsdtTransferListenerTask {
             if (nextCheck <= System.currentTimeMillis()) {
                 try {
                     nextCheck = System.currentTimeMillis() + checkInterval;
-                    pollSolanaBlocks();
+                    if (pollSolanaBlocks()) {
+                        // 追块中，立即扫描下一轮
+                        nextCheck = 0;
+                    }
                 } catch (Exception ex) {
                     log.error("Solana 监听任务异常", ex);
                 }
@@ -110,58 +125,63 @@ public class SolanaUsdtTransferListenerTask {
                 Thread.currentThread().interrupt();
             }
         }
+        if (scanExecutor != null) {
+            scanExecutor.shutdown();
+        }
     }
 
     /**
-     * 每3秒轮询一次Solana区块，解析USDT转账
+     * 每3秒轮询一次Solana区块，从检查点续扫到最新slot，解析USDT转账
+     * @return 是否仍在追块
      */
-    public void pollSolanaBlocks() {
+    public boolean pollSolanaBlocks() {
         Timer.Sample timer = metricsService.startScheduledTaskTimer();
         try {
             long endSlot = rpcClient.getSlot(commitment).join();
-            int maxBacklog = 10;
-            long startSlot = Math.max(lastScannedSlot + 1, endSlot - maxBacklog + 1);
-            if (startSlot > endSlot) {
-                return;
-            }
-            long[] slots = rpcClient.getBlocks(startSlot, endSlot).join();
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            
-            // 打印recentScannedSlots中最大的区块和当前slots信息
-            log.info("[SPL] 当前状态: lastScannedSlot={}, 本次扫描slots={}", 
-                lastScannedSlot, Arrays.toString(slots));
-            
-            for (long slot : slots) {
-                if (slot > lastScannedSlot) {
-                    lastScannedSlot = slot;
-                }
-                futures.add(parseBlockForUsdtTransfers(slot));
-            }
-            if (!futures.isEmpty()) {
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            }
+            return scanner.scan(endSlot, this::scanRange);
         } catch (Exception e) {
             log.error("[SPL] Solana 监听任务异常", e);
             metricsService.recordScheduledTaskError("solana_block_scan", e.getMessage());
+            return false;
         } finally {
             metricsService.stopScheduledTaskTimer(timer, "solana_block_scan");
         }
     }
 
     /**
-     * 解析指定slot区块内的USDT转账
+     * 解析一段slot内的区块（跳过的slot没有区块）
+     * @return 是否全部区块获取并处理成功
      */
-    public CompletableFuture<Void> parseBlockForUsdtTransfers(long slot) {
-        Set<String> listenAmount = amountPoolService.getAllLockedAmounts();
+    public boolean scanRange(long startSlot, long endSlot) throws Exception {
+        long[] slots = scanExecutor.call(() -> rpcClient.getBlocks(startSlot, endSlot).join());
+        log.info("[SPL] 扫描slot {}-{}，区块: {}", startSlot, endSlot, Arrays.toString(slots));
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(slots.length);
+        for (long slot : slots) {
+            futures.add(parseBlockForUsdtTransfers(slot));
+        }
+        boolean complete = true;
+        for (CompletableFuture<Boolean> future : futures) {
+            complete &= future.join();
+        }
+        return complete;
+    }
 
-        return rpcClient.getBlock(slot, BlockTxDetails.full, 0)
-            .thenAccept(block -> {
+    /**
+     * 解析指定slot区块内的USDT转账
+     * @return 区块是否获取并处理成功；结算失败（如写库异常）返回false，整段交给重试
+     */
+    public CompletableFuture<Boolean> parseBlockForUsdtTransfers(long slot) {
+        return scanExecutor.supplyRpcAsync(() -> rpcClient.getBlock(slot, BlockTxDetails.full, 0).join())
+            .thenApply(block -> {
                 metricsService.incBlockScanSuccess(ChainType.SPL);
                 try {
-                    if (block == null) return;
+                    if (block == null) return true;
                     List<BlockTx> transactions = block.transactions();
 
-                    log.info("[SPL] 区块 {} 共 {} 个交易", slot, transactions.size());
+                    // 整块使用同一份匹配索引快照
+                    MatchIndex matchIndex = amountPoolService.getMatchIndex(ChainType.SPL);
+                    long tolerance = chainProperties.getMatchToleranceMinUnit(ChainType.SPL);
+                    log.info("[SPL] 区块 {} 共 {} 个交易，匹配索引版本: {}", slot, transactions.size(), matchIndex.version());
                     for (BlockTx tx : transactions) {
                         String txid = Transaction.getBase58Id(tx.data());
                         if (tx.meta() != null && tx.meta().error() != null) {
@@ -214,17 +234,26 @@ public class SolanaUsdtTransferListenerTask {
 
                                             String mint = mintAccount.publicKey().toBase58();
                                             if (mint.equals(chainProperties.getSplSmartContract())) {
-                                                String from = fromAccount.publicKey().toBase58();
                                                 String to = toAccount.publicKey().toBase58();
+                                                // 地址预过滤：收款方不是监听地址时不解析金额
+                                                if (!matchIndex.isWatched(to) && !latePaymentIndex.isWatched(to)) {
+                                                    continue;
+                                                }
+                                                String from = fromAccount.publicKey().toBase58();
                                                 // 解析金额（在指令类型后的8字节）
                                                 long amount = 0;
                                                 for (int j = 0; j < 8; j++) {
                                                     amount |= ((long) (ixData[offset + 1 + j] & 0xFF) << (j * 8));
                                                 }
-                                                if (listenAmount.contains(amountPoolService.buildKey(to, amount))) {
+                                                long matched = matchIndex.match(to, amount, tolerance);
+                                                if (matched != MatchIndex.NO_MATCH) {
                                                     log.info("[SPL] USDT转账: block={}, from={}, to={}, amount={}, txId={}",
                                                             slot, from, to, amount, txid);
-                                                    orderService.markOrderAsPaid(to, amount, txid);
+                                                    orderService.markMatchedTransfer(ChainType.SPL, to, amount, matched, txid);
+                                                } else if (latePaymentIndex.lookup(to, amount) != null) {
+                                                    log.info("[SPL] USDT迟到转账: block={}, from={}, to={}, amount={}, txId={}",
+                                                            slot, from, to, amount, txid);
+                                                    orderService.markLatePayment(ChainType.SPL, to, amount, txid);
                                                 }
                                             }
                                         }
@@ -237,12 +266,14 @@ public class SolanaUsdtTransferListenerTask {
                 } catch (Exception e) {
                     log.error("[SPL] 解析区块{}时发生异常", slot, e);
                     metricsService.recordScheduledTaskError("solana_block_parse", e.getMessage());
+                    return false;
                 }
+                return true;
             })
             .exceptionally(e -> {
                 log.warn("[SPL] 获取slot={}区块失败: {}", slot, e.getMessage());
                 metricsService.incBlockScanFail(ChainType.SPL);
-                return null;
+                return false;
             });
     }
 
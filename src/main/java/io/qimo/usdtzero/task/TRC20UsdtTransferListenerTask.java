@@ -3,9 +3,13 @@ package io.qimo.usdtzero.task;
 import io.qimo.usdtzero.config.ChainProperties;
 import io.qimo.usdtzero.config.PayProperties;
 import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.pool.MatchIndex;
 import io.qimo.usdtzero.service.AmountPoolService;
+import io.qimo.usdtzero.service.DepositAddressService;
+import io.qimo.usdtzero.service.LatePaymentIndex;
 import io.qimo.usdtzero.service.LightweightMetricsService;
 import io.qimo.usdtzero.service.OrderService;
+import io.qimo.usdtzero.service.ScanCheckpointService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -17,7 +21,6 @@ import org.tron.trident.core.NodeType;
 import org.tron.trident.proto.Response.TransactionInfo;
 import org.tron.trident.proto.Response.TransactionExtention;
 import org.tron.trident.proto.Response.BlockExtention;
-import org.tron.trident.proto.Response.BlockListExtention;
 import org.tron.trident.proto.Response.TransactionInfoList;
 import org.tron.trident.proto.Contract.TriggerSmartContract;
 import org.tron.trident.proto.Chain.Transaction;
@@ -29,9 +32,6 @@ import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import org.tron.trident.utils.Base58Check;
 
@@ -49,13 +49,20 @@ public class TRC20UsdtTransferListenerTask {
     @Autowired
     private AmountPoolService amountPoolService;
     @Autowired
+    private DepositAddressService depositAddressService;
+    @Autowired
+    private LatePaymentIndex latePaymentIndex;
+    @Autowired
     private OrderService orderService;
     @Autowired
     private LightweightMetricsService metricsService;
+    @Autowired
+    private ScanCheckpointService scanCheckpointService;
 
     private ApiWrapper tronClient;
     private NodeType nodeType;
-    private long lastScannedBlock = -1;
+    private ChainScanExecutor scanExecutor;
+    private CheckpointScanner scanner;
 
     private Thread watcherThread;
     private final long checkInterval = 3000L; // 3秒检查一次
@@ -71,8 +78,12 @@ public class TRC20UsdtTransferListenerTask {
         // 根据配置决定使用全节点还是固化节点
         nodeType = payProperties.getTradeIsConfirmed() ? NodeType.SOLIDITY_NODE : NodeType.FULL_NODE;
         tronClient = new ApiWrapper(fullNodeRpc, solidityNodeRpc, "");
+        metricsService.registerMatchIndexVersionGauge(ChainType.TRC20,
+            () -> amountPoolService.getMatchIndex(ChainType.TRC20).version());
+        scanExecutor = new ChainScanExecutor(ChainType.TRC20, chainProperties.getScanMaxInFlight(), metricsService);
+        scanner = new CheckpointScanner(ChainType.TRC20, 5, chainProperties, scanExecutor, scanCheckpointService, metricsService);
         log.info("TRC20 监听任务启动，使用节点类型：{}，当前监听地址数：{}", 
-            nodeType, amountPoolService.getAllLockedAmounts().size());
+            nodeType, amountPoolService.size());
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -90,7 +101,10 @@ public class TRC20UsdtTransferListenerTask {
             if (nextCheck <= System.currentTimeMillis()) {
                 try {
                     nextCheck = System.currentTimeMillis() + checkInterval;
-                    pollTronBlocks();
+                    if (pollTronBlocks()) {
+                        // 追块中，立即扫描下一轮
+                        nextCheck = 0;
+                    }
                 } catch (Exception ex) {
                     log.error("TRC20 监听任务异常", ex);
                 }
@@ -116,98 +130,119 @@ public class TRC20UsdtTransferListenerTask {
                 Thread.currentThread().interrupt();
             }
         }
+        if (scanExecutor != null) {
+            scanExecutor.shutdown();
+        }
     }
 
     /**
-     * 每3秒轮询一次波场区块，解析USDT转账
+     * 每3秒轮询一次波场区块，从检查点续扫到最新区块，解析USDT转账
+     * @return 是否仍在追块
      */
-    public void pollTronBlocks() {
+    public boolean pollTronBlocks() {
         Timer.Sample timer = metricsService.startScheduledTaskTimer();
         try {
             BlockExtention latestBlock = tronClient.getNowBlock2(nodeType);
-            int maxBacklog = 5;
-            long startBlock = Math.max(lastScannedBlock + 1, latestBlock.getBlockHeader().getRawData().getNumber() - maxBacklog + 1);
-            if (startBlock > latestBlock.getBlockHeader().getRawData().getNumber()) {
-                return;
-            }
-
-            // 批量获取区块
-            BlockListExtention blocks = tronClient.getBlockByLimitNext(startBlock, latestBlock.getBlockHeader().getRawData().getNumber() + 1);
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            
-            for (BlockExtention block : blocks.getBlockList()) {
-                long blockNum = block.getBlockHeader().getRawData().getNumber();
-                if (lastScannedBlock >= blockNum) continue;
-                if (lastScannedBlock < blockNum) {
-                    lastScannedBlock = blockNum;
-                }
-                futures.add(parseBlock(blockNum));
-            }
-            if (!futures.isEmpty()) {
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            }
+            return scanner.scan(latestBlock.getBlockHeader().getRawData().getNumber(), this::scanRange);
         } catch (Exception e) {
             log.error("TRC20 监听任务异常", e);
             metricsService.recordScheduledTaskError("trc20_block_scan", e.getMessage());
+            return false;
         } finally {
             metricsService.stopScheduledTaskTimer(timer, "trc20_block_scan");
         }
     }
 
+    /**
+     * 逐块解析一段区块，遇到失败的区块即停止
+     * @return 是否全部解析成功
+     */
+    public boolean scanRange(long fromBlock, long toBlock) {
+        for (long blockNum = fromBlock; blockNum <= toBlock; blockNum++) {
+            if (!scanBlock(blockNum)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 解析指定区块内的USDT转账
      */
     public CompletableFuture<Void> parseBlock(long blockNum) {
-        Set<String> listenAmount = amountPoolService.getAllLockedAmounts();
+        return scanExecutor.runAsync(() -> scanBlock(blockNum));
+    }
+
+    /**
+     * 解析指定区块内的USDT转账
+     * @return 是否解析成功
+     */
+    boolean scanBlock(long blockNum) {
         Timer.Sample timer = metricsService.startScheduledTaskTimer();
-        return CompletableFuture.runAsync(() -> {
-                TransactionInfoList txInfoList = null;
-                try {
-                    txInfoList = tronClient.getTransactionInfoByBlockNum(blockNum);
-                    metricsService.incBlockScanSuccess(ChainType.TRC20);
-                } catch (IllegalException e) {
-                    metricsService.incBlockScanFail(ChainType.TRC20);
-                    log.error("TRC20 解析区块{}时发生异常", blockNum, e);
-                    return;
+        try {
+            TransactionInfoList txInfoList = null;
+            try {
+                txInfoList = scanExecutor.call(() -> tronClient.getTransactionInfoByBlockNum(blockNum));
+                metricsService.incBlockScanSuccess(ChainType.TRC20);
+            } catch (Exception e) {
+                metricsService.incBlockScanFail(ChainType.TRC20);
+                log.error("TRC20 解析区块{}时发生异常", blockNum, e);
+                return false;
+            }
+            // 整块使用同一份匹配索引快照
+            MatchIndex matchIndex = amountPoolService.getMatchIndex(ChainType.TRC20);
+            long tolerance = chainProperties.getMatchToleranceMinUnit(ChainType.TRC20);
+            log.debug("TRC20 解析区块{}，匹配索引版本: {}，监听地址数: {}", blockNum, matchIndex.version(), matchIndex.addressCount());
+            for (TransactionInfo txInfo : txInfoList.getTransactionInfoList()) {
+                String txId = ByteArray.toHexString(txInfo.getId().toByteArray());
+                if (txInfo.getReceipt().getResult() != Transaction.Result.contractResult.SUCCESS) {
+                    continue;
                 }
-                for (TransactionInfo txInfo : txInfoList.getTransactionInfoList()) {
-                    String txId = ByteArray.toHexString(txInfo.getId().toByteArray());
-                    if (txInfo.getReceipt().getResult() != Transaction.Result.contractResult.SUCCESS) {
-                        continue;
-                    }
-                    String contractHex = ByteArray.toHexString(txInfo.getContractAddress().toByteArray());
-                    String contractBase58 = Base58Check.bytesToBase58(ByteArray.fromHexString(contractHex));
-                    if (!contractBase58.equals(chainProperties.getTrc20SmartContract())) {
-                        continue;
-                    }
-                    for (TransactionInfo.Log logItem : txInfo.getLogList()) {
-                        String topic0Hex = ByteArray.toHexString(logItem.getTopics(0).toByteArray());
-                        if (logItem.getTopicsCount() == 3 && topic0Hex.equals(TRANSFER_EVENT_TOPIC)) {
-                            byte[] topic1 = logItem.getTopics(1).toByteArray();
-                            byte[] topic2 = logItem.getTopics(2).toByteArray();
-                            byte[] addr1 = new byte[21];
-                            addr1[0] = 0x41;
-                            System.arraycopy(topic1, 12, addr1, 1, 20);
-                            byte[] addr2 = new byte[21];
-                            addr2[0] = 0x41;
-                            System.arraycopy(topic2, 12, addr2, 1, 20);
-                            String from = Base58Check.bytesToBase58(addr1);
-                            String to = Base58Check.bytesToBase58(addr2);
-                            BigInteger amount = new BigInteger(logItem.getData().toByteArray());
-                            if (listenAmount.contains(amountPoolService.buildKey(to, amount.longValue()))) {
-                                log.info("TRC20 转账: block={}, from={}, to={}, amount={}, txId={}", blockNum, from, to, amount, txId);
-                                orderService.markOrderAsPaid(to, amount.longValue(), txId);
-                            }
+                String contractHex = ByteArray.toHexString(txInfo.getContractAddress().toByteArray());
+                String contractBase58 = Base58Check.bytesToBase58(ByteArray.fromHexString(contractHex));
+                if (!contractBase58.equals(chainProperties.getTrc20SmartContract())) {
+                    continue;
+                }
+                for (TransactionInfo.Log logItem : txInfo.getLogList()) {
+                    String topic0Hex = ByteArray.toHexString(logItem.getTopics(0).toByteArray());
+                    if (logItem.getTopicsCount() == 3 && topic0Hex.equals(TRANSFER_EVENT_TOPIC)) {
+                        byte[] topic2 = logItem.getTopics(2).toByteArray();
+                        byte[] addr2 = new byte[21];
+                        addr2[0] = 0x41;
+                        System.arraycopy(topic2, 12, addr2, 1, 20);
+                        String to = Base58Check.bytesToBase58(addr2);
+                        // 地址预过滤：收款方不是监听地址时不解析金额
+                        if (!matchIndex.isWatched(to) && !depositAddressService.isWatched(to) && !latePaymentIndex.isWatched(to)) {
+                            continue;
+                        }
+                        byte[] topic1 = logItem.getTopics(1).toByteArray();
+                        byte[] addr1 = new byte[21];
+                        addr1[0] = 0x41;
+                        System.arraycopy(topic1, 12, addr1, 1, 20);
+                        String from = Base58Check.bytesToBase58(addr1);
+                        BigInteger amount = new BigInteger(logItem.getData().toByteArray());
+                        long matched = matchIndex.match(to, amount.longValue(), tolerance);
+                        if (matched != MatchIndex.NO_MATCH) {
+                            log.info("TRC20 转账: block={}, from={}, to={}, amount={}, txId={}", blockNum, from, to, amount, txId);
+                            orderService.markMatchedTransfer(ChainType.TRC20, to, amount.longValue(), matched, txId);
+                        } else if (latePaymentIndex.lookup(to, amount.longValue()) != null) {
+                            log.info("TRC20 迟到转账: block={}, from={}, to={}, amount={}, txId={}", blockNum, from, to, amount, txId);
+                            orderService.markLatePayment(ChainType.TRC20, to, amount.longValue(), txId);
+                        } else if (depositAddressService.isWatched(to)) {
+                            // HD派生地址：金额不要求精确匹配
+                            log.info("TRC20 派生地址转账: block={}, from={}, to={}, amount={}, txId={}", blockNum, from, to, amount, txId);
+                            orderService.markDepositAddressPaid(to, amount.longValue(), txId);
                         }
                     }
                 }
-
-        }).exceptionally(e -> {
+            }
+            return true;
+        } catch (Exception e) {
             log.warn("解析block={}区块失败: {}", blockNum, e.getMessage());
             metricsService.recordScheduledTaskError("trc20_block_parse", e.getMessage());
-            return null;
-        }).whenComplete((result, ex) -> {
+            return false;
+        } finally {
             metricsService.stopScheduledTaskTimer(timer, "trc20_block_parse");
-        });
+        }
     }
 } 
\ No newline at end of file
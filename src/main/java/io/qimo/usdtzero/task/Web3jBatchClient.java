@@ -0,0 +1,103 @@
+package io.qimo.usdtzero.task;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * web3j JSON-RPC 批量请求：同类请求按 batchSize 分块，每块打包为一次 HTTP 请求，响应按请求 id 对齐后按原顺序返回。
+ * 节点拒绝整批（HTTP 非2xx，如超过服务商的批量上限；或响应无法解析为批量结果）或响应不完整时对半拆分重试；
+ * 连接失败、超时等传输错误直接抛出，由扫块任务的退避重试处理，不拆分放大请求数；batchSize 为1时逐个发送。
+ */
+@Slf4j
+public class Web3jBatchClient {
+
+    private final Web3j web3j;
+    private final String chainType;
+    private final int batchSize;
+    private final LightweightMetricsService metricsService;
+
+    public Web3jBatchClient(Web3j web3j, String chainType, int batchSize, LightweightMetricsService metricsService) {
+        this.web3j = web3j;
+        this.chainType = chainType;
+        this.batchSize = Math.max(1, batchSize);
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * 发送全部请求
+     * @param requests 同一响应类型的请求
+     * @return 与请求一一对应的响应
+     * @throws IOException 传输失败，或拆分到单个请求仍失败
+     */
+    public <T extends Response<?>> List<T> sendAll(List<? extends Request<?, T>> requests) throws IOException {
+        List<T> responses = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            responses.addAll(sendChunk(requests.subList(from, Math.min(from + batchSize, requests.size()))));
+        }
+        return responses;
+    }
+
+    private <T extends Response<?>> List<T> sendChunk(List<? extends Request<?, T>> chunk) throws IOException {
+        long start = System.nanoTime();
+        if (chunk.size() == 1) {
+            T response = chunk.get(0).send();
+            metricsService.recordChainRpcBatch(chainType, 1, System.nanoTime() - start);
+            return List.of(response);
+        }
+        try {
+            BatchRequest batch = web3j.newBatch();
+            for (Request<?, T> request : chunk) {
+                batch.add(request);
+            }
+            BatchResponse batchResponse = batch.send();
+            metricsService.recordChainRpcBatch(chainType, chunk.size(), System.nanoTime() - start);
+            List<T> responses = alignById(chunk, batchResponse.getResponses());
+            if (responses != null) {
+                return responses;
+            }
+            log.warn("[{}] 批量RPC响应不完整（请求{}条，响应{}条），拆分重试", chainType, chunk.size(), batchResponse.getResponses().size());
+        } catch (ClientConnectionException | JsonProcessingException e) {
+            log.warn("[{}] 节点拒绝批量RPC请求（{}条），拆分重试: {}", chainType, chunk.size(), e.getMessage());
+        }
+        int half = chunk.size() / 2;
+        List<T> responses = new ArrayList<>(sendChunk(chunk.subList(0, half)));
+        responses.addAll(sendChunk(chunk.subList(half, chunk.size())));
+        return responses;
+    }
+
+    /**
+     * 批量响应不保证顺序，按 id 对齐；缺少任一响应时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Response<?>> List<T> alignById(List<? extends Request<?, T>> chunk, List<? extends Response<?>> batchResponses) {
+        if (batchResponses == null) {
+            return null;
+        }
+        Map<Long, Response<?>> responsesById = new HashMap<>();
+        for (Response<?> response : batchResponses) {
+            responsesById.put(response.getId(), response);
+        }
+        List<T> responses = new ArrayList<>(chunk.size());
+        for (Request<?, T> request : chunk) {
+            Response<?> response = responsesById.get(request.getId());
+            if (response == null) {
+                return null;
+            }
+            responses.add((T) response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,125 @@
+package io.qimo.usdtzero.util;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.math.ec.ECPoint;
+import org.tron.trident.utils.Base58Check;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * BIP32 扩展公钥（xpub）非硬化派生工具，服务端只持有公钥，不接触私钥。
+ * 适用于 secp256k1 链（TRC20 / BEP20）；ed25519 只支持硬化派生，无法由公钥派生子地址。
+ */
+public class HdKeyUtils {
+
+    private static final X9ECParameters CURVE = CustomNamedCurves.getByName("secp256k1");
+    private static final int HARDENED_BIT = 0x80000000;
+    private static final int SERIALIZED_LENGTH = 78;
+
+    /**
+     * 扩展公钥：压缩公钥（33字节）+ 链码（32字节）
+     */
+    public static final class ExtendedPublicKey {
+        private final byte[] publicKey;
+        private final byte[] chainCode;
+
+        ExtendedPublicKey(byte[] publicKey, byte[] chainCode) {
+            this.publicKey = publicKey;
+            this.chainCode = chainCode;
+        }
+
+        public byte[] getPublicKey() {
+            return publicKey.clone();
+        }
+    }
+
+    /**
+     * 解析Base58Check编码的扩展公钥（xpub/tpub等，不校验版本前缀）
+     */
+    public static ExtendedPublicKey parseExtendedPublicKey(String xpub) {
+        byte[] data = Base58Check.base58ToBytes(xpub.trim());
+        if (data.length != SERIALIZED_LENGTH) {
+            throw new IllegalArgumentException("扩展公钥长度不正确");
+        }
+        // version(4) depth(1) fingerprint(4) childNumber(4) chainCode(32) key(33)
+        byte[] chainCode = Arrays.copyOfRange(data, 13, 45);
+        byte[] publicKey = Arrays.copyOfRange(data, 45, 78);
+        if (publicKey[0] != 0x02 && publicKey[0] != 0x03) {
+            throw new IllegalArgumentException("不是扩展公钥（可能误填了扩展私钥）");
+        }
+        CURVE.getCurve().decodePoint(publicKey);
+        return new ExtendedPublicKey(publicKey, chainCode);
+    }
+
+    /**
+     * 非硬化子公钥派生（CKDpub）
+     */
+    public static ExtendedPublicKey deriveChild(ExtendedPublicKey parent, int index) {
+        if ((index & HARDENED_BIT) != 0) {
+            throw new IllegalArgumentException("扩展公钥不能进行硬化派生");
+        }
+        byte[] digest = hmacSha512(parent.chainCode,
+                ByteBuffer.allocate(37).put(parent.publicKey).putInt(index).array());
+        BigInteger il = new BigInteger(1, Arrays.copyOfRange(digest, 0, 32));
+        if (il.compareTo(CURVE.getN()) >= 0) {
+            throw new IllegalArgumentException("派生序号无效: " + index);
+        }
+        ECPoint point = CURVE.getG().multiply(il).add(CURVE.getCurve().decodePoint(parent.publicKey)).normalize();
+        if (point.isInfinity()) {
+            throw new IllegalArgumentException("派生序号无效: " + index);
+        }
+        return new ExtendedPublicKey(point.getEncoded(true), Arrays.copyOfRange(digest, 32, 64));
+    }
+
+    /**
+     * 按路径派生压缩公钥，如 xpub 为账户层（m/44'/60'/0'）时路径为 0/index
+     */
+    public static byte[] derivePublicKey(String xpub, int... path) {
+        ExtendedPublicKey key = parseExtendedPublicKey(xpub);
+        for (int index : path) {
+            key = deriveChild(key, index);
+        }
+        return key.publicKey.clone();
+    }
+
+    /**
+     * 压缩公钥转Tron地址（Base58Check，0x41前缀）
+     */
+    public static String toTronAddress(byte[] compressedPublicKey) {
+        byte[] address = new byte[21];
+        address[0] = 0x41;
+        System.arraycopy(keccakAddress(compressedPublicKey), 0, address, 1, 20);
+        return Base58Check.bytesToBase58(address);
+    }
+
+    /**
+     * 压缩公钥转EVM地址（全小写，0x前缀，与BEP20扫块解析格式一致）
+     */
+    public static String toEvmAddress(byte[] compressedPublicKey) {
+        return Numeric.toHexString(keccakAddress(compressedPublicKey));
+    }
+
+    private static byte[] keccakAddress(byte[] compressedPublicKey) {
+        byte[] uncompressed = CURVE.getCurve().decodePoint(compressedPublicKey).getEncoded(false);
+        byte[] hash = Hash.sha3(Arrays.copyOfRange(uncompressed, 1, uncompressed.length));
+        return Arrays.copyOfRange(hash, 12, 32);
+    }
+
+    private static byte[] hmacSha512(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA512 不可用", e);
+        }
+    }
+}
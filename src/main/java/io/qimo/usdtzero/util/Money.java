@@ -0,0 +1,182 @@
+package io.qimo.usdtzero.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * long 定点金额运算：CNY 以分（2位小数）、汇率以 1e-8、USDT 以链最小单位表示，下单与扫块热路径上不创建 BigDecimal。
+ * 舍入规则与原 BigDecimal 实现一致（HALF_UP / DOWN），无法精确表示或可能溢出时返回 NOT_EXACT，由调用方回退到 BigDecimal。
+ */
+public final class Money {
+
+    /**
+     * CNY 金额小数位（分）
+     */
+    public static final int CNY_SCALE = 2;
+    /**
+     * 汇率定点小数位
+     */
+    public static final int RATE_SCALE = 8;
+    /**
+     * 无法用 long 定点精确表示
+     */
+    public static final long NOT_EXACT = Long.MIN_VALUE;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private Money() {
+    }
+
+    /**
+     * 10 的 n 次方
+     */
+    public static long pow10(int n) {
+        return POW10[n];
+    }
+
+    /**
+     * BigDecimal 转指定小数位的定点 long，小数位超出或溢出时返回 NOT_EXACT
+     */
+    public static long toScaled(BigDecimal value, int scale) {
+        if (value == null || value.scale() > scale || value.precision() - value.scale() + scale > 18) {
+            return NOT_EXACT;
+        }
+        return value.movePointRight(scale).longValueExact();
+    }
+
+    /**
+     * CNY元转分（精确），超过2位小数时返回 NOT_EXACT
+     */
+    public static long toCents(BigDecimal yuan) {
+        return toScaled(yuan, CNY_SCALE);
+    }
+
+    /**
+     * 汇率转 1e-8 定点，超过8位小数时返回 NOT_EXACT
+     */
+    public static long toScaledRate(BigDecimal rate) {
+        return toScaled(rate, RATE_SCALE);
+    }
+
+    /**
+     * CNY分按汇率换算为USDT链最小单位：先按 HALF_UP 保留 usdtScale 位小数，再乘以 usdtUnit 截断，
+     * 与 amount.divide(rate, usdtScale, HALF_UP).multiply(usdtUnit).longValue() 结果一致
+     * @param cents CNY分，须大于0
+     * @param scaledRate 1e-8 定点汇率，须大于0
+     * @return 链最小单位，参数不合法或溢出时返回 NOT_EXACT
+     */
+    public static long cnyToUsdtMinUnit(long cents, long scaledRate, long usdtUnit, int usdtScale) {
+        if (cents <= 0 || scaledRate <= 0 || scaledRate == NOT_EXACT || usdtScale < 0
+                || usdtScale + RATE_SCALE - CNY_SCALE >= POW10.length) {
+            return NOT_EXACT;
+        }
+        try {
+            // (cents / 10^2) / (scaledRate / 10^8)，放大 10^usdtScale 后取整
+            long dividend = Math.multiplyExact(cents, POW10[usdtScale + RATE_SCALE - CNY_SCALE]);
+            long usdtUnscaled = divideHalfUp(dividend, scaledRate);
+            return Math.multiplyExact(usdtUnscaled, usdtUnit) / POW10[usdtScale];
+        } catch (ArithmeticException e) {
+            return NOT_EXACT;
+        }
+    }
+
+    /**
+     * 链最小单位按 HALF_UP 保留 usdtScale 位小数后的定点值（即 USDT 金额的 unscaledValue）
+     * @return 定点值，溢出时返回 NOT_EXACT
+     */
+    public static long toUsdtUnscaled(long minUnit, long usdtUnit, int usdtScale) {
+        if (usdtScale < 0 || usdtScale >= POW10.length) {
+            return NOT_EXACT;
+        }
+        try {
+            return divideHalfUp(Math.multiplyExact(minUnit, POW10[usdtScale]), usdtUnit);
+        } catch (ArithmeticException e) {
+            return NOT_EXACT;
+        }
+    }
+
+    /**
+     * 链最小单位转USDT金额（HALF_UP 保留 usdtScale 位小数），仅在接口边界使用
+     */
+    public static BigDecimal toUsdt(long minUnit, long usdtUnit, int usdtScale) {
+        long unscaled = toUsdtUnscaled(minUnit, usdtUnit, usdtScale);
+        if (unscaled == NOT_EXACT) {
+            return BigDecimal.valueOf(minUnit).divide(BigDecimal.valueOf(usdtUnit), usdtScale, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.valueOf(unscaled, usdtScale);
+    }
+
+    /**
+     * CNY分转元，仅在接口边界使用
+     */
+    public static BigDecimal toYuan(long cents) {
+        return BigDecimal.valueOf(cents, CNY_SCALE);
+    }
+
+    /**
+     * 链最小单位经 usdtScale 位小数往返后的值；与原值相等说明金额在该精度下可精确表示
+     * @return 往返后的最小单位，溢出时返回 NOT_EXACT
+     */
+    public static long roundTrip(long minUnit, long usdtUnit, int usdtScale) {
+        long unscaled = toUsdtUnscaled(minUnit, usdtUnit, usdtScale);
+        if (unscaled == NOT_EXACT) {
+            return NOT_EXACT;
+        }
+        try {
+            return Math.multiplyExact(unscaled, usdtUnit) / POW10[usdtScale];
+        } catch (ArithmeticException e) {
+            return NOT_EXACT;
+        }
+    }
+
+    /**
+     * 十六进制无符号整数（如 ERC20 transfer 的 uint256 金额）除以 divisor 向下取整，逐位长除不创建 BigInteger
+     * @param hex 十六进制字符串
+     * @param from 起始下标（含）
+     * @param to 结束下标（不含）
+     * @param divisor 除数，如 18 位精度代币转 6 位最小单位为 10^12
+     * @throws NumberFormatException 含非十六进制字符，或结果超出 long
+     */
+    public static long hexDivide(String hex, int from, int to, long divisor) {
+        if (divisor <= 0 || divisor > Long.MAX_VALUE / 16) {
+            throw new IllegalArgumentException("divisor 超出范围: " + divisor);
+        }
+        long quotient = 0;
+        long remainder = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new NumberFormatException("非法的十六进制字符: " + hex.charAt(i));
+            }
+            long current = remainder * 16 + digit;
+            if (quotient > (Long.MAX_VALUE - current / divisor) / 16) {
+                throw new NumberFormatException("金额超出范围");
+            }
+            quotient = quotient * 16 + current / divisor;
+            remainder = current % divisor;
+        }
+        return quotient;
+    }
+
+    /**
+     * 整数除法 HALF_UP（远离零方向进位），与 BigDecimal RoundingMode.HALF_UP 一致
+     */
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long absRemainder = Math.abs(remainder);
+        long absDivisor = Math.abs(divisor);
+        // 2 * |remainder| >= |divisor|，避免乘法溢出
+        if (absRemainder >= absDivisor - absRemainder) {
+            return (dividend < 0) == (divisor < 0) ? quotient + 1 : quotient - 1;
+        }
+        return quotient;
+    }
+}
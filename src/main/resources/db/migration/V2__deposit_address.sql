@@ -0,0 +1,16 @@
+-- HD派生收款地址表（pay.address-mode=hd 时每笔订单一个地址）
+CREATE TABLE IF NOT EXISTS `deposit_address` (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    chain_type TEXT NOT NULL,             -- 链类型
+    derivation_index INTEGER NOT NULL,    -- 派生序号（路径 0/index）
+    address TEXT NOT NULL UNIQUE,         -- 派生地址
+    trade_no TEXT,                        -- 绑定的订单号
+    create_time DATETIME,                 -- 创建时间
+    update_time DATETIME                  -- 更新时间
+);
+
+-- 同一链派生序号唯一，保证序号不被重复分配
+CREATE UNIQUE INDEX IF NOT EXISTS idx_deposit_address_chain_index ON deposit_address(chain_type, derivation_index);
+
+-- 按收款地址查询待支付订单
+CREATE INDEX IF NOT EXISTS idx_trade_order_address_status ON trade_order(address, status);
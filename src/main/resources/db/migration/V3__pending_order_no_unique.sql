@@ -0,0 +1,13 @@
+-- 同一商户订单号在同一条链上只能有一笔待支付订单（创建订单幂等）
+-- 建索引前将历史重复的待支付订单只保留最新一笔，其余标记为异常（ABNORMAL）交人工处理：
+-- 迁移时无法走超时流程（释放金额池、回调商户、登记迟到付款），直接标记过期会让这些订单上的付款无法匹配；
+-- 异常订单不会在启动时重新锁定金额池，可在人工核对付款后处理
+UPDATE trade_order SET status = 'ABNORMAL'
+WHERE status = 'PENDING' AND order_no IS NOT NULL AND id NOT IN (
+    SELECT MAX(id) FROM trade_order
+    WHERE status = 'PENDING' AND order_no IS NOT NULL
+    GROUP BY order_no, chain_type
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_trade_order_pending_order_no
+    ON trade_order(order_no, chain_type) WHERE status = 'PENDING' AND order_no IS NOT NULL;
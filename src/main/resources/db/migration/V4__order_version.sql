@@ -0,0 +1,2 @@
+-- 订单版本号：每次状态或通知信息变更递增，用于订单详情 ETag 条件请求
+ALTER TABLE trade_order ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
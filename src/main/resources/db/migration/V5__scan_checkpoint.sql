@@ -0,0 +1,6 @@
+-- 扫块检查点：每条链已完整处理的最后一个区块（Solana 为 slot），重启后从此处续扫
+CREATE TABLE IF NOT EXISTS `scan_checkpoint` (
+    chain_type TEXT PRIMARY KEY,          -- 链类型
+    block_number INTEGER NOT NULL,        -- 已完整处理的最后一个区块号
+    update_time DATETIME                  -- 更新时间
+);
@@ -0,0 +1,13 @@
+-- 扫块死信：多次重试仍失败的区块段，管理接口可查看与重放，重放成功后删除
+CREATE TABLE IF NOT EXISTS `scan_dead_letter` (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    chain_type TEXT NOT NULL,             -- 链类型
+    from_block INTEGER NOT NULL,          -- 起始区块（含，Solana 为 slot）
+    to_block INTEGER NOT NULL,            -- 结束区块（含）
+    attempts INTEGER NOT NULL,            -- 已尝试次数
+    last_error TEXT,                      -- 最后一次失败原因
+    create_time DATETIME,                 -- 创建时间
+    update_time DATETIME                  -- 更新时间
+);
+
+CREATE INDEX IF NOT EXISTS idx_scan_dead_letter_chain ON scan_dead_letter(chain_type);
@@ -0,0 +1,44 @@
+package io.qimo.usdtzero.config;
+
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminTokenInterceptorTest {
+
+    private final AdminTokenInterceptor interceptor = new AdminTokenInterceptor();
+    private final AppProperties appProperties = new AppProperties();
+
+    private boolean preHandle(String token) {
+        ReflectionTestUtils.setField(interceptor, "appProperties", appProperties);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (token != null) {
+            request.addHeader(AdminTokenInterceptor.HEADER, token);
+        }
+        return interceptor.preHandle(request, new MockHttpServletResponse(), new Object());
+    }
+
+    @Test
+    void testMatchingTokenPasses() {
+        appProperties.setAuthToken("secret");
+        assertTrue(preHandle("secret"));
+    }
+
+    @Test
+    void testMissingOrWrongTokenRejected() {
+        appProperties.setAuthToken("secret");
+        BizException e = assertThrows(BizException.class, () -> preHandle(null));
+        assertEquals(ErrorCode.ADMIN_TOKEN_INVALID, e.getErrorCode());
+        assertThrows(BizException.class, () -> preHandle("wrong"));
+    }
+
+    @Test
+    void testRejectedWhenAuthTokenNotConfigured() {
+        assertThrows(BizException.class, () -> preHandle("secret"));
+    }
+}
@@ -75,6 +75,22 @@ class AppPropertiesTest {
         assertNull(appProperties.getSqlitePath());
         assertNotNull(appProperties.getUri());
         assertTrue(appProperties.getUri().contains(":"));
+        assertTrue(appProperties.getPoolJournalEnabled());
+        assertEquals("usdtzero.db.pool-journal", appProperties.getPoolJournalPath());
+        assertEquals(10000, appProperties.getOrderCacheSize());
+        assertEquals(600, appProperties.getOrderCacheTtl());
+        assertEquals(5000, appProperties.getSseMaxConnections());
+        assertEquals(5000, appProperties.getLongPollMaxWaiters());
+    }
+
+    @Test
+    void testPoolJournalPathFollowsSqlitePath() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.setAuthToken("test-token");
+        appProperties.setSqlitePath("data/usdtzero.db");
+        appProperties.validate();
+
+        assertEquals("data/usdtzero.db.pool-journal", appProperties.getPoolJournalPath());
     }
     
     @Test
@@ -101,4 +117,20 @@ class AppPropertiesTest {
         assertNotNull(appProperties.getUri());
         assertTrue(appProperties.getUri().endsWith(":54321"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testNodeId() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.setUri("https://example.com");
+        appProperties.setAuthToken("test-token");
+        appProperties.validate();
+        // 未配置时随机分配
+        assertTrue(appProperties.getNodeId() >= 0 && appProperties.getNodeId() <= 1023);
+
+        AppProperties invalid = new AppProperties();
+        invalid.setUri("https://example.com");
+        invalid.setAuthToken("test-token");
+        invalid.setNodeId(1024);
+        assertThrows(IllegalArgumentException.class, invalid::validate);
+    }
+}
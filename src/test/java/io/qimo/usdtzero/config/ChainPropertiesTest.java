@@ -1,6 +1,10 @@
 package io.qimo.usdtzero.config;
 
+import io.qimo.usdtzero.constant.ChainType;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ChainPropertiesTest {
@@ -87,5 +91,64 @@ class ChainPropertiesTest {
         assertFalse(chainProperties.getSplEnable());
     }
 
+    @Test
+    void testMergeReceivingAddresses() {
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.setTrc20Enable(true);
+        chainProperties.setTrc20Address("T_ADDR_1");
+        chainProperties.setTrc20Addresses(List.of("T_ADDR_2", " T_ADDR_1 ", "", "T_ADDR_3"));
+        chainProperties.validate();
+
+        assertEquals(List.of("T_ADDR_1", "T_ADDR_2", "T_ADDR_3"), chainProperties.getTrc20Addresses());
+        assertEquals("T_ADDR_1", chainProperties.getTrc20Address());
+        assertEquals(ChainProperties.STRATEGY_LEAST_OCCUPIED, chainProperties.getAddressStrategy());
+    }
 
-} 
\ No newline at end of file
+    @Test
+    void testAddressListOnly() {
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.setBep20Enable(true);
+        chainProperties.setBep20Addresses(List.of("0xaaa", "0xbbb"));
+        chainProperties.validate();
+
+        assertEquals("0xaaa", chainProperties.getBep20Address());
+    }
+
+    @Test
+    void testBep20ScanMode() {
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.validate();
+        assertEquals(ChainProperties.SCAN_MODE_LOGS, chainProperties.getBep20ScanMode());
+        assertEquals(20, chainProperties.getBep20RpcBatchSize());
+        assertEquals(20, chainProperties.getScanRangeSize());
+        assertEquals(4, chainProperties.getScanParallelism());
+        assertEquals(20000, chainProperties.getScanMaxCatchUp());
+        assertEquals(5, chainProperties.getScanRetryMaxAttempts());
+        assertEquals(5, chainProperties.getScanRetryBaseDelay());
+        assertEquals(1000, chainProperties.getScanRetryQueueLimit());
+        assertEquals(8, chainProperties.getScanMaxInFlight());
+
+        chainProperties.setBep20ScanMode("full");
+        assertThrows(IllegalArgumentException.class, chainProperties::validate);
+    }
+
+    @Test
+    void testInvalidAddressStrategy() {
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.setAddressStrategy("random");
+        assertThrows(IllegalArgumentException.class, chainProperties::validate);
+    }
+
+    @Test
+    void testMatchTolerance() {
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.setTrc20MatchTolerance("0.001");
+        chainProperties.validate();
+
+        assertEquals(1_000L, chainProperties.getMatchToleranceMinUnit(ChainType.TRC20));
+        assertEquals(0L, chainProperties.getMatchToleranceMinUnit(ChainType.BEP20));
+
+        chainProperties.setSplMatchTolerance("-0.01");
+        assertThrows(IllegalArgumentException.class, chainProperties::validate);
+    }
+}
@@ -0,0 +1,89 @@
+package io.qimo.usdtzero.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourceConfigTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HikariDataSource writeDataSource;
+    private HikariDataSource readDataSource;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:sqlite:" + tempDir.resolve("test.db") + "?journal_mode=WAL&busy_timeout=15000");
+        properties.setDriverClassName("org.sqlite.JDBC");
+        DataSourceConfig config = new DataSourceConfig();
+        writeDataSource = config.writeDataSource(properties);
+        writeDataSource.setMaximumPoolSize(1);
+        writeDataSource.setConnectionTimeout(500);
+        readDataSource = config.readDataSource(properties);
+        readDataSource.setMaximumPoolSize(2);
+        dataSource = config.dataSource(writeDataSource, readDataSource);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t (id INTEGER)");
+            statement.execute("INSERT INTO t (id) VALUES (1)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        readDataSource.close();
+        writeDataSource.close();
+    }
+
+    @Test
+    void testReadOnlyConnectionRejectsWrites() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                assertEquals(1, count(statement));
+                assertThrows(SQLException.class, () -> statement.execute("INSERT INTO t (id) VALUES (2)"));
+            }
+        }
+    }
+
+    @Test
+    void testReadsNotBlockedByOpenWriteTransaction() throws SQLException {
+        try (Connection writer = dataSource.getConnection(); Statement writeStatement = writer.createStatement()) {
+            // 占住唯一的写连接并保持写事务未提交
+            writer.setAutoCommit(false);
+            writeStatement.execute("INSERT INTO t (id) VALUES (2)");
+
+            long start = System.nanoTime();
+            try (Connection reader = dataSource.getConnection()) {
+                reader.setReadOnly(true);
+                try (Statement statement = reader.createStatement()) {
+                    // WAL 读取到已提交的快照，不等待写连接
+                    assertEquals(1, count(statement));
+                }
+            }
+            assertTrue(System.nanoTime() - start < 500_000_000L);
+            writer.rollback();
+        }
+    }
+
+    private static int count(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM t")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
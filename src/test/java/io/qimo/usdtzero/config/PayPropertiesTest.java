@@ -52,6 +52,22 @@ class PayPropertiesTest {
         assertEquals("~1", payProperties.getRate());
         assertEquals(1200, payProperties.getTimeout());
         assertTrue(payProperties.getTradeIsConfirmed());  // 默认应该为true
+        assertEquals(10000, payProperties.getIdempotencyCacheSize());
+    }
+
+    @Test
+    void testAddressMode() {
+        // 默认金额池模式，只允许 amount-pool 或 hd
+        PayProperties payProperties = new PayProperties();
+        payProperties.validate();
+        assertEquals(PayProperties.ADDRESS_MODE_AMOUNT_POOL, payProperties.getAddressMode());
+
+        payProperties.setAddressMode("hd");
+        payProperties.validate();
+        assertEquals(PayProperties.ADDRESS_MODE_HD, payProperties.getAddressMode());
+
+        payProperties.setAddressMode("random");
+        assertThrows(IllegalArgumentException.class, payProperties::validate);
     }
 
     @Test
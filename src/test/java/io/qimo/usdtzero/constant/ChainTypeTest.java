@@ -70,4 +70,13 @@ class ChainTypeTest {
         assertEquals("SPL", ChainType.SPL);
         assertEquals("BEP20", ChainType.BEP20);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testResolveByAddress() {
+        assertEquals(ChainType.TRC20, ChainType.resolveByAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t"));
+        assertEquals(ChainType.BEP20, ChainType.resolveByAddress("0x55d398326f99059ff775485246999027b3197955"));
+        assertEquals(ChainType.SPL, ChainType.resolveByAddress("Es9vMFrzaCERmJfrF4H2FYD4KCoNkY11McCe8BenwNYB"));
+        assertNull(ChainType.resolveByAddress(""));
+        assertNull(ChainType.resolveByAddress(null));
+    }
+}
@@ -0,0 +1,84 @@
+package io.qimo.usdtzero.pool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountPoolJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAppendAndReplayAfterReopen() throws Exception {
+        Path path = dir.resolve("pool.journal");
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertTrue(journal.isFresh());
+            journal.append(AmountPoolJournal.ALLOCATE, "addr1", 1000000L, null, AmountPoolJournal.NO_EXPIRE);
+            journal.append(AmountPoolJournal.BIND, "addr1", 1000000L, "ORDER_001", 1234L);
+            journal.append(AmountPoolJournal.RELEASE, "addr1", 1000000L, null, AmountPoolJournal.NO_EXPIRE);
+        }
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertFalse(journal.isFresh());
+            assertEquals(3, journal.records());
+            List<String> replayed = new ArrayList<>();
+            journal.replay((type, address, amount, tradeNo, expireMillis) ->
+                    replayed.add(type + ":" + address + ":" + amount + ":" + tradeNo + ":" + expireMillis));
+            assertEquals(List.of(
+                    "1:addr1:1000000:null:" + Long.MIN_VALUE,
+                    "3:addr1:1000000:ORDER_001:1234",
+                    "2:addr1:1000000:null:" + Long.MIN_VALUE), replayed);
+        }
+    }
+
+    @Test
+    void testCorruptedTailIsTruncated() throws Exception {
+        Path path = dir.resolve("pool.journal");
+        int secondRecordStart;
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            journal.append(AmountPoolJournal.BIND, "addr1", 1L, "ORDER_001", 1L);
+            secondRecordStart = journal.position();
+            journal.append(AmountPoolJournal.BIND, "addr1", 2L, "ORDER_002", 2L);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(secondRecordStart + 12);
+            file.write(0x7F);
+        }
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertEquals(1, journal.records());
+            assertEquals(secondRecordStart, journal.position());
+            // 截断后继续追加
+            journal.append(AmountPoolJournal.BIND, "addr1", 3L, "ORDER_003", 3L);
+        }
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            List<Long> amounts = new ArrayList<>();
+            journal.replay((type, address, amount, tradeNo, expireMillis) -> amounts.add(amount));
+            assertEquals(List.of(1L, 3L), amounts);
+        }
+    }
+
+    @Test
+    void testGrowAndCompact() throws Exception {
+        Path path = dir.resolve("pool.journal");
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            for (int i = 0; i < 20000; i++) {
+                journal.append(AmountPoolJournal.ALLOCATE, "addr" + (i % 7), i, "ORDER_" + i, i);
+            }
+            assertEquals(20000, journal.records());
+            int before = journal.position();
+            journal.compact(sink -> sink.accept(AmountPoolJournal.BIND, "addr1", 42L, "ORDER_42", 42L));
+            assertEquals(1, journal.records());
+            assertTrue(journal.position() < before);
+            journal.append(AmountPoolJournal.RELEASE, "addr1", 42L, null, AmountPoolJournal.NO_EXPIRE);
+        }
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertEquals(2, journal.records());
+        }
+    }
+}
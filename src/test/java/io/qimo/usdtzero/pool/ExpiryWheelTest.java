@@ -0,0 +1,57 @@
+package io.qimo.usdtzero.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryWheelTest {
+
+    @Test
+    void testAdvanceReleasesOnlyDueEntries() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(1000L, 8, 0L);
+        wheel.schedule("A", 1L, "a", 2500L);
+        wheel.schedule("A", 2L, "b", 3000L);
+        wheel.schedule("B", 1L, "c", 20_000L);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(2000L, (address, amount, value) -> expired.add(value)));
+        assertEquals(2, wheel.advance(3000L, (address, amount, value) -> expired.add(value)));
+        assertTrue(expired.containsAll(List.of("a", "b")));
+        assertEquals(1, wheel.pending());
+
+        // 超过一圈的条目在经过其槽位时保留
+        assertEquals(0, wheel.advance(12_000L, (address, amount, value) -> expired.add(value)));
+        assertEquals(1, wheel.advance(20_000L, (address, amount, value) -> expired.add(value)));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnNextAdvance() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(1000L, 8, 10_000L);
+        wheel.schedule("A", 1L, "a", 1_000L);
+        assertEquals(1, wheel.advance(11_000L, (address, amount, value) -> { }));
+    }
+
+    @Test
+    void testRandomizedAgainstDeadlines() {
+        ExpiryWheel<Long> wheel = new ExpiryWheel<>(1000L, 64, 0L);
+        Random random = new Random(42);
+        long[] deadlines = new long[5000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = random.nextInt(300_000);
+            wheel.schedule("A", i, deadlines[i], deadlines[i]);
+        }
+        int total = 0;
+        for (long now = 0; now <= 300_000; now += 1 + random.nextInt(5000)) {
+            long current = now;
+            total += wheel.advance(now, (address, amount, deadline) -> assertTrue(deadline <= current));
+        }
+        total += wheel.advance(400_000L, (address, amount, deadline) -> { });
+        assertEquals(deadlines.length, total);
+        assertEquals(0, wheel.pending());
+    }
+}
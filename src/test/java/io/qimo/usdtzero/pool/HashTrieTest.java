@@ -0,0 +1,68 @@
+package io.qimo.usdtzero.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTrieTest {
+
+    @Test
+    void testPutRemovePersistent() {
+        HashTrie<String> empty = HashTrie.empty();
+        HashTrie<String> first = empty.put("A", "1");
+        HashTrie<String> second = first.put("B", "2").put("A", "3");
+        HashTrie<String> third = second.remove("A");
+
+        assertNull(empty.get("A"));
+        assertEquals("1", first.get("A"));
+        assertEquals("3", second.get("A"));
+        assertEquals(2, second.size());
+        assertNull(third.get("A"));
+        assertEquals("2", third.get("B"));
+        assertEquals(1, third.size());
+        assertSame(third, third.remove("missing"));
+    }
+
+    @Test
+    void testHashCollision() {
+        // "Aa" 与 "BB" 的 hashCode 相同
+        HashTrie<String> trie = HashTrie.<String>empty().put("Aa", "1").put("BB", "2").put("C", "3");
+        assertEquals("1", trie.get("Aa"));
+        assertEquals("2", trie.get("BB"));
+        assertEquals(3, trie.size());
+
+        HashTrie<String> removed = trie.remove("Aa");
+        assertNull(removed.get("Aa"));
+        assertEquals("2", removed.get("BB"));
+        assertEquals("3", removed.get("C"));
+        assertEquals(0, removed.remove("BB").remove("C").size());
+    }
+
+    @Test
+    void testMatchesHashMap() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<>();
+        HashTrie<Integer> trie = HashTrie.empty();
+        for (int i = 0; i < 20000; i++) {
+            String key = "addr" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                trie = trie.remove(key);
+            } else {
+                expected.put(key, i);
+                trie = trie.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), trie.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+        Map<String, Integer> visited = new HashMap<>();
+        trie.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
@@ -0,0 +1,62 @@
+package io.qimo.usdtzero.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectTableTest {
+
+    @Test
+    void testPutGetRemove() {
+        LongObjectTable<String> table = new LongObjectTable<>();
+        assertNull(table.putIfAbsent(1000000L, "A"));
+        assertEquals("A", table.putIfAbsent(1000000L, "B"));
+        assertEquals("A", table.get(1000000L));
+        assertEquals("A", table.put(1000000L, "C"));
+        assertEquals("C", table.remove(1000000L));
+        assertNull(table.get(1000000L));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void testZeroAndNegativeKeys() {
+        LongObjectTable<String> table = new LongObjectTable<>();
+        table.put(0L, "zero");
+        table.put(-10000L, "negative");
+        assertEquals("zero", table.get(0L));
+        assertEquals("negative", table.get(-10000L));
+        assertFalse(table.containsKey(10000L));
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        LongObjectTable<Long> table = new LongObjectTable<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(20250801L);
+        for (int i = 0; i < 200_000; i++) {
+            // 金额集中在少量步进上，制造大量冲突与后移删除
+            long key = 7_140_000L + random.nextInt(512) * 10_000L;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                assertEquals(expected.putIfAbsent(key, (long) i), table.putIfAbsent(key, (long) i));
+            } else if (op == 1) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.get(key), table.get(key));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        long[] keys = expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        assertArrayEquals(keys, table.sortedKeys());
+        long[] visited = new long[table.size()];
+        int[] n = {0};
+        table.forEach((key, value) -> visited[n[0]++] = key);
+        Arrays.sort(visited);
+        assertArrayEquals(keys, visited);
+    }
+}
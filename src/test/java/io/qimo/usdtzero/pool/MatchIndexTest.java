@@ -0,0 +1,76 @@
+package io.qimo.usdtzero.pool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchIndexTest {
+
+    @Test
+    void testCopyOnWrite() {
+        MatchIndex first = MatchIndex.EMPTY.with("A", new long[]{100L, 300L});
+        MatchIndex second = first.with("B", new long[]{200L});
+        MatchIndex third = second.with("A", new long[0]);
+
+        assertEquals(1L, first.version());
+        assertEquals(3L, third.version());
+        assertTrue(first.contains("A", 300L));
+        assertFalse(first.isWatched("B"));
+        assertTrue(second.contains("B", 200L));
+        assertFalse(third.isWatched("A"));
+        assertTrue(third.contains("B", 200L));
+        assertEquals(0, MatchIndex.EMPTY.addressCount());
+    }
+
+    @Test
+    void testAddressesView() {
+        MatchIndex index = MatchIndex.EMPTY;
+        for (int i = 0; i < 1000; i++) {
+            index = index.with(String.format("addr%04d", i), new long[]{i});
+        }
+        index = index.with("addr0500", null);
+        assertEquals(999, index.addresses().size());
+        assertEquals(999, index.entryCount());
+        assertTrue(index.addresses().contains("addr0999"));
+        assertFalse(index.addresses().contains("addr0500"));
+        assertEquals("addr0000", index.addresses().iterator().next());
+    }
+
+    @Test
+    void testContainsUsesSortedAmounts() {
+        MatchIndex index = MatchIndex.EMPTY.with("A", new long[]{100L, 200L, 300L});
+        assertTrue(index.contains("A", 200L));
+        assertFalse(index.contains("A", 250L));
+        assertFalse(index.contains(null, 200L));
+        long[] amounts = index.amounts("A");
+        amounts[0] = 999L;
+        assertTrue(index.contains("A", 100L));
+    }
+
+    @Test
+    void testMatchWithinTolerance() {
+        MatchIndex index = MatchIndex.EMPTY.with("A", new long[]{1_000_000L, 1_010_000L, 1_050_000L});
+        // 精确命中优先，即使容差内还有其他候选
+        assertEquals(1_010_000L, index.match("A", 1_010_000L, 20_000L));
+        // 少付0.001，容差内唯一候选
+        assertEquals(1_050_000L, index.match("A", 1_049_000L, 1_000L));
+        assertEquals(MatchIndex.NO_MATCH, index.match("A", 1_049_000L, 0L));
+        assertEquals(MatchIndex.NO_MATCH, index.match("A", 1_030_000L, 5_000L));
+        assertEquals(MatchIndex.NO_MATCH, index.match("B", 1_000_000L, 5_000L));
+        // 容差内两个候选
+        assertEquals(MatchIndex.AMBIGUOUS, index.match("A", 1_005_000L, 5_000L));
+        assertArrayEquals(new long[]{1_000_000L, 1_010_000L}, index.candidates("A", 1_005_000L, 5_000L));
+    }
+
+    @Test
+    void testForEachPage() {
+        MatchIndex index = MatchIndex.EMPTY
+                .with("B", new long[]{10L, 20L})
+                .with("A", new long[]{1L, 2L, 3L});
+        assertEquals(5, index.entryCount());
+        StringBuilder page = new StringBuilder();
+        index.forEach(2, 2, (address, amount) -> page.append(address).append(amount).append(' '));
+        assertEquals("A3 B10 ", page.toString());
+        assertEquals(3, index.with("A", new long[]{1L}).entryCount());
+    }
+}
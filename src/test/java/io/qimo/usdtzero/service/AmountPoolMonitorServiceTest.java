@@ -0,0 +1,92 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.api.response.AmountPoolDumpResponse;
+import io.qimo.usdtzero.api.response.AmountPoolStatsResponse;
+import io.qimo.usdtzero.config.PayProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class AmountPoolMonitorServiceTest {
+
+    private static final String TRON_ADDRESS_1 = "TMVQGm1qAQYVdetCeGRRkTWYYrLXuHK2HC";
+    private static final String TRON_ADDRESS_2 = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private AmountPoolMonitorService amountPoolMonitorService;
+
+    private AmountPoolService amountPoolService;
+
+    @BeforeEach
+    void setUp() {
+        amountPoolService = new AmountPoolService();
+        PayProperties payProperties = new PayProperties();
+        payProperties.setTimeout(1200);
+        payProperties.validate();
+        ReflectionTestUtils.setField(amountPoolMonitorService, "amountPoolService", amountPoolService);
+        ReflectionTestUtils.setField(amountPoolMonitorService, "payProperties", payProperties);
+    }
+
+    @Test
+    void testStats() {
+        LocalDateTime now = LocalDateTime.now();
+        amountPoolService.allocateAmount(TRON_ADDRESS_1, 1_000_000L, "T1", now.plusSeconds(1000));
+        amountPoolService.allocateAmount(TRON_ADDRESS_1, 1_010_000L, "T2", now.plusSeconds(1100));
+        amountPoolService.allocateAmount(TRON_ADDRESS_2, 1_000_000L, "T3", now.plusSeconds(1200));
+
+        AmountPoolStatsResponse stats = amountPoolMonitorService.getStats();
+        assertEquals(3, stats.getTotalLocked());
+        AmountPoolStatsResponse.ChainStats tron = stats.getChains().stream()
+                .filter(chain -> ChainType.TRC20.equals(chain.getChainType())).findFirst().orElseThrow();
+        assertEquals(3, tron.getLocked());
+        assertEquals(2, tron.getAddresses().get(TRON_ADDRESS_1));
+        // 最早条目在 now - 200s 创建
+        long age = amountPoolMonitorService.getOldestEntryAgeSeconds(now);
+        assertTrue(age >= 199 && age <= 200);
+    }
+
+    @Test
+    void testDumpPagesOverStableSnapshot() {
+        amountPoolService.allocateAmount(TRON_ADDRESS_1, 1_000_000L, "T1", LocalDateTime.now().plusMinutes(10));
+        amountPoolService.allocateAmount(TRON_ADDRESS_1, 1_010_000L, "T2", LocalDateTime.now().plusMinutes(10));
+        amountPoolService.allocateAmount(TRON_ADDRESS_2, 1_000_000L, "T3", LocalDateTime.now().plusMinutes(10));
+
+        AmountPoolDumpResponse first = amountPoolMonitorService.dump(ChainType.TRC20, null, 0, 2);
+        assertEquals(3, first.getTotal());
+        assertEquals(2, first.getItems().size());
+
+        // 翻页期间的变更不影响快照内容，已释放的条目被标记
+        amountPoolService.allocateAmount(TRON_ADDRESS_1, 1_020_000L, "T4", LocalDateTime.now().plusMinutes(10));
+        amountPoolService.releaseAmount(TRON_ADDRESS_2, 1_000_000L);
+        AmountPoolDumpResponse second = amountPoolMonitorService.dump(ChainType.TRC20, first.getSnapshot(), 2, 2);
+        assertEquals(3, second.getTotal());
+        assertEquals(1, second.getItems().size());
+        AmountPoolDumpResponse.Item item = second.getItems().get(0);
+        assertEquals(new BigDecimal("1.00"), item.getAmount());
+        assertTrue(item.getReleased());
+    }
+
+    @Test
+    void testDumpUnknownSnapshot() {
+        BizException ex = assertThrows(BizException.class,
+                () -> amountPoolMonitorService.dump(ChainType.TRC20, 42L, 0, 10));
+        assertEquals(ErrorCode.AMOUNT_POOL_SNAPSHOT_EXPIRED, ex.getErrorCode());
+        assertThrows(BizException.class, () -> amountPoolMonitorService.dump(ChainType.TRC20, null, 0, 5000));
+    }
+}
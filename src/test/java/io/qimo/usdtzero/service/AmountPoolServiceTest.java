@@ -1,13 +1,24 @@
 package io.qimo.usdtzero.service;
 
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.pool.AmountPoolJournal;
+import io.qimo.usdtzero.pool.MatchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,4 +138,199 @@ class AmountPoolServiceTest {
         assertEquals("ORDER_001", amountToOrderMap.get("TRC20_ADDRESS_1000000").getOrderTradeNo());
         assertEquals(LocalDateTime.of(2025, 7, 21, 12, 0), amountToOrderMap.get("TRC20_ADDRESS_1000000").getExpireTime());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testIsAmountLocked() {
+        assertFalse(amountPoolService.isAmountLocked("TRC20_ADDRESS", 1000000L));
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 1000000L);
+        assertTrue(amountPoolService.isAmountLocked("TRC20_ADDRESS", 1000000L));
+        assertFalse(amountPoolService.isAmountLocked("TRC20_ADDRESS", 1010000L));
+        assertFalse(amountPoolService.isAmountLocked("SOL_ADDRESS", 1000000L));
+        assertEquals(1, amountPoolService.size());
+    }
+
+    @Test
+    void testMatchIndexPublishedPerChain() {
+        String tronAddress = "TMVQGm1qAQYVdetCeGRRkTWYYrLXuHK2HC";
+        String bscAddress = "0x7e5f4552091a69125d5dfcb7b8c2659029395bdf";
+        MatchIndex before = amountPoolService.getMatchIndex(ChainType.TRC20);
+        assertFalse(before.isWatched(tronAddress));
+
+        amountPoolService.allocateAmount(tronAddress, 1_020_000L);
+        amountPoolService.allocateNearestAmount(tronAddress, 1_000_000L, 10_000L, 100);
+        amountPoolService.allocateAmount(bscAddress, 1_000_000L);
+        MatchIndex tron = amountPoolService.getMatchIndex(ChainType.TRC20);
+        assertTrue(tron.version() > before.version());
+        assertArrayEquals(new long[]{1_000_000L, 1_020_000L}, tron.amounts(tronAddress));
+        assertTrue(tron.contains(tronAddress, 1_020_000L));
+        assertFalse(tron.isWatched(bscAddress));
+        assertTrue(amountPoolService.getMatchIndex(ChainType.BEP20).contains(bscAddress, 1_000_000L));
+
+        // 旧快照不受后续变更影响
+        amountPoolService.releaseAmount(tronAddress, 1_000_000L);
+        assertTrue(tron.contains(tronAddress, 1_000_000L));
+        MatchIndex afterRelease = amountPoolService.getMatchIndex(ChainType.TRC20);
+        assertFalse(afterRelease.contains(tronAddress, 1_000_000L));
+        amountPoolService.releaseAmount(tronAddress, 1_020_000L);
+        assertFalse(amountPoolService.getMatchIndex(ChainType.TRC20).isWatched(tronAddress));
+    }
+
+    @Test
+    void testMatchIndexUsesExplicitChain() {
+        // 34位、以T开头的Solana地址按格式会被误判为TRC20，显式指定链后进入SPL索引
+        String solAddress = "TestSo1anaAddressWith34Characters1";
+        amountPoolService.allocateNearestAmount(ChainType.SPL, solAddress, 1_000_000L, 10_000L, 100);
+        amountPoolService.allocateAmount(ChainType.SPL, solAddress, 2_000_000L, "ORDER_001", LocalDateTime.now().plusMinutes(10));
+
+        assertArrayEquals(new long[]{1_000_000L, 2_000_000L}, amountPoolService.getMatchIndex(ChainType.SPL).amounts(solAddress));
+        assertFalse(amountPoolService.getMatchIndex(ChainType.TRC20).isWatched(solAddress));
+        amountPoolService.releaseAmount(solAddress, 1_000_000L);
+        amountPoolService.releaseAmount(solAddress, 2_000_000L);
+        assertFalse(amountPoolService.getMatchIndex(ChainType.SPL).isWatched(solAddress));
+        assertEquals(0, amountPoolService.getMatchIndex(ChainType.TRC20).entryCount());
+    }
+
+    @Test
+    void testReleaseAmountByKey() {
+        amountPoolService.allocateAmount("addr_with_underscore", 1000000L);
+        amountPoolService.releaseAmountByKey(amountPoolService.buildKey("addr_with_underscore", 1000000L));
+        assertTrue(amountPoolService.isAmountAvailable("addr_with_underscore", 1000000L));
+        assertDoesNotThrow(() -> amountPoolService.releaseAmountByKey("invalid"));
+        assertDoesNotThrow(() -> amountPoolService.releaseAmountByKey("addr_abc"));
+    }
+
+    @Test
+    void testAllocateNearestAmount() {
+        long base = 14_290_000L;
+        long step = 10_000L;
+        assertEquals(base, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        assertEquals(base + step, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        // 已被单独占用的金额会被跳过
+        amountPoolService.allocateAmount("TRC20_ADDRESS", base + 2 * step);
+        assertEquals(base + 3 * step, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        assertEquals(4, amountPoolService.getLadderOccupancy("TRC20_ADDRESS", base, step, 100));
+        // 释放后优先复用离基础金额最近的空位
+        amountPoolService.releaseAmount("TRC20_ADDRESS", base);
+        assertEquals(base, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        // 其它地址互不影响
+        assertEquals(base, amountPoolService.allocateNearestAmount("SOL_ADDRESS", base, step, 100));
+    }
+
+    @Test
+    void testAllocateNearestAmount_Exhausted() {
+        long base = 1_000_000L;
+        long step = 10_000L;
+        for (int i = 0; i < 100; i++) {
+            assertEquals(base + i * step, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        }
+        assertEquals(100, amountPoolService.getLadderOccupancy("TRC20_ADDRESS", base, step, 100));
+        assertEquals(AmountPoolService.NO_AMOUNT, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+        amountPoolService.releaseAmount("TRC20_ADDRESS", base + 77 * step);
+        assertEquals(base + 77 * step, amountPoolService.allocateNearestAmount("TRC20_ADDRESS", base, step, 100));
+    }
+
+    @Test
+    void testReleaseExpiredAmounts() {
+        LocalDateTime now = LocalDateTime.now();
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 1000000L, "ORDER_001", now.plusSeconds(5));
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 2000000L, "ORDER_002", now.plusMinutes(10));
+        amountPoolService.allocateAmount("BEP20_ADDRESS", 1000000L, "ORDER_003", now.plusSeconds(3));
+
+        assertEquals(0, amountPoolService.releaseExpiredAmounts(now.plusSeconds(2)));
+        assertEquals(2, amountPoolService.releaseExpiredAmounts(now.plusSeconds(6)));
+        assertTrue(amountPoolService.isAmountAvailable("TRC20_ADDRESS", 1000000L));
+        assertTrue(amountPoolService.isAmountAvailable("BEP20_ADDRESS", 1000000L));
+        assertFalse(amountPoolService.isAmountAvailable("TRC20_ADDRESS", 2000000L));
+        assertEquals(1, amountPoolService.releaseExpiredAmounts(now.plusMinutes(11)));
+        assertEquals(0, amountPoolService.size());
+    }
+
+    @Test
+    void testReleaseExpiredAmounts_SkipsReplacedOrReleasedEntries() {
+        LocalDateTime now = LocalDateTime.now();
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 1000000L, "ORDER_001", now.plusSeconds(5));
+        // 续期后旧登记到期不应释放新条目
+        amountPoolService.updateOrderTradeNoAndExpireTime("TRC20_ADDRESS", 1000000L, "ORDER_001", now.plusMinutes(5));
+        // 释放后被其他订单重新占用
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 2000000L, "ORDER_002", now.plusSeconds(5));
+        amountPoolService.releaseAmount("TRC20_ADDRESS", 2000000L);
+        amountPoolService.allocateAmount("TRC20_ADDRESS", 2000000L, "ORDER_003", now.plusMinutes(5));
+
+        assertEquals(0, amountPoolService.releaseExpiredAmounts(now.plusSeconds(10)));
+        assertEquals("ORDER_001", amountPoolService.getEntryByAddressAndAmount("TRC20_ADDRESS", 1000000L).getOrderTradeNo());
+        assertEquals("ORDER_003", amountPoolService.getEntryByAddressAndAmount("TRC20_ADDRESS", 2000000L).getOrderTradeNo());
+        assertEquals(2, amountPoolService.releaseExpiredAmounts(now.plusMinutes(6)));
+    }
+
+    @Test
+    void testRestoreFromJournal(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("pool.journal");
+        LocalDateTime now = LocalDateTime.now();
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            amountPoolService.restoreFromJournal(journal, now);
+            long amount = amountPoolService.allocateNearestAmount("TRC20_ADDRESS", 1000000L, 10000L, 100);
+            amountPoolService.updateOrderTradeNoAndExpireTime("TRC20_ADDRESS", amount, "ORDER_001", now.plusMinutes(10));
+            amountPoolService.allocateAmount("TRC20_ADDRESS", 2000000L, "ORDER_002", now.plusMinutes(10));
+            amountPoolService.releaseAmount("TRC20_ADDRESS", 2000000L);
+            amountPoolService.allocateAmount("BEP20_ADDRESS", 1000000L, "ORDER_003", now.plusSeconds(1));
+            // 未绑定订单号的条目（创建订单中途退出）
+            amountPoolService.allocateNearestAmount("BEP20_ADDRESS", 5000000L, 10000L, 100);
+            amountPoolService.compactJournal();
+            amountPoolService.allocateAmount("SOL_ADDRESS", 1000000L, "ORDER_004", now.plusMinutes(10));
+        }
+
+        AmountPoolService restored = new AmountPoolService();
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertEquals(2, restored.restoreFromJournal(journal, now.plusSeconds(5)));
+        }
+        assertEquals("ORDER_001", restored.getEntryByAddressAndAmount("TRC20_ADDRESS", 1000000L).getOrderTradeNo());
+        assertEquals("ORDER_004", restored.getEntryByAddressAndAmount("SOL_ADDRESS", 1000000L).getOrderTradeNo());
+        assertTrue(restored.isAmountAvailable("TRC20_ADDRESS", 2000000L));
+        assertTrue(restored.isAmountAvailable("BEP20_ADDRESS", 1000000L));
+        assertTrue(restored.isAmountAvailable("BEP20_ADDRESS", 5000000L));
+    }
+
+    @Test
+    void testJournalOrderMatchesConcurrentChanges(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("pool.journal");
+        LocalDateTime expireTime = LocalDateTime.now().plusMinutes(10);
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            amountPoolService.restoreFromJournal(journal, LocalDateTime.now());
+            // 多个线程反复分配/释放同一批金额，同时压缩日志
+            ExecutorService executor = Executors.newFixedThreadPool(5);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String tradeNo = "ORDER_" + t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        long amount = 1000000L + (i % 4);
+                        if (!amountPoolService.allocateAmount("TRC20_ADDRESS", amount, tradeNo, expireTime)) {
+                            amountPoolService.releaseAmount("TRC20_ADDRESS", amount);
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    amountPoolService.compactJournal();
+                }
+                return null;
+            }));
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        AmountPoolService restored = new AmountPoolService();
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            restored.restoreFromJournal(journal, LocalDateTime.now());
+        }
+        assertEquals(amountPoolService.size(), restored.size());
+        for (long amount = 1000000L; amount < 1000004L; amount++) {
+            AmountPoolService.AmountPoolEntry live = amountPoolService.getEntryByAddressAndAmount("TRC20_ADDRESS", amount);
+            AmountPoolService.AmountPoolEntry replayed = restored.getEntryByAddressAndAmount("TRC20_ADDRESS", amount);
+            assertEquals(live == null ? null : live.getOrderTradeNo(), replayed == null ? null : replayed.getOrderTradeNo());
+        }
+    }
+}
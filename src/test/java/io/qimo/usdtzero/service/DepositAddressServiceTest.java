@@ -0,0 +1,114 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.config.PayProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.DepositAddress;
+import io.qimo.usdtzero.repository.DepositAddressMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DepositAddressServiceTest {
+
+    private static final String XPUB =
+            "xpub661MyMwAqRbcFW31YEwpkMuc5THy2PSt5bDMsktWQcFF8syAmRUapSCGu8ED9W6oDMSgv6Zz8idoc4a6mr8BDzTJY47LJhkJ8UB7WEGuduB";
+
+    @Mock
+    private PayProperties payProperties;
+    @Mock
+    private ChainProperties chainProperties;
+    @Mock
+    private DepositAddressMapper depositAddressMapper;
+    @Mock
+    private OrderWriteQueue orderWriteQueue;
+    @InjectMocks
+    private DepositAddressService depositAddressService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(payProperties.getAddressMode()).thenReturn(PayProperties.ADDRESS_MODE_HD);
+        lenient().when(chainProperties.getTrc20Enable()).thenReturn(true);
+        lenient().when(chainProperties.getTrc20Xpub()).thenReturn(XPUB);
+        lenient().when(chainProperties.getBep20Enable()).thenReturn(false);
+        lenient().when(payProperties.getLatePaymentGrace()).thenReturn(600);
+        // 写入队列直接执行写操作
+        lenient().when(orderWriteQueue.execute(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+    }
+
+    @Test
+    void testAllocateContinuesFromPersistedIndex() {
+        DepositAddress existing = new DepositAddress();
+        existing.setChainType(ChainType.TRC20);
+        existing.setDerivationIndex(4);
+        existing.setAddress("T_EXISTING");
+        when(depositAddressMapper.selectPendingAddresses()).thenReturn(List.of(existing));
+        when(depositAddressMapper.selectMaxIndex(ChainType.TRC20)).thenReturn(4);
+        depositAddressService.init();
+
+        assertTrue(depositAddressService.isHdEnabled(ChainType.TRC20));
+        assertFalse(depositAddressService.isHdEnabled(ChainType.BEP20));
+        assertFalse(depositAddressService.isHdEnabled(ChainType.SPL));
+        assertTrue(depositAddressService.isWatched("T_EXISTING"));
+
+        String first = depositAddressService.allocateAddress(ChainType.TRC20);
+        String second = depositAddressService.allocateAddress(ChainType.TRC20);
+        assertNotEquals(first, second);
+        assertEquals(depositAddressService.deriveAddress(ChainType.TRC20, 5), first);
+        assertEquals(depositAddressService.deriveAddress(ChainType.TRC20, 6), second);
+        assertTrue(depositAddressService.isWatched(first));
+        assertEquals(3, depositAddressService.getWatchedCount());
+        verify(depositAddressMapper, times(1)).insert(argThat((DepositAddress row) -> row.getDerivationIndex() == 5));
+        verify(depositAddressMapper, times(1)).insert(argThat((DepositAddress row) -> row.getDerivationIndex() == 6));
+        // 派生记录经写入队列插入
+        verify(orderWriteQueue, times(2)).execute(any());
+    }
+
+    @Test
+    void testAmountPoolModeDisablesHd() {
+        when(payProperties.getAddressMode()).thenReturn(PayProperties.ADDRESS_MODE_AMOUNT_POOL);
+        depositAddressService.init();
+
+        assertFalse(depositAddressService.isHdEnabled(ChainType.TRC20));
+        assertThrows(BizException.class, () -> depositAddressService.allocateAddress(ChainType.TRC20));
+        verify(depositAddressMapper, never()).selectPendingAddresses();
+    }
+
+    @Test
+    void testPaidAndRetiredAddressesLeaveWatchSet() {
+        DepositAddress closed = new DepositAddress();
+        closed.setChainType(ChainType.TRC20);
+        closed.setAddress("T_CLOSED");
+        when(depositAddressMapper.selectRecentlyClosedAddresses(any())).thenReturn(List.of(closed));
+        depositAddressService.init();
+        String paid = depositAddressService.allocateAddress(ChainType.TRC20);
+        String expired = depositAddressService.allocateAddress(ChainType.TRC20);
+        assertEquals(3, depositAddressService.getWatchedCount());
+
+        // 已支付立即停止监听
+        depositAddressService.unwatch(paid);
+        assertFalse(depositAddressService.isWatched(paid));
+
+        // 超时后宽限期内仍监听，宽限期后移除；重启时加载的近期超时地址同样到期移除
+        depositAddressService.retire(expired);
+        depositAddressService.pruneRetiredAddresses(System.currentTimeMillis());
+        assertTrue(depositAddressService.isWatched(expired));
+        assertTrue(depositAddressService.isWatched("T_CLOSED"));
+        depositAddressService.pruneRetiredAddresses(System.currentTimeMillis() + 601_000L);
+        assertFalse(depositAddressService.isWatched(expired));
+        assertFalse(depositAddressService.isWatched("T_CLOSED"));
+        assertEquals(0, depositAddressService.getWatchedCount());
+    }
+}
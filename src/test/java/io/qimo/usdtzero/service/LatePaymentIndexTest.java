@@ -0,0 +1,52 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.PayProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class LatePaymentIndexTest {
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private LatePaymentIndex latePaymentIndex;
+
+    @BeforeEach
+    void setUp() {
+        PayProperties payProperties = new PayProperties();
+        payProperties.setLatePaymentMaxSize(2);
+        payProperties.validate();
+        ReflectionTestUtils.setField(latePaymentIndex, "payProperties", payProperties);
+        latePaymentIndex.init();
+    }
+
+    @Test
+    void testRecordAndTake() {
+        latePaymentIndex.record("addr", 100L, "T1");
+        assertTrue(latePaymentIndex.isWatched("addr"));
+        assertEquals("T1", latePaymentIndex.lookup("addr", 100L));
+        assertNull(latePaymentIndex.lookup("addr", 200L));
+
+        // 只能取出一次，取出后地址不再被监听
+        assertEquals("T1", latePaymentIndex.take("addr", 100L));
+        assertNull(latePaymentIndex.take("addr", 100L));
+        assertFalse(latePaymentIndex.isWatched("addr"));
+    }
+
+    @Test
+    void testReplaceKeepsAddressWatched() {
+        latePaymentIndex.record("addr", 100L, "T1");
+        latePaymentIndex.record("addr", 100L, "T2");
+        assertEquals("T2", latePaymentIndex.take("addr", 100L));
+        assertFalse(latePaymentIndex.isWatched("addr"));
+    }
+}
@@ -0,0 +1,98 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderCacheTest {
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private OrderCache orderCache;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.setOrderCacheSize(100);
+        appProperties.setOrderCacheTtl(600);
+        ReflectionTestUtils.setField(orderCache, "appProperties", appProperties);
+        orderCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testLoadOnceAndInvalidate() {
+        AtomicInteger loads = new AtomicInteger();
+        Order order = order("T1", "tx1");
+        assertSame(order, orderCache.get("T1", key -> {
+            loads.incrementAndGet();
+            return order;
+        }));
+        assertSame(order, orderCache.get("T1", key -> {
+            loads.incrementAndGet();
+            return order;
+        }));
+        assertEquals(1, loads.get());
+        assertEquals("T1", orderCache.getTradeNoByTxHash("tx1"));
+
+        orderCache.invalidate("T1");
+        assertNull(orderCache.get("T1", key -> null));
+    }
+
+    @Test
+    void testMissingOrderNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        orderCache.get("T404", key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        orderCache.get("T404", key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        assertEquals(2, loads.get());
+        assertEquals(0, orderCache.size());
+    }
+
+    @Test
+    void testInvalidateAgainAfterTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        orderCache.put(order("T1", null));
+        orderCache.invalidate("T1");
+        // 提交前并发读取把旧数据放回缓存
+        orderCache.put(order("T1", null));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertNull(orderCache.get("T1", key -> null));
+    }
+
+    private Order order(String tradeNo, String txHash) {
+        Order order = new Order();
+        order.setTradeNo(tradeNo);
+        order.setTxHash(txHash);
+        return order;
+    }
+}
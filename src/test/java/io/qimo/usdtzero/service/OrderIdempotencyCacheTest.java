@@ -0,0 +1,65 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.api.response.CreateOrderResponse;
+import io.qimo.usdtzero.config.PayProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIdempotencyCacheTest {
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private OrderIdempotencyCache orderIdempotencyCache;
+
+    @BeforeEach
+    void setUp() {
+        PayProperties payProperties = new PayProperties();
+        payProperties.validate();
+        ReflectionTestUtils.setField(orderIdempotencyCache, "payProperties", payProperties);
+        orderIdempotencyCache.init();
+    }
+
+    @Test
+    void testPutGetInvalidate() {
+        CreateOrderResponse response = response("M1", 1800);
+        orderIdempotencyCache.put(ChainType.TRC20, response);
+        assertSame(response, orderIdempotencyCache.get(ChainType.TRC20, "M1"));
+        // 按链区分
+        assertNull(orderIdempotencyCache.get(ChainType.BEP20, "M1"));
+
+        orderIdempotencyCache.invalidate(ChainType.TRC20, "M1");
+        assertNull(orderIdempotencyCache.get(ChainType.TRC20, "M1"));
+    }
+
+    @Test
+    void testWithoutOrderNo() {
+        orderIdempotencyCache.put(ChainType.TRC20, response(null, 1800));
+        assertNull(orderIdempotencyCache.get(ChainType.TRC20, null));
+        assertEquals(0, orderIdempotencyCache.size());
+    }
+
+    @Test
+    void testExpireWithOrderTimeout() {
+        orderIdempotencyCache.put(ChainType.TRC20, response("M1", 0));
+        assertNull(orderIdempotencyCache.get(ChainType.TRC20, "M1"));
+    }
+
+    private CreateOrderResponse response(String orderNo, int timeout) {
+        CreateOrderResponse response = new CreateOrderResponse();
+        response.setTradeNo("T_" + orderNo);
+        response.setOrderNo(orderNo);
+        response.setTimeout(timeout);
+        return response;
+    }
+}
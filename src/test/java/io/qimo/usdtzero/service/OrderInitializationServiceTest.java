@@ -1,20 +1,26 @@
 package io.qimo.usdtzero.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import io.qimo.usdtzero.constant.ChainType;
 import io.qimo.usdtzero.constant.OrderStatus;
 import io.qimo.usdtzero.model.Order;
+import io.qimo.usdtzero.pool.AmountPoolJournal;
 import io.qimo.usdtzero.repository.OrderMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -28,6 +34,9 @@ class OrderInitializationServiceTest {
     @Mock
     private AmountPoolService amountPoolService;
 
+    @Mock
+    private AmountPoolJournalService amountPoolJournalService;
+
     @InjectMocks
     private OrderInitializationService orderInitializationService;
 
@@ -44,6 +53,7 @@ class OrderInitializationServiceTest {
         expiredOrder.setAmount(10000L); // 100元
         expiredOrder.setActualAmount(14290000L); // USDT金额
         expiredOrder.setAddress("test_address_1");
+        expiredOrder.setChainType(ChainType.TRC20);
 
         // 创建有效的订单
         validOrder = new Order();
@@ -53,6 +63,7 @@ class OrderInitializationServiceTest {
         validOrder.setAmount(5000L); // 50元
         validOrder.setActualAmount(7145000L); // USDT金额
         validOrder.setAddress("test_address_2");
+        validOrder.setChainType(ChainType.TRC20);
     }
 
     @Test
@@ -65,7 +76,7 @@ class OrderInitializationServiceTest {
         when(orderMapper.updateStatusIfMatch(any(), any(), any())).thenReturn(1);
         
         // Mock AmountPoolService的行为（重载方法）
-        when(amountPoolService.allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class))).thenReturn(true);
+        when(amountPoolService.allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class))).thenReturn(true);
 
         // 执行初始化
         orderInitializationService.run(null);
@@ -77,7 +88,7 @@ class OrderInitializationServiceTest {
         verify(orderMapper, atLeastOnce()).updateStatusIfMatch(any(), any(), any());
 
         // 验证有效订单的资金池被锁定（重载方法）
-        verify(amountPoolService, times(1)).allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
+        verify(amountPoolService, times(1)).allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
     }
 
     @Test
@@ -95,7 +106,7 @@ class OrderInitializationServiceTest {
         verify(orderMapper, never()).updateStatusIfMatch(any(), any(), any());
         
         // 验证没有资金池操作
-        verify(amountPoolService, never()).allocateAmount(anyString(), anyLong());
+        verify(amountPoolService, never()).allocateAmount(any(), anyString(), anyLong(), anyString(), any(LocalDateTime.class));
     }
 
     @Test
@@ -113,7 +124,7 @@ class OrderInitializationServiceTest {
         verify(orderMapper, never()).updateStatusIfMatch(any(), any(), any());
         
         // 验证没有资金池操作
-        verify(amountPoolService, never()).allocateAmount(anyString(), anyLong());
+        verify(amountPoolService, never()).allocateAmount(any(), anyString(), anyLong(), anyString(), any(LocalDateTime.class));
     }
 
     @Test
@@ -142,7 +153,7 @@ class OrderInitializationServiceTest {
         
         // Mock查询成功，但资金池锁定失败
         when(orderMapper.selectList(any())).thenReturn(pendingOrders);
-        when(amountPoolService.allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class)))
+        when(amountPoolService.allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class)))
             .thenThrow(new RuntimeException("资金池锁定失败"));
         when(orderMapper.updateStatusIfMatch(any(), any(), any())).thenReturn(1);
 
@@ -156,7 +167,7 @@ class OrderInitializationServiceTest {
         verify(orderMapper, atLeastOnce()).updateStatusIfMatch(any(), any(), any());
         
         // 验证资金池锁定被调用（重载方法）
-        verify(amountPoolService, times(1)).allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
+        verify(amountPoolService, times(1)).allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
     }
 
     @Test
@@ -166,7 +177,7 @@ class OrderInitializationServiceTest {
         
         // Mock查询成功，但资金池锁定返回false（已被占用）
         when(orderMapper.selectList(any())).thenReturn(pendingOrders);
-        when(amountPoolService.allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class))).thenReturn(false);
+        when(amountPoolService.allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class))).thenReturn(false);
 
         // 执行初始化
         orderInitializationService.run(null);
@@ -178,7 +189,7 @@ class OrderInitializationServiceTest {
         verify(orderMapper, atLeastOnce()).updateStatusIfMatch(any(), any(), any());
         
         // 验证资金池锁定被调用（重载方法）
-        verify(amountPoolService, times(1)).allocateAmount(eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
+        verify(amountPoolService, times(1)).allocateAmount(eq(ChainType.TRC20), eq("test_address_2"), eq(7145000L), eq("VALID_ORDER_001"), any(LocalDateTime.class));
     }
 
     @Test
@@ -207,6 +218,67 @@ class OrderInitializationServiceTest {
         verify(orderMapper, atLeastOnce()).updateStatusIfMatch(any(), any(), any());
         
         // 验证没有资金池锁定操作（因为缺少必要信息）
-        verify(amountPoolService, never()).allocateAmount(anyString(), anyLong());
+        verify(amountPoolService, never()).allocateAmount(any(), anyString(), anyLong(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRunWithJournalRestored_DoesNotBlockOnDatabase() throws Exception {
+        when(amountPoolJournalService.isRestored()).thenReturn(true);
+
+        orderInitializationService.run(null);
+
+        // 对账在后台执行，不对数据库做同步恢复
+        verify(amountPoolService, never()).allocateAmount(any(), anyString(), anyLong(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testReconcilePendingOrders(@TempDir Path dir) throws Exception {
+        AmountPoolService pool = new AmountPoolService();
+        ReflectionTestUtils.setField(orderInitializationService, "amountPoolService", pool);
+        validOrder.setId(2L);
+        Order missingOrder = new Order();
+        missingOrder.setId(3L);
+        missingOrder.setTradeNo("MISSING_ORDER_001");
+        missingOrder.setStatus(OrderStatus.PENDING);
+        missingOrder.setExpireTime(LocalDateTime.now().plusMinutes(10));
+        missingOrder.setActualAmount(1000000L);
+        missingOrder.setAddress("test_address_3");
+        Order conflictOrder = new Order();
+        conflictOrder.setId(4L);
+        conflictOrder.setTradeNo("CONFLICT_ORDER_001");
+        conflictOrder.setStatus(OrderStatus.PENDING);
+        conflictOrder.setExpireTime(LocalDateTime.now().plusMinutes(10));
+        conflictOrder.setActualAmount(2000000L);
+        conflictOrder.setAddress("test_address_3");
+
+        // 日志恢复出的状态：有效订单一致、冲突金额被已结束订单占用、一个残留条目
+        Path path = dir.resolve("pool.journal");
+        AmountPoolService previous = new AmountPoolService();
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            previous.restoreFromJournal(journal, LocalDateTime.now());
+            previous.allocateAmount("test_address_2", 7145000L, "VALID_ORDER_001", validOrder.getExpireTime());
+            previous.allocateAmount("test_address_3", 2000000L, "FINISHED_ORDER_001", LocalDateTime.now().plusMinutes(5));
+            previous.allocateAmount("test_address_4", 3000000L, "FINISHED_ORDER_002", LocalDateTime.now().plusMinutes(5));
+        }
+        try (AmountPoolJournal journal = AmountPoolJournal.open(path, 0)) {
+            assertEquals(3, pool.restoreFromJournal(journal, LocalDateTime.now()));
+        }
+        // 启动后新建订单分配的条目：一个尚未绑定订单号，一个订单仍在写队列中、数据库查不到
+        long unbound = pool.allocateNearestAmount("test_address_5", 1000000L, 10000L, 100);
+        pool.allocateAmount("test_address_5", 2000000L, "QUEUED_ORDER_001", LocalDateTime.now().plusMinutes(10));
+
+        when(orderMapper.selectList(any())).thenReturn(Arrays.asList(validOrder, missingOrder, conflictOrder));
+
+        orderInitializationService.reconcilePendingOrders();
+
+        assertEquals("VALID_ORDER_001", pool.getEntryByAddressAndAmount("test_address_2", 7145000L).getOrderTradeNo());
+        assertEquals("MISSING_ORDER_001", pool.getEntryByAddressAndAmount("test_address_3", 1000000L).getOrderTradeNo());
+        verify(orderMapper, times(1)).updateStatusIfMatch(eq(4L), eq(OrderStatus.PENDING), eq(OrderStatus.ABNORMAL));
+        assertTrue(pool.isAmountAvailable("test_address_3", 2000000L));
+        assertTrue(pool.isAmountAvailable("test_address_4", 3000000L));
+        assertTrue(pool.isAmountLocked("test_address_5", unbound));
+        assertEquals("QUEUED_ORDER_001", pool.getEntryByAddressAndAmount("test_address_5", 2000000L).getOrderTradeNo());
+        assertEquals(4, pool.size());
+        assertTrue(pool.takeRestoredSlots().isEmpty());
     }
-} 
\ No newline at end of file
+}
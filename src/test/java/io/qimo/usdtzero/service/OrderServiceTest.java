@@ -1,13 +1,19 @@
 package io.qimo.usdtzero.service;
 
+import io.qimo.usdtzero.api.request.BatchCreateOrderRequest;
 import io.qimo.usdtzero.api.request.CreateOrderRequest;
+import io.qimo.usdtzero.api.response.BatchCreateOrderResponse;
+import io.qimo.usdtzero.api.response.CreateOrderResponse;
+import io.qimo.usdtzero.api.response.OrderDetailResponse;
 import io.qimo.usdtzero.config.AppProperties;
 import io.qimo.usdtzero.config.PayProperties;
 import io.qimo.usdtzero.config.ChainProperties;
 import io.qimo.usdtzero.constant.ChainType;
 import io.qimo.usdtzero.constant.OrderStatus;
 import io.qimo.usdtzero.model.Order;
+import io.qimo.usdtzero.pool.MatchIndex;
 import io.qimo.usdtzero.repository.OrderMapper;
+import io.qimo.usdtzero.task.CheckpointScanner;
 import io.qimo.usdtzero.service.UsdtRateService;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,14 +21,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 
@@ -30,6 +43,7 @@ import io.qimo.usdtzero.model.BizException;
 import io.qimo.usdtzero.model.ErrorCode;
 import org.mockito.MockitoAnnotations;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -57,9 +71,30 @@ class OrderServiceTest {
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private ReceivingAddressSelector receivingAddressSelector;
+
     @Mock
     private UsdtRateService usdtRateService;
 
+    @Mock
+    private DepositAddressService depositAddressService;
+
+    @Mock
+    private LatePaymentIndex latePaymentIndex;
+
+    @Mock
+    private OrderWriteQueue orderWriteQueue;
+
+    @Mock
+    private OrderIdempotencyCache orderIdempotencyCache;
+
+    @Mock
+    private OrderCache orderCache;
+
+    @Spy
+    private TradeNoGenerator tradeNoGenerator = new TimeOrderedTradeNoGenerator(1);
+
     @InjectMocks
     private OrderService orderService;
 
@@ -67,9 +102,17 @@ class OrderServiceTest {
     void setUp() throws NoSuchFieldException, IllegalAccessException {
         MockitoAnnotations.openMocks(this);
         // 不做任何mock，全部放到各自测试方法
-        lenient().when(amountPoolService.allocateAmount(anyString(), anyLong())).thenReturn(true);
+        lenient().when(amountPoolService.allocateAmount(anyString(), anyString(), anyLong())).thenReturn(true);
         lenient().when(amountPoolService.allocateAmount(anyString(), anyLong(), anyString(), any())).thenReturn(true);
         lenient().when(amountPoolService.updateOrderTradeNoAndExpireTime(anyString(), anyLong(), anyString(), any())).thenReturn(true);
+        // 默认分配到基础金额
+        lenient().when(amountPoolService.allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> invocation.getArgument(2));
+        // 默认按配置顺序尝试收款地址
+        lenient().when(receivingAddressSelector.order(anyString(), anyList(), anyLong(), anyLong(), anyInt(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+        // 写入队列直接执行写操作
+        lenient().when(orderWriteQueue.execute(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
         ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
         // 反射注入
         Field field = orderService.getClass().getDeclaredField("eventPublisher");
@@ -85,8 +128,6 @@ class OrderServiceTest {
         when(payProperties.getTimeout()).thenReturn(1800);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(true);
         when(orderMapper.insert(any(Order.class))).thenReturn(1);
         CreateOrderRequest dto = new CreateOrderRequest();
         dto.setChainType(ChainType.SPL);
@@ -104,8 +145,6 @@ class OrderServiceTest {
         when(payProperties.getTimeout()).thenReturn(1800);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(true);
         when(orderMapper.insert(any(Order.class))).thenReturn(1);
         BizException ex1 = assertThrows(BizException.class, () -> createOrderWith("0.01", "7.0"));
         assertTrue(ex1.getMessage().contains("usdt金额必须大于0"));
@@ -122,7 +161,6 @@ class OrderServiceTest {
         when(payProperties.getTimeout()).thenReturn(1800);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(anyString(), anyLong())).thenReturn(true);
         BizException ex1 = assertThrows(BizException.class, () -> createOrderWith("0", "7.0"));
         assertEquals(ErrorCode.AMOUNT_TOO_SMALL, ex1.getErrorCode());
         assertTrue(ex1.getMessage().contains("usdt金额必须大于0"));
@@ -140,8 +178,7 @@ class OrderServiceTest {
         when(payProperties.getScale()).thenReturn(2);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(false);
+        when(amountPoolService.allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt())).thenReturn(AmountPoolService.NO_AMOUNT);
         BizException ex = assertThrows(BizException.class, () -> createOrderWith("100", "7.0"));
         assertEquals(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, ex.getErrorCode());
         assertTrue(ex.getMessage().contains("该地址附近USDT金额已被占用，请稍后重试"));
@@ -193,8 +230,6 @@ class OrderServiceTest {
         when(payProperties.getTradeIsConfirmed()).thenReturn(false);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(true);
         when(orderMapper.insert(any(Order.class))).thenReturn(0); // 保存失败
         assertThrows(BizException.class, () -> createOrderWith("100", "7.0"));
     }
@@ -207,11 +242,9 @@ class OrderServiceTest {
         when(payProperties.getTimeout()).thenReturn(1800);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("123");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(true);
         when(orderMapper.insert(any(Order.class))).thenReturn(1);
         assertDoesNotThrow(() -> createOrderWith("100", "7.0"));
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(false);
+        when(amountPoolService.allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt())).thenReturn(AmountPoolService.NO_AMOUNT);
         BizException ex = assertThrows(BizException.class, () -> createOrderWith("100", "7.0"));
         assertEquals(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, ex.getErrorCode());
     }
@@ -224,10 +257,12 @@ class OrderServiceTest {
         when(payProperties.getTimeout()).thenReturn(1800);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class))).thenReturn(false, false, true);
-        when(amountPoolService.allocateAmount(any(String.class), any(Long.class))).thenReturn(true);
+        // 前两级已被占用，分配到第三级
+        when(amountPoolService.allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> (long) invocation.getArgument(2) + 2 * (long) invocation.getArgument(3));
         when(orderMapper.insert(any(Order.class))).thenReturn(1);
         assertDoesNotThrow(() -> createOrderWith("100", "7.0"));
+        verify(orderMapper).insert(argThat((Order order) -> order.getActualAmount() == 14_310_000L));
     }
 
     @Test
@@ -236,15 +271,390 @@ class OrderServiceTest {
         when(payProperties.getScale()).thenReturn(2);
         when(chainProperties.getSplEnable()).thenReturn(true);
         when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
-        final int[] callCount = {0};
-        when(amountPoolService.isAmountAvailable(any(String.class), any(Long.class)))
-            .thenAnswer(invocation -> {
-                callCount[0]++;
-                return false;
-            });
+        when(amountPoolService.allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt())).thenReturn(AmountPoolService.NO_AMOUNT);
         BizException ex = assertThrows(BizException.class, () -> createOrderWith("100", "7.0"));
         assertEquals(ErrorCode.AMOUNT_POOL_ALLOCATE_FAILED, ex.getErrorCode());
-        assertEquals(100, callCount[0], "应尝试100次分配");
+        // 应在100级阶梯内查找
+        verify(amountPoolService).allocateNearestAmount(eq(ChainType.SPL), eq("test_sol_address"), eq(14_290_000L), eq(10_000L), eq(100));
+        verify(metricsService).recordAmountAllocateFailure(ChainType.SPL, "10-50");
+    }
+
+    @Test
+    void testPriceBucket() {
+        assertEquals("0-10", OrderService.priceBucket(new BigDecimal("9.99")));
+        assertEquals("10-50", OrderService.priceBucket(new BigDecimal("14.29")));
+        assertEquals("100-500", OrderService.priceBucket(new BigDecimal("100")));
+        assertEquals("1000+", OrderService.priceBucket(new BigDecimal("5000")));
+    }
+
+    @Test
+    void testMultipleAddressesFallBackWhenLadderFull() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddresses()).thenReturn(List.of("sol_address_1", "sol_address_2"));
+        // 第一个地址阶梯已满，落到第二个地址的基础金额
+        when(amountPoolService.allocateNearestAmount(anyString(), eq("sol_address_1"), anyLong(), anyLong(), anyInt())).thenReturn(AmountPoolService.NO_AMOUNT);
+        when(orderMapper.insert(any(Order.class))).thenReturn(1);
+        assertDoesNotThrow(() -> createOrderWith("100", "7.0"));
+        verify(orderMapper).insert(argThat((Order order) ->
+                "sol_address_2".equals(order.getAddress()) && order.getActualAmount() == 14_290_000L));
+    }
+
+    @Test
+    void testHdModeUsesDerivedAddressWithBaseAmount() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(depositAddressService.isHdEnabled(ChainType.SPL)).thenReturn(true);
+        when(depositAddressService.allocateAddress(ChainType.SPL)).thenReturn("derived_address");
+        when(orderMapper.insert(any(Order.class))).thenReturn(1);
+        assertDoesNotThrow(() -> createOrderWith("100", "7.0"));
+        verify(amountPoolService).allocateAmount(eq(ChainType.SPL), eq("derived_address"), eq(14_290_000L));
+        verify(amountPoolService, never()).allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        verify(depositAddressService).bindTradeNo(eq("derived_address"), anyString());
+        verify(orderMapper).insert(argThat((Order order) ->
+                "derived_address".equals(order.getAddress()) && order.getActualAmount() == 14_290_000L));
+    }
+
+    @Test
+    void testHdModeUnwatchesAddressWhenInsertFails() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(depositAddressService.isHdEnabled(ChainType.SPL)).thenReturn(true);
+        when(depositAddressService.allocateAddress(ChainType.SPL)).thenReturn("derived_address");
+        when(orderMapper.insert(any(Order.class))).thenThrow(new RuntimeException("database is locked"));
+        assertThrows(RuntimeException.class, () -> createOrderWith("100", "7.0"));
+        verify(amountPoolService).releaseAmount("derived_address", 14_290_000L);
+        verify(depositAddressService).unwatch("derived_address");
+    }
+
+    @Test
+    void testBatchCreateOrders_partialFailure() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(payProperties.getRate()).thenReturn("~1");
+        when(payProperties.getBatchMaxSize()).thenReturn(100);
+        when(usdtRateService.getCachedRate()).thenReturn(new BigDecimal("7.0"));
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
+        when(orderMapper.insertBatch(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        BatchCreateOrderRequest request = new BatchCreateOrderRequest();
+        request.setSignature("batch_signature");
+        request.setOrders(List.of(batchItem("100", "A1"), batchItem(null, "A2"), batchItem("200", "A3")));
+        BatchCreateOrderResponse response = orderService.batchCreateOrders(request);
+
+        assertEquals(3, response.getTotal());
+        assertEquals(2, response.getSuccessCount());
+        assertEquals(ErrorCode.SUCCESS.getCode(), response.getItems().get(0).getCode());
+        assertEquals(ErrorCode.PARAM_ERROR.getCode(), response.getItems().get(1).getCode());
+        assertNull(response.getItems().get(1).getOrder());
+        assertEquals("A3", response.getItems().get(2).getOrder().getOrderNo());
+        // 整批只取一次汇率，一条多行插入，作为一次写操作交给写入队列
+        verify(usdtRateService, times(1)).getCachedRate();
+        verify(orderWriteQueue, times(1)).execute(any());
+        verify(orderMapper).insertBatch(argThat((List<Order> orders) -> orders.size() == 2
+                && "batch_signature".equals(orders.get(0).getSignature())));
+        verify(orderMapper, never()).insert(any(Order.class));
+        // 批次签名不回写到调用方的单条请求
+        assertNull(request.getOrders().get(0).getSignature());
+    }
+
+    @Test
+    void testBatchCreateOrders_insertFailReleasesAll() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(payProperties.getRate()).thenReturn("~1");
+        when(payProperties.getBatchMaxSize()).thenReturn(100);
+        when(usdtRateService.getCachedRate()).thenReturn(new BigDecimal("7.0"));
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
+        when(orderMapper.insertBatch(anyList())).thenThrow(new RuntimeException("database is locked"));
+
+        BatchCreateOrderRequest request = new BatchCreateOrderRequest();
+        request.setSignature("batch_signature");
+        request.setOrders(List.of(batchItem("100", "A1"), batchItem("200", "A2")));
+        assertThrows(RuntimeException.class, () -> orderService.batchCreateOrders(request));
+        verify(amountPoolService).releaseAmount("test_sol_address", 14_290_000L);
+        verify(amountPoolService).releaseAmount("test_sol_address", 28_570_000L);
+        // 写入未提交，不登记缓存
+        verify(orderCache, never()).put(any(Order.class));
+        verify(orderIdempotencyCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void testBatchCreateOrders_exceedsMaxSize() {
+        when(payProperties.getBatchMaxSize()).thenReturn(1);
+        BatchCreateOrderRequest request = new BatchCreateOrderRequest();
+        request.setOrders(List.of(batchItem("100", "A1"), batchItem("200", "A2")));
+        BizException ex = assertThrows(BizException.class, () -> orderService.batchCreateOrders(request));
+        assertEquals(ErrorCode.PARAM_VALUE_ERROR, ex.getErrorCode());
+        verify(amountPoolService, never()).allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testCreateOrder_idempotentCacheHit() {
+        CreateOrderResponse existing = new CreateOrderResponse();
+        existing.setTradeNo("existing_trade_no");
+        existing.setOrderNo("M1");
+        existing.setAmount(new BigDecimal("100.00"));
+        when(orderIdempotencyCache.get(ChainType.SPL, "M1")).thenReturn(existing);
+
+        CreateOrderRequest request = batchItem("100", "M1");
+        assertSame(existing, orderService.createOrder(request));
+        verify(metricsService).recordOrderDeduplicated("cache");
+        verify(amountPoolService, never()).allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        verify(orderWriteQueue, never()).execute(any());
+
+        // 同一商户订单号金额不同视为冲突
+        BizException ex = assertThrows(BizException.class, () -> orderService.createOrder(batchItem("200", "M1")));
+        assertEquals(ErrorCode.ORDER_ALREADY_EXISTS, ex.getErrorCode());
+    }
+
+    @Test
+    void testCreateOrder_duplicateKeyReturnsPendingOrder() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(payProperties.getRate()).thenReturn("~1");
+        when(usdtRateService.getCachedRate()).thenReturn(new BigDecimal("7.0"));
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
+        when(orderMapper.insert(any(Order.class))).thenThrow(new DuplicateKeyException("UNIQUE constraint failed: trade_order.order_no"));
+        Order pending = new Order();
+        pending.setTradeNo("existing_trade_no");
+        pending.setOrderNo("M1");
+        pending.setChainType(ChainType.SPL);
+        pending.setAmount(10000L);
+        pending.setActualAmount(14_290_000L);
+        pending.setScale(2);
+        pending.setAddress("test_sol_address");
+        when(orderMapper.selectOne(any())).thenReturn(pending);
+
+        CreateOrderResponse response = orderService.createOrder(batchItem("100", "M1"));
+        assertEquals("existing_trade_no", response.getTradeNo());
+        verify(metricsService).recordOrderDeduplicated("database");
+        verify(orderIdempotencyCache).put(ChainType.SPL, response);
+        // 本次占用的金额释放
+        verify(amountPoolService).releaseAmount("test_sol_address", 14_290_000L);
+        verify(metricsService, never()).recordOrderCreatedFailed(anyString());
+    }
+
+    @Test
+    void testBatchCreateOrders_duplicateOrderNo() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(payProperties.getRate()).thenReturn("~1");
+        when(payProperties.getBatchMaxSize()).thenReturn(100);
+        when(usdtRateService.getCachedRate()).thenReturn(new BigDecimal("7.0"));
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
+        when(orderMapper.insertBatch(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        CreateOrderResponse existing = new CreateOrderResponse();
+        existing.setTradeNo("existing_trade_no");
+        existing.setAmount(new BigDecimal("300.00"));
+        when(orderIdempotencyCache.get(ChainType.SPL, "A0")).thenReturn(existing);
+
+        BatchCreateOrderRequest request = new BatchCreateOrderRequest();
+        request.setSignature("batch_signature");
+        request.setOrders(List.of(batchItem("300", "A0"), batchItem("100", "A1"), batchItem("100", "A1")));
+        BatchCreateOrderResponse response = orderService.batchCreateOrders(request);
+
+        assertEquals(2, response.getSuccessCount());
+        assertSame(existing, response.getItems().get(0).getOrder());
+        assertEquals(ErrorCode.SUCCESS.getCode(), response.getItems().get(1).getCode());
+        assertEquals(ErrorCode.ORDER_ALREADY_EXISTS.getCode(), response.getItems().get(2).getCode());
+        verify(orderMapper).insertBatch(argThat((List<Order> orders) -> orders.size() == 1));
+        verify(orderIdempotencyCache).put(eq(ChainType.SPL), argThat(order -> "A1".equals(order.getOrderNo())));
+    }
+
+    @Test
+    void testBatchCreateOrders_pendingOrderInDatabase() {
+        when(appProperties.getUri()).thenReturn("http://localhost:8080");
+        when(payProperties.getAtom()).thenReturn("0.01");
+        when(payProperties.getScale()).thenReturn(2);
+        when(payProperties.getTimeout()).thenReturn(1800);
+        when(payProperties.getRate()).thenReturn("~1");
+        when(payProperties.getBatchMaxSize()).thenReturn(100);
+        when(usdtRateService.getCachedRate()).thenReturn(new BigDecimal("7.0"));
+        when(chainProperties.getSplEnable()).thenReturn(true);
+        when(chainProperties.getSplAddress()).thenReturn("test_sol_address");
+        when(orderMapper.insertBatch(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        // 幂等缓存未命中（如重启后），数据库中已有 A0 的待支付订单
+        Order pending = new Order();
+        pending.setTradeNo("existing_trade_no");
+        pending.setOrderNo("A0");
+        pending.setChainType(ChainType.SPL);
+        pending.setAmount(30000L);
+        pending.setActualAmount(42_860_000L);
+        pending.setScale(2);
+        pending.setAddress("test_sol_address");
+        when(orderMapper.selectOne(any())).thenReturn(pending, (Order) null);
+
+        BatchCreateOrderRequest request = new BatchCreateOrderRequest();
+        request.setSignature("batch_signature");
+        request.setOrders(List.of(batchItem("300", "A0"), batchItem("100", "A1")));
+        BatchCreateOrderResponse response = orderService.batchCreateOrders(request);
+
+        assertEquals(2, response.getSuccessCount());
+        assertEquals("existing_trade_no", response.getItems().get(0).getOrder().getTradeNo());
+        assertEquals("A1", response.getItems().get(1).getOrder().getOrderNo());
+        verify(metricsService).recordOrderDeduplicated("database");
+        // 已有订单不再占用金额池，也不参与插入
+        verify(amountPoolService, times(1)).allocateNearestAmount(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        verify(orderMapper).insertBatch(argThat((List<Order> orders) -> orders.size() == 1
+                && "A1".equals(orders.get(0).getOrderNo())));
+    }
+
+    @Test
+    void testGetByTxHash_knownTxHashReadsCache() {
+        Order cached = new Order();
+        cached.setTradeNo("T1");
+        when(orderCache.getTradeNoByTxHash("tx123")).thenReturn("T1");
+        when(orderCache.get(eq("T1"), any())).thenReturn(cached);
+
+        assertSame(cached, orderService.getByTxHash("tx123"));
+        verify(orderMapper, never()).selectOne(any());
+    }
+
+    @Test
+    void testGetOrderDetailEtag_followsVersion() {
+        Order cached = new Order();
+        cached.setTradeNo("T1");
+        cached.setVersion(3);
+        when(orderCache.get(eq("T1"), any())).thenReturn(cached);
+
+        assertEquals("W/\"T1-3\"", orderService.getOrderDetailEtag("T1"));
+        cached.setVersion(4);
+        assertEquals("W/\"T1-4\"", orderService.getOrderDetailEtag("T1"));
+        verify(orderMapper, never()).selectOne(any());
+    }
+
+    @Test
+    void testGetOrderDetailEtag_orderNotFound() {
+        when(orderCache.get(eq("T404"), any())).thenReturn(null);
+        BizException e = assertThrows(BizException.class, () -> orderService.getOrderDetailEtag("T404"));
+        assertEquals(ErrorCode.ORDER_NOT_FOUND, e.getErrorCode());
+    }
+
+    @Test
+    void testGetOrderDetail_absoluteExpireTime() {
+        LocalDateTime expireTime = LocalDateTime.now().plusMinutes(10);
+        Order cached = new Order();
+        cached.setTradeNo("T2");
+        cached.setAmount(10000L);
+        cached.setActualAmount(1_400_000L);
+        cached.setChainType(ChainType.TRC20);
+        cached.setScale(2);
+        cached.setStatus(OrderStatus.PENDING);
+        cached.setExpireTime(expireTime);
+        when(orderCache.get(eq("T2"), any())).thenReturn(cached);
+
+        OrderDetailResponse detail = orderService.getOrderDetailByTradeNo("T2");
+        assertEquals(expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), detail.getExpireTime());
+        // 详情只返回绝对过期时间，不随时间变化，与ETag（版本号）一致
+        assertEquals(detail, orderService.getOrderDetailByTradeNo("T2"));
+    }
+
+    @Test
+    void testMarkMatchedTransfer_ambiguousGoesToReview() {
+        orderService.markMatchedTransfer(ChainType.TRC20, "addr", 1_005_000L, MatchIndex.AMBIGUOUS, "tx123");
+        verify(metricsService).recordPaymentMatch(ChainType.TRC20, "ambiguous");
+        verify(amountPoolService, never()).getEntryByAddressAndAmount(anyString(), anyLong());
+    }
+
+    @Test
+    void testMarkMatchedTransfer_toleranceUsesMatchedAmount() {
+        when(amountPoolService.getEntryByAddressAndAmount(anyString(), anyLong())).thenReturn(null);
+        orderService.markMatchedTransfer(ChainType.TRC20, "addr", 1_049_000L, 1_050_000L, "tx123");
+        verify(metricsService).recordPaymentMatch(ChainType.TRC20, "tolerance");
+        verify(amountPoolService).getEntryByAddressAndAmount("addr", 1_050_000L);
+    }
+
+    @Test
+    void testMarkLatePayment_flagMarksOrderAbnormal() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setTradeNo("tradeNo");
+        order.setStatus(OrderStatus.EXPIRED);
+        when(latePaymentIndex.take("addr", 100L)).thenReturn("tradeNo");
+        when(orderMapper.selectOne(any())).thenReturn(order);
+        when(payProperties.getLatePaymentAction()).thenReturn(PayProperties.LATE_PAYMENT_FLAG);
+        when(orderMapper.updateStatusIfMatch(eq(1L), eq(OrderStatus.EXPIRED), eq(OrderStatus.ABNORMAL))).thenReturn(1);
+
+        assertTrue(orderService.markLatePayment(ChainType.TRC20, "addr", 100L, "tx123"));
+        verify(metricsService).recordLatePayment(ChainType.TRC20, PayProperties.LATE_PAYMENT_FLAG);
+        verify(orderMapper, never()).updateStatusIfMatch(anyLong(), anyString(), eq(OrderStatus.PAID));
+    }
+
+    @Test
+    void testMarkLatePayment_creditKeepsAmountPool() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setAddress("addr");
+        order.setTradeNo("tradeNo");
+        order.setStatus(OrderStatus.EXPIRED);
+        order.setChainType(ChainType.TRC20);
+        order.setAmount(100L);
+        order.setActualAmount(100L);
+        order.setScale(2);
+        when(latePaymentIndex.take("addr", 100L)).thenReturn("tradeNo");
+        when(orderMapper.selectOne(any())).thenReturn(order);
+        when(payProperties.getLatePaymentAction()).thenReturn(PayProperties.LATE_PAYMENT_CREDIT);
+        when(orderMapper.updateStatusIfMatch(eq(1L), eq(OrderStatus.EXPIRED), eq(OrderStatus.PAID))).thenReturn(1);
+
+        assertTrue(orderService.markLatePayment(ChainType.TRC20, "addr", 100L, "tx123"));
+        verify(orderMapper).updatePayTimeAndTxHashById(eq(1L), any(), eq("tx123"));
+        // 金额池条目可能已分配给新订单，不能释放
+        verify(amountPoolService, never()).releaseAmount(anyString(), anyLong());
+    }
+
+    @Test
+    void testMarkLatePayment_notIndexed() {
+        assertFalse(orderService.markLatePayment(ChainType.TRC20, "addr", 100L, "tx123"));
+        verify(orderMapper, never()).selectOne(any());
+    }
+
+    @Test
+    void testMarkDepositAddressPaid_underpaid() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setTradeNo("tradeNo");
+        order.setActualAmount(100L);
+        when(orderMapper.selectOne(any())).thenReturn(order);
+        orderService.markDepositAddressPaid("addr", 99L, "tx123");
+        verify(orderMapper, never()).updateStatusIfMatch(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void testMarkDepositAddressPaid_updateSuccess() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setAddress("addr");
+        order.setTradeNo("tradeNo");
+        order.setChainType(ChainType.TRC20);
+        order.setAmount(100L);
+        order.setActualAmount(100L);
+        order.setScale(2);
+        when(orderMapper.selectOne(any())).thenReturn(order);
+        when(orderMapper.updateStatusIfMatch(eq(1L), eq(OrderStatus.PENDING), eq(OrderStatus.PAID))).thenReturn(1);
+        // 多付按应付金额结算
+        orderService.markDepositAddressPaid("addr", 150L, "tx123");
+        verify(amountPoolService, times(1)).releaseAmount("addr", 100L);
+        verify(orderMapper, times(1)).updatePayTimeAndTxHashById(eq(1L), any(), eq("tx123"));
     }
 
     @Test
@@ -284,6 +694,64 @@ class OrderServiceTest {
         
         verify(amountPoolService, times(1)).releaseAmount("addr", 100L);
         verify(metricsService, times(1)).recordPaymentReceived(eq(ChainType.TRC20), eq(100L),eq(100L),eq("tradeNo"));
+        verify(orderCache).invalidate("tradeNo");
+    }
+
+    @Test
+    void testMarkMatchedTransfer_rescannedRangeCreditsOnce() {
+        // 第一笔订单支付后释放金额，同地址同金额又分配给了第二笔订单
+        Order first = paidCandidate(1L, "T_FIRST");
+        Order second = paidCandidate(2L, "T_SECOND");
+        when(amountPoolService.getEntryByAddressAndAmount("addr", 100L)).thenReturn(
+                new AmountPoolService.AmountPoolEntry("T_FIRST", LocalDateTime.now().plusMinutes(5)),
+                new AmountPoolService.AmountPoolEntry("T_SECOND", LocalDateTime.now().plusMinutes(5)));
+        when(orderMapper.selectOne(any())).thenReturn(first, second);
+        when(orderMapper.updateStatusIfMatch(anyLong(), eq(OrderStatus.PENDING), eq(OrderStatus.PAID))).thenReturn(1);
+        AtomicReference<String> settledTx = new AtomicReference<>();
+        when(orderMapper.updatePayTimeAndTxHashById(any(), any(), any())).thenAnswer(invocation -> {
+            settledTx.set(invocation.getArgument(2));
+            return 1;
+        });
+        when(orderMapper.selectCount(any())).thenAnswer(invocation -> settledTx.get() == null ? 0L : 1L);
+
+        ChainProperties scanProperties = new ChainProperties();
+        scanProperties.setScanRangeSize(10);
+        scanProperties.setScanParallelism(1);
+        scanProperties.validate();
+        ScanCheckpointService checkpointService = mock(ScanCheckpointService.class);
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        // 区块10中的转账结算后，同段后面的区块失败，整段未完成
+        CheckpointScanner.RangeScanner failAfterSettle = (from, to) -> {
+            orderService.markMatchedTransfer(ChainType.TRC20, "addr", 100L, 100L, "tx123");
+            return false;
+        };
+        new CheckpointScanner(ChainType.TRC20, 10, scanProperties, Runnable::run, checkpointService, metricsService)
+                .scan(10, failAfterSettle);
+        verify(checkpointService, never()).save(anyString(), anyLong());
+
+        // 重启后从检查点重扫同一段
+        new CheckpointScanner(ChainType.TRC20, 10, scanProperties, Runnable::run, checkpointService, metricsService)
+                .scan(10, (from, to) -> {
+                    orderService.markMatchedTransfer(ChainType.TRC20, "addr", 100L, 100L, "tx123");
+                    return true;
+                });
+
+        verify(orderMapper, times(1)).updateStatusIfMatch(anyLong(), eq(OrderStatus.PENDING), eq(OrderStatus.PAID));
+        verify(orderMapper, never()).updateStatusIfMatch(eq(2L), anyString(), anyString());
+        verify(metricsService, times(1)).recordPaymentReceived(anyString(), anyLong(), anyLong(), anyString());
+        verify(checkpointService).save(ChainType.TRC20, 10);
+    }
+
+    private Order paidCandidate(long id, String tradeNo) {
+        Order order = new Order();
+        order.setId(id);
+        order.setAddress("addr");
+        order.setTradeNo(tradeNo);
+        order.setChainType(ChainType.TRC20);
+        order.setAmount(100L);
+        order.setActualAmount(100L);
+        order.setScale(2);
+        return order;
     }
 
     @Test
@@ -302,6 +770,14 @@ class OrderServiceTest {
         verify(orderMapper, never()).update(any(), any());
     }
 
+    private CreateOrderRequest batchItem(String amount, String orderNo) {
+        CreateOrderRequest item = new CreateOrderRequest();
+        item.setChainType(ChainType.SPL);
+        item.setAmount(amount == null ? null : new BigDecimal(amount));
+        item.setOrderNo(orderNo);
+        return item;
+    }
+
     private void createOrderWith(String amount, String rate) {
         // 只组装参数，不做任何mock，mock全部放到各自测试方法
         CreateOrderRequest dto = new CreateOrderRequest();
@@ -0,0 +1,142 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.api.response.OrderDetailResponse;
+import io.qimo.usdtzero.config.AppProperties;
+import io.qimo.usdtzero.constant.OrderStatus;
+import io.qimo.usdtzero.model.ApiResponse;
+import io.qimo.usdtzero.model.BizException;
+import io.qimo.usdtzero.model.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatusStreamServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private OrderStatusStreamService streamService;
+
+    private AppProperties appProperties;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.setSseMaxConnections(2);
+        appProperties.setLongPollMaxWaiters(2);
+        ReflectionTestUtils.setField(streamService, "appProperties", appProperties);
+    }
+
+    @Test
+    void testSubscribeAndPublish() {
+        when(orderService.getOrderDetailByTradeNo("T1")).thenReturn(detail("T1", OrderStatus.PENDING));
+
+        assertNotNull(streamService.subscribe("T1"));
+        assertNotNull(streamService.subscribe("T1"));
+        assertEquals(2, streamService.getConnectionCount());
+
+        streamService.publish("T1", OrderStatus.PAID);
+        assertEquals(0, streamService.getConnectionCount());
+
+        // 重复推送无订阅者
+        streamService.publish("T1", OrderStatus.PAID);
+        assertEquals(0, streamService.getConnectionCount());
+    }
+
+    @Test
+    void testSubscribeNotPendingDoesNotRegister() {
+        when(orderService.getOrderDetailByTradeNo("T2")).thenReturn(detail("T2", OrderStatus.EXPIRED));
+
+        assertNotNull(streamService.subscribe("T2"));
+        assertEquals(0, streamService.getConnectionCount());
+    }
+
+    @Test
+    void testSubscribeAfterStatusChangedDeliversImmediately() {
+        // 查询详情时仍为待支付，但状态已在此之前推送过
+        streamService.publish("T3", OrderStatus.CANCELLED);
+        when(orderService.getOrderDetailByTradeNo("T3")).thenReturn(detail("T3", OrderStatus.PENDING));
+
+        streamService.subscribe("T3");
+        assertEquals(0, streamService.getConnectionCount());
+    }
+
+    @Test
+    void testSubscribeExceedsMaxConnections() {
+        when(orderService.getOrderDetailByTradeNo("T4")).thenReturn(detail("T4", OrderStatus.PENDING));
+        streamService.subscribe("T4");
+        streamService.subscribe("T4");
+
+        BizException e = assertThrows(BizException.class, () -> streamService.subscribe("T4"));
+        assertEquals(ErrorCode.SYSTEM_RESOURCE_EXHAUSTED, e.getErrorCode());
+        assertEquals(2, streamService.getConnectionCount());
+    }
+
+    @Test
+    void testHeartbeatKeepsSubscriptions() {
+        when(orderService.getOrderDetailByTradeNo("T5")).thenReturn(detail("T5", OrderStatus.PENDING));
+        streamService.subscribe("T5");
+
+        streamService.heartbeat();
+        assertEquals(1, streamService.getConnectionCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAwaitCompletesOnPublish() {
+        when(orderService.getOrderDetailByTradeNo("T6")).thenReturn(detail("T6", OrderStatus.PENDING));
+
+        DeferredResult<ApiResponse<OrderDetailResponse>> result = streamService.await("T6", OrderStatus.PAID, 10_000L);
+        assertFalse(result.hasResult());
+        assertEquals(1, streamService.getWaiterCount());
+
+        // 缓存可能仍为旧状态，以事件状态为准
+        streamService.publish("T6", OrderStatus.PAID);
+        assertTrue(result.hasResult());
+        assertEquals(OrderStatus.PAID, ((ApiResponse<OrderDetailResponse>) result.getResult()).getData().getStatus());
+        assertEquals(0, streamService.getWaiterCount());
+    }
+
+    @Test
+    void testAwaitReturnsImmediately() {
+        when(orderService.getOrderDetailByTradeNo("T7")).thenReturn(detail("T7", OrderStatus.EXPIRED));
+        when(orderService.getOrderDetailByTradeNo("T8")).thenReturn(detail("T8", OrderStatus.PENDING));
+
+        // 已离开待支付状态
+        assertTrue(streamService.await("T7", OrderStatus.PAID, null).hasResult());
+        // 已处于等待的状态
+        assertTrue(streamService.await("T8", OrderStatus.PENDING, null).hasResult());
+        // 挂起数达到上限
+        streamService.await("T8", OrderStatus.PAID, null);
+        streamService.await("T8", OrderStatus.PAID, null);
+        assertTrue(streamService.await("T8", OrderStatus.PAID, null).hasResult());
+        assertEquals(2, streamService.getWaiterCount());
+    }
+
+    @Test
+    void testAwaitInvalidStatus() {
+        BizException e = assertThrows(BizException.class, () -> streamService.await("T9", "UNKNOWN", null));
+        assertEquals(ErrorCode.PARAM_VALUE_ERROR, e.getErrorCode());
+    }
+
+    private OrderDetailResponse detail(String tradeNo, String status) {
+        OrderDetailResponse detail = new OrderDetailResponse();
+        detail.setTradeNo(tradeNo);
+        detail.setStatus(status);
+        detail.setExpireTime(System.currentTimeMillis() + 600_000L);
+        return detail;
+    }
+}
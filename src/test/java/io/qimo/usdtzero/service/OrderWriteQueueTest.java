@@ -0,0 +1,118 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderWriteQueueTest {
+
+    @Mock
+    private AppProperties appProperties;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private OrderWriteQueue orderWriteQueue;
+
+    @BeforeEach
+    void setUp() {
+        when(appProperties.getWriteBatchEnabled()).thenReturn(true);
+        lenient().when(appProperties.getWriteBatchMaxDelay()).thenReturn(200);
+        lenient().when(appProperties.getWriteBatchMaxSize()).thenReturn(64);
+        orderWriteQueue.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderWriteQueue.shutdown();
+    }
+
+    @Test
+    void testConcurrentWritesCommitTogether() throws Exception {
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            int value = i;
+            results.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return orderWriteQueue.execute(() -> value);
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < writers; i++) {
+            assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        // 攒批时长内的写操作合并提交
+        verify(transactionManager, atMost(2)).commit(any());
+        verify(metricsService, atLeastOnce()).recordOrderWriteBatch(anyInt(), eq(false));
+    }
+
+    @Test
+    void testFailedWriteDoesNotFailBatch() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CompletableFuture<Integer> ok = CompletableFuture.supplyAsync(() -> {
+            awaitQuietly(start);
+            return orderWriteQueue.execute(() -> 1);
+        });
+        CompletableFuture<Integer> failed = CompletableFuture.supplyAsync(() -> {
+            awaitQuietly(start);
+            return orderWriteQueue.execute(() -> {
+                throw new IllegalStateException("UNIQUE constraint failed");
+            });
+        });
+        start.countDown();
+        assertEquals(1, ok.get(5, TimeUnit.SECONDS));
+        Exception ex = assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    @Test
+    void testRunsInlineInsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals("inline", orderWriteQueue.execute(() -> "inline"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void testRunsInOwnTransactionWhenDisabled() {
+        orderWriteQueue.shutdown();
+        assertEquals("direct", orderWriteQueue.execute(() -> "direct"));
+        // 未启用组提交时多语句写操作仍在单独的事务内提交
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
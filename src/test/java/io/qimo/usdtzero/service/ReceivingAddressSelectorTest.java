@@ -0,0 +1,95 @@
+package io.qimo.usdtzero.service;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceivingAddressSelectorTest {
+
+    private static final List<String> ADDRESSES = List.of("addr_1", "addr_2", "addr_3");
+    private static final long BASE = 14_290_000L;
+    private static final long STEP = 10_000L;
+
+    @Mock
+    private ChainProperties chainProperties;
+
+    @Mock
+    private LightweightMetricsService metricsService;
+
+    @InjectMocks
+    private ReceivingAddressSelector selector;
+
+    private AmountPoolService amountPoolService;
+
+    @BeforeEach
+    void setUp() {
+        amountPoolService = new AmountPoolService();
+        ReflectionTestUtils.setField(selector, "amountPoolService", amountPoolService);
+    }
+
+    @Test
+    void testSingleAddressReturnedAsIs() {
+        List<String> single = List.of("addr_1");
+        assertSame(single, selector.order(ChainType.TRC20, single, BASE, STEP, 100, null));
+    }
+
+    @Test
+    void testLeastOccupiedPrefersEmptyLadder() {
+        when(chainProperties.getAddressStrategy()).thenReturn(ChainProperties.STRATEGY_LEAST_OCCUPIED);
+        for (int i = 0; i < 3; i++) {
+            amountPoolService.allocateNearestAmount("addr_1", BASE, STEP, 100);
+            amountPoolService.allocateNearestAmount("addr_3", BASE, STEP, 100);
+        }
+        amountPoolService.allocateNearestAmount("addr_3", BASE, STEP, 100);
+
+        for (int i = 0; i < 5; i++) {
+            List<String> ordered = selector.order(ChainType.TRC20, ADDRESSES, BASE, STEP, 100, null);
+            assertEquals(List.of("addr_2", "addr_1", "addr_3"), ordered);
+        }
+    }
+
+    @Test
+    void testLeastOccupiedSpreadsAllocations() {
+        when(chainProperties.getAddressStrategy()).thenReturn(ChainProperties.STRATEGY_LEAST_OCCUPIED);
+        long maxDepth = 0;
+        for (int i = 0; i < 30; i++) {
+            String address = selector.order(ChainType.TRC20, ADDRESSES, BASE, STEP, 100, null).get(0);
+            long amount = amountPoolService.allocateNearestAmount(address, BASE, STEP, 100);
+            maxDepth = Math.max(maxDepth, (amount - BASE) / STEP);
+        }
+        // 30笔订单均匀落在3个地址上，每个地址只用到前10级
+        assertEquals(9, maxDepth);
+        assertEquals(Map.of("addr_1", 10, "addr_2", 10, "addr_3", 10), selector.getOccupancy(ADDRESSES));
+    }
+
+    @Test
+    void testRoundRobinRotates() {
+        when(chainProperties.getAddressStrategy()).thenReturn(ChainProperties.STRATEGY_ROUND_ROBIN);
+        assertEquals("addr_1", selector.order(ChainType.BEP20, ADDRESSES, BASE, STEP, 100, null).get(0));
+        assertEquals("addr_2", selector.order(ChainType.BEP20, ADDRESSES, BASE, STEP, 100, null).get(0));
+        assertEquals("addr_3", selector.order(ChainType.BEP20, ADDRESSES, BASE, STEP, 100, null).get(0));
+        assertEquals("addr_1", selector.order(ChainType.BEP20, ADDRESSES, BASE, STEP, 100, null).get(0));
+    }
+
+    @Test
+    void testHashIsStablePerOrderNo() {
+        when(chainProperties.getAddressStrategy()).thenReturn(ChainProperties.STRATEGY_HASH);
+        List<String> first = selector.order(ChainType.SPL, ADDRESSES, BASE, STEP, 100, "MERCHANT_ORDER_1");
+        List<String> second = selector.order(ChainType.SPL, ADDRESSES, BASE, STEP, 100, "MERCHANT_ORDER_1");
+        assertEquals(first, second);
+        assertEquals(3, first.size());
+    }
+}
@@ -0,0 +1,65 @@
+package io.qimo.usdtzero.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedTradeNoGeneratorTest {
+
+    @Test
+    void testMonotonicAndFixedLength() {
+        TradeNoGenerator generator = new TimeOrderedTradeNoGenerator(7);
+        String previous = generator.next();
+        for (int i = 0; i < 20000; i++) {
+            String next = generator.next();
+            assertEquals(13, next.length());
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void testClockBackwardsStaysMonotonic() {
+        long[] clock = {TimeOrderedTradeNoGenerator.EPOCH + 1_000_000L};
+        TimeOrderedTradeNoGenerator generator = new TimeOrderedTradeNoGenerator(1) {
+            @Override
+            long currentTimeMillis() {
+                return clock[0];
+            }
+        };
+        String first = generator.next();
+        clock[0] -= 5000;
+        String second = generator.next();
+        assertTrue(second.compareTo(first) > 0);
+    }
+
+    @Test
+    void testUniqueAcrossThreadsAndNodes() throws Exception {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int node = 0; node < 2; node++) {
+            TradeNoGenerator generator = new TimeOrderedTradeNoGenerator(node);
+            for (int t = 0; t < 4; t++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        assertTrue(seen.add(generator.next()));
+                    }
+                }));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        assertEquals(80000, seen.size());
+    }
+
+    @Test
+    void testInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedTradeNoGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedTradeNoGenerator(1024));
+    }
+}
@@ -1,5 +1,6 @@
 package io.qimo.usdtzero.task;
 
+import io.qimo.usdtzero.service.AmountPoolJournalService;
 import io.qimo.usdtzero.service.AmountPoolService;
 import io.qimo.usdtzero.service.LightweightMetricsService;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,15 +10,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
-import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class AmountPoolCleanupTaskTest {
     @Mock
     private AmountPoolService amountPoolService;
     @Mock
+    private AmountPoolJournalService amountPoolJournalService;
+    @Mock
     private LightweightMetricsService metricsService;
     @InjectMocks
     private AmountPoolCleanupTask cleanupTask;
@@ -28,31 +29,27 @@ class AmountPoolCleanupTaskTest {
     }
 
     @Test
-    void testCleanupExpiredAmountPool_removesExpiredEntriesAndRecordsMetrics() {
-        // 构造过期和未过期条目
-        String expiredKey = "addr_1_100";
-        String validKey = "addr_2_200";
-        LocalDateTime now = LocalDateTime.now();
-        AmountPoolService.AmountPoolEntry expired = new AmountPoolService.AmountPoolEntry("order1", now.minusMinutes(1));
-        AmountPoolService.AmountPoolEntry valid = new AmountPoolService.AmountPoolEntry("order2", now.plusMinutes(10));
-        Map<String, AmountPoolService.AmountPoolEntry> pool = Map.of(
-                expiredKey, expired,
-                validKey, valid
-        );
-        when(amountPoolService.getAmountToOrderMap()).thenReturn(pool);
-
-        // 执行
+    void testCleanupExpiredAmountPool_releasesExpiredEntries() {
+        when(amountPoolService.releaseExpiredAmounts(any(LocalDateTime.class))).thenReturn(2);
+
         cleanupTask.cleanupExpiredAmountPool();
 
-        // 验证只清理过期条目
-        verify(amountPoolService, times(1)).releaseAmountByKey(expiredKey);
-        verify(amountPoolService, never()).releaseAmountByKey(validKey);
-       }
+        verify(amountPoolService, times(1)).releaseExpiredAmounts(any(LocalDateTime.class));
+        verify(amountPoolService, never()).getAmountToOrderMap();
+        verify(metricsService, never()).recordScheduledTaskError(anyString(), anyString());
+    }
 
     @Test
     void testCleanupExpiredAmountPool_handlesExceptionAndRecordsError() {
-        when(amountPoolService.getAmountToOrderMap()).thenThrow(new RuntimeException("mock error"));
+        when(amountPoolService.releaseExpiredAmounts(any(LocalDateTime.class))).thenThrow(new RuntimeException("mock error"));
         cleanupTask.cleanupExpiredAmountPool();
         verify(metricsService, atLeastOnce()).recordScheduledTaskError(eq("amount_pool_cleanup"), anyString());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testCompactAmountPoolJournal_handlesExceptionAndRecordsError() {
+        doThrow(new RuntimeException("mock error")).when(amountPoolJournalService).compactIfNeeded();
+        cleanupTask.compactAmountPoolJournal();
+        verify(metricsService, times(1)).recordScheduledTaskError(eq("amount_pool_journal_compact"), anyString());
+    }
+}
@@ -0,0 +1,86 @@
+package io.qimo.usdtzero.task;
+
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChainScanExecutorTest {
+
+    private final LightweightMetricsService metricsService = mock(LightweightMetricsService.class);
+    private final ChainScanExecutor executor = new ChainScanExecutor(ChainType.TRC20, 2, metricsService);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testLimitsInFlightRpcs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int n = i;
+            futures.add(executor.supplyRpcAsync(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                release.await();
+                running.decrementAndGet();
+                return n;
+            }));
+        }
+        waitUntil(() -> executor.getInFlight() == 2 && executor.getWaiting() == 4);
+
+        release.countDown();
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, executor.getInFlight());
+        assertEquals(0, executor.getWaiting());
+        verify(metricsService).registerScanRpcGauges(eq(ChainType.TRC20), any(), any());
+        verify(metricsService, times(6)).recordScanRpcWait(eq(ChainType.TRC20), anyLong());
+    }
+
+    @Test
+    void testFailedRpcReleasesPermit() {
+        assertThrows(IOException.class, () -> executor.call(() -> {
+            throw new IOException("connection reset");
+        }));
+        CompletableFuture<Object> future = executor.supplyRpcAsync(() -> {
+            throw new IOException("connection reset");
+        });
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void testRunsOnVirtualThreads() {
+        assertTrue(executor.supplyAsync(() -> Thread.currentThread().isVirtual()).join());
+        assertTrue(executor.supplyAsync(() -> Thread.currentThread().getName()).join().startsWith("trc20-scan-"));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
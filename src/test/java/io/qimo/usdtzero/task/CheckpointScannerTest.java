@@ -0,0 +1,242 @@
+package io.qimo.usdtzero.task;
+
+import io.qimo.usdtzero.config.ChainProperties;
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.model.ScanDeadLetter;
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import io.qimo.usdtzero.service.ScanCheckpointService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CheckpointScannerTest {
+
+    private final ScanCheckpointService checkpointService = mock(ScanCheckpointService.class);
+    private final LightweightMetricsService metricsService = mock(LightweightMetricsService.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<String> scanned = Collections.synchronizedList(new ArrayList<>());
+    private long now = 1_000_000L;
+
+    private CheckpointScanner scanner(int maxCatchUp, int maxAttempts, int retryQueueLimit) {
+        // 每段10个区块，最多2段并行，失败后1秒重试
+        ChainProperties chainProperties = new ChainProperties();
+        chainProperties.setScanRangeSize(10);
+        chainProperties.setScanParallelism(2);
+        chainProperties.setScanMaxCatchUp(maxCatchUp);
+        chainProperties.setScanRetryMaxAttempts(maxAttempts);
+        chainProperties.setScanRetryBaseDelay(1);
+        chainProperties.setScanRetryQueueLimit(retryQueueLimit);
+        chainProperties.validate();
+        return new CheckpointScanner(ChainType.TRC20, 5, chainProperties, executor, checkpointService, metricsService) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private CheckpointScanner scanner() {
+        return scanner(1000, 3, 1000);
+    }
+
+    private boolean record(long from, long to) {
+        scanned.add(from + "-" + to);
+        return true;
+    }
+
+    @Test
+    void testFirstStartUsesInitialBacklog() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(ScanCheckpointService.NONE);
+        CheckpointScanner scanner = scanner();
+
+        assertFalse(scanner.scan(100, this::record));
+        assertEquals(List.of("96-100"), scanned);
+        assertEquals(100, scanner.getCursor());
+        verify(checkpointService).save(ChainType.TRC20, 100);
+        verify(checkpointService).register(scanner);
+    }
+
+    @Test
+    void testResumeFromCheckpoint() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(50L);
+        CheckpointScanner scanner = scanner();
+
+        assertFalse(scanner.scan(60, this::record));
+        assertEquals(List.of("51-60"), scanned);
+        verify(checkpointService).save(ChainType.TRC20, 60);
+
+        // 没有新区块时不扫描
+        assertFalse(scanner.scan(60, this::record));
+        assertEquals(1, scanned.size());
+        assertEquals(0, scanner.getLag());
+    }
+
+    @Test
+    void testFailedRangeRetriedWithBackoff() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner();
+
+        // 第一段失败：后续区块继续扫描，水位停在失败段之前
+        assertFalse(scanner.scan(15, (from, to) -> from != 1 && record(from, to)));
+        assertEquals(15, scanner.getFrontier());
+        assertEquals(0, scanner.getCursor());
+        assertEquals(15, scanner.getLag());
+        assertEquals(10, scanner.getRetryQueueBlocks());
+        verify(checkpointService, never()).save(anyString(), anyLong());
+
+        // 未到重试时间，只扫描新区块
+        assertFalse(scanner.scan(20, this::record));
+        assertEquals(List.of("11-15", "16-20"), scanned);
+        assertEquals(0, scanner.getCursor());
+
+        // 第二次仍失败，间隔翻倍
+        now += 1000;
+        assertFalse(scanner.scan(20, (from, to) -> {
+            throw new IllegalStateException("rpc down");
+        }));
+        CheckpointScanner.PendingRange pending = scanner.getRetryQueue().get(0);
+        assertEquals(2, pending.attempts());
+        assertEquals(now + 2000, pending.nextRetryTime());
+        assertEquals("rpc down", pending.lastError());
+
+        now += 2000;
+        assertFalse(scanner.scan(20, this::record));
+        assertEquals(20, scanner.getCursor());
+        assertTrue(scanner.getRetryQueue().isEmpty());
+        verify(checkpointService).save(ChainType.TRC20, 20);
+        verify(metricsService).recordScanRetry(ChainType.TRC20, "recovered");
+    }
+
+    @Test
+    void testDeadLetterAfterMaxAttempts() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner(1000, 2, 1000);
+
+        assertFalse(scanner.scan(20, (from, to) -> from != 11 && record(from, to)));
+        assertEquals(10, scanner.getCursor());
+
+        now += 1000;
+        assertFalse(scanner.scan(20, (from, to) -> false));
+        verify(checkpointService).saveDeadLetter(ChainType.TRC20, 11, 20, 2, "扫描未完成");
+        verify(metricsService).recordScanRetry(ChainType.TRC20, "dead_letter");
+        // 死信不再阻挡水位
+        assertEquals(20, scanner.getCursor());
+        assertTrue(scanner.getRetryQueue().isEmpty());
+    }
+
+    @Test
+    void testReplayDeadLetter() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(100L);
+        CheckpointScanner scanner = scanner(1000, 1, 1000);
+        ScanDeadLetter deadLetter = new ScanDeadLetter();
+        deadLetter.setId(7L);
+        deadLetter.setFromBlock(41L);
+        deadLetter.setToBlock(50L);
+
+        assertFalse(scanner.scan(100, this::record));
+        assertTrue(scanner.replay(deadLetter));
+        assertFalse(scanner.replay(deadLetter));
+
+        // 重放仍失败：更新死信，水位不受影响
+        assertFalse(scanner.scan(100, (from, to) -> false));
+        verify(checkpointService).updateDeadLetter(7L, 1, "扫描未完成");
+        assertEquals(100, scanner.getCursor());
+
+        assertTrue(scanner.replay(deadLetter));
+        assertFalse(scanner.scan(100, this::record));
+        assertEquals(List.of("41-50"), scanned);
+        verify(checkpointService).deleteDeadLetter(7L);
+        verify(checkpointService, never()).save(anyString(), anyLong());
+    }
+
+    @Test
+    void testPauseWhenRetryQueueFull() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner(1000, 5, 10);
+
+        assertFalse(scanner.scan(50, (from, to) -> from != 1 && record(from, to)));
+        assertEquals(20, scanner.getFrontier());
+
+        // 重试队列达到上限，不扫描新区块
+        assertFalse(scanner.scan(50, this::record));
+        assertEquals(20, scanner.getFrontier());
+        assertEquals(List.of("11-20"), scanned);
+
+        // 重试成功后恢复
+        now += 1000;
+        assertTrue(scanner.scan(50, this::record));
+        assertEquals(40, scanner.getCursor());
+    }
+
+    @Test
+    void testCatchUpInParallelRanges() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner();
+
+        assertTrue(scanner.scan(50, this::record));
+        assertEquals(20, scanner.getCursor());
+        assertTrue(scanner.scan(50, this::record));
+        assertEquals(40, scanner.getCursor());
+        // 追块期间又出了5个区块，剩余15个在一轮窗口内，追块结束
+        assertFalse(scanner.scan(55, this::record));
+        assertEquals(55, scanner.getCursor());
+        assertTrue(scanned.containsAll(List.of("1-10", "11-20", "21-30", "31-40", "41-50", "51-55")));
+        verify(metricsService).recordScanCatchUp(ChainType.TRC20, 40, 15);
+    }
+
+    @Test
+    void testBackfillBeyondMaxCatchUp() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner(15, 3, 1000);
+
+        // 先扫描最近15个区块，再补扫一个窗口的更早区块，水位停在未补扫的区块之前
+        assertTrue(scanner.scan(1000, this::record));
+        verify(metricsService).recordScanSkipped(ChainType.TRC20, 985);
+        assertEquals(List.of("1-10", "11-20", "986-995", "996-1000"), scanned.stream().sorted().toList());
+        assertEquals(1000, scanner.getFrontier());
+        assertEquals(20, scanner.getCursor());
+        assertEquals(965, scanner.getBackfillBlocks());
+        assertEquals(980, scanner.getLag());
+
+        // 剩余965个区块每轮补扫20个，共50轮补扫完
+        int rounds = 1;
+        boolean more = true;
+        while (more) {
+            more = scanner.scan(1000, this::record);
+            assertTrue(++rounds <= 50, "补扫未结束");
+        }
+        assertEquals(50, rounds);
+        assertEquals(0, scanner.getBackfillBlocks());
+        assertEquals(1000, scanner.getCursor());
+        verify(checkpointService).save(ChainType.TRC20, 1000);
+        long blocks = scanned.stream().mapToLong(range -> {
+            String[] parts = range.split("-");
+            return Long.parseLong(parts[1]) - Long.parseLong(parts[0]) + 1;
+        }).sum();
+        assertEquals(1000, blocks);
+    }
+
+    @Test
+    void testBackfillFailureQueuedForRetry() {
+        when(checkpointService.load(ChainType.TRC20)).thenReturn(0L);
+        CheckpointScanner scanner = scanner(15, 3, 1000);
+
+        assertFalse(scanner.scan(1000, (from, to) -> from != 11 && record(from, to)));
+        assertEquals(10, scanner.getCursor());
+        assertEquals(11, scanner.getRetryQueue().get(0).fromBlock());
+    }
+}
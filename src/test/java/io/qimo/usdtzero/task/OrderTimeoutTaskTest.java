@@ -5,8 +5,12 @@ import io.qimo.usdtzero.constant.OrderStatus;
 import io.qimo.usdtzero.model.Order;
 import io.qimo.usdtzero.repository.OrderMapper;
 import io.qimo.usdtzero.service.AmountPoolService;
+import io.qimo.usdtzero.service.LatePaymentIndex;
 import io.qimo.usdtzero.service.LightweightMetricsService;
+import io.qimo.usdtzero.service.OrderCache;
+import io.qimo.usdtzero.service.OrderIdempotencyCache;
 import io.qimo.usdtzero.service.OrderService;
+import io.qimo.usdtzero.service.OrderWriteQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +23,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -38,6 +43,9 @@ class OrderTimeoutTaskTest {
     @Mock
     private LightweightMetricsService metricsService;
 
+    @Mock
+    private LatePaymentIndex latePaymentIndex;
+
     private OrderTimeoutTask orderTimeoutTask;
     private OrderService orderService;
 
@@ -75,6 +83,7 @@ class OrderTimeoutTaskTest {
         paidOrder.setActualAmount(3000000L); // 3 USDT
 
         orderService = mock(OrderService.class);
+        injectField(orderService, "latePaymentIndex", latePaymentIndex);
         // 统一反射注入mock依赖
         orderTimeoutTask = new OrderTimeoutTask();
         injectField(orderTimeoutTask, "orderMapper", orderMapper);
@@ -108,6 +117,13 @@ class OrderTimeoutTaskTest {
         injectField(orderService, "amountPoolService", amountPoolService);
         injectField(orderService, "metricsService", metricsService);
         injectField(orderService, "eventPublisher", mock(org.springframework.context.ApplicationEventPublisher.class));
+        OrderWriteQueue orderWriteQueue = mock(OrderWriteQueue.class);
+        when(orderWriteQueue.execute(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        injectField(orderService, "orderWriteQueue", orderWriteQueue);
+        OrderIdempotencyCache orderIdempotencyCache = mock(OrderIdempotencyCache.class);
+        injectField(orderService, "orderIdempotencyCache", orderIdempotencyCache);
+        OrderCache orderCache = mock(OrderCache.class);
+        injectField(orderService, "orderCache", orderCache);
         when(orderMapper.updateStatusIfMatch(eq(2L), eq(OrderStatus.PENDING), eq(OrderStatus.EXPIRED)))
                 .thenReturn(1);
 
@@ -116,6 +132,9 @@ class OrderTimeoutTaskTest {
         verify(orderMapper).selectList(any(LambdaQueryWrapper.class));
         verify(orderMapper).updateStatusIfMatch(eq(2L), eq(OrderStatus.PENDING), eq(OrderStatus.EXPIRED));
         verify(amountPoolService).releaseAmount("TRC20_ADDRESS", 2000000L);
+        verify(latePaymentIndex).record("TRC20_ADDRESS", 2000000L, "EXPIRED_001");
+        verify(orderIdempotencyCache).invalidate(expiredOrder.getChainType(), expiredOrder.getOrderNo());
+        verify(orderCache).invalidate("EXPIRED_001");
         // verify(metricsService).recordScheduledTaskTime(anyLong(), eq("order_timeout"), eq(true));
     }
 
@@ -0,0 +1,132 @@
+package io.qimo.usdtzero.task;
+
+import io.qimo.usdtzero.constant.ChainType;
+import io.qimo.usdtzero.service.LightweightMetricsService;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class Web3jBatchClientTest {
+
+    private final Web3j web3j = mock(Web3j.class);
+    private final LightweightMetricsService metricsService = mock(LightweightMetricsService.class);
+
+    @Test
+    void testChunksAndAlignsResponses() throws IOException {
+        List<Request<?, EthBlockNumber>> requests = requests(5);
+        List<BatchRequest> batches = new ArrayList<>();
+        when(web3j.newBatch()).thenAnswer(invocation -> {
+            BatchRequest batch = mock(BatchRequest.class);
+            List<Request<?, EthBlockNumber>> added = new ArrayList<>();
+            when(batch.add(any())).thenAnswer(add -> {
+                added.add(add.getArgument(0));
+                return batch;
+            });
+            when(batch.send()).thenAnswer(send -> {
+                // 节点返回顺序与请求相反
+                List<EthBlockNumber> responses = new ArrayList<>();
+                for (int i = added.size() - 1; i >= 0; i--) {
+                    responses.add(response(added.get(i).getId()));
+                }
+                return batchResponse(responses);
+            });
+            batches.add(batch);
+            return batch;
+        });
+
+        List<EthBlockNumber> responses = new Web3jBatchClient(web3j, ChainType.BEP20, 2, metricsService).sendAll(requests);
+
+        assertEquals(5, responses.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(requests.get(i).getId(), responses.get(i).getId());
+        }
+        // 2 + 2 打包发送，最后1条单独发送
+        assertEquals(2, batches.size());
+        verify(requests.get(4)).send();
+        verify(metricsService, times(2)).recordChainRpcBatch(eq(ChainType.BEP20), eq(2), anyLong());
+        verify(metricsService).recordChainRpcBatch(eq(ChainType.BEP20), eq(1), anyLong());
+    }
+
+    @Test
+    void testSplitsWhenBatchRejected() throws IOException {
+        List<Request<?, EthBlockNumber>> requests = requests(4);
+        BatchRequest rejected = mock(BatchRequest.class);
+        when(rejected.add(any())).thenReturn(rejected);
+        when(rejected.send()).thenThrow(new ClientConnectionException("Invalid response received: 413; batch too large"));
+        when(web3j.newBatch()).thenReturn(rejected);
+
+        List<EthBlockNumber> responses = new Web3jBatchClient(web3j, ChainType.BEP20, 10, metricsService).sendAll(requests);
+
+        assertEquals(4, responses.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(requests.get(i).getId(), responses.get(i).getId());
+            verify(requests.get(i)).send();
+        }
+    }
+
+    @Test
+    void testTransportFailureIsThrownWithoutSplitting() throws IOException {
+        List<Request<?, EthBlockNumber>> requests = requests(4);
+        BatchRequest batch = mock(BatchRequest.class);
+        when(batch.add(any())).thenReturn(batch);
+        when(batch.send()).thenThrow(new SocketTimeoutException("timeout"));
+        when(web3j.newBatch()).thenReturn(batch);
+
+        Web3jBatchClient client = new Web3jBatchClient(web3j, ChainType.BEP20, 10, metricsService);
+        assertThrows(SocketTimeoutException.class, () -> client.sendAll(requests));
+        // 传输错误交给扫块任务退避重试，不拆分
+        verify(web3j, times(1)).newBatch();
+        for (Request<?, EthBlockNumber> request : requests) {
+            verify(request, never()).send();
+        }
+    }
+
+    @Test
+    void testSingleRequestFailureIsThrown() throws IOException {
+        List<Request<?, EthBlockNumber>> requests = requests(1);
+        when(requests.get(0).send()).thenThrow(new IOException("connection refused"));
+
+        Web3jBatchClient client = new Web3jBatchClient(web3j, ChainType.BEP20, 1, metricsService);
+        assertThrows(IOException.class, () -> client.sendAll(requests));
+        verify(web3j, never()).newBatch();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Request<?, EthBlockNumber>> requests(int count) throws IOException {
+        List<Request<?, EthBlockNumber>> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long id = 100 + i;
+            Request<?, EthBlockNumber> request = mock(Request.class);
+            when(request.getId()).thenReturn(id);
+            lenient().when(request.send()).thenReturn(response(id));
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private static EthBlockNumber response(long id) {
+        EthBlockNumber response = new EthBlockNumber();
+        response.setId(id);
+        return response;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static BatchResponse batchResponse(List<EthBlockNumber> responses) {
+        BatchResponse batchResponse = mock(BatchResponse.class);
+        when(batchResponse.getResponses()).thenReturn((List) responses);
+        return batchResponse;
+    }
+}
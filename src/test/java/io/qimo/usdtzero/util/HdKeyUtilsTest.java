@@ -0,0 +1,45 @@
+package io.qimo.usdtzero.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HdKeyUtilsTest {
+
+    // BIP32 测试向量2
+    private static final String MASTER_XPUB =
+            "xpub661MyMwAqRbcFW31YEwpkMuc5THy2PSt5bDMsktWQcFF8syAmRUapSCGu8ED9W6oDMSgv6Zz8idoc4a6mr8BDzTJY47LJhkJ8UB7WEGuduB";
+    private static final String CHILD_0_XPUB =
+            "xpub69H7F5d8KSRgmmdJg2KhpAK8SR3DjMwAdkxj3ZuxV27CprR9LgpeyGmXUbC6wb7ERfvrnKZjXoUmmDznezpbZb7ap6r1D3tgFxHmwMkQTPH";
+
+    // 私钥为1时的公钥（secp256k1生成元G）
+    private static final byte[] GENERATOR = HexFormat.of()
+            .parseHex("0279be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798");
+
+    @Test
+    void testDeriveNonHardenedChild() {
+        byte[] derived = HdKeyUtils.derivePublicKey(MASTER_XPUB, 0);
+        assertArrayEquals(HdKeyUtils.parseExtendedPublicKey(CHILD_0_XPUB).getPublicKey(), derived);
+    }
+
+    @Test
+    void testHardenedDerivationRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HdKeyUtils.derivePublicKey(MASTER_XPUB, 0x80000000));
+    }
+
+    @Test
+    void testAddressEncoding() {
+        assertEquals("0x7e5f4552091a69125d5dfcb7b8c2659029395bdf", HdKeyUtils.toEvmAddress(GENERATOR));
+        assertEquals("TMVQGm1qAQYVdetCeGRRkTWYYrLXuHK2HC", HdKeyUtils.toTronAddress(GENERATOR));
+    }
+
+    @Test
+    void testDistinctAddressesPerIndex() {
+        String first = HdKeyUtils.toTronAddress(HdKeyUtils.derivePublicKey(MASTER_XPUB, 0, 0));
+        String second = HdKeyUtils.toTronAddress(HdKeyUtils.derivePublicKey(MASTER_XPUB, 0, 1));
+        assertNotEquals(first, second);
+        assertTrue(first.startsWith("T"));
+    }
+}
@@ -0,0 +1,123 @@
+package io.qimo.usdtzero.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final int SAMPLES = 200_000;
+    private static final long USDT_UNIT = 1_000_000L;
+
+    @Test
+    void testCnyToUsdtMinUnitMatchesBigDecimal() {
+        Random random = new Random(20250101L);
+        int exact = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            // 0.01 ~ 1000万元，汇率 0.00000001 ~ 99.99999999（随机小数位）
+            long cents = 1 + (long) (random.nextDouble() * random.nextDouble() * 1_000_000_000L);
+            BigDecimal yuan = BigDecimal.valueOf(cents, 2);
+            BigDecimal rate = BigDecimal.valueOf(1 + random.nextLong(9_999_999_999L), random.nextInt(Money.RATE_SCALE + 1));
+            int usdtScale = 1 + random.nextInt(3);
+
+            long expected = yuan.divide(rate, usdtScale, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(USDT_UNIT)).longValue();
+            long actual = Money.cnyToUsdtMinUnit(Money.toCents(yuan), Money.toScaledRate(rate), USDT_UNIT, usdtScale);
+            if (actual != Money.NOT_EXACT) {
+                exact++;
+                assertEquals(expected, actual, () -> yuan + " / " + rate + " @" + usdtScale);
+            }
+        }
+        // 只有极小汇率导致溢出时才回退
+        assertTrue(exact > SAMPLES * 99 / 100, "定点路径覆盖率: " + exact);
+    }
+
+    @Test
+    void testCnyToUsdtMinUnitTypicalRatesAreExact() {
+        // 常见汇率与汇率策略组合必须走定点路径
+        BigDecimal latest = new BigDecimal("7.13");
+        for (String strategy : new String[]{"~1", "~1.02", "~0.97", "+0.3", "-0.2"}) {
+            BigDecimal rate = RateUtils.calcActualRate(strategy, latest);
+            long scaledRate = Money.toScaledRate(rate);
+            assertNotEquals(Money.NOT_EXACT, scaledRate, strategy);
+            for (long cents = 1; cents < 1_000_000; cents += 7) {
+                BigDecimal yuan = BigDecimal.valueOf(cents, 2);
+                long expected = yuan.divide(rate, 2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(USDT_UNIT)).longValue();
+                assertEquals(expected, Money.cnyToUsdtMinUnit(cents, scaledRate, USDT_UNIT, 2));
+            }
+        }
+    }
+
+    @Test
+    void testCnyToUsdtMinUnitNotExact() {
+        assertEquals(Money.NOT_EXACT, Money.cnyToUsdtMinUnit(0, 700_000_000L, USDT_UNIT, 2));
+        assertEquals(Money.NOT_EXACT, Money.cnyToUsdtMinUnit(100, 0, USDT_UNIT, 2));
+        assertEquals(Money.NOT_EXACT, Money.cnyToUsdtMinUnit(100, Money.NOT_EXACT, USDT_UNIT, 2));
+        assertEquals(Money.NOT_EXACT, Money.cnyToUsdtMinUnit(Long.MAX_VALUE / 10, 700_000_000L, USDT_UNIT, 2));
+        // 超过小数位的输入不能精确表示
+        assertEquals(Money.NOT_EXACT, Money.toCents(new BigDecimal("1.005")));
+        assertEquals(Money.NOT_EXACT, Money.toScaledRate(new BigDecimal("7.123456789")));
+        assertEquals(Money.NOT_EXACT, Money.toCents(new BigDecimal("1E+30")));
+        assertEquals(100L, Money.toCents(new BigDecimal("1")));
+        assertEquals(-150L, Money.toCents(new BigDecimal("-1.5")));
+        assertEquals(100_000L, Money.toCents(new BigDecimal("1E+3")));
+    }
+
+    @Test
+    void testToUsdtMatchesBigDecimal() {
+        Random random = new Random(7L);
+        for (int i = 0; i < SAMPLES; i++) {
+            long minUnit = random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+            int usdtScale = random.nextInt(7);
+            BigDecimal expected = BigDecimal.valueOf(minUnit).divide(BigDecimal.valueOf(USDT_UNIT), usdtScale, RoundingMode.HALF_UP);
+            assertEquals(expected, Money.toUsdt(minUnit, USDT_UNIT, usdtScale));
+            long expectedRoundTrip = expected.multiply(BigDecimal.valueOf(USDT_UNIT)).longValue();
+            assertEquals(expectedRoundTrip, Money.roundTrip(minUnit, USDT_UNIT, usdtScale));
+        }
+        // 溢出时回退到BigDecimal
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).divide(BigDecimal.valueOf(USDT_UNIT), 2, RoundingMode.HALF_UP),
+                Money.toUsdt(Long.MAX_VALUE, USDT_UNIT, 2));
+    }
+
+    @Test
+    void testToYuanMatchesBigDecimal() {
+        Random random = new Random(11L);
+        for (int i = 0; i < SAMPLES; i++) {
+            long cents = random.nextLong();
+            assertEquals(BigDecimal.valueOf(cents).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP), Money.toYuan(cents));
+        }
+    }
+
+    @Test
+    void testDivideHalfUp() {
+        assertEquals(3, Money.divideHalfUp(5, 2));
+        assertEquals(-3, Money.divideHalfUp(-5, 2));
+        assertEquals(-3, Money.divideHalfUp(5, -2));
+        assertEquals(-1, Money.divideHalfUp(-4, 3));
+        assertEquals(1, Money.divideHalfUp(4, 3));
+        assertEquals(2, Money.divideHalfUp(5, 3));
+        assertEquals(0, Money.divideHalfUp(0, 3));
+    }
+
+    @Test
+    void testHexDivideMatchesBigInteger() {
+        Random random = new Random(13L);
+        BigInteger divisor = BigInteger.TEN.pow(12);
+        for (int i = 0; i < SAMPLES; i++) {
+            // 最多约 5e25 wei（5000万 USDT）
+            BigInteger wei = new BigInteger(86, random);
+            String input = "0xa9059cbb" + "0".repeat(64) + String.format("%064x", wei);
+            long expected = new BigDecimal(wei).divide(new BigDecimal(divisor), 6, RoundingMode.DOWN).longValue();
+            assertEquals(expected, Money.hexDivide(input, 74, 138, divisor.longValueExact()));
+        }
+        assertEquals(0L, Money.hexDivide("0".repeat(64), 0, 64, 1_000_000_000_000L));
+        assertEquals(1L, Money.hexDivide("E8D4A51000", 0, 10, 1_000_000_000_000L));
+        assertThrows(NumberFormatException.class, () -> Money.hexDivide("zz", 0, 2, 10L));
+        assertThrows(NumberFormatException.class, () -> Money.hexDivide("f".repeat(64), 0, 64, 1_000_000_000_000L));
+    }
+}